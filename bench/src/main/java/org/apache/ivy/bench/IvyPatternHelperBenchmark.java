@@ -0,0 +1,106 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Substitutes the usual cache, repository and retrieve patterns for many artifacts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class IvyPatternHelperBenchmark {
+    private static final String[] PATTERNS = new String[] {
+        "[organisation]/[module]/(scala_[scalaVersion]/)(sbt_[sbtVersion]/)[type]s/"
+                + "[artifact]-[revision](-[classifier]).[ext]",
+        "[orgPath]/[module]/[revision]/[artifact]-[revision](-[classifier]).[ext]",
+        "[organisation]/[module]/[revision]/[type]s/[artifact](-[classifier]).[ext]",
+        "lib/[conf]/[artifact]-[revision](-[classifier]).[ext]"
+    };
+
+    @Param({"1000"})
+    public int artifacts;
+
+    private Artifact[] artifactArray;
+
+    private Map[] tokens;
+
+    @Setup
+    public void setUp() {
+        artifactArray = new Artifact[artifacts];
+        tokens = new Map[artifacts];
+        for (int i = 0; i < artifacts; i++) {
+            Map moduleAttributes = new HashMap();
+            if (i % 2 == 0) {
+                moduleAttributes.put("e:scalaVersion", "2.10");
+            }
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance(SyntheticRepository.ORGANISATION
+                    + ".group" + (i % 20), "module" + i, null, "1." + i, moduleAttributes);
+            Map artifactAttributes = new HashMap();
+            if (i % 4 == 0) {
+                artifactAttributes.put("m:classifier", "sources");
+            }
+            artifactArray[i] = new DefaultArtifact(mrid, null, mrid.getName(), "jar", "jar",
+                    artifactAttributes);
+            tokens[i] = new HashMap(mrid.getAttributes());
+            tokens[i].putAll(artifactArray[i].getAttributes());
+        }
+    }
+
+    @Benchmark
+    public void substitute(Blackhole blackhole) {
+        for (int i = 0; i < artifactArray.length; i++) {
+            for (int j = 0; j < PATTERNS.length; j++) {
+                blackhole.consume(IvyPatternHelper.substitute(PATTERNS[j], artifactArray[i], 
+                    "default"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void substituteTokens(Blackhole blackhole) {
+        for (int i = 0; i < tokens.length; i++) {
+            for (int j = 0; j < PATTERNS.length; j++) {
+                blackhole.consume(IvyPatternHelper.substituteTokens(PATTERNS[j], tokens[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.plugins.latest.ArtifactInfo;
+import org.apache.ivy.plugins.latest.LatestRevisionStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts revisions with the latest revision strategy, as done when resolving dynamic revisions
+ * and when managing conflicts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class LatestRevisionStrategyBenchmark {
+    private static final String[] QUALIFIERS = new String[] {
+        "", "-alpha", "-beta2", "-rc1", "-SNAPSHOT", "-final", ".RELEASE"
+    };
+
+    @Param({"10", "100", "1000"})
+    public int revisions;
+
+    private Ivy ivy;
+
+    private LatestRevisionStrategy strategy;
+
+    private ArtifactInfo[] infos;
+
+    @Setup
+    public void setUp() {
+        ivy = Ivy.newInstance();
+        strategy = new LatestRevisionStrategy();
+        // shuffled with a fixed seed, so that all the runs sort the same array
+        Random random = new Random(revisions);
+        List list = new ArrayList();
+        for (int i = 0; i < revisions; i++) {
+            list.add(new Revision(random.nextInt(3) + "." + random.nextInt(20) + "."
+                + random.nextInt(10) + QUALIFIERS[random.nextInt(QUALIFIERS.length)], i));
+        }
+        Collections.shuffle(list, random);
+        infos = (ArtifactInfo[]) list.toArray(new ArtifactInfo[list.size()]);
+    }
+
+    @Benchmark
+    public List sort() {
+        ivy.pushContext();
+        try {
+            return strategy.sort(infos);
+        } finally {
+            ivy.popContext();
+        }
+    }
+
+    @Benchmark
+    public ArtifactInfo findLatest() {
+        ivy.pushContext();
+        try {
+            return strategy.findLatest(infos, null);
+        } finally {
+            ivy.popContext();
+        }
+    }
+
+    private static final class Revision implements ArtifactInfo {
+        private final String revision;
+
+        private final long lastModified;
+
+        private Revision(String revision, long lastModified) {
+            this.revision = revision;
+            this.lastModified = lastModified;
+        }
+
+        public String getRevision() {
+            return revision;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
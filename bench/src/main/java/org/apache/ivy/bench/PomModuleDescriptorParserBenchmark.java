@@ -0,0 +1,155 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.m2.PomModuleDescriptorParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses a pom with a given number of dependencies, and a build section with a given number of
+ * plugins, which Ivy doesn't use but still has to read through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class PomModuleDescriptorParserBenchmark {
+    @Param({"10", "100"})
+    public int dependencies;
+
+    @Param({"0", "100"})
+    public int plugins;
+
+    private File dir;
+
+    private URL pom;
+
+    private IvySettings settings;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = SyntheticRepository.createTempDir("ivy-bench-pom");
+        File file = new File(dir, "parsed-1.0.pom");
+        SyntheticRepository.write(file, pom().getBytes("UTF-8"));
+        pom = file.toURI().toURL();
+        settings = new IvySettings();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticRepository.delete(dir);
+    }
+
+    @Benchmark
+    public ModuleDescriptor parseDescriptor() throws Exception {
+        return PomModuleDescriptorParser.getInstance().parseDescriptor(settings, pom, false);
+    }
+
+    private String pom() {
+        StringBuffer pom = new StringBuffer();
+        pom.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        pom.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        pom.append("  <modelVersion>4.0.0</modelVersion>\n");
+        pom.append("  <groupId>").append(SyntheticRepository.ORGANISATION).append("</groupId>\n");
+        pom.append("  <artifactId>parsed</artifactId>\n");
+        pom.append("  <version>1.0</version>\n");
+        pom.append("  <description>a synthetic module</description>\n");
+        pom.append("  <properties>\n");
+        pom.append("    <dep.version>1.0</dep.version>\n");
+        pom.append("  </properties>\n");
+        pom.append("  <dependencyManagement>\n");
+        pom.append("    <dependencies>\n");
+        for (int i = 0; i < dependencies; i += 2) {
+            pom.append("      <dependency>\n");
+            pom.append("        <groupId>").append(SyntheticRepository.ORGANISATION)
+                .append("</groupId>\n");
+            pom.append("        <artifactId>dep").append(i).append("</artifactId>\n");
+            pom.append("        <version>${dep.version}</version>\n");
+            pom.append("      </dependency>\n");
+        }
+        pom.append("    </dependencies>\n");
+        pom.append("  </dependencyManagement>\n");
+        pom.append("  <dependencies>\n");
+        for (int i = 0; i < dependencies; i++) {
+            pom.append("    <dependency>\n");
+            pom.append("      <groupId>").append(SyntheticRepository.ORGANISATION)
+                .append("</groupId>\n");
+            pom.append("      <artifactId>dep").append(i).append("</artifactId>\n");
+            if (i % 2 != 0) {
+                pom.append("      <version>1.").append(i).append("</version>\n");
+            }
+            if (i % 3 == 0) {
+                pom.append("      <scope>test</scope>\n");
+            }
+            pom.append("      <exclusions>\n");
+            pom.append("        <exclusion>\n");
+            pom.append("          <groupId>commons-logging</groupId>\n");
+            pom.append("          <artifactId>commons-logging</artifactId>\n");
+            pom.append("        </exclusion>\n");
+            pom.append("      </exclusions>\n");
+            pom.append("    </dependency>\n");
+        }
+        pom.append("  </dependencies>\n");
+        pom.append("  <build>\n");
+        pom.append("    <plugins>\n");
+        for (int i = 0; i < plugins; i++) {
+            pom.append("      <plugin>\n");
+            pom.append("        <groupId>org.apache.maven.plugins</groupId>\n");
+            pom.append("        <artifactId>plugin").append(i).append("</artifactId>\n");
+            pom.append("        <version>1.0</version>\n");
+            pom.append("        <executions>\n");
+            pom.append("          <execution>\n");
+            pom.append("            <id>execution").append(i).append("</id>\n");
+            pom.append("            <phase>package</phase>\n");
+            pom.append("            <goals><goal>run</goal></goals>\n");
+            pom.append("            <configuration>\n");
+            for (int j = 0; j < 10; j++) {
+                pom.append("              <option").append(j).append(">value</option")
+                    .append(j).append(">\n");
+            }
+            pom.append("            </configuration>\n");
+            pom.append("          </execution>\n");
+            pom.append("        </executions>\n");
+            pom.append("      </plugin>\n");
+        }
+        pom.append("    </plugins>\n");
+        pom.append("  </build>\n");
+        pom.append("</project>\n");
+        return pom.toString();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.core.settings.IvySettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looks up modules and artifacts already in the repository cache, as done by each resolve for
+ * each module of the graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RepositoryCacheManagerBenchmark {
+    @Param({"100", "1000"})
+    public int modules;
+
+    private File dir;
+
+    private Ivy ivy;
+
+    private DefaultRepositoryCacheManager cacheManager;
+
+    private DependencyDescriptor[] dependencies;
+
+    private Artifact[] artifacts;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        dir = SyntheticRepository.createTempDir("ivy-bench-cache");
+        File repository = new File(dir, "repository");
+        SyntheticRepository synthetic = new SyntheticRepository(repository, modules, 1, 0, 1,
+                false);
+        File caller = synthetic.generate();
+        IvySettings settings = SyntheticRepository.newSettings(repository, new File(dir, "cache"));
+        ivy = Ivy.newInstance(settings);
+        ResolveOptions options = new ResolveOptions().setValidate(false);
+        options.setLog(LogOptions.LOG_QUIET);
+        ivy.resolve(caller.toURI().toURL(), options);
+        cacheManager = (DefaultRepositoryCacheManager) settings
+                .getDefaultRepositoryCacheManager();
+
+        dependencies = new DependencyDescriptor[modules];
+        artifacts = new Artifact[modules];
+        for (int i = 0; i < modules; i++) {
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance(
+                SyntheticRepository.ORGANISATION, SyntheticRepository.getModuleName(0, i), "1.0");
+            dependencies[i] = new DefaultDependencyDescriptor(mrid, false);
+            artifacts[i] = new DefaultArtifact(mrid, null, mrid.getName(), "jar", "jar");
+        }
+        if (findModulesInCache() != modules) {
+            throw new IllegalStateException("synthetic modules not found in cache");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticRepository.delete(dir);
+    }
+
+    @Benchmark
+    public int findModulesInCache() {
+        int found = 0;
+        ivy.pushContext();
+        try {
+            for (int i = 0; i < dependencies.length; i++) {
+                ResolvedModuleRevision module = cacheManager.findModuleInCache(dependencies[i],
+                    dependencies[i].getDependencyRevisionId(), new CacheMetadataOptions(),
+                    SyntheticRepository.RESOLVER_NAME);
+                if (module != null) {
+                    found++;
+                }
+            }
+        } finally {
+            ivy.popContext();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public void findArtifactsInCache(Blackhole blackhole) {
+        ivy.pushContext();
+        try {
+            for (int i = 0; i < artifacts.length; i++) {
+                ArtifactOrigin origin = cacheManager.getSavedArtifactOrigin(artifacts[i]);
+                blackhole.consume(cacheManager.getArchiveFileInCache(artifacts[i], origin));
+            }
+        } finally {
+            ivy.popContext();
+        }
+    }
+}
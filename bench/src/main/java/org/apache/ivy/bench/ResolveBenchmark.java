@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves a module depending on a synthetic graph of modules, published in a file system
+ * repository.
+ * <p>
+ * The cache is filled before the measurements, so that the resolves use the cached metadata and
+ * artifacts, unless <code>refresh</code> is set, in which case the metadata are read from the
+ * repository again on each resolve.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ResolveBenchmark {
+    /**
+     * The number of modules of each level of the graph.
+     */
+    @Param({"10", "50"})
+    public int width;
+
+    /**
+     * The number of levels of the graph.
+     */
+    @Param({"3", "6"})
+    public int depth;
+
+    /**
+     * The number of dependencies of each module on the modules of the next level.
+     */
+    @Param({"3"})
+    public int fanOut;
+
+    /**
+     * Whether the dependencies ask for latest.integration rather than a fixed revision.
+     */
+    @Param({"false", "true"})
+    public boolean dynamic;
+
+    @Param({"false", "true"})
+    public boolean refresh;
+
+    private File dir;
+
+    private Ivy ivy;
+
+    private URL caller;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        dir = SyntheticRepository.createTempDir("ivy-bench-resolve");
+        File repository = new File(dir, "repository");
+        caller = new SyntheticRepository(repository, width, depth, fanOut, 3, dynamic)
+                .generate().toURI().toURL();
+        ivy = Ivy.newInstance(SyntheticRepository.newSettings(repository, new File(dir, "cache")));
+        ResolveReport report = resolve();
+        if (report.hasError()) {
+            throw new IllegalStateException("synthetic graph resolve failed: "
+                    + report.getAllProblemMessages());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticRepository.delete(dir);
+    }
+
+    @Benchmark
+    public ResolveReport resolve() throws IOException, ParseException {
+        ResolveOptions options = new ResolveOptions()
+            .setConfs(new String[] {"default"})
+            .setValidate(false)
+            .setRefresh(refresh);
+        options.setLog(LogOptions.LOG_QUIET);
+        ivy.pushContext();
+        try {
+            return ivy.getResolveEngine().resolve(caller, options);
+        } finally {
+            ivy.popContext();
+        }
+    }
+}
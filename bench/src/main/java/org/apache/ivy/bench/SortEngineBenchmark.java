@@ -0,0 +1,92 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.sort.SortOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorts module descriptors by their dependencies, as done by the buildlist task and the
+ * multi-module builds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SortEngineBenchmark {
+    @Param({"100", "1000"})
+    public int modules;
+
+    /**
+     * The number of dependencies of each module on modules declared after it.
+     */
+    @Param({"3"})
+    public int fanOut;
+
+    private Ivy ivy;
+
+    private List descriptors;
+
+    @Setup
+    public void setUp() {
+        ivy = Ivy.newInstance();
+        ModuleRevisionId[] mrids = new ModuleRevisionId[modules];
+        for (int i = 0; i < modules; i++) {
+            mrids[i] = ModuleRevisionId.newInstance(SyntheticRepository.ORGANISATION, 
+                "module" + i, "1.0");
+        }
+        descriptors = new ArrayList();
+        Random random = new Random(modules);
+        for (int i = 0; i < modules; i++) {
+            DefaultModuleDescriptor md = DefaultModuleDescriptor.newDefaultInstance(mrids[i]);
+            for (int k = 0; k < fanOut && i + 1 < modules; k++) {
+                int dependency = i + 1 + random.nextInt(modules - i - 1);
+                md.addDependency(new DefaultDependencyDescriptor(mrids[dependency], false));
+            }
+            descriptors.add(md);
+        }
+        Collections.shuffle(descriptors, random);
+    }
+
+    @Benchmark
+    public List sortModuleDescriptors() {
+        return ivy.sortModuleDescriptors(descriptors, SortOptions.SILENT);
+    }
+}
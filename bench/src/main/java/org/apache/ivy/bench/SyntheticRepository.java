@@ -0,0 +1,192 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.apache.ivy.util.FileUtil;
+
+/**
+ * Generates the synthetic modules and repositories used by the benchmarks.
+ * <p>
+ * A repository is a graph of modules made of <code>depth</code> levels of <code>width</code>
+ * modules, each module depending on <code>fanOut</code> modules of the next level, and publishing
+ * a small jar. Each module is published in several revisions, the latest one being used when the
+ * dependencies are dynamic.
+ * </p>
+ */
+final class SyntheticRepository {
+    static final String ORGANISATION = "org.apache.ivy.bench";
+
+    static final String RESOLVER_NAME = "bench";
+
+    static final String IVY_PATTERN = "[organisation]/[module]/ivy-[revision].xml";
+
+    static final String ARTIFACT_PATTERN = "[organisation]/[module]/[artifact]-[revision].[ext]";
+
+    private static final int JAR_SIZE = 4096;
+
+    private final File root;
+
+    private final int width;
+
+    private final int depth;
+
+    private final int fanOut;
+
+    private final int revisions;
+
+    private final boolean dynamic;
+
+    SyntheticRepository(File root, int width, int depth, int fanOut, int revisions,
+            boolean dynamic) {
+        this.root = root;
+        this.width = width;
+        this.depth = depth;
+        this.fanOut = Math.min(fanOut, width);
+        this.revisions = revisions;
+        this.dynamic = dynamic;
+    }
+
+    /**
+     * Writes the modules of the repository, and returns the ivy file of a module depending on all
+     * the modules of the first level.
+     */
+    File generate() throws IOException {
+        byte[] jar = new byte[JAR_SIZE];
+        for (int level = 0; level < depth; level++) {
+            for (int i = 0; i < width; i++) {
+                List dependencies = new ArrayList();
+                if (level + 1 < depth) {
+                    for (int k = 0; k < fanOut; k++) {
+                        dependencies.add(getModuleName(level + 1, (i + k) % width));
+                    }
+                }
+                for (int rev = 0; rev < revisions; rev++) {
+                    ModuleRevisionId mrid = ModuleRevisionId.newInstance(ORGANISATION,
+                        getModuleName(level, i), getRevision(rev));
+                    write(new File(root, IvyPatternHelper.substitute(IVY_PATTERN, mrid)), 
+                        ivyFile(mrid, dependencies).getBytes("UTF-8"));
+                    write(new File(root, IvyPatternHelper.substitute(ARTIFACT_PATTERN, mrid, 
+                        mrid.getName(), "jar", "jar")), jar);
+                }
+            }
+        }
+        List dependencies = new ArrayList();
+        for (int i = 0; i < width; i++) {
+            dependencies.add(getModuleName(0, i));
+        }
+        File caller = new File(root, "caller.xml");
+        write(caller, ivyFile(ModuleRevisionId.newInstance(ORGANISATION, "caller", "1.0"),
+            dependencies).getBytes("UTF-8"));
+        return caller;
+    }
+
+    /**
+     * Returns the number of modules of the graph, not counting the caller module.
+     */
+    int getModuleCount() {
+        return width * depth;
+    }
+
+    static String getModuleName(int level, int index) {
+        return "mod" + level + "-" + index;
+    }
+
+    private String getRevision(int rev) {
+        return "1." + rev;
+    }
+
+    private String getDependencyRevision() {
+        return dynamic ? "latest.integration" : getRevision(revisions - 1);
+    }
+
+    private String ivyFile(ModuleRevisionId mrid, List dependencies) {
+        StringBuffer ivy = new StringBuffer();
+        ivy.append("<ivy-module version=\"2.0\">\n");
+        ivy.append("  <info organisation=\"").append(mrid.getOrganisation())
+            .append("\" module=\"").append(mrid.getName())
+            .append("\" revision=\"").append(mrid.getRevision())
+            .append("\" status=\"integration\" publication=\"20100101000000\"/>\n");
+        ivy.append("  <configurations>\n");
+        ivy.append("    <conf name=\"default\"/>\n");
+        ivy.append("    <conf name=\"test\" extends=\"default\"/>\n");
+        ivy.append("  </configurations>\n");
+        ivy.append("  <publications>\n");
+        ivy.append("    <artifact name=\"").append(mrid.getName())
+            .append("\" type=\"jar\" ext=\"jar\" conf=\"default\"/>\n");
+        ivy.append("  </publications>\n");
+        ivy.append("  <dependencies>\n");
+        for (int i = 0; i < dependencies.size(); i++) {
+            ivy.append("    <dependency org=\"").append(ORGANISATION)
+                .append("\" name=\"").append(dependencies.get(i))
+                .append("\" rev=\"").append(getDependencyRevision())
+                .append("\" conf=\"default->default;test->default\"/>\n");
+        }
+        ivy.append("  </dependencies>\n");
+        ivy.append("</ivy-module>\n");
+        return ivy.toString();
+    }
+
+    /**
+     * Returns settings using a file system resolver on the given repository, and the given cache
+     * directory.
+     */
+    static IvySettings newSettings(File repository, File cache) {
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(cache);
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName(RESOLVER_NAME);
+        resolver.addIvyPattern(new File(repository, IVY_PATTERN).getAbsolutePath());
+        resolver.addArtifactPattern(new File(repository, ARTIFACT_PATTERN).getAbsolutePath());
+        settings.addResolver(resolver);
+        settings.setDefaultResolver(RESOLVER_NAME);
+        return settings;
+    }
+
+    static File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdirs()) {
+            throw new IOException("impossible to create temporary directory " + dir);
+        }
+        return dir;
+    }
+
+    static void delete(File dir) {
+        FileUtil.forceDelete(dir);
+    }
+
+    static void write(File file, byte[] content) throws IOException {
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses an ivy file with a given number of dependencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class XmlModuleDescriptorParserBenchmark {
+    @Param({"10", "100", "1000"})
+    public int dependencies;
+
+    private File dir;
+
+    private URL ivyFile;
+
+    private IvySettings settings;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = SyntheticRepository.createTempDir("ivy-bench-xml");
+        File file = new File(dir, "ivy.xml");
+        SyntheticRepository.write(file, ivyFile().getBytes("UTF-8"));
+        ivyFile = file.toURI().toURL();
+        settings = new IvySettings();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SyntheticRepository.delete(dir);
+    }
+
+    @Benchmark
+    public ModuleDescriptor parseDescriptor() throws Exception {
+        return XmlModuleDescriptorParser.getInstance().parseDescriptor(settings, ivyFile, false);
+    }
+
+    private String ivyFile() {
+        StringBuffer ivy = new StringBuffer();
+        ivy.append("<ivy-module version=\"2.0\">\n");
+        ivy.append("  <info organisation=\"").append(SyntheticRepository.ORGANISATION)
+            .append("\" module=\"parsed\" revision=\"1.0\" status=\"release\"")
+            .append(" publication=\"20100101000000\">\n");
+        ivy.append("    <license name=\"Apache License, Version 2.0\"")
+            .append(" url=\"http://www.apache.org/licenses/LICENSE-2.0\"/>\n");
+        ivy.append("    <description>a synthetic module</description>\n");
+        ivy.append("  </info>\n");
+        ivy.append("  <configurations>\n");
+        ivy.append("    <conf name=\"compile\"/>\n");
+        ivy.append("    <conf name=\"runtime\" extends=\"compile\"/>\n");
+        ivy.append("    <conf name=\"test\" extends=\"runtime\" visibility=\"private\"/>\n");
+        ivy.append("    <conf name=\"sources\"/>\n");
+        ivy.append("  </configurations>\n");
+        ivy.append("  <publications>\n");
+        ivy.append("    <artifact name=\"parsed\" type=\"jar\" ext=\"jar\" conf=\"compile\"/>\n");
+        ivy.append("    <artifact name=\"parsed\" type=\"src\" ext=\"jar\" conf=\"sources\"/>\n");
+        ivy.append("  </publications>\n");
+        ivy.append("  <dependencies>\n");
+        for (int i = 0; i < dependencies; i++) {
+            ivy.append("    <dependency org=\"").append(SyntheticRepository.ORGANISATION)
+                .append(".dep").append(i % 10).append("\" name=\"dep").append(i)
+                .append("\" rev=\"1.").append(i).append("\"");
+            if (i % 3 == 0) {
+                ivy.append(" conf=\"test->default\"/>\n");
+            } else {
+                ivy.append(" conf=\"compile->compile(*),master(*);runtime->runtime(*)\">\n");
+                ivy.append("      <exclude org=\"commons-logging\" module=\"commons-logging\"/>\n");
+                ivy.append("    </dependency>\n");
+            }
+        }
+        ivy.append("    <exclude org=\"log4j\" module=\"log4j\" conf=\"runtime\"/>\n");
+        ivy.append("    <override org=\"").append(SyntheticRepository.ORGANISATION)
+            .append(".dep0\" rev=\"2.0\"/>\n");
+        ivy.append("  </dependencies>\n");
+        ivy.append("</ivy-module>\n");
+        return ivy.toString();
+    }
+}
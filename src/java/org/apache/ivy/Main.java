@@ -113,6 +113,8 @@ public final class Main {
                 .description("use sync mode for retrieve").create())
             .addOption(new OptionBuilder("symlink")
                 .description("create symbolic links").create())
+            .addOption(new OptionBuilder("hardlink")
+                .description("create hard links").create())
              
             .addCategory("cache path options")
             .addOption(new OptionBuilder("cachepath").arg("cachepathfile")
@@ -287,7 +289,8 @@ public final class Main {
                         .setUseOrigin(line.hasOption("useOrigin"))
                         .setDestIvyPattern(ivyPattern)
                         .setArtifactFilter(FilterHelper.getArtifactTypeFilter(line.getOptionValues("types")))
-                        .setMakeSymlinks(line.hasOption("symlink")));
+                        .setMakeSymlinks(line.hasOption("symlink"))
+                        .setMakeHardlinks(line.hasOption("hardlink")));
             }
             if (line.hasOption("cachepath")) {
                 outputCachePath(ivy, cache, md, confs, line.getOptionValue("cachepath",
@@ -68,7 +68,7 @@ public class AntBuildTrigger extends AbstractTrigger implements Trigger {
 
     private String prefix;
 
-    public void progress(IvyEvent event) {
+    public synchronized void progress(IvyEvent event) {
         File f = getBuildFile(event);
         if (f.exists()) {
             if (onlyOnce && isBuilt(f)) {
@@ -104,7 +104,10 @@ public class AntBuildTrigger extends AbstractTrigger implements Trigger {
 
                 Message.verbose("triggering build: " + f + " target=" + target + " for " + event);
                 try {
-                    ant.execute();
+                    synchronized (project) {
+                        // other triggers may use the same project from another thread
+                        ant.execute();
+                    }
                 } catch (BuildException e) {
                     Message.verbose("Exception occurred while executing target " + target);
                     e.printStackTrace(); // TODO: remove when finished debugging
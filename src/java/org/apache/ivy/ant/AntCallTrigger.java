@@ -58,7 +58,7 @@ public class AntCallTrigger extends AbstractTrigger implements Trigger {
 
     private String prefix;
 
-    public void progress(IvyEvent event) {
+    public synchronized void progress(IvyEvent event) {
         Project project = (Project) IvyContext.peekInContextStack(IvyTask.ANT_PROJECT_CONTEXT_KEY);
         if (project == null) {
             Message.info("ant call trigger can only be used from an ant build. Ignoring.");
@@ -85,7 +85,10 @@ public class AntCallTrigger extends AbstractTrigger implements Trigger {
             }
 
             Message.verbose("triggering ant call: target=" + target + " for " + event);
-            call.execute();
+            synchronized (project) {
+                // other triggers may use the same project from another thread
+                call.execute();
+            }
             markTriggered(event);
 
             Message.debug("triggered ant call finished: target=" + target + " for " + event);
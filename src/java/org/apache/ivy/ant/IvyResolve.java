@@ -90,6 +90,16 @@ public class IvyResolve extends IvyTask {
     
     private boolean checkIfChanged = true; //for backward compatibility
 
+    private int prefetchThreads = 0;
+
+    private int downloadThreads = 1;
+
+    private boolean pipelineDownloads = false;
+
+    private int reportThreads = 1;
+
+    private boolean trace = false;
+
     private List/* <IvyDependency> */dependencies = new ArrayList();
 
     private List/* <IvyExclude> */excludes = new ArrayList();
@@ -188,6 +198,46 @@ public class IvyResolve extends IvyTask {
         return log;
     }
 
+    public int getPrefetchThreads() {
+        return prefetchThreads;
+    }
+
+    public void setPrefetchThreads(int prefetchThreads) {
+        this.prefetchThreads = prefetchThreads;
+    }
+
+    public int getDownloadThreads() {
+        return downloadThreads;
+    }
+
+    public void setDownloadThreads(int downloadThreads) {
+        this.downloadThreads = downloadThreads;
+    }
+
+    public boolean isPipelineDownloads() {
+        return pipelineDownloads;
+    }
+
+    public void setPipelineDownloads(boolean pipelineDownloads) {
+        this.pipelineDownloads = pipelineDownloads;
+    }
+
+    public int getReportThreads() {
+        return reportThreads;
+    }
+
+    public void setReportThreads(int reportThreads) {
+        this.reportThreads = reportThreads;
+    }
+
+    public boolean isTrace() {
+        return trace;
+    }
+
+    public void setTrace(boolean trace) {
+        this.trace = trace;
+    }
+
     public void setLog(String log) {
         this.log = log;
     }
@@ -422,7 +472,12 @@ public class IvyResolve extends IvyTask {
                 .setTransitive(transitive)
                 .setResolveMode(resolveMode)
                 .setResolveId(resolveId)
-                .setCheckIfChanged(checkIfChanged);
+                .setCheckIfChanged(checkIfChanged)
+                .setPrefetchThreads(prefetchThreads)
+                .setDownloadThreads(downloadThreads)
+                .setPipelineDownloads(pipelineDownloads)
+                .setReportThreads(reportThreads)
+                .setTrace(trace);
     }
 
     public String getModule() {
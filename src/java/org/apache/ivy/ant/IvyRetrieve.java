@@ -50,6 +50,10 @@ public class IvyRetrieve extends IvyPostResolveTask {
     private boolean sync = false;
 
     private boolean symlink = false;
+
+    private boolean hardlink = false;
+
+    private int retrieveThreads = 1;
     
     private String overwriteMode = RetrieveOptions.OVERWRITEMODE_NEWER;
 
@@ -106,6 +110,8 @@ public class IvyRetrieve extends IvyPostResolveTask {
                             .setOverwriteMode(getOverwriteMode())
                             .setUseOrigin(isUseOrigin())
                             .setMakeSymlinks(symlink)
+                            .setMakeHardlinks(hardlink)
+                            .setRetrieveThreads(retrieveThreads)
                             .setResolveId(getResolveId())
                             .setMapper(mapper == null ? null : new MapperAdapter(mapper)));
 
@@ -168,6 +174,24 @@ public class IvyRetrieve extends IvyPostResolveTask {
         this.symlink = symlink;
     }
 
+    /**
+     * Option to create hard links instead of copying.
+     */
+    public void setHardlink(boolean hardlink) {
+        this.hardlink = hardlink;
+    }
+
+    public int getRetrieveThreads() {
+        return retrieveThreads;
+    }
+
+    /**
+     * The maximum number of artifacts copied at the same time.
+     */
+    public void setRetrieveThreads(int retrieveThreads) {
+        this.retrieveThreads = retrieveThreads;
+    }
+
     public void setOverwriteMode(String overwriteMode) {
         if (!OVERWRITEMODE_VALUES.contains(overwriteMode)) {
             throw new IllegalArgumentException("invalid overwriteMode value '" + overwriteMode + "'. "
@@ -28,6 +28,8 @@ import org.apache.ivy.Ivy;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.circular.CircularDependencyStrategy;
 import org.apache.ivy.util.Message;
@@ -53,7 +55,13 @@ public class IvyContext {
 
     private ResolveData resolveData;
 
+    private ResolveMetrics resolveMetrics;
+
+    private ResolveTrace resolveTrace;
+
     private DependencyDescriptor dd;
+
+    private MessageLogger messageLogger;
     
     public IvyContext() {
     }
@@ -64,7 +72,10 @@ public class IvyContext {
         contextMap = new HashMap(ctx.contextMap);
         operatingThread = ctx.operatingThread;
         resolveData = ctx.resolveData;
+        resolveMetrics = ctx.resolveMetrics;
+        resolveTrace = ctx.resolveTrace;
         dd = ctx.dd;
+        messageLogger = ctx.messageLogger;
     }
 
     public static IvyContext getContext() {
@@ -343,6 +354,9 @@ public class IvyContext {
 
 
     public MessageLogger getMessageLogger() {
+        if (messageLogger != null) {
+            return messageLogger;
+        }
         // calling getIvy() instead of peekIvy() is not possible here: it will initialize a default
         // Ivy instance, with default settings, but settings themselves may log messages and lead to
         // a call to this method. So we use the current Ivy instance if any, or the default Ivy
@@ -359,6 +373,18 @@ public class IvyContext {
         }
     }
 
+    /**
+     * Sets the logger to use in this context in place of the logger of the current Ivy instance.
+     * This is useful for work done in other threads on behalf of the operating thread.
+     * 
+     * @param messageLogger
+     *            the logger to use in this context, <code>null</code> to use the logger of the
+     *            current Ivy instance
+     */
+    public void setMessageLogger(MessageLogger messageLogger) {
+        this.messageLogger = messageLogger;
+    }
+
     public EventManager getEventManager() {
         return getIvy().getEventManager();
     }
@@ -375,6 +401,30 @@ public class IvyContext {
         return resolveData;
     }
 
+    /**
+     * Sets the metrics of the resolve in progress, to which the work done for the resolve in this
+     * context is reported.
+     */
+    public void setResolveMetrics(ResolveMetrics metrics) {
+        this.resolveMetrics = metrics;
+    }
+
+    public ResolveMetrics getResolveMetrics() {
+        return resolveMetrics;
+    }
+
+    /**
+     * Sets the trace of the resolve in progress, in which the work done for the resolve in this
+     * context is recorded, <code>null</code> if the resolve isn't traced.
+     */
+    public void setResolveTrace(ResolveTrace trace) {
+        this.resolveTrace = trace;
+    }
+
+    public ResolveTrace getResolveTrace() {
+        return resolveTrace;
+    }
+
     public void setDependencyDescriptor(DependencyDescriptor dd) {
         this.dd = dd;
     }
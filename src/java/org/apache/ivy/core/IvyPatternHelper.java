@@ -18,11 +18,11 @@
 package org.apache.ivy.core;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -69,10 +69,15 @@ public final class IvyPatternHelper {
 
     private static final Pattern VAR_PATTERN = Pattern.compile("\\$\\{(.*?)\\}");
 
+    private static final int MAX_COMPILED_PATTERNS = 1000;
+
+    // partially substituted patterns are compiled too: the cache is cleared when it is full, so
+    // that they can't fill the memory, and the patterns still in use are simply compiled again
+    private static final Map/*<String, CompiledPattern>*/ COMPILED_PATTERNS = 
+        new ConcurrentHashMap();
+
     public static String substitute(String pattern, ModuleRevisionId moduleRevision) {
-        return substitute(pattern, moduleRevision.getOrganisation(), moduleRevision.getName(),
-            moduleRevision.getBranch(), moduleRevision.getRevision(), "ivy", "ivy", "xml", null,
-            null, moduleRevision.getQualifiedExtraAttributes(), null);
+        return compile(pattern).substitute(moduleRevision);
     }
 
     public static String substitute(String pattern, ModuleRevisionId moduleRevision,
@@ -99,9 +104,7 @@ public final class IvyPatternHelper {
 
     public static String substitute(String pattern, ModuleRevisionId mrid, Artifact artifact,
             String conf, ArtifactOrigin origin) {
-        return substitute(pattern, mrid.getOrganisation(), mrid.getName(), mrid.getBranch(), mrid
-                .getRevision(), artifact.getName(), artifact.getType(), artifact.getExt(), conf,
-            origin, mrid.getQualifiedExtraAttributes(), artifact.getQualifiedExtraAttributes());
+        return compile(pattern).substitute(mrid, artifact, conf, origin);
     }
 
     public static String substitute(String pattern, String org, String module, String revision,
@@ -127,45 +130,8 @@ public final class IvyPatternHelper {
     public static String substitute(String pattern, String org, String module, String branch,
             String revision, String artifact, String type, String ext, String conf,
             ArtifactOrigin origin, Map extraModuleAttributes, Map extraArtifactAttributes) {
-        Map tokens = new HashMap();
-        if (extraModuleAttributes != null) {
-            for (Iterator entries = extraModuleAttributes.entrySet().iterator(); entries.hasNext(); ) {
-                Map.Entry entry = (Map.Entry) entries.next();
-                String token = (String) entry.getKey();
-                if (token.indexOf(':') > 0) {
-                    token = token.substring(token.indexOf(':') + 1);
-                }
-                tokens.put(token, entry.getValue());
-            }
-        }
-        if (extraArtifactAttributes != null) {
-            for (Iterator entries = extraArtifactAttributes.entrySet().iterator(); entries.hasNext(); ) {
-                Map.Entry entry = (Map.Entry) entries.next();
-                String token = (String) entry.getKey();
-                if (token.indexOf(':') > 0) {
-                    token = token.substring(token.indexOf(':') + 1);
-                }
-                tokens.put(token, entry.getValue());
-            }
-        }
-        tokens.put(ORGANISATION_KEY, org == null ? "" : org);
-        tokens.put(ORGANISATION_KEY2, org == null ? "" : org);
-        tokens.put(ORGANISATION_PATH_KEY, org == null ? "" : org.replace('.', '/'));
-        tokens.put(MODULE_KEY, module == null ? "" : module);
-        tokens.put(BRANCH_KEY, branch == null ? "" : branch);
-        tokens.put(REVISION_KEY, revision == null ? "" : revision);
-        tokens.put(ARTIFACT_KEY, artifact == null ? module : artifact);
-        tokens.put(TYPE_KEY, type == null ? "jar" : type);
-        tokens.put(EXT_KEY, ext == null ? "jar" : ext);
-        tokens.put(CONF_KEY, conf == null ? "default" : conf);
-        if (origin == null) {
-            tokens.put(ORIGINAL_ARTIFACTNAME_KEY, new OriginalArtifactNameValue(org,
-                module, branch, revision, artifact, type, ext, extraModuleAttributes, extraArtifactAttributes));
-        } else { 
-            tokens.put(ORIGINAL_ARTIFACTNAME_KEY, new OriginalArtifactNameValue(origin));
-        }
-                
-        return substituteTokens(pattern, tokens);
+        return compile(pattern).substitute(org, module, branch, revision, artifact, type, ext,
+            conf, origin, extraModuleAttributes, extraArtifactAttributes);
     }
     // CheckStyle:ParameterNumber ON
 
@@ -221,115 +187,33 @@ public final class IvyPatternHelper {
     }
 
     public static String substituteTokens(String pattern, Map tokens) {
-        Map tokensCopy = new HashMap(tokens);
-        if (tokensCopy.containsKey(ORGANISATION_KEY) && !tokensCopy.containsKey(ORGANISATION_KEY2)) {
-            tokensCopy.put(ORGANISATION_KEY2, tokensCopy.get(ORGANISATION_KEY));
-        }
-        if (tokensCopy.containsKey(ORGANISATION_KEY) && !tokensCopy.containsKey(ORGANISATION_PATH_KEY)) {
-            String org = (String) tokensCopy.get(ORGANISATION_KEY);
-            tokensCopy.put(ORGANISATION_PATH_KEY, org == null ? "" : org.replace('.', '/'));
-        }
-        
-        StringBuffer buffer = new StringBuffer();
-
-        char[] chars = pattern.toCharArray();
-
-        StringBuffer optionalPart = null;
-        StringBuffer tokenBuffer = null;
-        boolean insideOptionalPart = false;
-        boolean insideToken = false;
-        boolean tokenSeen = false;
-        boolean tokenHadValue = false;
-
-        for (int i = 0; i < chars.length; i++) {
-            switch (chars[i]) {
-                case '(':
-                    if (insideOptionalPart) {
-                        throw new IllegalArgumentException(
-                                "invalid start of optional part at position " + i + " in pattern "
-                                        + pattern);
-                    }
-
-                    optionalPart = new StringBuffer();
-                    insideOptionalPart = true;
-                    tokenSeen = false;
-                    tokenHadValue = false;
-                    break;
-
-                case ')':
-                    if (!insideOptionalPart || insideToken) {
-                        throw new IllegalArgumentException(
-                                "invalid end of optional part at position " + i + " in pattern "
-                                        + pattern);
-                    }
-
-                    if (tokenHadValue) {
-                        buffer.append(optionalPart.toString());
-                    } else if (!tokenSeen) {
-                        buffer.append('(').append(optionalPart.toString()).append(')');
-                    }
-
-                    insideOptionalPart = false;
-                    break;
-
-                case '[':
-                    if (insideToken) {
-                        throw new IllegalArgumentException("invalid start of token at position "
-                                + i + " in pattern " + pattern);
-                    }
-
-                    tokenBuffer = new StringBuffer();
-                    insideToken = true;
-                    break;
-
-                case ']':
-                    if (!insideToken) {
-                        throw new IllegalArgumentException("invalid end of token at position " + i
-                                + " in pattern " + pattern);
-                    }
-
-                    String token = tokenBuffer.toString();
-                    Object tokenValue = tokensCopy.get(token);
-                    String value = (tokenValue == null) ? null : tokenValue.toString();
-
-                    if (insideOptionalPart) {
-                        tokenHadValue = (value != null) && (value.length() > 0);
-                        optionalPart.append(value);
-                    } else {
-                        if (value == null) { // the token wasn't set, it's kept as is
-                            value = "[" + token + "]";
-                        }
-                        buffer.append(value);
-                    }
-
-                    insideToken = false;
-                    tokenSeen = true;
-                    break;
-
-                default:
-                    if (insideToken) {
-                        tokenBuffer.append(chars[i]);
-                    } else if (insideOptionalPart) {
-                        optionalPart.append(chars[i]);
-                    } else {
-                        buffer.append(chars[i]);
-                    }
+        return compile(pattern).substituteTokens(tokens);
+    }
 
-                    break;
+    /**
+     * Returns the compiled form of the given pattern, which can be substituted many times without
+     * parsing the pattern again.
+     * <p>
+     * Compiled patterns are cached, so that the patterns of the resolvers and of the caches are
+     * usually parsed only once.
+     * </p>
+     * 
+     * @param pattern
+     *            the pattern to compile
+     * @return the compiled pattern
+     * @throws IllegalArgumentException
+     *             if the pattern is not a valid pattern
+     */
+    public static CompiledPattern compile(String pattern) {
+        CompiledPattern compiled = (CompiledPattern) COMPILED_PATTERNS.get(pattern);
+        if (compiled == null) {
+            compiled = new CompiledPattern(pattern);
+            if (COMPILED_PATTERNS.size() >= MAX_COMPILED_PATTERNS) {
+                COMPILED_PATTERNS.clear();
             }
+            COMPILED_PATTERNS.put(pattern, compiled);
         }
-
-        if (insideToken) {
-            throw new IllegalArgumentException("last token hasn't been closed in pattern "
-                    + pattern);
-        }
-
-        if (insideOptionalPart) {
-            throw new IllegalArgumentException("optional part hasn't been closed in pattern "
-                    + pattern);
-        }
-
-        return buffer.toString();
+        return compiled;
     }
 
     public static String substituteVariable(String pattern, String variable, String value) {
@@ -492,6 +376,354 @@ public final class IvyPatternHelper {
         }
     }
 
+    /**
+     * A pattern parsed once, which can then be substituted many times.
+     * <p>
+     * The tokens are substituted straight from the given module revision id and artifact, without
+     * building a map of token values. The result is the same as the one of the corresponding
+     * substitute method of {@link IvyPatternHelper}.
+     * </p>
+     */
+    public static final class CompiledPattern {
+        // parts of a compiled pattern
+        private static final int LITERAL = 0;
+
+        private static final int TOKEN = 1;
+
+        private static final int OPTIONAL_TOKEN = 2;
+
+        private static final int OPTIONAL_START = 3;
+
+        private static final int OPTIONAL_END = 4;
+
+        // tokens known without looking at the extra attributes
+        private static final int ORGANISATION = 0;
+
+        private static final int ORGANISATION_PATH = 1;
+
+        private static final int MODULE = 2;
+
+        private static final int BRANCH = 3;
+
+        private static final int REVISION = 4;
+
+        private static final int ARTIFACT = 5;
+
+        private static final int TYPE = 6;
+
+        private static final int EXT = 7;
+
+        private static final int CONF = 8;
+
+        private static final int ORIGINAL_ARTIFACTNAME = 9;
+
+        private static final int EXTRA_ATTRIBUTE = 10;
+
+        private static final Object NOT_FOUND = new Object();
+
+        private final String pattern;
+
+        private final int[] parts;
+
+        // the text of each literal part, or the name of each token
+        private final String[] texts;
+
+        private final int[] tokens;
+
+        private CompiledPattern(String pattern) {
+            this.pattern = pattern;
+            List/*<Integer>*/ parsedParts = new ArrayList();
+            List/*<String>*/ parsedTexts = new ArrayList();
+
+            char[] chars = pattern.toCharArray();
+
+            StringBuffer literal = new StringBuffer();
+            StringBuffer tokenBuffer = null;
+            boolean insideOptionalPart = false;
+            boolean insideToken = false;
+
+            for (int i = 0; i < chars.length; i++) {
+                switch (chars[i]) {
+                    case '(':
+                        if (insideOptionalPart) {
+                            throw new IllegalArgumentException(
+                                    "invalid start of optional part at position " + i
+                                            + " in pattern " + pattern);
+                        }
+                        addLiteral(parsedParts, parsedTexts, literal);
+                        addPart(parsedParts, parsedTexts, OPTIONAL_START, null);
+                        insideOptionalPart = true;
+                        break;
+
+                    case ')':
+                        if (!insideOptionalPart || insideToken) {
+                            throw new IllegalArgumentException(
+                                    "invalid end of optional part at position " + i
+                                            + " in pattern " + pattern);
+                        }
+                        addLiteral(parsedParts, parsedTexts, literal);
+                        addPart(parsedParts, parsedTexts, OPTIONAL_END, null);
+                        insideOptionalPart = false;
+                        break;
+
+                    case '[':
+                        if (insideToken) {
+                            throw new IllegalArgumentException(
+                                    "invalid start of token at position " + i + " in pattern "
+                                            + pattern);
+                        }
+                        addLiteral(parsedParts, parsedTexts, literal);
+                        tokenBuffer = new StringBuffer();
+                        insideToken = true;
+                        break;
+
+                    case ']':
+                        if (!insideToken) {
+                            throw new IllegalArgumentException("invalid end of token at position "
+                                    + i + " in pattern " + pattern);
+                        }
+                        addPart(parsedParts, parsedTexts, 
+                            insideOptionalPart ? OPTIONAL_TOKEN : TOKEN, tokenBuffer.toString());
+                        insideToken = false;
+                        break;
+
+                    default:
+                        if (insideToken) {
+                            tokenBuffer.append(chars[i]);
+                        } else {
+                            literal.append(chars[i]);
+                        }
+                        break;
+                }
+            }
+
+            if (insideToken) {
+                throw new IllegalArgumentException("last token hasn't been closed in pattern "
+                        + pattern);
+            }
+
+            if (insideOptionalPart) {
+                throw new IllegalArgumentException("optional part hasn't been closed in pattern "
+                        + pattern);
+            }
+            addLiteral(parsedParts, parsedTexts, literal);
+
+            parts = new int[parsedParts.size()];
+            tokens = new int[parts.length];
+            texts = (String[]) parsedTexts.toArray(new String[parts.length]);
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = ((Integer) parsedParts.get(i)).intValue();
+                tokens[i] = texts[i] == null ? -1 : getToken(texts[i]);
+            }
+        }
+
+        private static void addLiteral(List parts, List texts, StringBuffer literal) {
+            if (literal.length() > 0) {
+                addPart(parts, texts, LITERAL, literal.toString());
+                literal.setLength(0);
+            }
+        }
+
+        private static void addPart(List parts, List texts, int part, String text) {
+            parts.add(new Integer(part));
+            texts.add(text);
+        }
+
+        private static int getToken(String name) {
+            if (ORGANISATION_KEY.equals(name) || ORGANISATION_KEY2.equals(name)) {
+                return ORGANISATION;
+            } else if (ORGANISATION_PATH_KEY.equals(name)) {
+                return ORGANISATION_PATH;
+            } else if (MODULE_KEY.equals(name)) {
+                return MODULE;
+            } else if (BRANCH_KEY.equals(name)) {
+                return BRANCH;
+            } else if (REVISION_KEY.equals(name)) {
+                return REVISION;
+            } else if (ARTIFACT_KEY.equals(name)) {
+                return ARTIFACT;
+            } else if (TYPE_KEY.equals(name)) {
+                return TYPE;
+            } else if (EXT_KEY.equals(name)) {
+                return EXT;
+            } else if (CONF_KEY.equals(name)) {
+                return CONF;
+            } else if (ORIGINAL_ARTIFACTNAME_KEY.equals(name)) {
+                return ORIGINAL_ARTIFACTNAME;
+            } else {
+                return EXTRA_ATTRIBUTE;
+            }
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        /**
+         * Substitutes the tokens of this pattern for the ivy file of the given module revision.
+         */
+        public String substitute(ModuleRevisionId mrid) {
+            return substitute(mrid.getOrganisation(), mrid.getName(), mrid.getBranch(), 
+                mrid.getRevision(), "ivy", "ivy", "xml", null, null, 
+                mrid.getQualifiedExtraAttributes(), null);
+        }
+
+        /**
+         * Substitutes the tokens of this pattern for the given artifact of the given module
+         * revision.
+         */
+        public String substitute(ModuleRevisionId mrid, Artifact artifact, String conf,
+                ArtifactOrigin origin) {
+            return substitute(mrid.getOrganisation(), mrid.getName(), mrid.getBranch(), 
+                mrid.getRevision(), artifact.getName(), artifact.getType(), artifact.getExt(),
+                conf, origin, mrid.getQualifiedExtraAttributes(), 
+                artifact.getQualifiedExtraAttributes());
+        }
+
+        // CheckStyle:ParameterNumber OFF
+        public String substitute(final String org, final String module, final String branch,
+                final String revision, final String artifact, final String type,
+                final String ext, final String conf, final ArtifactOrigin origin, 
+                final Map extraModuleAttributes, final Map extraArtifactAttributes) {
+            return substitute(new TokenValues() {
+                Object getValue(int token, String name) {
+                    switch (token) {
+                        case ORGANISATION:
+                            return org == null ? "" : org;
+                        case ORGANISATION_PATH:
+                            return org == null ? "" : org.replace('.', '/');
+                        case MODULE:
+                            return module == null ? "" : module;
+                        case BRANCH:
+                            return branch == null ? "" : branch;
+                        case REVISION:
+                            return revision == null ? "" : revision;
+                        case ARTIFACT:
+                            return artifact == null ? module : artifact;
+                        case TYPE:
+                            return type == null ? "jar" : type;
+                        case EXT:
+                            return ext == null ? "jar" : ext;
+                        case CONF:
+                            return conf == null ? "default" : conf;
+                        case ORIGINAL_ARTIFACTNAME:
+                            return origin == null ? new OriginalArtifactNameValue(org, module,
+                                    branch, revision, artifact, type, ext, extraModuleAttributes,
+                                    extraArtifactAttributes) 
+                                    : new OriginalArtifactNameValue(origin);
+                        default:
+                            // the artifact attributes take precedence over the module ones
+                            Object value = getExtraAttribute(extraArtifactAttributes, name);
+                            if (value == NOT_FOUND) {
+                                value = getExtraAttribute(extraModuleAttributes, name);
+                            }
+                            return value == NOT_FOUND ? null : value;
+                    }
+                }
+            });
+        }
+        // CheckStyle:ParameterNumber ON
+
+        /**
+         * Substitutes the tokens of this pattern with the values of the given map, like
+         * {@link IvyPatternHelper#substituteTokens(String, Map)}.
+         */
+        public String substituteTokens(final Map tokenValues) {
+            return substitute(new TokenValues() {
+                Object getValue(int token, String name) {
+                    if (tokenValues.containsKey(name)) {
+                        return tokenValues.get(name);
+                    } else if (!tokenValues.containsKey(ORGANISATION_KEY)) {
+                        return null;
+                    } else if (ORGANISATION_KEY2.equals(name)) {
+                        return tokenValues.get(ORGANISATION_KEY);
+                    } else if (ORGANISATION_PATH_KEY.equals(name)) {
+                        String org = (String) tokenValues.get(ORGANISATION_KEY);
+                        return org == null ? "" : org.replace('.', '/');
+                    } else {
+                        return null;
+                    }
+                }
+            });
+        }
+
+        /**
+         * Returns the value of the extra attribute of the given unqualified name, or NOT_FOUND.
+         */
+        private static Object getExtraAttribute(Map attributes, String name) {
+            Object value = NOT_FOUND;
+            if (attributes == null || attributes.isEmpty()) {
+                return value;
+            }
+            for (Iterator entries = attributes.entrySet().iterator(); entries.hasNext();) {
+                Map.Entry entry = (Map.Entry) entries.next();
+                String key = (String) entry.getKey();
+                int index = key.indexOf(':');
+                if (index > 0 ? key.length() - index - 1 == name.length() 
+                        && key.startsWith(name, index + 1) : key.equals(name)) {
+                    // as with a map of unqualified attributes, the last one wins
+                    value = entry.getValue();
+                }
+            }
+            return value;
+        }
+
+        private String substitute(TokenValues values) {
+            StringBuffer buffer = new StringBuffer(pattern.length() + 64);
+
+            int optionalStart = 0;
+            boolean tokenSeen = false;
+            boolean tokenHadValue = false;
+
+            for (int i = 0; i < parts.length; i++) {
+                switch (parts[i]) {
+                    case LITERAL:
+                        buffer.append(texts[i]);
+                        break;
+
+                    case OPTIONAL_START:
+                        optionalStart = buffer.length();
+                        tokenSeen = false;
+                        tokenHadValue = false;
+                        break;
+
+                    case OPTIONAL_END:
+                        if (!tokenSeen) {
+                            buffer.insert(optionalStart, '(').append(')');
+                        } else if (!tokenHadValue) {
+                            buffer.setLength(optionalStart);
+                        }
+                        break;
+
+                    default:
+                        Object tokenValue = values.getValue(tokens[i], texts[i]);
+                        String value = (tokenValue == null) ? null : tokenValue.toString();
+                        if (parts[i] == OPTIONAL_TOKEN) {
+                            tokenHadValue = (value != null) && (value.length() > 0);
+                            buffer.append(value);
+                        } else if (value == null) { 
+                            // the token wasn't set, it's kept as is
+                            buffer.append('[').append(texts[i]).append(']');
+                        } else {
+                            buffer.append(value);
+                        }
+                        tokenSeen = true;
+                        break;
+                }
+            }
+
+            return buffer.toString();
+        }
+
+        public String toString() {
+            return pattern;
+        }
+    }
+
+    private abstract static class TokenValues {
+        abstract Object getValue(int token, String name);
+    }
+
     public static String getTokenRoot(String pattern) {
         int index = pattern.indexOf('[');
         if (index == -1) {
@@ -17,6 +17,10 @@
  */
 package org.apache.ivy.core.cache;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.util.Checks;
 
@@ -56,6 +60,10 @@ public class ArtifactOrigin {
 
     private boolean exists = true;
 
+    private String etag;
+
+    private Map/*<String, String>*/ checksums = Collections.EMPTY_MAP;
+
     /**
      * Create a new instance
      * 
@@ -124,9 +132,49 @@ public class ArtifactOrigin {
         this.exists = exists;
     }
 
+    /**
+     * The entity tag of the resource when it was downloaded, used to check later if it has been
+     * modified. May be <code>null</code> if the repository doesn't give entity tags.
+     * 
+     * @return the entity tag of the downloaded resource
+     */
+    public String getETag() {
+        return etag;
+    }
+
+    public void setETag(String etag) {
+        this.etag = etag;
+    }
+
+    /**
+     * The checksums of the resource verified when it was downloaded, by checksum algorithm. As
+     * they are recorded in the cache, they can be used without computing them again as long as
+     * the resource is not downloaded again.
+     * 
+     * @return the verified checksums of the downloaded resource, empty if no checksum has been
+     *         verified
+     */
+    public Map/*<String, String>*/ getChecksums() {
+        return checksums;
+    }
+
+    /**
+     * Returns the checksum of the resource verified with the given algorithm when it was
+     * downloaded, or <code>null</code> if it has not been verified with this algorithm.
+     */
+    public String getChecksum(String algorithm) {
+        return (String) checksums.get(algorithm);
+    }
+
+    public void setChecksums(Map/*<String, String>*/ checksums) {
+        this.checksums = checksums == null || checksums.isEmpty() ? Collections.EMPTY_MAP
+                : Collections.unmodifiableMap(new LinkedHashMap(checksums));
+    }
+
     public String toString() {
         return "ArtifactOrigin { isLocal=" + isLocal + ", location=" + location + ", lastChecked="
-                + lastChecked + ", exists=" + exists + "}";
+                + lastChecked + ", exists=" + exists + ", etag=" + etag
+                + ", checksums=" + checksums + "}";
     }
 
     public boolean equals(Object o) {
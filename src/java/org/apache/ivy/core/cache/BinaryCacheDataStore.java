@@ -0,0 +1,599 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.PropertiesFile;
+
+/**
+ * Stores the data of all module revisions in a single binary file at the root of the cache.
+ * <p>
+ * The file is an append only log of property updates, indexed in memory by module revision: a
+ * lookup doesn't need any parsing once the log has been read, and an update only appends the
+ * changed properties. Each update is appended with an exclusive lock on the file, so the file can
+ * be shared by several processes; each process reads the records appended by the others before
+ * each lookup. Large portions of the log are read through a memory mapping.
+ * </p>
+ * <p>
+ * When the log contains mostly obsolete records, it is compacted into a new file replacing the
+ * old one, which is then marked as superseded so that other processes switch to the new file.
+ * </p>
+ * <p>
+ * Module revisions are identified by the path of their properties file according to the data
+ * file pattern of the cache. When nothing is stored for a module revision yet, this properties
+ * file is imported in the store if it exists, so that caches populated with
+ * {@link PropertiesCacheDataStore} can be used as is. Properties files are never updated.
+ * </p>
+ */
+class BinaryCacheDataStore implements CacheDataStore {
+    /**
+     * The name of the store file, at the root of the cache.
+     */
+    static final String DATA_FILE_NAME = "ivydata.db";
+
+    // data files are shared by all stores of this JVM using them, since a JVM can hold only one
+    // lock on a file, and are closed when the last of these stores is closed
+    private static final Map/*<File, DataFile>*/ DATA_FILES = new HashMap();
+
+    private final File root;
+
+    private final String dataFilePattern;
+
+    // null when this store is closed
+    private DataFile dataFile;
+
+    // the modules for which properties files have already been looked up
+    private final Set/*<String>*/ importChecked = Collections.synchronizedSet(new HashSet());
+
+    BinaryCacheDataStore(File root, String dataFilePattern) {
+        this.root = root;
+        this.dataFilePattern = dataFilePattern;
+    }
+
+    /**
+     * Returns the data file of this store, taking it again if this store has been closed.
+     */
+    private synchronized DataFile getDataFile() {
+        if (dataFile == null) {
+            dataFile = getDataFile(new File(root, DATA_FILE_NAME));
+        }
+        return dataFile;
+    }
+
+    private static DataFile getDataFile(File file) {
+        File key = file.getAbsoluteFile();
+        synchronized (DATA_FILES) {
+            DataFile shared = (DataFile) DATA_FILES.get(key);
+            if (shared == null) {
+                shared = new DataFile(key);
+                DATA_FILES.put(key, shared);
+            }
+            shared.users++;
+            return shared;
+        }
+    }
+
+    private static void releaseDataFile(DataFile shared) {
+        synchronized (DATA_FILES) {
+            if (--shared.users == 0) {
+                DATA_FILES.remove(shared.file);
+                shared.close();
+            }
+        }
+    }
+
+    public ModuleData getData(ModuleRevisionId mrid) {
+        String module = IvyPatternHelper.substitute(dataFilePattern, mrid);
+        DataFile file = getDataFile();
+        Map data = file.get(module);
+        if (data == null && importChecked.add(module)) {
+            File propertiesFile = new File(root, module);
+            if (propertiesFile.exists()) {
+                PropertiesFile props = new PropertiesFile(propertiesFile, null);
+                if (!props.isEmpty()) {
+                    Message.debug("importing " + propertiesFile + " in " + file);
+                    file.update(module, props, true);
+                    data = file.get(module);
+                }
+            }
+        }
+        return new StoredModuleData(module, data == null ? new HashMap() : data);
+    }
+
+    public synchronized void close() {
+        if (dataFile != null) {
+            releaseDataFile(dataFile);
+            dataFile = null;
+        }
+        importChecked.clear();
+    }
+
+    private final class StoredModuleData implements ModuleData {
+        private final String module;
+
+        private final Map/*<String, String>*/ data;
+
+        // the changes to save, with null values for removed properties
+        private final Map/*<String, String>*/ changes = new HashMap();
+
+        private StoredModuleData(String module, Map data) {
+            this.module = module;
+            this.data = data;
+        }
+
+        public String getProperty(String key) {
+            return (String) data.get(key);
+        }
+
+        public void setProperty(String key, String value) {
+            data.put(key, value);
+            changes.put(key, value);
+        }
+
+        public void remove(String key) {
+            // the property may have been set by another process since the snapshot was taken
+            data.remove(key);
+            changes.put(key, null);
+        }
+
+        public void save() {
+            if (!changes.isEmpty()) {
+                getDataFile().update(module, changes, false);
+                changes.clear();
+            }
+        }
+    }
+
+    /**
+     * The store file, with the in memory index of its content.
+     * <p>
+     * The file starts with a header made of a magic number, a format version, a random identifier
+     * and a state telling if the file has been superseded by another one. It is followed by
+     * records, each made of the payload length, the CRC32 of the payload and the payload itself,
+     * which is the operation (set or remove), the module, the property key and, for a set, the
+     * value. A record which is incomplete or doesn't match its CRC ends the log: this can only
+     * happen while a record is written, or if a process was killed while writing one.
+     * </p>
+     */
+    static final class DataFile {
+        private static final int MAGIC = 0x49564431; // "IVD1"
+
+        private static final int VERSION = 1;
+
+        private static final int STATE_OFFSET = 16;
+
+        private static final int HEADER_SIZE = 20;
+
+        private static final int STATE_LIVE = 0;
+
+        private static final int STATE_SUPERSEDED = 1;
+
+        private static final byte OP_SET = 1;
+
+        private static final byte OP_REMOVE = 2;
+
+        private static final int RECORD_HEADER_SIZE = 8;
+
+        // portions of the log larger than this are read through a memory mapping
+        private static final int MAP_THRESHOLD = 64 * 1024;
+
+        // the log is compacted when it is larger than this, and when it has several times more
+        // records than properties
+        private static final long COMPACT_MIN_SIZE = 1024 * 1024;
+
+        private static final int COMPACT_RATIO = 4;
+
+        private static final Random RANDOM = new Random();
+
+        private final File file;
+
+        // the number of stores using this file, guarded by DATA_FILES
+        private int users;
+
+        private RandomAccessFile raf;
+
+        // the identity of the opened file, if the file system gives one
+        private Object fileKey;
+
+        private FileChannel channel;
+
+        private long id;
+
+        // the end of the last valid record read
+        private long position;
+
+        private Map/*<String, Map<String, String>>*/ index = new HashMap();
+
+        private int records;
+
+        private int properties;
+
+        DataFile(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Returns a copy of the properties of the given module, or <code>null</code> if there is
+         * none.
+         */
+        public synchronized Map get(String module) {
+            try {
+                refresh();
+            } catch (IOException e) {
+                Message.warn("impossible to read cache data file " + file + ": " + e);
+                close();
+            }
+            Map data = (Map) index.get(module);
+            return data == null ? null : new HashMap(data);
+        }
+
+        /**
+         * Appends the given changes of the properties of the given module, null values standing
+         * for removed properties. If onlyIfAbsent is true, the changes are written only if the
+         * store doesn't contain any property of the module yet.
+         */
+        public synchronized void update(String module, Map changes, boolean onlyIfAbsent) {
+            FileLock lock = null;
+            try {
+                lock = lockForUpdate();
+                if (!readRecords() || channel.size() > position) {
+                    // invalid header or trailing garbage: start a new file with the valid data
+                    Message.verbose("cache data file " + file + " is corrupted: rewriting it");
+                    lock = compact(lock);
+                }
+                if (onlyIfAbsent && index.containsKey(module)) {
+                    return;
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                for (Iterator it = changes.entrySet().iterator(); it.hasNext();) {
+                    Entry change = (Entry) it.next();
+                    writeRecord(bytes, module, (String) change.getKey(),
+                        (String) change.getValue());
+                }
+                write(ByteBuffer.wrap(bytes.toByteArray()), position);
+                for (Iterator it = changes.entrySet().iterator(); it.hasNext();) {
+                    Entry change = (Entry) it.next();
+                    apply(module, (String) change.getKey(), (String) change.getValue());
+                }
+                position += bytes.size();
+                if (position > COMPACT_MIN_SIZE && records > COMPACT_RATIO * properties) {
+                    lock = compact(lock);
+                }
+            } catch (IOException e) {
+                Message.warn("impossible to update cache data file " + file + ": " + e);
+                close();
+            } finally {
+                release(lock);
+            }
+        }
+
+        public synchronized void close() {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException e) {
+                    // ignored
+                }
+            }
+            raf = null;
+            channel = null;
+            fileKey = null;
+            index = new HashMap();
+            position = 0;
+            records = 0;
+            properties = 0;
+        }
+
+        public String toString() {
+            return file.toString();
+        }
+
+        /**
+         * Makes sure the file is opened and the index up to date, switching to a new file if the
+         * current one has been superseded, deleted or replaced.
+         */
+        private void refresh() throws IOException {
+            if (channel != null
+                    && (readState() == STATE_SUPERSEDED || !file.exists()
+                            || file.length() != channel.size() && !isSameFile())) {
+                close();
+            }
+            if (channel == null) {
+                if (!file.exists()) {
+                    return;
+                }
+                open();
+            }
+            if (!readRecords()) {
+                // no valid header yet
+                close();
+            }
+        }
+
+        private FileLock lockForUpdate() throws IOException {
+            while (true) {
+                if (channel == null || !file.exists() || !isSameFile()) {
+                    close();
+                    file.getParentFile().mkdirs();
+                    open();
+                }
+                FileLock lock = channel.lock();
+                if (channel.size() == 0) {
+                    id = newId();
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    header.putInt(MAGIC).putInt(VERSION).putLong(id).putInt(STATE_LIVE);
+                    header.flip();
+                    write(header, 0);
+                }
+                // the file is not opened again while locked: compaction marks the file it
+                // replaces as superseded before releasing its lock, and other replacements are
+                // detected by the file key when the file system gives one
+                if (readState() != STATE_SUPERSEDED && file.exists()
+                        && (fileKey == null || fileKey.equals(FileUtil.getFileKey(file)))) {
+                    return lock;
+                }
+                release(lock);
+                close();
+            }
+        }
+
+        private void open() throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            fileKey = FileUtil.getFileKey(file);
+        }
+
+        /**
+         * Reads the records not read yet. Returns false if the file doesn't have a valid header.
+         */
+        private boolean readRecords() throws IOException {
+            if (position == 0) {
+                if (channel.size() < HEADER_SIZE) {
+                    return false;
+                }
+                ByteBuffer header = read(0, HEADER_SIZE);
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    return false;
+                }
+                id = header.getLong();
+                position = HEADER_SIZE;
+            }
+            long size = channel.size();
+            if (size <= position) {
+                return true;
+            }
+            ByteBuffer buffer = read(position, size - position);
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                byte op = in.readByte();
+                String module = in.readUTF();
+                String key = in.readUTF();
+                apply(module, key, op == OP_SET ? in.readUTF() : null);
+                position += RECORD_HEADER_SIZE + length;
+            }
+            return true;
+        }
+
+        private void apply(String module, String key, String value) {
+            records++;
+            Map data = (Map) index.get(module);
+            if (value != null) {
+                if (data == null) {
+                    data = new HashMap();
+                    index.put(module, data);
+                }
+                if (data.put(key, value) == null) {
+                    properties++;
+                }
+            } else if (data != null && data.remove(key) != null) {
+                properties--;
+                if (data.isEmpty()) {
+                    index.remove(module);
+                }
+            }
+        }
+
+        /**
+         * Writes the current index to a new file replacing the current one, and marks the current
+         * one as superseded. Must be called with the lock on the current file, which is released.
+         * Returns the lock on the new file.
+         */
+        private FileLock compact(FileLock lock) throws IOException {
+            File tmp = File.createTempFile(file.getName(), ".part", file.getParentFile());
+            RandomAccessFile newRaf = new RandomAccessFile(tmp, "rw");
+            boolean replaced = false;
+            try {
+                long newId = newId();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(newId);
+                out.writeInt(STATE_LIVE);
+                int newRecords = 0;
+                for (Iterator it = index.entrySet().iterator(); it.hasNext();) {
+                    Entry moduleData = (Entry) it.next();
+                    Map data = (Map) moduleData.getValue();
+                    for (Iterator it2 = data.entrySet().iterator(); it2.hasNext();) {
+                        Entry property = (Entry) it2.next();
+                        writeRecord(bytes, (String) moduleData.getKey(),
+                            (String) property.getKey(), (String) property.getValue());
+                        newRecords++;
+                    }
+                }
+                newRaf.write(bytes.toByteArray());
+                FileLock newLock = newRaf.getChannel().lock();
+                if (!tmp.renameTo(file)) {
+                    // the file can't be replaced while opened on some platforms: keep on using it
+                    release(newLock);
+                    Message.verbose("impossible to replace " + file + ": not compacted");
+                    return lock;
+                }
+                replaced = true;
+
+                ByteBuffer state = ByteBuffer.allocate(4);
+                state.putInt(STATE_SUPERSEDED);
+                state.flip();
+                write(state, STATE_OFFSET);
+                release(lock);
+                raf.close();
+
+                raf = newRaf;
+                channel = newRaf.getChannel();
+                fileKey = FileUtil.getFileKey(file);
+                id = newId;
+                position = bytes.size();
+                records = newRecords;
+                return newLock;
+            } finally {
+                if (!replaced) {
+                    newRaf.close();
+                    tmp.delete();
+                }
+            }
+        }
+
+        private int readState() throws IOException {
+            if (channel.size() < HEADER_SIZE) {
+                return STATE_LIVE;
+            }
+            return read(STATE_OFFSET, 4).getInt();
+        }
+
+        /**
+         * Checks that the file at the store location is the one currently opened. Must not be
+         * called while the file is locked: without file key, the file is opened again to read its
+         * id, and closing it would release the locks of this process on the file.
+         */
+        private boolean isSameFile() throws IOException {
+            if (fileKey != null) {
+                return fileKey.equals(FileUtil.getFileKey(file));
+            }
+            if (position == 0 && channel.size() < HEADER_SIZE) {
+                return file.exists();
+            }
+            RandomAccessFile current;
+            try {
+                current = new RandomAccessFile(file, "r");
+            } catch (IOException e) {
+                return false;
+            }
+            try {
+                if (current.length() < HEADER_SIZE) {
+                    return false;
+                }
+                current.seek(8);
+                return current.readLong() == (position == 0 ? read(8, 8).getLong() : id);
+            } finally {
+                current.close();
+            }
+        }
+
+        private ByteBuffer read(long from, long length) throws IOException {
+            if (length > MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        private void write(ByteBuffer buffer, long to) throws IOException {
+            long pos = to;
+            while (buffer.hasRemaining()) {
+                pos += channel.write(buffer, pos);
+            }
+        }
+
+        private static void writeRecord(ByteArrayOutputStream bytes, String module, String key,
+                String value) throws IOException {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(payload);
+            out.writeByte(value == null ? OP_REMOVE : OP_SET);
+            out.writeUTF(module);
+            out.writeUTF(key);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+            out.flush();
+            byte[] data = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeInt(data.length);
+            record.writeInt((int) crc.getValue());
+            record.write(data);
+            record.flush();
+        }
+
+        private static long newId() {
+            return RANDOM.nextLong();
+        }
+
+        private static void release(FileLock lock) {
+            if (lock != null && lock.isValid()) {
+                try {
+                    lock.release();
+                } catch (IOException e) {
+                    // ignored
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+
+/**
+ * Stores the data kept by a {@link DefaultRepositoryCacheManager} about each module revision:
+ * resolvers used, resolved dynamic revisions, artifact origins...
+ */
+interface CacheDataStore {
+
+    /**
+     * The data of a single module revision, as a set of string properties.
+     */
+    interface ModuleData {
+        String getProperty(String key);
+
+        void setProperty(String key, String value);
+
+        void remove(String key);
+
+        /**
+         * Writes the changes made to this data to the store.
+         */
+        void save();
+    }
+
+    /**
+     * Returns the data stored for the given module revision. The returned data is a snapshot of
+     * the store: it isn't updated with changes saved later on, by this instance or by another.
+     *
+     * @param mrid
+     *            the module revision for which data should be returned
+     * @return the data of the module revision, never <code>null</code>
+     */
+    ModuleData getData(ModuleRevisionId mrid);
+
+    /**
+     * Releases the resources used by this store, for instance before the cache is deleted. The
+     * store can still be used afterwards.
+     */
+    void close();
+}
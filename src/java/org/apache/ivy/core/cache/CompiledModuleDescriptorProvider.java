@@ -0,0 +1,230 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.CRC32;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.repository.url.URLResource;
+import org.apache.ivy.util.Message;
+
+/**
+ * Provides module descriptors from a compiled binary form saved next to their descriptor file,
+ * and falls back to another provider (usually parsing the descriptor file) when the compiled form
+ * is missing or out of date. The descriptors provided by the fallback provider are then compiled,
+ * so that later runs can load them without parsing the descriptor file again.
+ * <p>
+ * A compiled descriptor is used only if the descriptor file has the same timestamp and size as
+ * when it was compiled, if it was validated when validation is requested, and if the settings
+ * variables used while parsing have still the same value.
+ * </p>
+ */
+class CompiledModuleDescriptorProvider implements ModuleDescriptorProvider {
+    /**
+     * Suffix added to the name of a descriptor file to get the name of its compiled form.
+     */
+    static final String COMPILED_FILE_SUFFIX = ".ivyc";
+
+    private static final int MAGIC = 0x49564443; // IVDC
+
+    private static final int VERSION = 1;
+
+    private final ModuleDescriptorParser parser;
+
+    private final ModuleDescriptorProvider provider;
+
+    /**
+     * @param parser
+     *            the parser of the descriptor files: only the descriptors parsed by this parser
+     *            are compiled
+     * @param provider
+     *            the provider to use when no up to date compiled descriptor is available
+     */
+    CompiledModuleDescriptorProvider(ModuleDescriptorParser parser,
+            ModuleDescriptorProvider provider) {
+        this.parser = parser;
+        this.provider = provider;
+    }
+
+    public ModuleDescriptor provideModule(ParserSettings ivySettings, File descriptorFile,
+            boolean validate) throws ParseException, IOException {
+        File compiledFile = getCompiledFile(descriptorFile);
+        ModuleDescriptor md = load(ivySettings, descriptorFile, compiledFile, validate);
+        if (md != null) {
+            Message.debug("compiled module descriptor found: " + compiledFile);
+            return md;
+        }
+        long lastModified = descriptorFile.lastModified();
+        long length = descriptorFile.length();
+        ParserSettingsMonitor settingsMonitor = new ParserSettingsMonitor(ivySettings);
+        md = provider.provideModule(settingsMonitor.getMonitoredSettings(), descriptorFile,
+            validate);
+        if (md != null && md.getParser() == parser) {
+            save(ivySettings, md, settingsMonitor.getSubstitutes(), lastModified, length,
+                validate, compiledFile);
+        }
+        return md;
+    }
+
+    /**
+     * Deletes the compiled form of the given descriptor file, if any.
+     */
+    public static void deleteCompiledFile(File descriptorFile) {
+        File compiledFile = getCompiledFile(descriptorFile);
+        if (compiledFile.exists() && !compiledFile.delete()) {
+            Message.verbose("impossible to delete compiled module descriptor " + compiledFile);
+        }
+    }
+
+    static File getCompiledFile(File descriptorFile) {
+        return new File(descriptorFile.getParentFile(),
+            descriptorFile.getName() + COMPILED_FILE_SUFFIX);
+    }
+
+    private ModuleDescriptor load(ParserSettings settings, File descriptorFile,
+            File compiledFile, boolean validate) {
+        if (!compiledFile.exists()) {
+            return null;
+        }
+        try {
+            byte[] data = new byte[(int) compiledFile.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(compiledFile));
+            try {
+                in.readFully(data);
+            } finally {
+                in.close();
+            }
+            in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Message.debug("unsupported compiled module descriptor: " + compiledFile);
+                return null;
+            }
+            if (in.readLong() != descriptorFile.lastModified()
+                    || in.readLong() != descriptorFile.length()) {
+                Message.debug("compiled module descriptor is out of date: " + compiledFile);
+                return null;
+            }
+            if (!in.readBoolean() && validate) {
+                Message.debug("compiled module descriptor hasn't been validated: "
+                    + compiledFile);
+                return null;
+            }
+            long checksum = in.readLong();
+            int offset = data.length - in.available();
+            CRC32 crc = new CRC32();
+            crc.update(data, offset, data.length - offset);
+            if (crc.getValue() != checksum) {
+                Message.debug("corrupted compiled module descriptor: " + compiledFile);
+                return null;
+            }
+            int substitutes = in.readInt();
+            for (int i = 0; i < substitutes; i++) {
+                String value = in.readUTF();
+                String substitution = in.readUTF();
+                if (!substitution.equals(settings.substitute(value))) {
+                    Message.debug("settings variable has changed for " + value
+                        + ": compiled module descriptor is out of date: " + compiledFile);
+                    return null;
+                }
+            }
+            return ModuleDescriptorSerializer.read(settings, parser,
+                new URLResource(descriptorFile.toURI().toURL()), in);
+        } catch (IOException e) {
+            Message.debug("impossible to load compiled module descriptor " + compiledFile + ": "
+                + e);
+            return null;
+        } catch (RuntimeException e) {
+            Message.debug("impossible to load compiled module descriptor " + compiledFile + ": "
+                + e);
+            return null;
+        }
+    }
+
+    private void save(ParserSettings settings, ModuleDescriptor md, Map substitutes,
+            long lastModified, long length, boolean validated, File compiledFile) {
+        File tmp = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(substitutes.size());
+            for (Iterator iter = substitutes.entrySet().iterator(); iter.hasNext();) {
+                Entry substitute = (Entry) iter.next();
+                out.writeUTF((String) substitute.getKey());
+                out.writeUTF((String) substitute.getValue());
+            }
+            ModuleDescriptorSerializer.write(md, settings, out);
+            out.flush();
+            byte[] data = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data);
+
+            // write to a temporary file first, so that concurrent readers never see a partial file
+            tmp = File.createTempFile(compiledFile.getName(), ".tmp",
+                compiledFile.getParentFile());
+            OutputStream fileOut = new FileOutputStream(tmp);
+            try {
+                out = new DataOutputStream(fileOut);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(lastModified);
+                out.writeLong(length);
+                out.writeBoolean(validated);
+                out.writeLong(crc.getValue());
+                out.write(data);
+                out.flush();
+            } finally {
+                fileOut.close();
+            }
+            if (!tmp.renameTo(compiledFile)) {
+                compiledFile.delete();
+                if (!tmp.renameTo(compiledFile)) {
+                    Message.verbose("impossible to save compiled module descriptor "
+                        + compiledFile);
+                    return;
+                }
+            }
+            tmp = null;
+        } catch (NotSerializableException e) {
+            Message.debug("module descriptor can't be compiled: " + md.getModuleRevisionId()
+                + ": unsupported " + e.getMessage());
+        } catch (IOException e) {
+            Message.verbose("impossible to save compiled module descriptor " + compiledFile
+                + ": " + e);
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+}
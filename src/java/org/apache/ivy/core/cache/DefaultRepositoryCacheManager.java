@@ -17,19 +17,28 @@
  */
 package org.apache.ivy.core.cache;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.regex.Pattern;
 
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.CacheDataStore.ModuleData;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -40,6 +49,9 @@ import org.apache.ivy.core.module.id.ModuleRules;
 import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.plugins.IvySettingsAware;
@@ -59,14 +71,16 @@ import org.apache.ivy.plugins.repository.Repository;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.repository.ResourceDownloader;
 import org.apache.ivy.plugins.repository.ResourceHelper;
+import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.plugins.resolver.AbstractResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+import org.apache.ivy.util.ChecksumHelper;
 import org.apache.ivy.util.Checks;
+import org.apache.ivy.util.DownloadChecksums;
 import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.HexEncoder;
 import org.apache.ivy.util.Message;
-import org.apache.ivy.util.PropertiesFile;
 
 public class DefaultRepositoryCacheManager implements RepositoryCacheManager, IvySettingsAware {
     private static final String DEFAULT_ARTIFACT_PATTERN =
@@ -79,6 +93,18 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         "[organisation]/[module](/[branch])/ivy-[revision].xml";
     
     private static final int DEFAULT_MEMORY_CACHE_SIZE = 150;
+
+    /**
+     * Data store type saving the data of each module revision in its own properties file.
+     */
+    public static final String DATA_STORE_PROPERTIES = "properties";
+
+    /**
+     * Data store type saving the data of all module revisions in a single binary file.
+     */
+    public static final String DATA_STORE_BINARY = "binary";
+
+    private static final int DATA_FILE_MONITORS = 32;
     
     private static MessageDigest SHA_DIGEST;
     static {
@@ -100,6 +126,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     private String ivyPattern; 
 
     private String dataFilePattern = DEFAULT_DATA_FILE_PATTERN; 
+
+    private String dataStoreType;
+
+    private CacheDataStore dataStore;
     
     private String artifactPattern;
 
@@ -119,6 +149,33 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private ModuleDescriptorMemoryCache memoryModuleDescrCache;
 
+    private Boolean compiledDescriptors;
+
+    private Long listingTTL = null;
+
+    private RepositoryListingCache listingCache;
+
+    /**
+     * Monitors used to make updates of cached data files atomic within this JVM, whatever the lock
+     * strategy used (which may be no lock at all). Updates are spread over several monitors
+     * according to the module revision, so that updates of different modules rarely wait for each
+     * other.
+     */
+    private final Object[] dataFileMonitors = new Object[DATA_FILE_MONITORS];
+    {
+        for (int i = 0; i < dataFileMonitors.length; i++) {
+            dataFileMonitors[i] = new Object();
+        }
+    }
+
+    /**
+     * Holders of the metadata locks acquired within this JVM, by module revision. Metadata of a
+     * module revision is updated by one thread at a time whatever the lock strategy used, so that
+     * concurrent resolvers (like the probes of a parallel chain) never write the same cached
+     * descriptor and data file at the same time.
+     */
+    private final Map/*<ModuleRevisionId, MetadataLock>*/ metadataLocks = new HashMap();
+
     public DefaultRepositoryCacheManager() {
     }
 
@@ -180,6 +237,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     public void setBasedir(File cache) {
         this.basedir = cache;
+        resetDataStore();
+        resetListingCache();
     }
     
     public long getDefaultTTL() {
@@ -197,6 +256,47 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         this.defaultTTL = new Long(parseDuration(defaultTTL));
     }
 
+    /**
+     * Returns how long the listings of the directories of remote repositories are kept in the
+     * cache, 0 (the default) meaning that repositories are listed each time revisions are
+     * searched.
+     */
+    public long getListingTTL() {
+        if (listingTTL == null) {
+            listingTTL = new Long(parseDuration(settings == null ? null 
+                    : settings.getVariable("ivy.cache.ttl.listing")));
+        }
+        return listingTTL.longValue();
+    }
+
+    public void setListingTTL(long listingTTL) {
+        this.listingTTL = new Long(listingTTL);
+    }
+
+    public void setListingTTL(String listingTTL) {
+        this.listingTTL = new Long(parseDuration(listingTTL));
+    }
+
+    /**
+     * Returns the cache of the listings of the repositories, or <code>null</code> if the listings
+     * are not cached.
+     */
+    public synchronized RepositoryListingCache getListingCache() {
+        long ttl = getListingTTL();
+        if (ttl <= 0) {
+            return null;
+        }
+        if (listingCache == null || listingCache.getTTL() != ttl) {
+            listingCache = new RepositoryListingCache(
+                new File(getRepositoryCacheRoot(), "listings"), ttl);
+        }
+        return listingCache;
+    }
+
+    private synchronized void resetListingCache() {
+        listingCache = null;
+    }
+
     public String getDataFilePattern() {
         return dataFilePattern;
     }
@@ -204,6 +304,42 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     public void setDataFilePattern(String dataFilePattern) {
         CacheUtil.checkCachePattern(dataFilePattern);
         this.dataFilePattern = dataFilePattern;
+        resetDataStore();
+    }
+
+    /**
+     * Returns the type of store used to save the data of module revisions in the cache: resolvers,
+     * resolved dynamic revisions, artifact origins...
+     * <p>
+     * With {@link #DATA_STORE_PROPERTIES} (the default), the data of each module revision is saved
+     * in its own properties file, as given by the data file pattern. With
+     * {@link #DATA_STORE_BINARY}, the data of all module revisions is saved in a single binary file
+     * at the root of the cache, which is much faster to query and update when a lot of modules are
+     * resolved. Existing properties files are imported in the binary store when needed.
+     * </p>
+     * 
+     * @return the type of data store
+     */
+    public String getDataStore() {
+        if (dataStoreType == null) {
+            if (settings != null) {
+                dataStoreType = settings.getVariable("ivy.cache.datastore");
+            }
+            if (dataStoreType == null) {
+                dataStoreType = DATA_STORE_PROPERTIES;
+            }
+        }
+        return dataStoreType;
+    }
+
+    public void setDataStore(String dataStoreType) {
+        if (!DATA_STORE_PROPERTIES.equals(dataStoreType)
+                && !DATA_STORE_BINARY.equals(dataStoreType)) {
+            throw new IllegalArgumentException("unknown data store '" + dataStoreType
+                    + "': it must be one of " + DATA_STORE_PROPERTIES + ", " + DATA_STORE_BINARY);
+        }
+        this.dataStoreType = dataStoreType;
+        resetDataStore();
     }
 
     public void setIvyPattern(String ivyPattern) {
@@ -261,6 +397,28 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
         return memoryModuleDescrCache;
     }
+
+    /**
+     * True if the module descriptors parsed from the ivy files of this cache should be saved in a
+     * compiled binary form next to their ivy file, so that they can be loaded without parsing the
+     * ivy file again in later runs.
+     */
+    public boolean isCompiledDescriptors() {
+        if (compiledDescriptors == null) {
+            if (getSettings() != null) {
+                String compiled = getSettings().getVariable("ivy.cache.compileddescriptors");
+                return compiled != null ? Boolean.valueOf(compiled).booleanValue() : false;
+            } else {
+                return false;
+            }
+        } else {
+            return compiledDescriptors.booleanValue();
+        }
+    }
+
+    public void setCompiledDescriptors(boolean compiled) {
+        compiledDescriptors = Boolean.valueOf(compiled);
+    }
     
     
     private static final Pattern DURATION_PATTERN 
@@ -413,9 +571,11 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
      */
     private void saveResolver(ModuleDescriptor md, String name) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
-        cdf.setProperty("resolver", name);
-        cdf.save();
+        synchronized (getDataFileMonitor(md.getResolvedModuleRevisionId())) {
+            ModuleData cdf = getCachedData(md);
+            cdf.setProperty("resolver", name);
+            cdf.save();
+        }
     }
 
     /**
@@ -435,10 +595,12 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return;
         }
         try {
-            PropertiesFile cdf = getCachedDataFile(md);
-            cdf.setProperty("resolver", metadataResolverName);
-            cdf.setProperty("artifact.resolver", artifactResolverName);
-            cdf.save();
+            synchronized (getDataFileMonitor(mrid)) {
+                ModuleData cdf = getCachedData(md);
+                cdf.setProperty("resolver", metadataResolverName);
+                cdf.setProperty("artifact.resolver", artifactResolverName);
+                cdf.save();
+            }
         } finally {
             unlockMetadataArtifact(mrid);
         }
@@ -446,35 +608,77 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private String getSavedResolverName(ModuleDescriptor md) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
+        ModuleData cdf = getCachedData(md);
         return cdf.getProperty("resolver");
     }
 
     private String getSavedArtResolverName(ModuleDescriptor md) {
         // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(md);
+        ModuleData cdf = getCachedData(md);
         return cdf.getProperty("artifact.resolver");
     }
 
+    /**
+     * Saves the origin of the given artifact in the cached data file of its module.
+     * <p>
+     * The update is done with a lock on the module metadata artifact, acquired here if the caller
+     * doesn't already hold it, so that artifacts of the same module can be downloaded with a lock on
+     * the artifact only.
+     * </p>
+     */
     void saveArtifactOrigin(Artifact artifact, ArtifactOrigin origin) {
-        // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
-        cdf.setProperty(getIsLocalKey(artifact), String.valueOf(origin.isLocal()));
-        cdf.setProperty(getLocationKey(artifact), origin.getLocation());
-        if (origin.getLastChecked() != null) {
-            cdf.setProperty(getLastCheckedKey(artifact), origin.getLastChecked().toString());
+        ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            synchronized (getDataFileMonitor(mrid)) {
+                ModuleData cdf = getCachedData(mrid);
+                cdf.setProperty(getIsLocalKey(artifact), String.valueOf(origin.isLocal()));
+                cdf.setProperty(getLocationKey(artifact), origin.getLocation());
+                if (origin.getLastChecked() != null) {
+                    cdf.setProperty(getLastCheckedKey(artifact), origin.getLastChecked()
+                            .toString());
+                }
+                cdf.setProperty(getExistsKey(artifact), Boolean.toString(origin.isExists()));
+                if (origin.getETag() != null) {
+                    cdf.setProperty(getETagKey(artifact), origin.getETag());
+                } else {
+                    cdf.remove(getETagKey(artifact));
+                }
+                if (!origin.getChecksums().isEmpty()) {
+                    cdf.setProperty(getChecksumsKey(artifact),
+                        formatChecksums(origin.getChecksums()));
+                } else {
+                    cdf.remove(getChecksumsKey(artifact));
+                }
+                cdf.save();
+            }
+        } finally {
+            unlockMetadataArtifact(mrid);
         }
-        cdf.setProperty(getExistsKey(artifact), Boolean.toString(origin.isExists()));
-        cdf.save();
     }
 
     private void removeSavedArtifactOrigin(Artifact artifact) {
-        // should always be called with a lock on module metadata artifact
-        PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
-        cdf.remove(getLocationKey(artifact));
-        cdf.remove(getIsLocalKey(artifact));
-        cdf.remove(getLastCheckedKey(artifact));
-        cdf.save();
+        ModuleRevisionId mrid = artifact.getModuleRevisionId();
+        if (!lockMetadataArtifact(mrid)) {
+            Message.error("impossible to acquire lock for " + mrid);
+            return;
+        }
+        try {
+            synchronized (getDataFileMonitor(mrid)) {
+                ModuleData cdf = getCachedData(mrid);
+                cdf.remove(getLocationKey(artifact));
+                cdf.remove(getIsLocalKey(artifact));
+                cdf.remove(getLastCheckedKey(artifact));
+                cdf.remove(getETagKey(artifact));
+                cdf.remove(getChecksumsKey(artifact));
+                cdf.save();
+            }
+        } finally {
+            unlockMetadataArtifact(mrid);
+        }
     }
 
     public ArtifactOrigin getSavedArtifactOrigin(Artifact artifact) {
@@ -484,11 +688,13 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return ArtifactOrigin.unkwnown(artifact);
         }
         try {
-            PropertiesFile cdf = getCachedDataFile(artifact.getModuleRevisionId());
+            ModuleData cdf = getCachedData(artifact.getModuleRevisionId());
             String location = cdf.getProperty(getLocationKey(artifact));
             String local = cdf.getProperty(getIsLocalKey(artifact));
             String lastChecked = cdf.getProperty(getLastCheckedKey(artifact));
             String exists = cdf.getProperty(getExistsKey(artifact));
+            String etag = cdf.getProperty(getETagKey(artifact));
+            String checksums = cdf.getProperty(getChecksumsKey(artifact));
 
             boolean isLocal = Boolean.valueOf(local).booleanValue();
 
@@ -504,6 +710,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             if (exists != null) {
                 origin.setExist(Boolean.valueOf(exists).booleanValue());
             }
+            origin.setETag(etag);
+            if (checksums != null) {
+                origin.setChecksums(parseChecksums(checksums));
+            }
 
             return origin;
         } finally {
@@ -574,29 +784,103 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return prefix + ".exists";
     }
 
-    private PropertiesFile getCachedDataFile(ModuleDescriptor md) {
-        return getCachedDataFile(md.getResolvedModuleRevisionId());
+    /**
+     * Returns the key used to identify the entity tag of the downloaded artifact.
+     * 
+     * @param artifact
+     *            the artifact to generate the key from. Cannot be null.
+     * @return the key to be used to reference the entity tag of the artifact.
+     */
+    private String getETagKey(Artifact artifact) {
+        String prefix = getPrefixKey(artifact);
+        return prefix + ".etag";
+    }
+
+    private String getChecksumsKey(Artifact artifact) {
+        String prefix = getPrefixKey(artifact);
+        return prefix + ".checksums";
+    }
+
+    /**
+     * Formats checksums by algorithm as a comma separated list of algorithm:checksum.
+     */
+    private static String formatChecksums(Map checksums) {
+        StringBuffer sb = new StringBuffer();
+        for (Iterator it = checksums.entrySet().iterator(); it.hasNext();) {
+            Entry entry = (Entry) it.next();
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey()).append(':').append(entry.getValue());
+        }
+        return sb.toString();
     }
 
-    private PropertiesFile getCachedDataFile(ModuleRevisionId mRevId) {
-        return new PropertiesFile(new File(getRepositoryCacheRoot(), 
-            IvyPatternHelper.substitute(
-                getDataFilePattern(), mRevId)), "ivy cached data file for " + mRevId);
+    private static Map parseChecksums(String checksums) {
+        Map result = new LinkedHashMap();
+        String[] entries = checksums.split(",");
+        for (int i = 0; i < entries.length; i++) {
+            int sep = entries[i].indexOf(':');
+            if (sep > 0) {
+                result.put(entries[i].substring(0, sep), entries[i].substring(sep + 1));
+            }
+        }
+        return result;
+    }
+
+    private ModuleData getCachedData(ModuleDescriptor md) {
+        return getCachedData(md.getResolvedModuleRevisionId());
+    }
+
+    private ModuleData getCachedData(ModuleRevisionId mRevId) {
+        return getDataStoreInstance().getData(mRevId);
+    }
+
+    private synchronized CacheDataStore getDataStoreInstance() {
+        if (dataStore == null) {
+            if (DATA_STORE_BINARY.equals(getDataStore())) {
+                dataStore = new BinaryCacheDataStore(getRepositoryCacheRoot(), 
+                    getDataFilePattern());
+            } else {
+                dataStore = new PropertiesCacheDataStore(getRepositoryCacheRoot(), 
+                    getDataFilePattern());
+            }
+        }
+        return dataStore;
+    }
+
+    private synchronized void resetDataStore() {
+        if (dataStore != null) {
+            dataStore.close();
+            dataStore = null;
+        }
+    }
+
+    private Object getDataFileMonitor(ModuleRevisionId mrid) {
+        return dataFileMonitors[(mrid.hashCode() & Integer.MAX_VALUE) % dataFileMonitors.length];
     }
 
     public ResolvedModuleRevision findModuleInCache(
             DependencyDescriptor dd, ModuleRevisionId requestedRevisionId, 
             CacheMetadataOptions options, String expectedResolver) {
         ModuleRevisionId mrid = requestedRevisionId;
+        ResolvedModuleRevision rmr;
         if (isCheckmodified(dd, requestedRevisionId, options)) {
             Message.verbose("don't use cache for " + mrid + ": checkModified=true");
-            return null;
-        }
-        if (isChanging(dd, requestedRevisionId, options)) {
+            expireResolveResult(0);
+            rmr = null;
+        } else if (isChanging(dd, requestedRevisionId, options)) {
             Message.verbose("don't use cache for " + mrid + ": changing=true");
-            return null;
+            expireResolveResult(0);
+            rmr = null;
+        } else {
+            rmr = doFindModuleInCache(mrid, options, expectedResolver);
         }
-        return doFindModuleInCache(mrid, options, expectedResolver);
+        ResolveMetrics metrics = ResolveMetrics.getCurrent();
+        if (metrics != null) {
+            metrics.addMetadataCacheLookup(rmr != null);
+        }
+        return rmr;
     }
 
     private ResolvedModuleRevision doFindModuleInCache(
@@ -706,6 +990,11 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         private final ModuleDescriptorParser mdParser;
         private final ParserSettings settings;
 
+        /**
+         * @param settings
+         *            the settings to parse with, or <code>null</code> to parse with the settings
+         *            given to {@link #provideModule}
+         */
         public MyModuleDescriptorProvider(ModuleDescriptorParser mdParser, ParserSettings settings) {
             this.mdParser = mdParser;
             this.settings = settings;
@@ -713,7 +1002,21 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         
         public ModuleDescriptor provideModule(ParserSettings ivySettings, 
                 File descriptorURL, boolean validate) throws ParseException, IOException {
-            return mdParser.parseDescriptor(settings, descriptorURL.toURI().toURL(), validate);
+            ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.PARSE, mdParser.toString(),
+                descriptorURL);
+            long start = System.currentTimeMillis();
+            ModuleDescriptor md;
+            try {
+                md = mdParser.parseDescriptor(settings == null ? ivySettings : settings,
+                    descriptorURL.toURI().toURL(), validate);
+            } finally {
+                ResolveTrace.end(span);
+            }
+            ResolveMetrics metrics = ResolveMetrics.getCurrent();
+            if (metrics != null) {
+                metrics.addParse(mdParser.toString(), System.currentTimeMillis() - start);
+            }
+            return md;
         }
     }
     
@@ -721,7 +1024,15 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             CacheMetadataOptions options, File ivyFile) 
             throws ParseException, IOException {
         ModuleDescriptorMemoryCache cache = getMemoryCache();
-        ModuleDescriptorProvider mdProvider = new MyModuleDescriptorProvider(mdParser, settings); 
+        ModuleDescriptorProvider mdProvider;
+        if (isCompiledDescriptors()) {
+            // parse with the settings monitored by the compiled descriptor provider, so that it
+            // knows which variables the compiled descriptor depends on
+            mdProvider = new CompiledModuleDescriptorProvider(mdParser,
+                new MyModuleDescriptorProvider(mdParser, null));
+        } else {
+            mdProvider = new MyModuleDescriptorProvider(mdParser, settings);
+        }
         return cache.get(ivyFile, settings, options.isValidate(), mdProvider);
     }
 
@@ -745,7 +1056,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 Message.verbose("refresh mode: no check for cached resolved revision for " + mrid);
                 return null;
             }
-            PropertiesFile cachedResolvedRevision = getCachedDataFile(mrid);
+            ModuleData cachedResolvedRevision = getCachedData(mrid);
             resolvedRevision = cachedResolvedRevision.getProperty("resolved.revision");
             if (resolvedRevision == null) {
                 Message.verbose(getName() + ": no cached resolved revision for " + mrid);
@@ -759,14 +1070,17 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                 saveResolvedRevision(mrid, resolvedRevision);
                 return resolvedRevision;
             }
+            long expiration = Long.parseLong(resolvedTime) + getTTL(mrid);
             if (options.isCheckTTL()) {
-                long expiration = Long.parseLong(resolvedTime) + getTTL(mrid);
                 if (expiration > 0 // negative expiration means that Long.MAX_VALUE has been exceeded
                         && System.currentTimeMillis() > expiration) {
                     Message.verbose(getName() + ": cached resolved revision expired for " + mrid);
                     return null;
                 }
             }
+            if (expiration > 0) {
+                expireResolveResult(expiration);
+            }
             return resolvedRevision;
         } finally {
             unlockMetadataArtifact(mrid);
@@ -779,16 +1093,33 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             return;
         }
         try {
-            PropertiesFile cachedResolvedRevision = getCachedDataFile(mrid);
-            cachedResolvedRevision.setProperty(
-                "resolved.time", String.valueOf(System.currentTimeMillis()));
-            cachedResolvedRevision.setProperty("resolved.revision", revision);
-            cachedResolvedRevision.save();
+            long now = System.currentTimeMillis();
+            long expiration = now + getTTL(mrid);
+            if (expiration > 0) {
+                expireResolveResult(expiration);
+            }
+            synchronized (getDataFileMonitor(mrid)) {
+                ModuleData cachedResolvedRevision = getCachedData(mrid);
+                cachedResolvedRevision.setProperty("resolved.time", String.valueOf(now));
+                cachedResolvedRevision.setProperty("resolved.revision", revision);
+                cachedResolvedRevision.save();
+            }
         } finally {
             unlockMetadataArtifact(mrid);
         }
     }
 
+    /**
+     * Records in the current resolve, if any, that its result relies on cache data valid until the
+     * given time only, so that it isn't reused after that time.
+     */
+    private void expireResolveResult(long time) {
+        ResolveData data = IvyContext.getContext().getResolveData();
+        if (data != null) {
+            data.expireResultAt(time);
+        }
+    }
+
     public long getTTL(ModuleRevisionId mrid) {
         Long ttl = (Long) ttlRules.getRule(mrid);
         return ttl == null ? getDefaultTTL() : ttl.longValue();
@@ -829,14 +1160,15 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         final ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
         boolean useOrigin = isUseOrigin();
         
-        // TODO: see if we could lock on the artifact to download only, instead of the module
-        // metadata artifact. We'd need to store artifact origin and is local in artifact specific
-        // file to do so, or lock the metadata artifact only to update artifact origin, which would
-        // mean acquiring nested locks, which can be a dangerous thing
-        ModuleRevisionId mrid = artifact.getModuleRevisionId();
-        if (!lockMetadataArtifact(mrid)) {
+        // we lock the artifact to download only, so that other artifacts of the same module can be
+        // downloaded at the same time. The module metadata artifact is locked only while the artifact
+        // origin is read or updated, so locks are acquired in the order artifact, then module
+        // metadata. The only exception is the original module descriptor, downloaded by
+        // cacheModuleDescriptor with the module metadata lock held: its artifact lock is never
+        // acquired without it, so no dead lock can occur
+        if (!lockArtifact(artifact)) {
             adr.setDownloadStatus(DownloadStatus.FAILED);
-            adr.setDownloadDetails("impossible to get lock for " + mrid);
+            adr.setDownloadDetails("impossible to get lock for " + artifact);
             return adr;
         }
         try {
@@ -850,6 +1182,13 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             // getArchivePath method which always return a path in the actual cache
             File archiveFile = getArchiveFileInCache(artifact, origin, useOrigin);
 
+            if (!options.isForce()) {
+                // forced downloads, like the ones of module descriptors, don't use the cache
+                ResolveMetrics metrics = ResolveMetrics.getCurrent();
+                if (metrics != null) {
+                    metrics.addArtifactCacheLookup(archiveFile.exists());
+                }
+            }
             if (archiveFile.exists() && !options.isForce()) {
                 adr.setDownloadStatus(DownloadStatus.NO);
                 adr.setSize(archiveFile.length());
@@ -883,9 +1222,12 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                                 listener.startArtifactDownload(this, artifactRef, artifact, origin);
                             }
 
+                            DownloadChecksums.clearVerified();
                             resourceDownloader.download(
                                 artifact, artifactRef.getResource(), archiveFile);
                             adr.setSize(archiveFile.length());
+                            origin.setETag(getETag(artifactRef.getResource()));
+                            origin.setChecksums(DownloadChecksums.getVerified());
                             saveArtifactOrigin(artifact, origin);
                             adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
                             adr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
@@ -908,7 +1250,9 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             }
             return adr;
         } finally {
-            unlockMetadataArtifact(mrid);
+            // the checksums verified by a failed download must not be kept for the next one
+            DownloadChecksums.clearVerified();
+            unlockArtifact(artifact);
         }
     }
 
@@ -922,6 +1266,11 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         final ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
         boolean useOrigin = isUseOrigin();
 
+        if (!lockArtifact(artifact)) {
+            adr.setDownloadStatus(DownloadStatus.FAILED);
+            adr.setDownloadDetails("impossible to get lock for " + artifact);
+            return adr;
+        }
         try {
             DownloadListener listener = options.getListener();
             if (listener != null) {
@@ -935,6 +1284,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             if (!options.isForce()
                     // if the local file has been checked to be up to date enough recently, don't download
                     && checkCacheUptodate(archiveFile, resource, savedOrigin, origin, options.getTtl())) {
+                origin.setETag(savedOrigin.getETag());
+                origin.setChecksums(savedOrigin.getChecksums());
                 if (archiveFile.exists()) {
                     saveArtifactOrigin(artifact, origin);
                     adr.setDownloadStatus(DownloadStatus.NO);
@@ -977,6 +1328,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                         }
 
                         adr.setSize(archiveFile.length());
+                        origin.setETag(getETag(resource));
                         saveArtifactOrigin(artifact, origin);
                         adr.setDownloadTimeMillis(System.currentTimeMillis() - start);
                         adr.setDownloadStatus(DownloadStatus.SUCCESSFUL);
@@ -996,7 +1348,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             }
             return adr;
         } finally {
-            unlockMetadataArtifact(mrid);
+            unlockArtifact(artifact);
         }
     }
 
@@ -1010,7 +1362,10 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     private String computeResourceNameHash(Resource resource) {
         byte[] shaDigest;
         try {
-            shaDigest = SHA_DIGEST.digest(resource.getName().getBytes("UTF-8"));
+            byte[] name = resource.getName().getBytes("UTF-8");
+            synchronized (SHA_DIGEST) {
+                shaDigest = SHA_DIGEST.digest(name);
+            }
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException("UTF-8 not supported", e);
         }
@@ -1051,7 +1406,80 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         }
         origin.setLastChecked(new Long(time));
         // check if the local resource is up to date regarding the remote one
-        return archiveFile.lastModified() >= resource.getLastModified();
+        return archiveFile.lastModified() >= resource.getLastModified()
+                || !isModified(resource, savedOrigin, archiveFile);
+    }
+
+    /**
+     * Checks if a remote resource has been modified since it has been downloaded to the cache,
+     * using the validators saved in its origin: its entity tag, and the checksums verified when
+     * it was downloaded, which are compared with the checksums published with the resource.
+     * 
+     * @param resource
+     *            the remote resource to check
+     * @param savedOrigin
+     *            the saved origin of the cached file
+     * @param archiveFile
+     *            the file in the cache
+     * @return <code>false</code> if the remote resource is known not to have been modified
+     */
+    private boolean isModified(Resource resource, ArtifactOrigin savedOrigin, File archiveFile) {
+        if (!archiveFile.exists() || !resource.getName().equals(savedOrigin.getLocation())) {
+            return true;
+        }
+        if (resource instanceof URLResource && !((URLResource) resource).isModified(
+                savedOrigin.getETag(), archiveFile.lastModified())) {
+            Message.debug("\t" + getName() + ": " + resource + " has not been modified");
+            return false;
+        }
+        if (hasSameChecksum(resource, savedOrigin)) {
+            Message.debug("\t" + getName() + ": " + resource + " has the same checksum: "
+                + "not modified");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the checksum published with the given resource is the one verified when it was
+     * downloaded, in which case its content is unchanged whatever its date. Only the first
+     * recorded checksum which is published is compared, a checksum file being much smaller than
+     * the resource it goes with.
+     */
+    private boolean hasSameChecksum(Resource resource, ArtifactOrigin savedOrigin) {
+        for (Iterator iter = savedOrigin.getChecksums().entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            String algorithm = (String) entry.getKey();
+            try {
+                Resource csResource = resource.clone(resource.getName() + "." + algorithm);
+                if (!csResource.exists()) {
+                    continue;
+                }
+                String published = ChecksumHelper.parseChecksum(FileUtil.readEntirely(
+                    new BufferedReader(new InputStreamReader(csResource.openStream()))));
+                return published.equals(((String) entry.getValue()).toLowerCase(Locale.US));
+            } catch (IOException e) {
+                Message.debug("impossible to read the " + algorithm + " checksum of "
+                    + resource + ": " + e);
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private String getETag(Resource resource) {
+        return resource instanceof URLResource ? ((URLResource) resource).getETag() : null;
+    }
+
+    /**
+     * Checks if the original module descriptor of the given module artifact has been modified
+     * in the repository since it has been downloaded to the cache.
+     */
+    private boolean isOriginalMetadataModified(ResolvedResource mdRef, Artifact moduleArtifact) {
+        Artifact originalMetadataArtifact = getOriginalMetadataArtifact(moduleArtifact);
+        ArtifactOrigin savedOrigin = getSavedArtifactOrigin(originalMetadataArtifact);
+        return isModified(mdRef.getResource(), savedOrigin,
+            getArchiveFileInCache(originalMetadataArtifact, savedOrigin, false));
     }
 
     public void originalToCachedModuleDescriptor(
@@ -1072,6 +1500,7 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
             writer.write(orginalMetadataRef, md, 
                 originalFileInCache, 
                 mdFileInCache);
+            CompiledModuleDescriptorProvider.deleteCompiledFile(mdFileInCache);
 
             getMemoryCache().putInCache(mdFileInCache, new ParserSettingsMonitor(settings), true, md);
             saveResolvers(md, resolver.getName(), resolver.getName());
@@ -1152,6 +1581,12 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
                             + mrid);
                         rmr.getReport().setSearched(true);
                         return rmr;
+                    } else if (!rmr.getDescriptor().isDefault()
+                            && !isOriginalMetadataModified(mdRef, moduleArtifact)) {
+                        Message.verbose("\t" + getName() + ": revision in cache (not modified): "
+                            + mrid);
+                        rmr.getReport().setSearched(true);
+                        return rmr;
                     } else {
                         Message.verbose("\t" + getName() + ": revision in cache is not up to date: "
                             + mrid);
@@ -1168,16 +1603,28 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         
             Artifact originalMetadataArtifact = getOriginalMetadataArtifact(moduleArtifact);
             // now download module descriptor and parse it
-            report = download(
-                originalMetadataArtifact, 
-                new ArtifactResourceResolver() {
-                    public ResolvedResource resolve(Artifact artifact) {
-                        return mdRef;
-                    }
-                }, backupDownloader,
-                new CacheDownloadOptions().setListener(options.getListener()).setForce(true));
+            ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.DOWNLOAD,
+                resolver.getName(), originalMetadataArtifact);
+            try {
+                report = download(
+                    originalMetadataArtifact, 
+                    new ArtifactResourceResolver() {
+                        public ResolvedResource resolve(Artifact artifact) {
+                            return mdRef;
+                        }
+                    }, backupDownloader,
+                    new CacheDownloadOptions().setListener(options.getListener()).setForce(true));
+            } finally {
+                ResolveTrace.end(span);
+            }
             Message.verbose("\t" + report); 
 
+            if (report.getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                ResolveMetrics metrics = ResolveMetrics.getCurrent();
+                if (metrics != null) {
+                    metrics.addDownload(resolver.getName(), report.getSize());
+                }
+            }
             if (report.getDownloadStatus() == DownloadStatus.FAILED) {
                 Message.warn("problem while downloading module descriptor: " + mdRef.getResource() 
                     + ": " + report.getDownloadDetails() 
@@ -1294,11 +1741,20 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     private boolean lockMetadataArtifact(ModuleRevisionId mrid) {
         Artifact artifact = getDefaultMetadataArtifact(mrid);
         try {
-            // we need to provide an artifact origin to be sure we do not end up in a stack overflow
-            // if the cache pattern is using original name, and the substitution thus trying to get
-            // the saved artifact origin value which in turns calls this method
-            return getLockStrategy().lockArtifact(artifact, 
-                getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+            acquireMetadataLock(mrid);
+            boolean locked = false;
+            try {
+                // we need to provide an artifact origin to be sure we do not end up in a stack
+                // overflow if the cache pattern is using original name, and the substitution thus
+                // trying to get the saved artifact origin value which in turns calls this method
+                locked = getLockStrategy().lockArtifact(artifact, 
+                    getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+                return locked;
+            } finally {
+                if (!locked) {
+                    releaseMetadataLock(mrid);
+                }
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // reset interrupt status 
             throw new RuntimeException("operation interrupted");
@@ -1307,8 +1763,48 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
 
     private void unlockMetadataArtifact(ModuleRevisionId mrid) {
         Artifact artifact = getDefaultMetadataArtifact(mrid);
-        getLockStrategy().unlockArtifact(artifact, 
-            getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+        try {
+            getLockStrategy().unlockArtifact(artifact, 
+                getArchiveFileInCache(artifact, getDefaultMetadataArtifactOrigin(mrid)));
+        } finally {
+            releaseMetadataLock(mrid);
+        }
+    }
+
+    private void acquireMetadataLock(ModuleRevisionId mrid) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        synchronized (metadataLocks) {
+            MetadataLock lock = (MetadataLock) metadataLocks.get(mrid);
+            while (lock != null && lock.holder != current) {
+                metadataLocks.wait();
+                lock = (MetadataLock) metadataLocks.get(mrid);
+            }
+            if (lock == null) {
+                lock = new MetadataLock(current);
+                metadataLocks.put(mrid, lock);
+            }
+            lock.count++;
+        }
+    }
+
+    private void releaseMetadataLock(ModuleRevisionId mrid) {
+        synchronized (metadataLocks) {
+            MetadataLock lock = (MetadataLock) metadataLocks.get(mrid);
+            if (lock != null && lock.holder == Thread.currentThread() && --lock.count == 0) {
+                metadataLocks.remove(mrid);
+                metadataLocks.notifyAll();
+            }
+        }
+    }
+
+    private static final class MetadataLock {
+        private final Thread holder;
+
+        private int count;
+
+        private MetadataLock(Thread holder) {
+            this.holder = holder;
+        }
     }
     
     
@@ -1323,20 +1819,27 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         return new DefaultArtifact(mrid, new Date(), "metadata", "metadata", "ivy", true);
     }
 
-    // not used any more, but maybe useful for finer grain locking when downloading artifacts
-//    private boolean lockArtifact(Artifact artifact) {
-//        try {
-//            return getLockStrategy().lockArtifact(artifact, 
-//                getArchiveFileInCache(artifact, null));
-//        } catch (InterruptedException e) {
-//            Thread.currentThread().interrupt(); // reset interrupt status 
-//            throw new RuntimeException("operation interrupted");
-//        }
-//    }
-//    
-//    private void unlockArtifact(Artifact artifact) {
-//        getLockStrategy().unlockArtifact(artifact, getArchiveFileInCache(artifact, null));
-//    }
+    // lock used to download an artifact: except for the original module descriptor, it must never
+    // be acquired while holding a lock on metadata related information
+    private boolean lockArtifact(Artifact artifact) {
+        try {
+            return getLockStrategy().lockArtifact(artifact, getArtifactLockFile(artifact));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // reset interrupt status 
+            throw new RuntimeException("operation interrupted");
+        }
+    }
+
+    private void unlockArtifact(Artifact artifact) {
+        getLockStrategy().unlockArtifact(artifact, getArtifactLockFile(artifact));
+    }
+
+    private File getArtifactLockFile(Artifact artifact) {
+        // we use an unknown origin so that the file to lock doesn't depend on the saved artifact
+        // origin, which can only be read with a lock on module metadata
+        return new File(getRepositoryCacheRoot(), 
+            getArchivePathInCache(artifact, ArtifactOrigin.unkwnown(artifact)));
+    }
     
     public Artifact getOriginalMetadataArtifact(Artifact moduleArtifact) {
         return DefaultArtifact.cloneWithAnotherType(
@@ -1403,6 +1906,8 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
     }
 
     public void clean() {
+        resetDataStore();
+        resetListingCache();
         FileUtil.forceDelete(getBasedir());
     }
 
@@ -1413,6 +1918,9 @@ public class DefaultRepositoryCacheManager implements RepositoryCacheManager, Iv
         Message.debug("\t\tlockingStrategy: " + getLockStrategy().getName());
         Message.debug("\t\tchangingPattern: " + getChangingPattern());
         Message.debug("\t\tchangingMatcher: " + getChangingMatcherName());
+        Message.debug("\t\tdataStore: " + getDataStore());
+        Message.debug("\t\tcompiledDescriptors: " + isCompiledDescriptors());
+        Message.debug("\t\tlistingTTL: " + getListingTTL());
     }
 
     /**
@@ -44,6 +44,7 @@ import org.apache.ivy.plugins.parser.ParserSettings;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.Message;
 
 public class DefaultResolutionCacheManager implements ResolutionCacheManager, IvySettingsAware {
     
@@ -65,6 +66,8 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
 
     private IvySettings settings; 
 
+    private ResolveReportMemoryCache reportMemoryCache;
+
     public DefaultResolutionCacheManager() {
     }
     
@@ -72,8 +75,12 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
         setBasedir(basedir);
     }
     
-    public void setSettings(IvySettings settings) {
+    public synchronized void setSettings(IvySettings settings) {
         this.settings = settings;
+        if (reportMemoryCache != null) {
+            reportMemoryCache = new ResolveReportMemoryCache(reportMemoryCache.getMaxSize(),
+                    settings);
+        }
     }
 
     public File getResolutionCacheRoot() {
@@ -108,6 +115,44 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
         return name;
     }
 
+    /**
+     * Sets the number of resolve reports to keep in memory, so that resolving again the same
+     * module descriptor with the same options doesn't resolve its dependencies again. 0 disables
+     * this memory cache.
+     */
+    public synchronized void setReportMemorySize(int size) {
+        reportMemoryCache = new ResolveReportMemoryCache(size, settings);
+    }
+
+    /**
+     * Returns the memory cache of the resolve reports, or <code>null</code> if resolve reports
+     * shouldn't be kept in memory. Its size defaults to ${ivy.cache.resolution.memorysize}, or 0
+     * if this variable is not set.
+     */
+    public synchronized ResolveReportMemoryCache getReportMemoryCache() {
+        if (reportMemoryCache == null) {
+            String size = settings == null ? null 
+                    : settings.getVariable("ivy.cache.resolution.memorysize");
+            int maxSize = 0;
+            if (size != null) {
+                try {
+                    maxSize = Integer.parseInt(size.trim());
+                } catch (NumberFormatException e) {
+                    Message.warn("invalid ivy.cache.resolution.memorysize: '" + size
+                            + "': resolve reports won't be kept in memory");
+                }
+            }
+            reportMemoryCache = new ResolveReportMemoryCache(maxSize, settings);
+        }
+        return reportMemoryCache.getMaxSize() > 0 ? reportMemoryCache : null;
+    }
+
+    private synchronized void clearReportMemoryCache() {
+        if (reportMemoryCache != null) {
+            reportMemoryCache.clear();
+        }
+    }
+
     public void setName(String name) {
         this.name = name;
     }
@@ -200,6 +245,7 @@ public class DefaultResolutionCacheManager implements ResolutionCacheManager, Iv
     }
 
     public void clean() {
+        clearReportMemoryCache();
         FileUtil.forceDelete(getBasedir());
     }
     
@@ -33,6 +33,7 @@ import org.apache.ivy.util.Message;
  * This cache is has a limited size, and keep the most recently used entries.
  * The entry in the cache are invalidated if there is a change to one variable
  * used in the module descriptor.
+ * This cache can be used concurrently, parsing is done outside of the cache lock.
  */
 class ModuleDescriptorMemoryCache {
 
@@ -71,7 +72,7 @@ class ModuleDescriptorMemoryCache {
         return descriptor;
     }
 
-    ModuleDescriptor getFromCache(File ivyFile, ParserSettings ivySettings, boolean validated) {
+    synchronized ModuleDescriptor getFromCache(File ivyFile, ParserSettings ivySettings, boolean validated) {
         if (maxSize <= 0) {
             //cache is disbaled
             return null;
@@ -98,7 +99,7 @@ class ModuleDescriptorMemoryCache {
 
     
  
-    void putInCache(File url, ParserSettingsMonitor ivySettingsMonitor, boolean validated, 
+    synchronized void putInCache(File url, ParserSettingsMonitor ivySettingsMonitor, boolean validated, 
             ModuleDescriptor descriptor) {
         if (maxSize <= 0) {
             //cache is disabled
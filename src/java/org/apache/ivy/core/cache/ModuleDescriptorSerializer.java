@@ -0,0 +1,665 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.NotSerializableException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.Configuration;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultIncludeRule;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.License;
+import org.apache.ivy.core.module.descriptor.MDArtifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.OverrideDependencyDescriptorMediator;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.conflict.ConflictManager;
+import org.apache.ivy.plugins.conflict.FixedConflictManager;
+import org.apache.ivy.plugins.matcher.MapMatcher;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.namespace.Namespace;
+import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.repository.Resource;
+
+/**
+ * Writes and reads {@link DefaultModuleDescriptor} in a compact binary form.
+ * <p>
+ * Only the descriptors built by a parser from a single file are supported: descriptors
+ * inheriting from other descriptors, or using objects which can't be found again by name in the
+ * parser settings (matchers, conflict managers, namespaces), can't be written and cause a
+ * {@link NotSerializableException}.
+ * </p>
+ * <p>
+ * Strings are written only once: each further occurrence is replaced by its index in the table
+ * of the strings already written.
+ * </p>
+ */
+final class ModuleDescriptorSerializer {
+    private static final int NULL = -1;
+
+    private static final int CONFLICT_MANAGER_NAMED = 1;
+
+    private static final int CONFLICT_MANAGER_FIXED = 2;
+
+    private ModuleDescriptorSerializer() {
+    }
+
+    /**
+     * Writes the given module descriptor.
+     *
+     * @throws NotSerializableException
+     *             if the module descriptor uses features which are not supported
+     */
+    public static void write(ModuleDescriptor md, ParserSettings settings, DataOutput out)
+            throws IOException {
+        new Writer(settings, out).writeModuleDescriptor(md);
+    }
+
+    /**
+     * Reads a module descriptor written by {@link #write}.
+     *
+     * @param settings
+     *            the settings used to find matchers, conflict managers and namespaces
+     * @param parser
+     *            the parser to set on the module descriptor
+     * @param res
+     *            the resource to set on the module descriptor
+     * @throws InvalidObjectException
+     *             if a matcher, conflict manager or namespace used by the descriptor is not
+     *             available in the settings
+     */
+    public static ModuleDescriptor read(ParserSettings settings, ModuleDescriptorParser parser,
+            Resource res, DataInput in) throws IOException {
+        return new Reader(settings, in).readModuleDescriptor(parser, res);
+    }
+
+    private static final class Writer {
+        private final ParserSettings settings;
+
+        private final DataOutput out;
+
+        private final Map/*<String,Integer>*/ strings = new HashMap();
+
+        private Writer(ParserSettings settings, DataOutput out) {
+            this.settings = settings;
+            this.out = out;
+        }
+
+        private void writeModuleDescriptor(ModuleDescriptor descriptor) throws IOException {
+            if (descriptor.getClass() != DefaultModuleDescriptor.class) {
+                throw new NotSerializableException(descriptor.getClass().getName());
+            }
+            DefaultModuleDescriptor md = (DefaultModuleDescriptor) descriptor;
+            if (md.getInheritedDescriptors().length > 0) {
+                throw new NotSerializableException("inherited descriptors in " + md);
+            }
+            writeModuleRevisionId(md.getModuleRevisionId());
+            writeModuleRevisionId(md.getResolvedModuleRevisionId());
+            writeString(md.getStatus());
+            writeDate(md.getPublicationDate());
+            writeDate(md.getResolvedPublicationDate());
+            out.writeBoolean(md.isDefault());
+            out.writeLong(md.getLastModified());
+            writeString(md.getHomePage());
+            writeString(md.getDescription());
+            writeString(md.getNamespace() == null ? null : md.getNamespace().getName());
+            if (md.getNamespace() != null
+                    && settings.getNamespace(md.getNamespace().getName()) != md.getNamespace()) {
+                throw new NotSerializableException("namespace " + md.getNamespace().getName());
+            }
+            writeString(md.getDefaultConf());
+            writeString(md.getDefaultConfMapping());
+            out.writeBoolean(md.isMappingOverride());
+            writeMap(md.getExtraAttributesNamespaces());
+            writeMap(md.getExtraInfo());
+
+            License[] licenses = md.getLicenses();
+            out.writeInt(licenses.length);
+            for (int i = 0; i < licenses.length; i++) {
+                writeString(licenses[i].getName());
+                writeString(licenses[i].getUrl());
+            }
+
+            Configuration[] confs = md.getConfigurations();
+            out.writeInt(confs.length);
+            for (int i = 0; i < confs.length; i++) {
+                writeConfiguration(confs[i]);
+            }
+            writeArtifacts(md);
+            writeDependencies(md);
+
+            ExcludeRule[] excludeRules = md.getAllExcludeRules();
+            out.writeInt(excludeRules.length);
+            for (int i = 0; i < excludeRules.length; i++) {
+                writeRule(excludeRules[i], DefaultExcludeRule.class);
+            }
+
+            Map conflictManagers = md.getAllConflictManagers().getAllRules();
+            out.writeInt(conflictManagers.size());
+            for (Iterator iter = conflictManagers.entrySet().iterator(); iter.hasNext();) {
+                Entry rule = (Entry) iter.next();
+                writeModuleIdMatcher((MapMatcher) rule.getKey());
+                writeConflictManager((ConflictManager) rule.getValue());
+            }
+
+            Map mediators = md.getAllDependencyDescriptorMediators().getAllRules();
+            out.writeInt(mediators.size());
+            for (Iterator iter = mediators.entrySet().iterator(); iter.hasNext();) {
+                Entry rule = (Entry) iter.next();
+                if (rule.getValue().getClass() != OverrideDependencyDescriptorMediator.class) {
+                    throw new NotSerializableException(rule.getValue().getClass().getName());
+                }
+                OverrideDependencyDescriptorMediator mediator =
+                    (OverrideDependencyDescriptorMediator) rule.getValue();
+                writeModuleIdMatcher((MapMatcher) rule.getKey());
+                writeString(mediator.getBranch());
+                writeString(mediator.getVersion());
+            }
+        }
+
+        private void writeConfiguration(Configuration conf) throws IOException {
+            if (conf.getClass() != Configuration.class || conf.getSourceModule() != null) {
+                throw new NotSerializableException("configuration " + conf.getName());
+            }
+            writeString(conf.getName());
+            writeString(conf.getVisibility().toString());
+            writeString(conf.getDescription());
+            writeStrings(conf.getExtends());
+            out.writeBoolean(conf.isTransitive());
+            writeString(conf.getDeprecated());
+            writeMap(conf.getQualifiedExtraAttributes());
+        }
+
+        private void writeArtifacts(DefaultModuleDescriptor md) throws IOException {
+            // artifacts are written in the order in which they have been added, so that the
+            // artifacts of each configuration are added back in the same order
+            List/*<Artifact>*/ artifacts = new ArrayList();
+            Map/*<Artifact,List<String>>*/ artifactsConfs = new IdentityHashMap();
+            Artifact[] all = md.getAllArtifacts();
+            for (int i = 0; i < all.length; i++) {
+                artifactsConfs.put(all[i], new ArrayList());
+                artifacts.add(all[i]);
+            }
+            String[] confs = md.getConfigurationsNames();
+            for (int i = 0; i < confs.length; i++) {
+                Artifact[] confArtifacts = md.getArtifacts(confs[i]);
+                for (int j = 0; j < confArtifacts.length; j++) {
+                    List artifactConfs = (List) artifactsConfs.get(confArtifacts[j]);
+                    if (artifactConfs == null) {
+                        artifactConfs = new ArrayList();
+                        artifactsConfs.put(confArtifacts[j], artifactConfs);
+                        artifacts.add(confArtifacts[j]);
+                    }
+                    artifactConfs.add(confs[i]);
+                }
+            }
+            out.writeInt(artifacts.size());
+            for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
+                Artifact artifact = (Artifact) iter.next();
+                if (artifact.getClass() != MDArtifact.class || artifact.isMetadata()) {
+                    throw new NotSerializableException(artifact.getClass().getName());
+                }
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeUrl(artifact.getUrl());
+                writeMap(artifact.getQualifiedExtraAttributes());
+                writeStrings(artifact.getConfigurations());
+                List artifactConfs = (List) artifactsConfs.get(artifact);
+                writeStrings((String[]) artifactConfs.toArray(new String[artifactConfs.size()]));
+            }
+        }
+
+        private void writeDependencies(DefaultModuleDescriptor md) throws IOException {
+            DependencyDescriptor[] dds = md.getDependencies();
+            out.writeInt(dds.length);
+            for (int i = 0; i < dds.length; i++) {
+                if (dds[i].getClass() != DefaultDependencyDescriptor.class
+                        || dds[i].getNamespace() != null
+                        || !md.getResolvedModuleRevisionId().equals(
+                            dds[i].getParentRevisionId())
+                        || !md.getModuleRevisionId().equals(dds[i].getSourceModule())) {
+                    throw new NotSerializableException("dependency " + dds[i]);
+                }
+                DefaultDependencyDescriptor dd = (DefaultDependencyDescriptor) dds[i];
+                writeModuleRevisionId(dd.getDependencyRevisionId());
+                writeModuleRevisionId(dd.getDynamicConstraintDependencyRevisionId());
+                out.writeBoolean(dd.isForce());
+                out.writeBoolean(dd.isChanging());
+                out.writeBoolean(dd.isTransitive());
+                String[] moduleConfs = dd.getModuleConfigurations();
+                out.writeInt(moduleConfs.length);
+                for (int j = 0; j < moduleConfs.length; j++) {
+                    writeString(moduleConfs[j]);
+                    writeStrings(dd.getRawDependencyConfigurations(moduleConfs[j]));
+                }
+
+                DependencyArtifactDescriptor[] dads = dd.getRawDependencyArtifacts();
+                out.writeInt(dads.length);
+                for (int j = 0; j < dads.length; j++) {
+                    if (dads[j].getClass() != DefaultDependencyArtifactDescriptor.class) {
+                        throw new NotSerializableException(dads[j].getClass().getName());
+                    }
+                    writeString(dads[j].getName());
+                    writeString(dads[j].getType());
+                    writeString(dads[j].getExt());
+                    writeUrl(dads[j].getUrl());
+                    writeMap(dads[j].getQualifiedExtraAttributes());
+                    writeStrings(dads[j].getConfigurations());
+                }
+                IncludeRule[] includeRules = dd.getRawIncludeRules();
+                out.writeInt(includeRules.length);
+                for (int j = 0; j < includeRules.length; j++) {
+                    writeRule(includeRules[j], DefaultIncludeRule.class);
+                }
+                ExcludeRule[] excludeRules = dd.getRawExcludeRules();
+                out.writeInt(excludeRules.length);
+                for (int j = 0; j < excludeRules.length; j++) {
+                    writeRule(excludeRules[j], DefaultExcludeRule.class);
+                }
+            }
+        }
+
+        private void writeRule(IncludeRule rule, Class expectedClass) throws IOException {
+            writeRule(rule.getClass(), rule.getId(), rule.getMatcher(),
+                rule.getQualifiedExtraAttributes(), rule.getConfigurations(), expectedClass);
+        }
+
+        private void writeRule(ExcludeRule rule, Class expectedClass) throws IOException {
+            writeRule(rule.getClass(), rule.getId(), rule.getMatcher(),
+                rule.getQualifiedExtraAttributes(), rule.getConfigurations(), expectedClass);
+        }
+
+        private void writeRule(Class ruleClass, ArtifactId aid, PatternMatcher matcher,
+                Map extraAttributes, String[] confs, Class expectedClass) throws IOException {
+            if (ruleClass != expectedClass) {
+                throw new NotSerializableException(ruleClass.getName());
+            }
+            writeString(aid.getModuleId().getOrganisation());
+            writeString(aid.getModuleId().getName());
+            writeString(aid.getName());
+            writeString(aid.getType());
+            writeString(aid.getExt());
+            writeMatcher(matcher);
+            writeMap(extraAttributes);
+            writeStrings(confs);
+        }
+
+        private void writeModuleIdMatcher(MapMatcher matcher) throws IOException {
+            Map attributes = matcher.getAttributes();
+            ModuleId mid = new ModuleId(
+                (String) attributes.get(IvyPatternHelper.ORGANISATION_KEY),
+                (String) attributes.get(IvyPatternHelper.MODULE_KEY));
+            if (!mid.getAttributes().equals(attributes)) {
+                throw new NotSerializableException("module rule " + matcher);
+            }
+            writeString(mid.getOrganisation());
+            writeString(mid.getName());
+            writeMatcher(matcher.getPatternMatcher());
+        }
+
+        private void writeMatcher(PatternMatcher matcher) throws IOException {
+            if (settings.getMatcher(matcher.getName()) != matcher) {
+                throw new NotSerializableException("matcher " + matcher.getName());
+            }
+            writeString(matcher.getName());
+        }
+
+        private void writeConflictManager(ConflictManager cm) throws IOException {
+            if (cm.getClass() == FixedConflictManager.class) {
+                out.writeByte(CONFLICT_MANAGER_FIXED);
+                Collection revs = ((FixedConflictManager) cm).getRevs();
+                writeStrings((String[]) revs.toArray(new String[revs.size()]));
+            } else if (settings.getConflictManager(cm.getName()) == cm) {
+                out.writeByte(CONFLICT_MANAGER_NAMED);
+                writeString(cm.getName());
+            } else {
+                throw new NotSerializableException("conflict manager " + cm.getName());
+            }
+        }
+
+        private void writeModuleRevisionId(ModuleRevisionId mrid) throws IOException {
+            writeString(mrid.getOrganisation());
+            writeString(mrid.getName());
+            writeString(mrid.getBranch());
+            writeString(mrid.getRevision());
+            writeMap(mrid.getQualifiedExtraAttributes());
+        }
+
+        private void writeDate(Date date) throws IOException {
+            out.writeBoolean(date != null);
+            if (date != null) {
+                out.writeLong(date.getTime());
+            }
+        }
+
+        private void writeUrl(URL url) throws IOException {
+            writeString(url == null ? null : url.toExternalForm());
+        }
+
+        private void writeMap(Map/*<String,String>*/ map) throws IOException {
+            out.writeInt(map.size());
+            for (Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+                Entry entry = (Entry) iter.next();
+                writeString((String) entry.getKey());
+                writeString((String) entry.getValue());
+            }
+        }
+
+        private void writeStrings(String[] values) throws IOException {
+            out.writeInt(values.length);
+            for (int i = 0; i < values.length; i++) {
+                writeString(values[i]);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(NULL);
+                return;
+            }
+            Integer index = (Integer) strings.get(value);
+            if (index != null) {
+                out.writeInt(index.intValue());
+                return;
+            }
+            index = new Integer(strings.size());
+            strings.put(value, index);
+            out.writeInt(index.intValue());
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static final class Reader {
+        private final ParserSettings settings;
+
+        private final DataInput in;
+
+        private final List/*<String>*/ strings = new ArrayList();
+
+        private Reader(ParserSettings settings, DataInput in) {
+            this.settings = settings;
+            this.in = in;
+        }
+
+        private ModuleDescriptor readModuleDescriptor(ModuleDescriptorParser parser, Resource res)
+                throws IOException {
+            DefaultModuleDescriptor md = new DefaultModuleDescriptor(parser, res);
+            md.setModuleRevisionId(readModuleRevisionId());
+            md.setResolvedModuleRevisionId(readModuleRevisionId());
+            md.setStatus(readString());
+            md.setPublicationDate(readDate());
+            Date resolvedPublicationDate = readDate();
+            if (resolvedPublicationDate != null) {
+                md.setResolvedPublicationDate(resolvedPublicationDate);
+            }
+            md.setDefault(in.readBoolean());
+            md.setLastModified(in.readLong());
+            md.setHomePage(readString());
+            md.setDescription(readString());
+            String namespace = readString();
+            if (namespace != null) {
+                Namespace ns = settings.getNamespace(namespace);
+                if (ns == null) {
+                    throw new InvalidObjectException("unknown namespace " + namespace);
+                }
+                md.setNamespace(ns);
+            }
+            md.setDefaultConf(readString());
+            md.setDefaultConfMapping(readString());
+            md.setMappingOverride(in.readBoolean());
+            Map extraAttributesNamespaces = readMap();
+            for (Iterator iter = extraAttributesNamespaces.entrySet().iterator(); iter.hasNext();) {
+                Entry entry = (Entry) iter.next();
+                md.addExtraAttributeNamespace((String) entry.getKey(), (String) entry.getValue());
+            }
+            Map extraInfo = readMap();
+            for (Iterator iter = extraInfo.entrySet().iterator(); iter.hasNext();) {
+                Entry entry = (Entry) iter.next();
+                md.addExtraInfo((String) entry.getKey(), (String) entry.getValue());
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                md.addLicense(new License(readString(), readString()));
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                md.addConfiguration(readConfiguration());
+            }
+            readArtifacts(md);
+            readDependencies(md);
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ArtifactId aid = readArtifactId();
+                PatternMatcher matcher = readMatcher();
+                DefaultExcludeRule rule = new DefaultExcludeRule(aid, matcher, readMap());
+                md.addExcludeRule(rule);
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    rule.addConfiguration(confs[j]);
+                }
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ModuleId mid = ModuleId.newInstance(readString(), readString());
+                PatternMatcher matcher = readMatcher();
+                md.addConflictManager(mid, matcher, readConflictManager());
+            }
+
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ModuleId mid = ModuleId.newInstance(readString(), readString());
+                PatternMatcher matcher = readMatcher();
+                md.addDependencyDescriptorMediator(mid, matcher,
+                    new OverrideDependencyDescriptorMediator(readString(), readString()));
+            }
+            md.setModuleArtifact(DefaultArtifact.newIvyArtifact(
+                md.getResolvedModuleRevisionId(), md.getPublicationDate()));
+            return md;
+        }
+
+        private Configuration readConfiguration() throws IOException {
+            Configuration conf = new Configuration(readString(),
+                    Configuration.Visibility.getVisibility(readString()), readString(),
+                    readStrings(), in.readBoolean(), readString());
+            Map extraAttributes = readMap();
+            for (Iterator iter = extraAttributes.entrySet().iterator(); iter.hasNext();) {
+                Entry entry = (Entry) iter.next();
+                conf.setExtraAttribute((String) entry.getKey(), (String) entry.getValue());
+            }
+            return conf;
+        }
+
+        private void readArtifacts(DefaultModuleDescriptor md) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                MDArtifact artifact = new MDArtifact(md, readString(), readString(),
+                        readString(), readUrl(), readMap());
+                String[] artifactConfs = readStrings();
+                for (int j = 0; j < artifactConfs.length; j++) {
+                    artifact.addConfiguration(artifactConfs[j]);
+                }
+                String[] confs = readStrings();
+                for (int j = 0; j < confs.length; j++) {
+                    md.addArtifact(confs[j], artifact);
+                }
+            }
+        }
+
+        private void readDependencies(DefaultModuleDescriptor md) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md,
+                        readModuleRevisionId(), readModuleRevisionId(), in.readBoolean(),
+                        in.readBoolean(), in.readBoolean());
+                int moduleConfsCount = in.readInt();
+                for (int j = 0; j < moduleConfsCount; j++) {
+                    String moduleConf = readString();
+                    String[] depConfs = readStrings();
+                    for (int k = 0; k < depConfs.length; k++) {
+                        dd.addDependencyConfiguration(moduleConf, depConfs[k]);
+                    }
+                }
+
+                int dadsCount = in.readInt();
+                for (int j = 0; j < dadsCount; j++) {
+                    DefaultDependencyArtifactDescriptor dad =
+                        new DefaultDependencyArtifactDescriptor(dd, readString(), readString(),
+                                readString(), readUrl(), readMap());
+                    String[] confs = readStrings();
+                    for (int k = 0; k < confs.length; k++) {
+                        dad.addConfiguration(confs[k]);
+                        dd.addDependencyArtifact(confs[k], dad);
+                    }
+                }
+                int includeRulesCount = in.readInt();
+                for (int j = 0; j < includeRulesCount; j++) {
+                    ArtifactId aid = readArtifactId();
+                    PatternMatcher matcher = readMatcher();
+                    DefaultIncludeRule rule = new DefaultIncludeRule(aid, matcher, readMap());
+                    String[] confs = readStrings();
+                    for (int k = 0; k < confs.length; k++) {
+                        rule.addConfiguration(confs[k]);
+                        dd.addIncludeRule(confs[k], rule);
+                    }
+                }
+                int excludeRulesCount = in.readInt();
+                for (int j = 0; j < excludeRulesCount; j++) {
+                    ArtifactId aid = readArtifactId();
+                    PatternMatcher matcher = readMatcher();
+                    DefaultExcludeRule rule = new DefaultExcludeRule(aid, matcher, readMap());
+                    String[] confs = readStrings();
+                    for (int k = 0; k < confs.length; k++) {
+                        rule.addConfiguration(confs[k]);
+                        dd.addExcludeRule(confs[k], rule);
+                    }
+                }
+                md.addDependency(dd);
+            }
+        }
+
+        private ArtifactId readArtifactId() throws IOException {
+            ModuleId mid = new ModuleId(readString(), readString());
+            return new ArtifactId(mid, readString(), readString(), readString());
+        }
+
+        private PatternMatcher readMatcher() throws IOException {
+            String name = readString();
+            PatternMatcher matcher = settings.getMatcher(name);
+            if (matcher == null) {
+                throw new InvalidObjectException("unknown matcher " + name);
+            }
+            return matcher;
+        }
+
+        private ConflictManager readConflictManager() throws IOException {
+            int kind = in.readByte();
+            if (kind == CONFLICT_MANAGER_FIXED) {
+                return new FixedConflictManager(readStrings());
+            }
+            String name = readString();
+            ConflictManager cm = settings.getConflictManager(name);
+            if (cm == null) {
+                throw new InvalidObjectException("unknown conflict manager " + name);
+            }
+            return cm;
+        }
+
+        private ModuleRevisionId readModuleRevisionId() throws IOException {
+            return ModuleRevisionId.newInstance(readString(), readString(), readString(),
+                readString(), readMap(), false);
+        }
+
+        private Date readDate() throws IOException {
+            return in.readBoolean() ? new Date(in.readLong()) : null;
+        }
+
+        private URL readUrl() throws IOException {
+            String url = readString();
+            return url == null ? null : new URL(url);
+        }
+
+        private Map readMap() throws IOException {
+            int size = in.readInt();
+            Map map = new LinkedHashMap();
+            for (int i = 0; i < size; i++) {
+                map.put(readString(), readString());
+            }
+            return map;
+        }
+
+        private String[] readStrings() throws IOException {
+            String[] values = new String[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = readString();
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int index = in.readInt();
+            if (index == NULL) {
+                return null;
+            }
+            if (index < strings.size()) {
+                return (String) strings.get(index);
+            }
+            if (index != strings.size()) {
+                throw new InvalidObjectException("invalid string index " + index);
+            }
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            String value = new String(bytes, "UTF-8");
+            strings.add(value);
+            return value;
+        }
+    }
+}
@@ -74,6 +74,13 @@ class ParserSettingsMonitor {
         delegatedSettings = null;
     }
     
+    /**
+     * @return the values substituted with the monitored settings, and their substitution
+     */
+    Map/*<String,String>*/ getSubstitutes() {
+        return substitutes;
+    }
+
     /**
      * Check if the newSettings is compatible with the original settings that
      * has been monitored.  Only the info that was actually used is compared.
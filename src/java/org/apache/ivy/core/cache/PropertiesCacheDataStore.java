@@ -0,0 +1,68 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+
+import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.PropertiesFile;
+
+/**
+ * Stores the data of each module revision in its own properties file in the cache, at a location
+ * given by the data file pattern of the cache.
+ */
+class PropertiesCacheDataStore implements CacheDataStore {
+    private final File root;
+
+    private final String dataFilePattern;
+
+    PropertiesCacheDataStore(File root, String dataFilePattern) {
+        this.root = root;
+        this.dataFilePattern = dataFilePattern;
+    }
+
+    public ModuleData getData(ModuleRevisionId mrid) {
+        final PropertiesFile cdf = new PropertiesFile(getDataFile(mrid),
+                "ivy cached data file for " + mrid);
+        return new ModuleData() {
+            public String getProperty(String key) {
+                return cdf.getProperty(key);
+            }
+
+            public void setProperty(String key, String value) {
+                cdf.setProperty(key, value);
+            }
+
+            public void remove(String key) {
+                cdf.remove(key);
+            }
+
+            public void save() {
+                cdf.save();
+            }
+        };
+    }
+
+    File getDataFile(ModuleRevisionId mrid) {
+        return new File(root, IvyPatternHelper.substitute(dataFilePattern, mrid));
+    }
+
+    public void close() {
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.plugins.repository.Repository;
+import org.apache.ivy.plugins.repository.file.FileRepository;
+import org.apache.ivy.util.HexEncoder;
+import org.apache.ivy.util.Message;
+
+/**
+ * Cache the listings of the directories of repositories, so that a directory is listed once per
+ * time to live rather than each time the values of a token (usually the revisions of a module)
+ * are needed.
+ * <p>
+ * Listings are kept in memory, and saved in a directory of the cache so that later runs, and
+ * other JVMs sharing the cache, can use them too. Only the listings of remote repositories are
+ * cached: local directories are cheap to list, and are expected to be up to date right after a
+ * local publication. The listings of the directories a resolver publishes to are removed by the
+ * publication.
+ * </p>
+ * This cache can be used concurrently, repositories are listed outside of the cache lock.
+ */
+public class RepositoryListingCache {
+    private static final int MAGIC = 0x49564c53; // IVLS
+
+    private static final int VERSION = 1;
+
+    private static final int DEFAULT_MEMORY_SIZE = 500;
+
+    private final File dir;
+
+    private final long ttl;
+
+    private final Map/*<String,Listing>*/ listings = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > DEFAULT_MEMORY_SIZE;
+        }
+    };
+
+    /**
+     * @param dir
+     *            the directory where the listings are saved
+     * @param ttl
+     *            how long a listing is used, in milliseconds
+     */
+    public RepositoryListingCache(File dir, long ttl) {
+        this.dir = dir;
+        this.ttl = ttl;
+    }
+
+    public long getTTL() {
+        return ttl;
+    }
+
+    /**
+     * Lists the given directory of the given repository, unless it has been listed less than the
+     * time to live ago.
+     *
+     * @return the listing, as returned by {@link Repository#list(String)}
+     */
+    public List list(Repository repository, String parent) throws IOException {
+        if (!isCacheable(repository, parent)) {
+            return repository.list(parent);
+        }
+        String key = getKey(repository, parent);
+        long now = System.currentTimeMillis();
+        Listing listing = getListing(key);
+        if (listing != null && listing.time <= now && now - listing.time < ttl) {
+            Message.debug("\tusing cached listing of " + parent);
+            return new ArrayList(listing.entries);
+        }
+        List entries = repository.list(parent);
+        if (entries != null) {
+            putListing(key, new Listing(now, new ArrayList(entries)));
+        }
+        return entries;
+    }
+
+    /**
+     * Removes the listings of all the directories containing the given resource of the given
+     * repository, which has just been published, so that it's found by the next listings.
+     *
+     * @param repository
+     *            the repository the resource has been published to
+     * @param path
+     *            the standardized path of the published resource
+     */
+    public void evict(Repository repository, String path) {
+        if (!isCacheable(repository, path)) {
+            return;
+        }
+        String fileSep = repository.getFileSeparator();
+        for (int index = path.lastIndexOf(fileSep); index > 0; 
+                index = path.lastIndexOf(fileSep, index - 1)) {
+            // directories are listed with or without their trailing separator
+            evictListing(getKey(repository, path.substring(0, index)));
+            evictListing(getKey(repository, path.substring(0, index + fileSep.length())));
+        }
+    }
+
+    private void evictListing(String key) {
+        synchronized (this) {
+            listings.remove(key);
+        }
+        File file = getListingFile(key);
+        if (file.exists() && !file.delete()) {
+            Message.verbose("impossible to delete repository listing " + file);
+        }
+    }
+
+    /**
+     * Removes all the listings kept in memory.
+     */
+    public synchronized void clear() {
+        listings.clear();
+    }
+
+    private static String getKey(Repository repository, String parent) {
+        return repository.getClass().getName() + "|" + repository.getName() + "|" + parent;
+    }
+
+    private boolean isCacheable(Repository repository, String parent) {
+        return !(repository instanceof FileRepository) && !parent.startsWith("file:");
+    }
+
+    private Listing getListing(String key) {
+        synchronized (this) {
+            Listing listing = (Listing) listings.get(key);
+            if (listing != null) {
+                return listing;
+            }
+        }
+        Listing listing = load(key);
+        if (listing != null) {
+            synchronized (this) {
+                listings.put(key, listing);
+            }
+        }
+        return listing;
+    }
+
+    private void putListing(String key, Listing listing) {
+        synchronized (this) {
+            listings.put(key, listing);
+        }
+        save(key, listing);
+    }
+
+    private File getListingFile(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            return new File(dir, HexEncoder.encode(digest.digest(key.getBytes("UTF-8")))
+                    + ".listing");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("The SHA1 algorithm is not available in your classpath", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException("UTF-8 not supported", e);
+        }
+    }
+
+    private Listing load(String key) {
+        File file = getListingFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            byte[] data = new byte[(int) file.length()];
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                in.readFully(data);
+            } finally {
+                in.close();
+            }
+            in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !key.equals(in.readUTF())) {
+                Message.debug("unsupported repository listing: " + file);
+                return null;
+            }
+            long time = in.readLong();
+            int size = in.readInt();
+            List entries = new ArrayList(size);
+            for (int i = 0; i < size; i++) {
+                entries.add(in.readUTF());
+            }
+            return new Listing(time, entries);
+        } catch (IOException e) {
+            Message.debug("impossible to load repository listing " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private void save(String key, Listing listing) {
+        File file = getListingFile(key);
+        File tmp = null;
+        try {
+            dir.mkdirs();
+            // write to a temporary file first, so that concurrent readers never see a partial file
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(key);
+                out.writeLong(listing.time);
+                out.writeInt(listing.entries.size());
+                for (Iterator iter = listing.entries.iterator(); iter.hasNext();) {
+                    out.writeUTF((String) iter.next());
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    Message.verbose("impossible to save repository listing " + file);
+                    return;
+                }
+            }
+            tmp = null;
+        } catch (IOException e) {
+            Message.verbose("impossible to save repository listing " + file + ": " + e);
+        } finally {
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static class Listing {
+        private final long time;
+
+        private final List/*<String>*/ entries;
+
+        Listing(long time, List entries) {
+            this.time = time;
+            this.entries = Collections.unmodifiableList(entries);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.HexEncoder;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.filter.FilterHelper;
+
+/**
+ * Cache ResolveReports so that resolving again the same module descriptor with the same options
+ * returns the previous report without resolving the dependency graph again.
+ * <p>
+ * The entries are keyed by a fingerprint of the resolved module descriptor, of the resolve options
+ * and of the settings which have an impact on the result. Each entry expires at the time given
+ * when it has been put in the cache, which is computed from the time to live of the dynamic
+ * revisions used by the resolve. An entry is also dropped as soon as one of the files it references in the
+ * repository cache is missing.
+ * </p>
+ * <p>
+ * Resolves using an artifact filter other than the default one, or repository cache managers
+ * other than {@link DefaultRepositoryCacheManager}, which don't report when the data they return
+ * expires, are never cached.
+ * </p>
+ * This cache has a limited size, and keeps the most recently used entries.
+ */
+public class ResolveReportMemoryCache {
+
+    private final int maxSize;
+
+    private final LinkedHashMap/*<String,CacheEntry>*/ valueMap;
+
+    private final IvySettings settings;
+
+    /**
+     * Create a cache of the given size
+     *
+     * @param size
+     * @param settings
+     *            the settings used to resolve the cached reports, which may be <code>null</code>
+     */
+    public ResolveReportMemoryCache(int size, IvySettings settings) {
+        this.maxSize = size;
+        this.valueMap = new LinkedHashMap(size);
+        this.settings = settings;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns <code>true</code> if the report of a resolve with the given options can be cached.
+     */
+    public boolean isCacheable(ResolveOptions options) {
+        if (options.getArtifactFilter() != FilterHelper.NO_FILTER) {
+            return false;
+        }
+        if (settings != null) {
+            RepositoryCacheManager[] cacheManagers = settings.getRepositoryCacheManagers();
+            for (int i = 0; i < cacheManagers.length; i++) {
+                if (!(cacheManagers[i] instanceof DefaultRepositoryCacheManager)) {
+                    return false;
+                }
+            }
+            Collection resolvers = settings.getResolvers();
+            for (Iterator iter = resolvers.iterator(); iter.hasNext();) {
+                DependencyResolver resolver = (DependencyResolver) iter.next();
+                RepositoryCacheManager cacheManager = resolver.getRepositoryCacheManager();
+                if (cacheManager != null
+                        && !(cacheManager instanceof DefaultRepositoryCacheManager)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the key under which the report of the resolve of the given module descriptor with
+     * the given options is cached.
+     */
+    public Object getKey(ModuleDescriptor md, ResolveOptions options) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        XmlModuleDescriptorWriter.write(md, null, bytes);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(String.valueOf(md.getResolvedModuleRevisionId()));
+        out.writeLong(md.getResolvedPublicationDate() == null ? 0
+                : md.getResolvedPublicationDate().getTime());
+        out.writeLong(md.getLastModified());
+        String[] confs = options.getConfs(md);
+        out.writeInt(confs.length);
+        for (int i = 0; i < confs.length; i++) {
+            out.writeUTF(confs[i]);
+        }
+        out.writeUTF(String.valueOf(options.getResolveId()));
+        out.writeUTF(String.valueOf(options.getResolveMode()));
+        out.writeLong(options.getDate() == null ? 0 : options.getDate().getTime());
+        out.writeBoolean(options.isTransitive());
+        out.writeBoolean(options.isDownload());
+        out.writeBoolean(options.isUseCacheOnly());
+        out.writeBoolean(options.isValidate());
+        if (settings != null) {
+            // the settings used by the whole resolve, rather than by each dependency
+            out.writeUTF(settings.getDefaultResolver() == null ? ""
+                    : String.valueOf(settings.getDefaultResolver().getName()));
+            out.writeUTF(String.valueOf(settings.getDefaultConflictManager().getName()));
+            out.writeUTF(String.valueOf(settings.getDefaultLatestStrategy().getName()));
+            out.writeUTF(String.valueOf(settings.getCircularDependencyStrategy().getName()));
+            out.writeUTF(String.valueOf(settings.getVersionMatcher().getName()));
+            out.writeUTF(String.valueOf(settings.getDefaultBranch()));
+            out.writeUTF(String.valueOf(settings.getDefaultResolveMode()));
+        }
+        out.flush();
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("The SHA1 algorithm is not available in your classpath", e);
+        }
+        return HexEncoder.encode(digest.digest(bytes.toByteArray()));
+    }
+
+    /**
+     * Returns the report cached under the given key, or <code>null</code> if there is no such
+     * report or if it is out of date.
+     */
+    public synchronized ResolveReport get(Object key) {
+        if (maxSize <= 0) {
+            //cache is disabled
+            return null;
+        }
+        CacheEntry entry = (CacheEntry) valueMap.remove(key);
+        if (entry == null) {
+            Message.debug("No entry is found in the ResolveReportCache");
+            return null;
+        }
+        ModuleRevisionId mrid = entry.report.getModuleDescriptor().getResolvedModuleRevisionId();
+        if (entry.isStale()) {
+            Message.debug("Entry is found in the ResolveReportCache but entry should be "
+                + "reevaluated : " + mrid);
+            return null;
+        }
+        //Move the entry at the end of the list
+        valueMap.put(key, entry);
+        Message.debug("Entry is found in the ResolveReportCache : " + mrid);
+        return entry.report;
+    }
+
+    /**
+     * Caches the given report under the given key, until the given time.
+     */
+    public synchronized void putInCache(Object key, ResolveReport report, long expiration) {
+        if (maxSize <= 0) {
+            //cache is disabled
+            return;
+        }
+        if (expiration <= System.currentTimeMillis()) {
+            Message.debug("ResolveReportCache: report of "
+                + report.getModuleDescriptor().getResolvedModuleRevisionId()
+                + " relies on changing data, it isn't cached");
+            valueMap.remove(key);
+            return;
+        }
+        valueMap.remove(key);
+        if (valueMap.size() >= maxSize) {
+            Message.debug("ResolveReportCache is full, remove one entry");
+            Iterator it = valueMap.values().iterator();
+            it.next();
+            it.remove();
+        }
+        valueMap.put(key, new CacheEntry(report, expiration));
+    }
+
+    /**
+     * Removes all the entries of this cache.
+     */
+    public synchronized void clear() {
+        valueMap.clear();
+    }
+
+    private static class CacheEntry {
+        private final ResolveReport report;
+
+        private final long expiration;
+
+        CacheEntry(ResolveReport report, long expiration) {
+            this.report = report;
+            this.expiration = expiration;
+        }
+
+        boolean isStale() {
+            if (System.currentTimeMillis() >= expiration) {
+                return true;
+            }
+            // the files of the repository cache may have been cleaned in the meantime
+            for (Iterator iter = report.getDependencies().iterator(); iter.hasNext();) {
+                IvyNode node = (IvyNode) iter.next();
+                if (node.isCompletelyEvicted() || node.getModuleRevision() == null) {
+                    continue;
+                }
+                MetadataArtifactDownloadReport mdReport = node.getModuleRevision().getReport();
+                if (mdReport != null && isMissing(mdReport.getLocalFile())) {
+                    return true;
+                }
+            }
+            ArtifactDownloadReport[] adrs = report.getAllArtifactsReports();
+            for (int i = 0; i < adrs.length; i++) {
+                if (isMissing(adrs[i].getLocalFile())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isMissing(File file) {
+            return file != null && !file.exists();
+        }
+    }
+}
@@ -27,6 +27,9 @@ import org.apache.ivy.util.filter.Filter;
 
 public class EventManager implements TransferListener {
 
+    // events may be fired from several threads, for instance when downloading artifacts in
+    // parallel: they are fired without lock on a copy of the listener list, listeners which
+    // can't be notified concurrently synchronize themselves
     private EventListenerList listeners = new EventListenerList();
 
     public void addIvyListener(IvyListener listener) {
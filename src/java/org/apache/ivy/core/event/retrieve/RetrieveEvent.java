@@ -32,6 +32,7 @@ public class RetrieveEvent extends IvyEvent {
         addMridAttributes(mrid);
         addConfsAttribute(confs);
         addAttribute("symlink", String.valueOf(options.isMakeSymlinks()));
+        addAttribute("hardlink", String.valueOf(options.isMakeHardlinks()));
         addAttribute("sync", String.valueOf(options.isSync()));
         this.options = options;
     }
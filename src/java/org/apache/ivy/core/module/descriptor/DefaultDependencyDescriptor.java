@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -553,6 +554,70 @@ public class DefaultDependencyDescriptor implements DependencyDescriptor {
         return ret;
     }
 
+    /**
+     * Returns the dependency configurations mapped to the given module configuration exactly as
+     * they have been added, i.e. without interpreting fallbacks, wildcards or extended
+     * configurations.
+     * 
+     * @param moduleConfiguration
+     *            one of the configurations returned by {@link #getModuleConfigurations()}
+     * @return the dependency configurations as added, or an empty array if none is mapped to the
+     *         given module configuration
+     */
+    public String[] getRawDependencyConfigurations(String moduleConfiguration) {
+        List confsList = (List) confs.get(moduleConfiguration);
+        if (confsList == null) {
+            return new String[0];
+        }
+        return (String[]) confsList.toArray(new String[confsList.size()]);
+    }
+
+    /**
+     * Returns all the dependency artifacts of this descriptor, each one only once. Contrary to
+     * {@link #getAllDependencyArtifacts()}, artifacts equal to another one are returned too.
+     */
+    public DependencyArtifactDescriptor[] getRawDependencyArtifacts() {
+        List ret = mergeAllInstances(dependencyArtifacts);
+        return (DependencyArtifactDescriptor[]) ret.toArray(
+            new DependencyArtifactDescriptor[ret.size()]);
+    }
+
+    /**
+     * Returns all the include rules of this descriptor, each one only once. Contrary to
+     * {@link #getAllIncludeRules()}, rules equal to another one are returned too.
+     */
+    public IncludeRule[] getRawIncludeRules() {
+        List ret = mergeAllInstances(includeRules);
+        return (IncludeRule[]) ret.toArray(new IncludeRule[ret.size()]);
+    }
+
+    /**
+     * Returns all the exclude rules of this descriptor, each one only once. Contrary to
+     * {@link #getAllExcludeRules()}, rules equal to another one are returned too.
+     */
+    public ExcludeRule[] getRawExcludeRules() {
+        List ret = mergeAllInstances(excludeRules);
+        return (ExcludeRule[]) ret.toArray(new ExcludeRule[ret.size()]);
+    }
+
+    private List mergeAllInstances(Map objectsMap) {
+        List ret = new ArrayList();
+        if (objectsMap == null) {
+            return ret;
+        }
+        Map/*<Object,Object>*/ seen = new IdentityHashMap();
+        for (Iterator it = objectsMap.values().iterator(); it.hasNext();) {
+            Collection objects = (Collection) it.next();
+            for (Iterator it2 = objects.iterator(); it2.hasNext();) {
+                Object o = it2.next();
+                if (seen.put(o, o) == null) {
+                    ret.add(o);
+                }
+            }
+        }
+        return ret;
+    }
+
     public void addDependencyConfiguration(String masterConf, String depConf) {
         if ((md != null) && !"*".equals(masterConf) && !"%".equals(masterConf)) {
             Configuration config;
@@ -618,6 +618,10 @@ public class DefaultModuleDescriptor implements ModuleDescriptor {
         return (ConflictManager) conflictManagers.getRule(moduleId);
     }
 
+    public ModuleRules/* <ConflictManager> */getAllConflictManagers() {
+        return (ModuleRules) conflictManagers.clone();
+    }
+
     public void addDependencyDescriptorMediator(ModuleId moduleId, PatternMatcher matcher,
             DependencyDescriptorMediator ddm) {
         dependencyDescriptorMediators.defineRule(new MapMatcher(moduleId.getAttributes(), matcher),
@@ -28,6 +28,8 @@ import org.apache.ivy.util.extendable.UnmodifiableExtendableItem;
  * @see <a href="package-summary.html">org.apache.ivy.core.module.id</a>
  */
 public class ArtifactRevisionId extends UnmodifiableExtendableItem {
+    private static final Interner CACHE = new Interner();
+
     public static ArtifactRevisionId newInstance(ModuleRevisionId mrid, String name, String type,
             String ext) {
         return newInstance(mrid, name, type, ext, null);
@@ -35,14 +37,36 @@ public class ArtifactRevisionId extends UnmodifiableExtendableItem {
 
     public static ArtifactRevisionId newInstance(ModuleRevisionId mrid, String name, String type,
             String ext, Map extraAttributes) {
-        return new ArtifactRevisionId(new ArtifactId(mrid.getModuleId(), name, type, ext), mrid,
-            extraAttributes);
+        return intern(new ArtifactRevisionId(new ArtifactId(mrid.getModuleId(), name, type, ext),
+            mrid, extraAttributes));
+    }
+
+    /**
+     * Returns an intern instance of the given ArtifactRevisionId if any, or put the given
+     * ArtifactRevisionId in a cache of intern instances and returns it.
+     * <p>
+     * When using static newInstances methods, this method is already called. Two distinct intern
+     * instances are never equal, which makes comparing them faster.
+     * </p>
+     * 
+     * @param arid
+     *            the artifact revision id to intern
+     * @return an interned ArtifactRevisionId
+     */
+    public static ArtifactRevisionId intern(ArtifactRevisionId arid) {
+        ArtifactRevisionId r = (ArtifactRevisionId) CACHE.intern(arid);
+        r.interned = true;
+        return r;
     }
 
     private ArtifactId artifactId;
 
     private ModuleRevisionId mrid;
 
+    private final int hash;
+
+    private boolean interned;
+
     public ArtifactRevisionId(ArtifactId artifactId, ModuleRevisionId mrid) {
         this(artifactId, mrid, null);
     }
@@ -59,27 +83,34 @@ public class ArtifactRevisionId extends UnmodifiableExtendableItem {
         setStandardAttribute(IvyPatternHelper.ARTIFACT_KEY, getName());
         setStandardAttribute(IvyPatternHelper.TYPE_KEY, getType());
         setStandardAttribute(IvyPatternHelper.EXT_KEY, getExt());
+
+        // WARN: uniqueness needs to be relatively strong here
+        //CheckStyle:MagicNumber| OFF
+        int h = 17;
+        h += artifactId.hashCode() * 37;
+        h += mrid.hashCode() * 37;
+        h += getQualifiedExtraAttributes().hashCode() * 37;
+        //CheckStyle:MagicNumber| ON
+        hash = h;
     }
 
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (!(obj instanceof ArtifactRevisionId)) {
             return false;
         }
         ArtifactRevisionId arid = (ArtifactRevisionId) obj;
+        if (arid.hash != hash || (interned && arid.interned)) {
+            return false;
+        }
         return getArtifactId().equals(arid.getArtifactId())
                 && getModuleRevisionId().equals(arid.getModuleRevisionId())
                 && getQualifiedExtraAttributes().equals(arid.getQualifiedExtraAttributes());
     }
 
     public int hashCode() {
-        // WARN: uniqueness needs to be relatively strong here
-        //CheckStyle:MagicNumber| OFF
-        int hash = 17;
-        hash += getArtifactId().hashCode() * 37;
-        hash += getModuleRevisionId().hashCode() * 37;
-        hash += getQualifiedExtraAttributes().hashCode() * 37;
-        //CheckStyle:MagicNumber| ON
-        
         return hash;
     }
 
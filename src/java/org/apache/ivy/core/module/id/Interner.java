@@ -0,0 +1,74 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.module.id;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps the intern instances of an identifier class.
+ * <p>
+ * The instances are weakly referenced, so that the intern instances no longer used are garbage
+ * collected and the number of kept instances is bounded by the number of instances in use. The
+ * instances are spread among several independently locked maps according to their hash code, so
+ * that threads interning different instances seldom wait for each other.
+ * </p>
+ */
+final class Interner {
+    private static final int STRIPES = 32;
+
+    private final Map/*<Object, WeakReference<Object>>*/[] stripes = new Map[STRIPES];
+
+    Interner() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new WeakHashMap();
+        }
+    }
+
+    /**
+     * Returns the intern instance equal to the given object if any, or makes the given object the
+     * intern instance and returns it.
+     */
+    Object intern(Object o) {
+        int hash = o.hashCode();
+        Map stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            WeakReference ref = (WeakReference) stripe.get(o);
+            Object r = ref == null ? null : ref.get();
+            if (r == null) {
+                r = o;
+                stripe.put(r, new WeakReference(r));
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Returns the number of intern instances.
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            synchronized (stripes[i]) {
+                size += stripes[i].size();
+            }
+        }
+        return size;
+    }
+}
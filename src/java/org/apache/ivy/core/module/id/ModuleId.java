@@ -17,10 +17,8 @@
  */
 package org.apache.ivy.core.module.id;
 
-import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,7 +32,7 @@ import org.apache.ivy.core.IvyPatternHelper;
 public class ModuleId implements Comparable {
     static final String ENCODE_SEPARATOR = ":#@#:";
     
-    private static final Map/*<ModuleId, WeakReference<ModuleId>>*/ CACHE = new WeakHashMap();
+    private static final Interner CACHE = new Interner();
 
     /**
      * Returns a ModuleId for the given organization and module name.
@@ -53,7 +51,8 @@ public class ModuleId implements Comparable {
      * ModuleId.
      * <p>
      * This is useful to reduce the number of instances of ModuleId kept in memory, and thus reduce
-     * memory footprint.
+     * memory footprint. Two distinct intern instances are never equal, which makes comparing
+     * them faster.
      * </p>
      * 
      * @param moduleId
@@ -61,27 +60,18 @@ public class ModuleId implements Comparable {
      * @return a unit instance of the given module id.
      */
     public static ModuleId intern(ModuleId moduleId) {
-        ModuleId r = null;
-        
-        synchronized (CACHE) {
-            WeakReference ref = (WeakReference) CACHE.get(moduleId);
-            if (ref != null) {
-                r = (ModuleId) ref.get();
-            }
-            if (r == null) {
-                r = moduleId;
-                CACHE.put(r, new WeakReference(r));
-            }
-        }
-
+        ModuleId r = (ModuleId) CACHE.intern(moduleId);
+        r.interned = true;
         return r;
     }
 
-    private String organisation;
+    private final String organisation;
 
-    private String name;
+    private final String name;
 
-    private int hash;
+    private final int hash;
+
+    private boolean interned;
     
     private Map/*<String, String>*/ attributes = new HashMap();
 
@@ -98,6 +88,12 @@ public class ModuleId implements Comparable {
         this.name = name;
         attributes.put(IvyPatternHelper.ORGANISATION_KEY, organisation);
         attributes.put(IvyPatternHelper.MODULE_KEY, name);
+        //CheckStyle:MagicNumber| OFF
+        int h = 31;
+        h = h * 13 + (organisation == null ? 0 : organisation.hashCode());
+        h = h * 13 + name.hashCode();
+        //CheckStyle:MagicNumber| ON
+        hash = h;
     }
 
     /**
@@ -118,11 +114,16 @@ public class ModuleId implements Comparable {
 
     /** {@inheritDoc} */    
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (!(obj instanceof ModuleId)) {
             return false;
         }
         ModuleId other = (ModuleId) obj;
-        if (other.organisation == null) {
+        if (other.hash != hash || (interned && other.interned)) {
+            return false;
+        } else if (other.organisation == null) {
             return organisation == null && other.name.equals(name);
         } else {
             return other.organisation.equals(organisation) && other.name.equals(name);
@@ -131,13 +132,6 @@ public class ModuleId implements Comparable {
 
     /** {@inheritDoc} */    
     public int hashCode() {
-        if (hash == 0) {
-            //CheckStyle:MagicNumber| OFF
-            hash = 31;
-            hash = hash * 13 + (organisation == null ? 0 : organisation.hashCode());
-            hash = hash * 13 + name.hashCode();
-            //CheckStyle:MagicNumber| ON
-        }
         return hash;
     }
 
@@ -17,11 +17,9 @@
  */
 package org.apache.ivy.core.module.id;
 
-import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,7 +44,7 @@ public class ModuleRevisionId extends UnmodifiableExtendableItem {
     private static final String REV_STRICT_CHARS_PATTERN 
         = "[a-zA-Z0-9\\-/\\._+=,\\[\\]\\{\\}\\(\\):@]";
 
-    private static final Map/*<ModuleRevisionId, ModuleRevisionId>*/ CACHE = new WeakHashMap();
+    private static final Interner CACHE = new Interner();
 
     /**
      * Pattern to use to matched mrid text representation.
@@ -151,25 +149,17 @@ public class ModuleRevisionId extends UnmodifiableExtendableItem {
      * <p>
      * When using static newInstances methods, this method is already called.
      * </p>
+     * <p>
+     * Two distinct intern instances are never equal, which makes comparing them faster.
+     * </p>
      * 
      * @param moduleRevisionId
      *            the module revision id to intern
      * @return an interned ModuleRevisionId
      */
     public static ModuleRevisionId intern(ModuleRevisionId moduleRevisionId) {
-        ModuleRevisionId r = null;
-
-        synchronized (CACHE) {
-            WeakReference ref = (WeakReference) CACHE.get(moduleRevisionId);
-            if (ref != null) {
-                r = (ModuleRevisionId) ref.get();
-            }
-            if (r == null) {
-                r = moduleRevisionId;
-                CACHE.put(r, new WeakReference(r));
-            }
-        }
-     
+        ModuleRevisionId r = (ModuleRevisionId) CACHE.intern(moduleRevisionId);
+        r.interned = true;
         return r;
     }
 
@@ -179,7 +169,9 @@ public class ModuleRevisionId extends UnmodifiableExtendableItem {
 
     private final String revision;
 
-    private int hash;
+    private final int hash;
+
+    private boolean interned;
 
     // TODO: make these constructors private and use only static factory methods
     
@@ -215,6 +207,14 @@ public class ModuleRevisionId extends UnmodifiableExtendableItem {
         setStandardAttribute(IvyPatternHelper.MODULE_KEY, this.moduleId.getName());
         setStandardAttribute(IvyPatternHelper.BRANCH_KEY, this.branch);
         setStandardAttribute(IvyPatternHelper.REVISION_KEY, this.revision);
+        //CheckStyle:MagicNumber| OFF
+        int h = 31;
+        h = h * 13 + (this.branch == null ? 0 : this.branch.hashCode());
+        h = h * 13 + this.revision.hashCode();
+        h = h * 13 + this.moduleId.hashCode();
+        h = h * 13 + getQualifiedExtraAttributes().hashCode();
+        //CheckStyle:MagicNumber| ON
+        hash = h;
     }
 
     public ModuleId getModuleId() {
@@ -234,12 +234,17 @@ public class ModuleRevisionId extends UnmodifiableExtendableItem {
     }
 
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (!(obj instanceof ModuleRevisionId)) {
             return false;
         }
         ModuleRevisionId other = (ModuleRevisionId) obj;
 
-        if (!other.getRevision().equals(getRevision())) {
+        if (other.hash != hash || (interned && other.interned)) {
+            return false;
+        } else if (!other.getRevision().equals(getRevision())) {
             return false;
         } else if (other.getBranch() == null && getBranch() != null) {
             return false;
@@ -253,15 +258,6 @@ public class ModuleRevisionId extends UnmodifiableExtendableItem {
     }
 
     public int hashCode() {
-        if (hash == 0) {
-            //CheckStyle:MagicNumber| OFF
-            hash = 31;
-            hash = hash * 13 + (getBranch() == null ? 0 : getBranch().hashCode());
-            hash = hash * 13 + getRevision().hashCode();
-            hash = hash * 13 + getModuleId().hashCode();
-            hash = hash * 13 + getQualifiedExtraAttributes().hashCode();
-            //CheckStyle:MagicNumber| ON
-        }
         return hash;
     }
 
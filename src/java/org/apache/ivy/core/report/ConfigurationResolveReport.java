@@ -77,6 +77,47 @@ public class ConfigurationResolveReport {
         this.options = options;
     }
 
+    /**
+     * Copies the given report for a resolve reusing it, with its own artifact download reports.
+     * The copies of the artifact download reports are shared between the configuration reports
+     * through the given map, like the reports they copy.
+     * 
+     * @see ResolveReport#copyForReuse()
+     */
+    ConfigurationResolveReport(ConfigurationResolveReport report,
+            Map/*<ArtifactDownloadReport, ArtifactDownloadReport>*/ adrCopies) {
+        this(report.resolveEngine, report.md, report.conf, report.date, report.options);
+        dependencies.putAll(report.dependencies);
+        hasChanged = report.hasChanged;
+        for (Iterator iter = report.dependencyReports.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            List adrs = new ArrayList();
+            for (Iterator it = ((Collection) entry.getValue()).iterator(); it.hasNext();) {
+                ArtifactDownloadReport adr = (ArtifactDownloadReport) it.next();
+                ArtifactDownloadReport copy = (ArtifactDownloadReport) adrCopies.get(adr);
+                if (copy == null) {
+                    copy = copyForReuse(adr);
+                    adrCopies.put(adr, copy);
+                }
+                adrs.add(copy);
+            }
+            dependencyReports.put(entry.getKey(), adrs);
+        }
+    }
+
+    private static ArtifactDownloadReport copyForReuse(ArtifactDownloadReport adr) {
+        ArtifactDownloadReport copy = new ArtifactDownloadReport(adr.getArtifact());
+        // the artifacts downloaded by the previous resolve are now in cache
+        copy.setDownloadStatus(adr.getDownloadStatus() == DownloadStatus.SUCCESSFUL
+                ? DownloadStatus.NO : adr.getDownloadStatus());
+        copy.setArtifactOrigin(adr.getArtifactOrigin());
+        copy.setLocalFile(adr.getLocalFile());
+        copy.setSize(adr.getSize());
+        copy.setDownloadDetails(adr.getDownloadDetails());
+        copy.setDownloadTimeMillis(adr.getDownloadTimeMillis());
+        return copy;
+    }
+
     
     /**
      * Check if the set of dependencies has changed since the previous execution 
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -32,7 +33,9 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveMetrics;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.plugins.report.ReportOutputter;
 import org.apache.ivy.util.filter.Filter;
 
@@ -62,6 +65,10 @@ public class ResolveReport {
 
     private long downloadSize;
 
+    private ResolveMetrics metrics = new ResolveMetrics();
+
+    private ResolveTrace trace;
+
     public ResolveReport(ModuleDescriptor md) {
         this(md, ResolveOptions.getDefaultResolveId(md));
     }
@@ -71,6 +78,30 @@ public class ResolveReport {
         this.resolveId = resolveId;
     }
 
+    /**
+     * Returns a copy of this report for a resolve reusing its result, for instance because the
+     * same module has already been resolved with the same options. The artifacts downloaded by the
+     * resolve which produced this report are reported as already in cache in the copy, which has
+     * no download time nor size, and the default metrics and no trace. This report is left
+     * unchanged, since it may still be used by the caller of its own resolve.
+     * 
+     * @return a copy of this report, with its own configuration and artifact download reports
+     */
+    public ResolveReport copyForReuse() {
+        ResolveReport copy = new ResolveReport(md, resolveId);
+        Map adrCopies = new IdentityHashMap();
+        for (Iterator iter = confReports.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            copy.confReports.put(entry.getKey(), new ConfigurationResolveReport(
+                (ConfigurationResolveReport) entry.getValue(), adrCopies));
+        }
+        copy.problemMessages = new ArrayList(problemMessages);
+        copy.dependencies = new ArrayList(dependencies);
+        copy.artifacts = new ArrayList(artifacts);
+        copy.resolveTime = resolveTime;
+        return copy;
+    }
+
     public void addReport(String conf, ConfigurationResolveReport report) {
         confReports.put(conf, report);
     }
@@ -321,4 +352,32 @@ public class ResolveReport {
         return resolveId;
     }
 
+    public void setMetrics(ResolveMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics of the resolve which produced this report: where the time of the
+     * resolve has been spent, and what has been found in the cache or downloaded.
+     * 
+     * @return the metrics of the resolve, never <code>null</code>
+     */
+    public ResolveMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setTrace(ResolveTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Returns the timeline of the resolve which produced this report, if it has been traced.
+     * 
+     * @return the trace of the resolve, or <code>null</code> if the resolve wasn't traced
+     * @see ResolveOptions#isTrace()
+     */
+    public ResolveTrace getTrace() {
+        return trace;
+    }
+
 }
@@ -0,0 +1,261 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.LogOptions;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.AbstractMessageLogger;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.MessageLogger;
+
+/**
+ * Looks up the module descriptors of dependencies ahead of the resolve walk, on a bounded pool of
+ * threads.
+ * <p>
+ * The prefetch only warms the repository cache: its results are discarded, and the dependency
+ * graph is still walked and conflicts still solved by the {@link ResolveEngine} in the resolving
+ * thread, so the outcome is the same as a serial resolve. Before looking up a module, the walk
+ * waits for any running prefetch of the same module, so that its own lookup is answered from the
+ * cache.
+ * </p>
+ * <p>
+ * Messages logged by prefetch tasks are reported at debug level only: problems are reported by the
+ * walk itself if and when it actually needs the module.
+ * </p>
+ */
+class DependencyPrefetcher {
+    private final ResolveEngine engine;
+
+    private final ResolveOptions options;
+
+    private final IvyContext context;
+
+    private final ExecutorService executor;
+
+    private final Map/*<ModuleId, PrefetchTask>*/ pending = new HashMap();
+
+    private final Set/*<ModuleRevisionId>*/ submitted = new HashSet();
+
+    /**
+     * Creates a prefetcher using the given number of threads. The context of the calling thread is
+     * used as the base context of prefetch tasks.
+     */
+    DependencyPrefetcher(ResolveEngine engine, ResolveOptions options, int threads) {
+        this.engine = engine;
+        this.options = (ResolveOptions) new ResolveOptions(options).setLog(LogOptions.LOG_QUIET);
+        this.context = new IvyContext(IvyContext.getContext());
+        this.context.setMessageLogger(new PrefetchMessageLogger(context.getMessageLogger()));
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ivy-prefetch-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Schedules the lookup of the given dependencies (a collection of {@link VisitNode}) which have
+     * not been loaded yet.
+     */
+    public void prefetch(Collection/*<VisitNode>*/ dependencies) {
+        for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
+            VisitNode dep = (VisitNode) iter.next();
+            if (dep.getNode().isLoaded() || dep.hasProblem()) {
+                continue;
+            }
+            DependencyDescriptor dd = dep.getDependencyDescriptor();
+            if (dd != null) {
+                prefetch(dd);
+            }
+        }
+    }
+
+    private synchronized void prefetch(DependencyDescriptor dd) {
+        ModuleRevisionId mrid = dd.getDependencyRevisionId();
+        ModuleId mid = dd.getDependencyId();
+        PrefetchTask running = (PrefetchTask) pending.get(mid);
+        if (submitted.contains(mrid) || (running != null && !running.future.isDone())) {
+            // only one lookup per module at a time, to avoid concurrent updates of its metadata
+            // in the cache
+            return;
+        }
+        submitted.add(mrid);
+        PrefetchTask task = new PrefetchTask(dd);
+        task.future = executor.submit(task);
+        pending.put(mid, task);
+    }
+
+    /**
+     * Waits for the completion of any prefetch of the given module which has already started. A
+     * prefetch which is still queued is cancelled instead, the caller being about to do the lookup
+     * anyway.
+     */
+    public void awaitPrefetch(ModuleId mid) {
+        PrefetchTask task;
+        synchronized (this) {
+            task = (PrefetchTask) pending.remove(mid);
+            if (task == null) {
+                return;
+            }
+            if (!task.started) {
+                // Future.cancel succeeds on running tasks too, hence the started flag
+                task.cancel();
+                return;
+            }
+        }
+        try {
+            task.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // reset interrupt status
+            throw new RuntimeException("operation interrupted");
+        } catch (ExecutionException e) {
+            // ignored: the caller lookup will report the problem if any
+            Message.debug("prefetch of " + mid + " failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * Cancels pending prefetches and waits for the running ones to complete.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            for (Iterator iter = pending.values().iterator(); iter.hasNext();) {
+                PrefetchTask task = (PrefetchTask) iter.next();
+                if (!task.started) {
+                    task.cancel();
+                }
+            }
+            pending.clear();
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                Message.debug("waiting for dependency prefetch termination");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt(); // reset interrupt status
+        }
+    }
+
+    private final class PrefetchTask implements Runnable {
+        private final DependencyDescriptor dd;
+
+        // the fields below are guarded by the prefetcher lock
+        private Future future;
+
+        private boolean started;
+
+        private boolean cancelled;
+
+        private PrefetchTask(DependencyDescriptor dd) {
+            this.dd = dd;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            future.cancel(false);
+        }
+
+        public void run() {
+            synchronized (DependencyPrefetcher.this) {
+                if (cancelled) {
+                    return;
+                }
+                started = true;
+            }
+            ResolveData data = new ResolveData(engine, options);
+            IvyContext ctx = IvyContext.pushContext(new IvyContext(context));
+            try {
+                ctx.setResolveData(data);
+                DependencyResolver resolver = engine.getSettings().getResolver(
+                    dd.getDependencyRevisionId());
+                if (resolver != null) {
+                    Message.debug("prefetching " + dd.getDependencyRevisionId() + " using "
+                            + resolver);
+                    ResolvedModuleRevision module = resolver.getDependency(dd, data);
+                    if (module != null) {
+                        // as done by IvyNode when loading data, so that the cached module is
+                        // bound to its actual artifact resolver
+                        module.getResolver().getRepositoryCacheManager().saveResolvers(
+                            module.getDescriptor(), module.getResolver().getName(),
+                            module.getArtifactResolver().getName());
+                    }
+                }
+            } catch (Exception e) {
+                Message.debug("problem while prefetching " + dd.getDependencyRevisionId() + ": "
+                        + e);
+            } finally {
+                IvyContext.popContext();
+            }
+        }
+    }
+
+    /**
+     * Forwards all messages at debug level, without recording problems.
+     */
+    private static final class PrefetchMessageLogger extends AbstractMessageLogger {
+        private final MessageLogger delegate;
+
+        private PrefetchMessageLogger(MessageLogger delegate) {
+            this.delegate = delegate;
+        }
+
+        public void log(String msg, int level) {
+            delegate.debug("[prefetch] " + msg);
+        }
+
+        public void rawlog(String msg, int level) {
+            log(msg, level);
+        }
+
+        public void warn(String msg) {
+            log("WARN: " + msg, Message.MSG_DEBUG);
+        }
+
+        public void error(String msg) {
+            log("ERROR: " + msg, Message.MSG_DEBUG);
+        }
+
+        protected void doProgress() {
+        }
+
+        protected void doEndProgress(String msg) {
+        }
+    }
+}
@@ -22,6 +22,31 @@ import org.apache.ivy.core.LogOptions;
 
 public class DownloadOptions extends LogOptions {
 
+    /**
+     * The maximum number of artifacts downloaded at the same time, 1 to download them one after
+     * the other.
+     */
+    private int downloadThreads = 1;
+
     public DownloadOptions() {
     }
+
+    /**
+     * Returns the maximum number of artifacts downloaded at the same time when downloading the
+     * artifacts of a resolve report.
+     * <p>
+     * Download reports and events are the same as with serial downloads, only their order may
+     * vary.
+     * </p>
+     * 
+     * @return the number of download threads, 1 or less to download artifacts serially
+     */
+    public int getDownloadThreads() {
+        return downloadThreads;
+    }
+
+    public DownloadOptions setDownloadThreads(int downloadThreads) {
+        this.downloadThreads = downloadThreads;
+        return this;
+    }
 }
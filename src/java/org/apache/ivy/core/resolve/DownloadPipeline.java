@@ -0,0 +1,94 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.version.VersionMatcher;
+import org.apache.ivy.util.Message;
+import org.apache.ivy.util.filter.Filter;
+
+/**
+ * Starts the download of the artifacts of dependencies while the resolve walk goes on, so that
+ * the artifacts transfers overlap with the lookup of the remaining module descriptors.
+ * <p>
+ * The walk notifies the pipeline each time a node has been loaded and its dependencies fetched.
+ * The artifacts of the node are then downloaded ahead if the node is likely to be kept: its
+ * revision is not dynamic, and no other revision of its module has been loaded so far. This is
+ * only a guess, conflicts are still solved by the walk: the downloads of nodes evicted afterwards
+ * are discarded once the dependencies are resolved, and the downloads of the remaining nodes are
+ * reused by {@link ResolveEngine#downloadArtifacts}.
+ * </p>
+ * <p>
+ * The pipeline is used by the resolving thread only.
+ * </p>
+ */
+class DownloadPipeline {
+    private final ParallelArtifactDownloader downloader;
+
+    private final Filter artifactFilter;
+
+    private final DownloadOptions options;
+
+    private final VersionMatcher versionMatcher;
+
+    // the revision loaded for each module, null once several revisions have been loaded
+    private final Map/*<ModuleId, ModuleRevisionId>*/ revisions = new HashMap();
+
+    DownloadPipeline(ResolveEngine engine, ResolveOptions options) {
+        this.downloader = new ParallelArtifactDownloader(options.getDownloadThreads());
+        this.artifactFilter = options.getArtifactFilter();
+        this.options = (DownloadOptions) new DownloadOptions().setLog(options.getLog());
+        this.versionMatcher = engine.getSettings().getVersionMatcher();
+    }
+
+    /**
+     * Downloads ahead the artifacts of the given node, if it is likely to be kept.
+     */
+    public void nodeLoaded(VisitNode node) {
+        IvyNode n = node.getNode();
+        if (n.isRoot() || n.hasProblem() || n.getModuleRevision() == null) {
+            return;
+        }
+        ModuleRevisionId mrid = n.getResolvedId();
+        ModuleId mid = mrid.getModuleId();
+        if (!revisions.containsKey(mid)) {
+            revisions.put(mid, mrid);
+        } else if (!mrid.equals(revisions.get(mid))) {
+            revisions.put(mid, null);
+        }
+        if (revisions.get(mid) == null || versionMatcher.isDynamic(n.getId())
+                || node.isEvicted() || node.isCircular()) {
+            return;
+        }
+        Message.debug("\tdownloading ahead artifacts of " + mrid);
+        downloader.downloadAhead(n.getModuleRevision().getArtifactResolver(),
+            n.getSelectedArtifacts(artifactFilter), options);
+    }
+
+    public ParallelArtifactDownloader getDownloader() {
+        return downloader;
+    }
+
+    public void shutdown() {
+        downloader.shutdown();
+    }
+}
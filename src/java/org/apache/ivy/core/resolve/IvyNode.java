@@ -134,6 +134,16 @@ public class IvyNode implements Comparable {
      */
     public boolean loadData(String rootModuleConf, IvyNode parent, String parentConf, String conf,
             boolean shouldBePublic, IvyNodeUsage usage) {
+        ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.NODE, "loadData", getId());
+        try {
+            return doLoadData(rootModuleConf, parent, parentConf, conf, shouldBePublic, usage);
+        } finally {
+            ResolveTrace.end(span);
+        }
+    }
+
+    private boolean doLoadData(String rootModuleConf, IvyNode parent, String parentConf,
+            String conf, boolean shouldBePublic, IvyNodeUsage usage) {
         Message.debug("loadData of " + this.toString() + " of rootConf=" + rootModuleConf);
         if (!isRoot() && (data.getReport() != null)) {
             data.getReport().addDependency(this);
@@ -160,6 +170,12 @@ public class IvyNode implements Comparable {
                 try {
                     Message.debug("\tusing " + resolver + " to resolve " + getId());
                     DependencyDescriptor dependencyDescriptor = getDependencyDescriptor(parent);
+                    DependencyPrefetcher prefetcher = data.getPrefetcher();
+                    if (prefetcher != null) {
+                        // let a concurrent lookup of this module complete, ours will then be
+                        // answered from the cache
+                        prefetcher.awaitPrefetch(dependencyDescriptor.getDependencyId());
+                    }
                     long start = System.currentTimeMillis();
                     ModuleRevisionId requestedRevisionId 
                         = dependencyDescriptor.getDependencyRevisionId();
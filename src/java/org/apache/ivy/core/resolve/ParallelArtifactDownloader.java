@@ -0,0 +1,226 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.util.Message;
+
+/**
+ * Downloads artifacts on a bounded pool of threads.
+ * <p>
+ * Each artifact is downloaded by a separate call to {@link DependencyResolver#download}, so that
+ * the artifacts of a single module are downloaded concurrently too. The {@link DownloadReport} of
+ * a set of artifacts is obtained with {@link PendingDownload#getReport()}, which waits for all
+ * its artifacts to be downloaded: this lets the caller handle reports in a stable order while
+ * later downloads are still running.
+ * </p>
+ * <p>
+ * Downloads can also be scheduled ahead of time with {@link #downloadAhead}, before it's known
+ * whether the artifacts are needed. A later {@link #download} of the same artifacts reuses these
+ * downloads, and the ones which are not needed are discarded by {@link #cancelUnclaimed()}.
+ * </p>
+ */
+class ParallelArtifactDownloader {
+    private final IvyContext context;
+
+    private final ExecutorService executor;
+
+    private final Map/*<Artifact, Future>*/ scheduled = new LinkedHashMap();
+
+    private final Set/*<Artifact>*/ claimed = new HashSet();
+
+    /**
+     * Creates a downloader using the given number of threads. The context of the calling thread is
+     * used as the base context of download tasks.
+     */
+    ParallelArtifactDownloader(int threads) {
+        this.context = new IvyContext(IvyContext.getContext());
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ivy-download-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Schedules the download of the given artifacts with the given resolver.
+     */
+    public synchronized PendingDownload download(DependencyResolver resolver, Artifact[] artifacts,
+            DownloadOptions options) {
+        Future[] downloads = new Future[artifacts.length];
+        for (int i = 0; i < artifacts.length; i++) {
+            downloads[i] = schedule(resolver, artifacts[i], options);
+            claimed.add(artifacts[i]);
+        }
+        return new PendingDownload(artifacts, downloads);
+    }
+
+    /**
+     * Schedules the download of the given artifacts with the given resolver, in case they are
+     * needed later on.
+     */
+    public synchronized void downloadAhead(DependencyResolver resolver, Artifact[] artifacts,
+            DownloadOptions options) {
+        for (int i = 0; i < artifacts.length; i++) {
+            schedule(resolver, artifacts[i], options);
+        }
+    }
+
+    private Future schedule(DependencyResolver resolver, Artifact artifact,
+            DownloadOptions options) {
+        Future download = (Future) scheduled.get(artifact);
+        if (download == null) {
+            download = executor.submit(new DownloadTask(resolver, artifact, options));
+            scheduled.put(artifact, download);
+        }
+        return download;
+    }
+
+    /**
+     * Cancels the downloads scheduled ahead of time which haven't been requested by
+     * {@link #download} since then. The ones which have already started are left running, their
+     * result being only kept in the cache.
+     * 
+     * @return the number of discarded downloads
+     */
+    public synchronized int cancelUnclaimed() {
+        int count = 0;
+        for (Iterator iter = scheduled.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            if (!claimed.contains(entry.getKey())) {
+                ((Future) entry.getValue()).cancel(false);
+                iter.remove();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Cancels the downloads which have not started yet and waits for the running ones to complete.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            for (Iterator iter = scheduled.values().iterator(); iter.hasNext();) {
+                ((Future) iter.next()).cancel(false);
+            }
+            scheduled.clear();
+            claimed.clear();
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                Message.debug("waiting for artifact downloads termination");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt(); // reset interrupt status
+        }
+    }
+
+    /**
+     * The downloads of a set of artifacts, scheduled by a single call to
+     * {@link ParallelArtifactDownloader#download}.
+     */
+    public static final class PendingDownload {
+        private final Artifact[] artifacts;
+
+        private final Future[] downloads;
+
+        private PendingDownload(Artifact[] artifacts, Future[] downloads) {
+            this.artifacts = artifacts;
+            this.downloads = downloads;
+        }
+
+        /**
+         * Waits for all the artifacts to be downloaded, and returns the resulting report. An
+         * exception thrown by the resolver while downloading an artifact is rethrown here.
+         */
+        public DownloadReport getReport() {
+            DownloadReport report = new DownloadReport();
+            for (int i = 0; i < downloads.length; i++) {
+                DownloadReport r;
+                try {
+                    r = (DownloadReport) downloads[i].get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // reset interrupt status
+                    throw new RuntimeException("operation interrupted");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new RuntimeException("impossible to download " + artifacts[i] + ": "
+                            + e.getCause(), e.getCause());
+                }
+                ArtifactDownloadReport[] adrs = r.getArtifactsReports();
+                for (int j = 0; j < adrs.length; j++) {
+                    report.addArtifactReport(adrs[j]);
+                }
+            }
+            return report;
+        }
+    }
+
+    private final class DownloadTask implements Callable {
+        private final DependencyResolver resolver;
+
+        private final Artifact artifact;
+
+        private final DownloadOptions options;
+
+        private DownloadTask(DependencyResolver resolver, Artifact artifact,
+                DownloadOptions options) {
+            this.resolver = resolver;
+            this.artifact = artifact;
+            this.options = options;
+        }
+
+        public Object call() {
+            IvyContext.pushContext(new IvyContext(context));
+            try {
+                return resolver.download(new Artifact[] {artifact}, options);
+            } finally {
+                IvyContext.popContext();
+            }
+        }
+    }
+}
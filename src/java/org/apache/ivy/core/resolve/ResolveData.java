@@ -47,11 +47,21 @@ public class ResolveData {
 
     private ResolvedModuleRevision currentResolvedModuleRevision;
 
+    private DependencyPrefetcher prefetcher;
+
+    private DownloadPipeline downloadPipeline;
+
+    // shared by the copies of this resolve data, which are used for the same resolve
+    private long[] resultExpiration = new long[] {Long.MAX_VALUE};
+
     public ResolveData(ResolveData data, boolean validate) {
         this(data.engine, new ResolveOptions(data.options).setValidate(validate), 
             data.report, data.visitData);
         setCurrentVisitNode(data.currentVisitNode);
         setCurrentResolvedModuleRevision(data.currentResolvedModuleRevision);
+        setPrefetcher(data.prefetcher);
+        setDownloadPipeline(data.downloadPipeline);
+        this.resultExpiration = data.resultExpiration;
     }
 
     public ResolveData(ResolveEngine engine, ResolveOptions options) {
@@ -257,6 +267,46 @@ public class ResolveData {
         return engine;
     }
 
+    DependencyPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    void setPrefetcher(DependencyPrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    DownloadPipeline getDownloadPipeline() {
+        return downloadPipeline;
+    }
+
+    void setDownloadPipeline(DownloadPipeline downloadPipeline) {
+        this.downloadPipeline = downloadPipeline;
+    }
+
+    /**
+     * Records that the result of this resolve relies on cached data which is valid until the given
+     * time only, like a dynamic revision resolved from the cache with a time to live. A time in the
+     * past means that the result shouldn't be reused at all.
+     * 
+     * @param time
+     *            the time after which the result of this resolve may be different
+     */
+    public void expireResultAt(long time) {
+        synchronized (resultExpiration) {
+            resultExpiration[0] = Math.min(resultExpiration[0], time);
+        }
+    }
+
+    /**
+     * Returns the time until which the result of this resolve can be reused, as recorded with
+     * {@link #expireResultAt(long)}, or {@link Long#MAX_VALUE} if it doesn't expire.
+     */
+    public long getResultExpiration() {
+        synchronized (resultExpiration) {
+            return resultExpiration[0];
+        }
+    }
+
     void blacklist(IvyNode node) {
         for (Iterator iter = visitData.entrySet().iterator(); iter.hasNext();) {
             Entry entry = (Entry) iter.next();
@@ -41,7 +41,9 @@ import org.apache.ivy.Ivy;
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.LogOptions;
 import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.DefaultResolutionCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
+import org.apache.ivy.core.cache.ResolveReportMemoryCache;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.event.download.PrepareDownloadEvent;
 import org.apache.ivy.core.event.resolve.EndResolveEvent;
@@ -60,11 +62,13 @@ import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNodeEviction.EvictionData;
+import org.apache.ivy.core.resolve.ParallelArtifactDownloader.PendingDownload;
 import org.apache.ivy.core.sort.SortEngine;
 import org.apache.ivy.core.sort.SortOptions;
 import org.apache.ivy.plugins.conflict.ConflictManager;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
+import org.apache.ivy.plugins.parser.m2.ParentPomCache;
 import org.apache.ivy.plugins.repository.url.URLResource;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.apache.ivy.plugins.version.VersionMatcher;
@@ -91,6 +95,8 @@ public class ResolveEngine {
 
     private DependencyResolver dictatorResolver;
 
+    private final ParentPomCache parentPomCache = new ParentPomCache(ParentPomCache.DEFAULT_SIZE);
+
     /**
      * Constructs a ResolveEngine.
      * 
@@ -202,6 +208,17 @@ public class ResolveEngine {
             throws ParseException, IOException {
         DependencyResolver oldDictator = getDictatorResolver();
         IvyContext context = IvyContext.getContext();
+        DownloadPipeline pipeline = null;
+        ResolveMetrics oldMetrics = context.getResolveMetrics();
+        ResolveMetrics metrics = new ResolveMetrics();
+        context.setResolveMetrics(metrics);
+        ResolveTrace oldTrace = context.getResolveTrace();
+        ResolveTrace trace = null;
+        if (options.isTrace()
+                || Boolean.valueOf(settings.getVariable("ivy.resolve.trace")).booleanValue()) {
+            trace = new ResolveTrace();
+        }
+        context.setResolveTrace(trace);
         try {
             String[] confs = options.getConfs(md);
             options.setConfs(confs);
@@ -225,21 +242,66 @@ public class ResolveEngine {
             Message.verbose("\tvalidate = " + options.isValidate());
             Message.verbose("\trefresh = " + options.isRefresh());
             
-            ResolveReport report = new ResolveReport(md, options.getResolveId());
+            ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
+            ResolveReportMemoryCache reportCache = null;
+            if (cacheManager instanceof DefaultResolutionCacheManager) {
+                reportCache = ((DefaultResolutionCacheManager) cacheManager)
+                        .getReportMemoryCache();
+                if (reportCache != null && !reportCache.isCacheable(options)) {
+                    reportCache = null;
+                }
+            }
+            Object reportKey = null;
+            ResolveReport report = null;
+            if (reportCache != null) {
+                reportKey = reportCache.getKey(md, options);
+                if (!options.isRefresh()) {
+                    ResolveReport cached = reportCache.get(reportKey);
+                    if (cached != null) {
+                        // the cached report may still be used by the caller of its resolve
+                        report = cached.copyForReuse();
+                    }
+                }
+            }
 
-            ResolveData data = new ResolveData(this, options);
-            context.setResolveData(data);
-            
-            // resolve dependencies
-            IvyNode[] dependencies = getDependencies(md, options, report);
-            report.setDependencies(Arrays.asList(dependencies), options.getArtifactFilter());
+            ResolveData data = null;
+            IvyNode[] dependencies;
+            if (report != null) {
+                // the same module has already been resolved with the same options, and nothing
+                // it relies on has expired since then
+                Message.verbose("\tusing report of a previous resolve with the same inputs");
+                dependencies = (IvyNode[]) report.getDependencies().toArray(
+                    new IvyNode[report.getDependencies().size()]);
+            } else {
+                report = new ResolveReport(md, options.getResolveId());
+
+                data = new ResolveData(this, options);
+                context.setResolveData(data);
+                if (options.isDownload() && options.isPipelineDownloads()) {
+                    Message.verbose("\tdownloading artifacts during resolve using "
+                            + options.getDownloadThreads() + " threads");
+                    pipeline = new DownloadPipeline(this, options);
+                    data.setDownloadPipeline(pipeline);
+                }
+
+                // resolve dependencies
+                ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.PHASE, "resolve",
+                    md.getResolvedModuleRevisionId());
+                try {
+                    dependencies = getDependencies(md, options, report);
+                } finally {
+                    ResolveTrace.end(span);
+                }
+                report.setDependencies(Arrays.asList(dependencies), options.getArtifactFilter());
+            }
+            report.setMetrics(metrics);
+            report.setTrace(trace);
             
             if (options.getCheckIfChanged()) {
                 report.checkIfChanged();
             }
 
             // produce resolved ivy file and ivy properties in cache
-            ResolutionCacheManager cacheManager = settings.getResolutionCacheManager();
             cacheManager.saveResolvedModuleDescriptor(md);
 
             // we store the resolved dependencies revisions and statuses per asked dependency
@@ -325,11 +387,23 @@ public class ResolveEngine {
 
             report.setResolveTime(System.currentTimeMillis() - start);
 
-            if (options.isDownload()) {
+            if (options.isDownload() && data != null) {
                 Message.verbose(":: downloading artifacts ::");
 
-                downloadArtifacts(report, options.getArtifactFilter(), 
-                    (DownloadOptions) new DownloadOptions().setLog(options.getLog()));
+                ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.PHASE, "download",
+                    md.getResolvedModuleRevisionId());
+                try {
+                    downloadArtifacts(report, options.getArtifactFilter(), 
+                        ((DownloadOptions) new DownloadOptions().setLog(options.getLog()))
+                            .setDownloadThreads(options.getDownloadThreads()),
+                        pipeline == null ? null : pipeline.getDownloader());
+                } finally {
+                    ResolveTrace.end(span);
+                }
+            }
+
+            if (reportCache != null && data != null && !report.hasError()) {
+                reportCache.putInCache(reportKey, report, data.getResultExpiration());
             }
 
             if (options.isOutputReport()) {
@@ -347,7 +421,12 @@ public class ResolveEngine {
             Message.sumupProblems();
             throw ex;
         } finally {
+            if (pipeline != null) {
+                pipeline.shutdown();
+            }
             context.setResolveData(null);
+            context.setResolveMetrics(oldMetrics);
+            context.setResolveTrace(oldTrace);
             setDictatorResolver(oldDictator);
         }
     }
@@ -369,6 +448,15 @@ public class ResolveEngine {
 
     public void downloadArtifacts(
             ResolveReport report, Filter artifactFilter, DownloadOptions options) {
+        downloadArtifacts(report, artifactFilter, options, null);
+    }
+
+    /**
+     * Downloads the artifacts of the resolved dependencies, reusing the downloads already
+     * scheduled on the given downloader if not <code>null</code>.
+     */
+    private void downloadArtifacts(ResolveReport report, Filter artifactFilter,
+            DownloadOptions options, ParallelArtifactDownloader pipelineDownloader) {
         long start = System.currentTimeMillis();
         IvyNode[] dependencies = (IvyNode[]) report.getDependencies().toArray(
             new IvyNode[report.getDependencies().size()]);
@@ -376,46 +464,87 @@ public class ResolveEngine {
         eventManager.fireIvyEvent(new PrepareDownloadEvent((Artifact[]) report.getArtifacts()
                 .toArray(new Artifact[report.getArtifacts().size()])));
 
+        // when downloading in parallel, all downloads are scheduled first, and reports are then
+        // handled in dependency order, as they would be with serial downloads
+        ParallelArtifactDownloader downloader = pipelineDownloader;
+        PendingDownload[] pendingDownloads = null;
+        if (downloader == null && options.getDownloadThreads() > 1) {
+            Message.verbose("\tdownloading artifacts using " + options.getDownloadThreads()
+                    + " threads");
+            downloader = new ParallelArtifactDownloader(options.getDownloadThreads());
+        }
+        if (downloader != null) {
+            pendingDownloads = new PendingDownload[dependencies.length];
+            for (int i = 0; i < dependencies.length; i++) {
+                if (!dependencies[i].isCompletelyEvicted() && !dependencies[i].hasProblem()
+                        && dependencies[i].getModuleRevision() != null) {
+                    DependencyResolver resolver = dependencies[i].getModuleRevision()
+                            .getArtifactResolver();
+                    pendingDownloads[i] = downloader.download(resolver, 
+                        dependencies[i].getSelectedArtifacts(artifactFilter), options);
+                }
+            }
+            if (pipelineDownloader != null) {
+                int discarded = downloader.cancelUnclaimed();
+                if (discarded > 0) {
+                    Message.verbose("\t" + discarded
+                            + " artifacts downloaded ahead are not needed: discarded");
+                }
+            }
+        }
+
         long totalSize = 0;
-        for (int i = 0; i < dependencies.length; i++) {
-            checkInterrupted();
-            // download artifacts required in all asked configurations
-            if (!dependencies[i].isCompletelyEvicted() && !dependencies[i].hasProblem()
-                    && dependencies[i].getModuleRevision() != null) {
-                DependencyResolver resolver = dependencies[i].getModuleRevision()
-                        .getArtifactResolver();
-                Artifact[] selectedArtifacts = dependencies[i].getSelectedArtifacts(artifactFilter);
-                DownloadReport dReport = resolver.download(selectedArtifacts, options);
-                ArtifactDownloadReport[] adrs = dReport.getArtifactsReports();
-                for (int j = 0; j < adrs.length; j++) {
-                    if (adrs[j].getDownloadStatus() == DownloadStatus.FAILED) {
-                        if (adrs[j].getArtifact().getExtraAttribute("ivy:merged") != null) {
-                            Message.warn("\tmerged artifact not found: " + adrs[j].getArtifact()
-                                + ". It was required in " 
-                                + adrs[j].getArtifact().getExtraAttribute("ivy:merged"));
-                        } else {
-                            Message.warn("\t" + adrs[j]);
-                            resolver.reportFailure(adrs[j].getArtifact());
+        try {
+            for (int i = 0; i < dependencies.length; i++) {
+                checkInterrupted();
+                // download artifacts required in all asked configurations
+                if (!dependencies[i].isCompletelyEvicted() && !dependencies[i].hasProblem()
+                        && dependencies[i].getModuleRevision() != null) {
+                    DependencyResolver resolver = dependencies[i].getModuleRevision()
+                            .getArtifactResolver();
+                    DownloadReport dReport;
+                    if (pendingDownloads != null) {
+                        dReport = pendingDownloads[i].getReport();
+                    } else {
+                        Artifact[] selectedArtifacts = dependencies[i]
+                                .getSelectedArtifacts(artifactFilter);
+                        dReport = resolver.download(selectedArtifacts, options);
+                    }
+                    ArtifactDownloadReport[] adrs = dReport.getArtifactsReports();
+                    for (int j = 0; j < adrs.length; j++) {
+                        if (adrs[j].getDownloadStatus() == DownloadStatus.FAILED) {
+                            if (adrs[j].getArtifact().getExtraAttribute("ivy:merged") != null) {
+                                Message.warn("\tmerged artifact not found: " + adrs[j].getArtifact()
+                                    + ". It was required in " 
+                                    + adrs[j].getArtifact().getExtraAttribute("ivy:merged"));
+                            } else {
+                                Message.warn("\t" + adrs[j]);
+                                resolver.reportFailure(adrs[j].getArtifact());
+                            }
+                        } else if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
+                            totalSize += adrs[j].getSize();
                         }
-                    } else if (adrs[j].getDownloadStatus() == DownloadStatus.SUCCESSFUL) {
-                        totalSize += adrs[j].getSize();
                     }
-                }
-                // update concerned reports
-                String[] dconfs = dependencies[i].getRootModuleConfigurations();
-                for (int j = 0; j < dconfs.length; j++) {
-                    // the report itself is responsible to take into account only
-                    // artifacts required in its corresponding configuration
-                    // (as described by the Dependency object)
-                    if (dependencies[i].isEvicted(dconfs[j]) 
-                            || dependencies[i].isBlacklisted(dconfs[j])) {
-                        report.getConfigurationReport(dconfs[j]).addDependency(dependencies[i]);
-                    } else {
-                        report.getConfigurationReport(dconfs[j]).addDependency(dependencies[i],
-                            dReport);
+                    // update concerned reports
+                    String[] dconfs = dependencies[i].getRootModuleConfigurations();
+                    for (int j = 0; j < dconfs.length; j++) {
+                        // the report itself is responsible to take into account only
+                        // artifacts required in its corresponding configuration
+                        // (as described by the Dependency object)
+                        if (dependencies[i].isEvicted(dconfs[j]) 
+                                || dependencies[i].isBlacklisted(dconfs[j])) {
+                            report.getConfigurationReport(dconfs[j]).addDependency(dependencies[i]);
+                        } else {
+                            report.getConfigurationReport(dconfs[j]).addDependency(dependencies[i],
+                                dReport);
+                        }
                     }
                 }
             }
+        } finally {
+            if (downloader != null && pipelineDownloader == null) {
+                downloader.shutdown();
+            }
         }
         report.setDownloadTime(System.currentTimeMillis() - start);
         report.setDownloadSize(totalSize);
@@ -554,6 +683,7 @@ public class ResolveEngine {
         }
 
         IvyContext context = IvyContext.pushNewCopyContext();
+        DependencyPrefetcher prefetcher = null;
         try {
             options.setConfs(confs);
     
@@ -563,6 +693,13 @@ public class ResolveEngine {
                 data = new ResolveData(this, options);
                 context.setResolveData(data);
             }
+            if (options.getPrefetchThreads() > 0 && !options.isRefresh()
+                    && data.getPrefetcher() == null) {
+                Message.verbose("\tprefetching dependencies using "
+                        + options.getPrefetchThreads() + " threads");
+                prefetcher = new DependencyPrefetcher(this, options, options.getPrefetchThreads());
+                data.setPrefetcher(prefetcher);
+            }
             IvyNode rootNode = new IvyNode(data, md);
             
             for (int i = 0; i < confs.length; i++) {
@@ -626,6 +763,10 @@ public class ResolveEngine {
             
             return (IvyNode[]) dependencies.toArray(new IvyNode[dependencies.size()]);
         } finally {
+            if (prefetcher != null) {
+                prefetcher.shutdown();
+                context.getResolveData().setPrefetcher(null);
+            }
             IvyContext.popContext();
         }
     }
@@ -722,6 +863,10 @@ public class ResolveEngine {
                     doFetchDependencies(node, confs[i]);
                 }
             }
+            DownloadPipeline pipeline = data.getDownloadPipeline();
+            if (pipeline != null) {
+                pipeline.nodeLoaded(node);
+            }
         } else if (!node.hasProblem()) {
             // the node has not been loaded but hasn't problem: it was already loaded
             // => we just have to update its dependencies data
@@ -790,6 +935,10 @@ public class ResolveEngine {
         // now we can actually resolve this configuration dependencies
         if (!isDependenciesFetched(node.getNode(), conf) && node.isTransitive()) {
             Collection/*<VisitNode>*/ dependencies = node.getDependencies(conf);
+            DependencyPrefetcher prefetcher = node.getNode().getData().getPrefetcher();
+            if (prefetcher != null) {
+                prefetcher.prefetch(dependencies);
+            }
             for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
                 VisitNode dep = (VisitNode) iter.next();
                 dep.useRealNode(); // the node may have been resolved to another real one while
@@ -1200,6 +1349,13 @@ public class ResolveEngine {
         return sortEngine;
     }
 
+    /**
+     * Returns the cache of the parent and imported poms read by the resolves of this engine.
+     */
+    public ParentPomCache getParentPomCache() {
+        return parentPomCache;
+    }
+
     private void checkInterrupted() {
         IvyContext.getContext().getIvy().checkInterrupted();
     }
@@ -0,0 +1,363 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ivy.core.IvyContext;
+
+/**
+ * Measures where the time of a resolve is spent.
+ * <p>
+ * The metrics of a resolve are collected while it is in progress, from all the threads working
+ * for it, and are then available from {@link org.apache.ivy.core.report.ResolveReport#getMetrics()}
+ * , for instance to the listeners of the end of the resolve. They give:
+ * <ul>
+ * <li>the number of module revisions asked to each resolver, with the time spent by the
+ * resolver to answer them and the number of them which were not found,</li>
+ * <li>the number of bytes of module descriptors and artifacts downloaded by each resolver,</li>
+ * <li>the number of module descriptors and artifacts found in the repository cache, and the
+ * number of them which had to be looked up in repositories,</li>
+ * <li>the number of module descriptors parsed by each parser and the time spent parsing them,</li>
+ * <li>the number of cache locks acquired and the time spent waiting for them.</li>
+ * </ul>
+ * Times are in milliseconds. All methods of this class can be called concurrently.
+ * </p>
+ */
+public class ResolveMetrics {
+    private final Map/*<String, ResolverMetrics>*/ resolvers = new TreeMap();
+
+    private final Map/*<String, Timer>*/ parsers = new TreeMap();
+
+    private final Timer locks = new Timer();
+
+    private long metadataCacheHits;
+
+    private long metadataCacheMisses;
+
+    private long artifactCacheHits;
+
+    private long artifactCacheMisses;
+
+    /**
+     * Returns the metrics of the resolve in progress in the current context, or <code>null</code>
+     * if there is none.
+     */
+    public static ResolveMetrics getCurrent() {
+        return IvyContext.getContext().getResolveMetrics();
+    }
+
+    /**
+     * Records a module revision asked to the given resolver.
+     *
+     * @param resolver
+     *            the name of the resolver
+     * @param duration
+     *            the time taken by the resolver to answer
+     * @param found
+     *            false if the resolver didn't find the module revision or failed
+     */
+    public synchronized void addResolverRequest(String resolver, long duration, boolean found) {
+        ResolverMetrics metrics = getOrCreateResolverMetrics(resolver);
+        metrics.requests.add(duration);
+        if (!found) {
+            metrics.notFound++;
+        }
+    }
+
+    /**
+     * Records a file downloaded by the given resolver, either a module descriptor or an artifact.
+     */
+    public synchronized void addDownload(String resolver, long bytes) {
+        ResolverMetrics metrics = getOrCreateResolverMetrics(resolver);
+        metrics.downloads++;
+        metrics.downloadedBytes += bytes;
+    }
+
+    private ResolverMetrics getOrCreateResolverMetrics(String resolver) {
+        ResolverMetrics metrics = (ResolverMetrics) resolvers.get(resolver);
+        if (metrics == null) {
+            metrics = new ResolverMetrics();
+            resolvers.put(resolver, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Records a look up of a module descriptor in the repository cache.
+     */
+    public synchronized void addMetadataCacheLookup(boolean hit) {
+        if (hit) {
+            metadataCacheHits++;
+        } else {
+            metadataCacheMisses++;
+        }
+    }
+
+    /**
+     * Records a look up of an artifact in the repository cache.
+     */
+    public synchronized void addArtifactCacheLookup(boolean hit) {
+        if (hit) {
+            artifactCacheHits++;
+        } else {
+            artifactCacheMisses++;
+        }
+    }
+
+    /**
+     * Records the parsing of a module descriptor by the given parser.
+     */
+    public synchronized void addParse(String parser, long duration) {
+        Timer timer = (Timer) parsers.get(parser);
+        if (timer == null) {
+            timer = new Timer();
+            parsers.put(parser, timer);
+        }
+        timer.add(duration);
+    }
+
+    /**
+     * Records the acquisition of a lock, after waiting for it the given time.
+     */
+    public synchronized void addLockWait(long duration) {
+        locks.add(duration);
+    }
+
+    /**
+     * Returns the names of the resolvers which have been asked for module revisions or have
+     * downloaded files, in alphabetical order.
+     */
+    public synchronized String[] getResolverNames() {
+        return (String[]) resolvers.keySet().toArray(new String[resolvers.size()]);
+    }
+
+    /**
+     * Returns a copy of the metrics of the given resolver, or <code>null</code> if it hasn't been
+     * used.
+     */
+    public synchronized ResolverMetrics getResolverMetrics(String resolver) {
+        ResolverMetrics metrics = (ResolverMetrics) resolvers.get(resolver);
+        return metrics == null ? null : new ResolverMetrics(metrics);
+    }
+
+    /**
+     * Returns the names of the parsers which have parsed module descriptors, in alphabetical
+     * order.
+     */
+    public synchronized String[] getParserNames() {
+        return (String[]) parsers.keySet().toArray(new String[parsers.size()]);
+    }
+
+    /**
+     * Returns a copy of the parse times of the given parser, or <code>null</code> if it hasn't
+     * been used.
+     */
+    public synchronized Timer getParseTimes(String parser) {
+        Timer timer = (Timer) parsers.get(parser);
+        return timer == null ? null : new Timer(timer);
+    }
+
+    /**
+     * Returns a copy of the lock wait times.
+     */
+    public synchronized Timer getLockWaitTimes() {
+        return new Timer(locks);
+    }
+
+    public synchronized long getMetadataCacheHits() {
+        return metadataCacheHits;
+    }
+
+    public synchronized long getMetadataCacheMisses() {
+        return metadataCacheMisses;
+    }
+
+    public synchronized long getArtifactCacheHits() {
+        return artifactCacheHits;
+    }
+
+    public synchronized long getArtifactCacheMisses() {
+        return artifactCacheMisses;
+    }
+
+    /**
+     * Returns these metrics as a JSON object.
+     */
+    public synchronized String toJson() {
+        StringBuffer json = new StringBuffer();
+        json.append("{\n  \"resolvers\": {");
+        for (Iterator iter = resolvers.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            ResolverMetrics metrics = (ResolverMetrics) entry.getValue();
+            json.append("\n    ").append(toJsonString((String) entry.getKey())).append(": {");
+            appendTimer(json, "requests", metrics.requests);
+            json.append(", \"notFound\": ").append(metrics.notFound);
+            json.append(", \"downloads\": ").append(metrics.downloads);
+            json.append(", \"downloadedBytes\": ").append(metrics.downloadedBytes);
+            json.append("}").append(iter.hasNext() ? "," : "\n  ");
+        }
+        json.append("},\n  \"cache\": {");
+        appendLookups(json, "metadata", metadataCacheHits, metadataCacheMisses);
+        json.append(",");
+        appendLookups(json, "artifacts", artifactCacheHits, artifactCacheMisses);
+        json.append("\n  },\n  \"parsers\": {");
+        for (Iterator iter = parsers.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            json.append("\n    ").append(toJsonString((String) entry.getKey())).append(": {");
+            appendTimer(json, "parses", (Timer) entry.getValue());
+            json.append("}").append(iter.hasNext() ? "," : "\n  ");
+        }
+        json.append("},\n  \"locks\": {");
+        appendTimer(json, "acquisitions", locks);
+        json.append("}\n}");
+        return json.toString();
+    }
+
+    private static void appendTimer(StringBuffer json, String name, Timer timer) {
+        json.append("\"").append(name).append("\": ").append(timer.getCount());
+        json.append(", \"totalTime\": ").append(timer.getTotalTime());
+        json.append(", \"maxTime\": ").append(timer.getMaxTime());
+    }
+
+    private static void appendLookups(StringBuffer json, String name, long hits, long misses) {
+        json.append("\n    \"").append(name).append("\": {\"hits\": ").append(hits);
+        json.append(", \"misses\": ").append(misses);
+        json.append(", \"hitRatio\": ").append(getRatio(hits, misses)).append("}");
+    }
+
+    /**
+     * Returns the ratio of hits among the given look ups, 0 if there was none.
+     */
+    public static double getRatio(long hits, long misses) {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Returns the given text as a JSON string, quoted and escaped.
+     */
+    public static String toJsonString(String s) {
+        StringBuffer quoted = new StringBuffer(s.length() + 2);
+        quoted.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                String hex = Integer.toHexString(c);
+                quoted.append("\\u0000".substring(0, 6 - hex.length())).append(hex);
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    public String toString() {
+        return toJson();
+    }
+
+    /**
+     * A number of timed operations.
+     */
+    public static final class Timer {
+        private long count;
+
+        private long totalTime;
+
+        private long maxTime;
+
+        private Timer() {
+        }
+
+        private Timer(Timer timer) {
+            count = timer.count;
+            totalTime = timer.totalTime;
+            maxTime = timer.maxTime;
+        }
+
+        private void add(long duration) {
+            count++;
+            totalTime += duration;
+            maxTime = Math.max(maxTime, duration);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalTime() {
+            return totalTime;
+        }
+
+        public long getMaxTime() {
+            return maxTime;
+        }
+    }
+
+    /**
+     * The requests answered and the files downloaded by a resolver.
+     */
+    public static final class ResolverMetrics {
+        private final Timer requests;
+
+        private long notFound;
+
+        private long downloads;
+
+        private long downloadedBytes;
+
+        private ResolverMetrics() {
+            requests = new Timer();
+        }
+
+        private ResolverMetrics(ResolverMetrics metrics) {
+            requests = new Timer(metrics.requests);
+            notFound = metrics.notFound;
+            downloads = metrics.downloads;
+            downloadedBytes = metrics.downloadedBytes;
+        }
+
+        /**
+         * Returns the module revisions asked to the resolver, with the time spent answering.
+         */
+        public Timer getRequests() {
+            return requests;
+        }
+
+        /**
+         * Returns the number of module revisions the resolver didn't find.
+         */
+        public long getNotFound() {
+            return notFound;
+        }
+
+        /**
+         * Returns the number of files downloaded by the resolver.
+         */
+        public long getDownloads() {
+            return downloads;
+        }
+
+        public long getDownloadedBytes() {
+            return downloadedBytes;
+        }
+    }
+}
@@ -118,6 +118,35 @@ public class ResolveOptions extends LogOptions {
      **/  
     private boolean checkIfChanged = false;
 
+    /**
+     * The number of threads used to look up dependency descriptors ahead of the resolve walk, 0 to
+     * look them up only when the walk reaches them.
+     */
+    private int prefetchThreads = 0;
+
+    /**
+     * The maximum number of artifacts downloaded at the same time, 1 to download them one after
+     * the other.
+     */
+    private int downloadThreads = 1;
+
+    /**
+     * True to start downloading the artifacts of dependencies during the resolve, as soon as they
+     * are unlikely to be evicted.
+     */
+    private boolean pipelineDownloads = false;
+
+    /**
+     * The maximum number of configuration reports written at the same time, 1 to write them one
+     * after the other.
+     */
+    private int reportThreads = 1;
+
+    /**
+     * True to record the timeline of the resolve and write it in the resolution cache.
+     */
+    private boolean trace = false;
+
     public ResolveOptions() {
     }
 
@@ -136,6 +165,11 @@ public class ResolveOptions extends LogOptions {
         artifactFilter = options.artifactFilter;
         resolveId = options.resolveId;
         checkIfChanged = options.checkIfChanged;
+        prefetchThreads = options.prefetchThreads;
+        downloadThreads = options.downloadThreads;
+        pipelineDownloads = options.pipelineDownloads;
+        reportThreads = options.reportThreads;
+        trace = options.trace;
     }
 
     public Filter getArtifactFilter() {
@@ -296,6 +330,103 @@ public class ResolveOptions extends LogOptions {
         return checkIfChanged;
     }
 
+    /**
+     * Returns the number of threads used to look up the descriptors of sibling dependencies
+     * concurrently, ahead of the resolve walk.
+     * <p>
+     * The lookups only warm the repository cache: the dependency graph is still walked and
+     * conflicts are still solved in the resolving thread, so the resolve report is the same as
+     * with a serial resolve. Prefetching is not used in refresh mode.
+     * </p>
+     * 
+     * @return the number of prefetch threads, 0 if prefetching is disabled
+     */
+    public int getPrefetchThreads() {
+        return prefetchThreads;
+    }
+
+    public ResolveOptions setPrefetchThreads(int prefetchThreads) {
+        this.prefetchThreads = prefetchThreads;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of artifacts downloaded at the same time once dependencies are
+     * resolved.
+     * 
+     * @return the number of download threads, 1 or less to download artifacts serially
+     * @see DownloadOptions#getDownloadThreads()
+     */
+    public int getDownloadThreads() {
+        return downloadThreads;
+    }
+
+    public ResolveOptions setDownloadThreads(int downloadThreads) {
+        this.downloadThreads = downloadThreads;
+        return this;
+    }
+
+    /**
+     * Indicates if the downloads of artifacts are pipelined with the resolve of dependencies.
+     * <p>
+     * When true, the artifacts of a dependency are scheduled for download on the download threads
+     * as soon as its dependencies have been resolved, if its revision is not dynamic and no other
+     * revision of the same module has been found so far. The downloads thus overlap with the
+     * lookup of the remaining module descriptors. Downloads of dependencies which finally get
+     * evicted are cancelled if they have not started yet, or left in the cache otherwise. Download
+     * reports are the same as without pipelining, but the download events of pipelined artifacts
+     * are fired during the resolve, and the download time only covers the downloads which were
+     * still running once the dependencies were resolved.
+     * </p>
+     * 
+     * @return true if the downloads are pipelined with the resolve
+     * @see #getDownloadThreads()
+     */
+    public boolean isPipelineDownloads() {
+        return pipelineDownloads;
+    }
+
+    public ResolveOptions setPipelineDownloads(boolean pipelineDownloads) {
+        this.pipelineDownloads = pipelineDownloads;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of configuration reports written at the same time by the report
+     * outputters supporting it, once the dependencies are resolved. The reports are the same as
+     * when they are written one after the other.
+     * 
+     * @return the number of report threads, 1 or less to write reports serially
+     */
+    public int getReportThreads() {
+        return reportThreads;
+    }
+
+    public ResolveOptions setReportThreads(int reportThreads) {
+        this.reportThreads = reportThreads;
+        return this;
+    }
+
+    /**
+     * Indicates if the timeline of the resolve is recorded, as spans of the time spent loading
+     * the data of each node, asking resolvers for module revisions, downloading, parsing and
+     * waiting for cache locks, in each thread working for the resolve. The trace is then available
+     * from the report of the resolve, and written in the resolution cache in the trace event
+     * format of chrome. A resolve is also traced when the <code>ivy.resolve.trace</code> variable
+     * of the settings is true.
+     * 
+     * @return true if the resolve is traced
+     * @see org.apache.ivy.core.report.ResolveReport#getTrace()
+     */
+    public boolean isTrace() {
+        return trace;
+    }
+
+    public ResolveOptions setTrace(boolean trace) {
+        this.trace = trace;
+        return this;
+    }
+
 
     public static String getDefaultResolveId(ModuleDescriptor md) {
         ModuleId module = md.getModuleRevisionId().getModuleId();
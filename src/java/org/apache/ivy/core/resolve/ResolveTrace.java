@@ -0,0 +1,245 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.resolve;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.IvyContext;
+
+/**
+ * Records the timeline of a resolve, as spans of time spent by each thread working for it.
+ * <p>
+ * A span is recorded for each phase of the resolve, each load of the data of a node, each
+ * module revision asked to a resolver or probed in a chain, each download, each parse of a
+ * module descriptor and each wait for a cache lock. The spans can be written in the <a
+ * href="https://github.com/catapult-project/catapult/wiki/Trace-Event-Format">trace event
+ * format</a> of the chrome browser, to be displayed by chrome://tracing, which shows the critical
+ * path of the resolve and how much work is done concurrently.
+ * </p>
+ * <p>
+ * Spans are started with {@link #begin(String, String, Object)} and recorded when they are ended
+ * with {@link #end(Span)}, both doing nothing when no trace is recorded in the current context.
+ * All methods of this class can be called concurrently.
+ * </p>
+ */
+public class ResolveTrace {
+    /**
+     * Category of the spans of the phases of a resolve.
+     */
+    public static final String PHASE = "phase";
+
+    /**
+     * Category of the spans of the loads of the data of nodes.
+     */
+    public static final String NODE = "node";
+
+    /**
+     * Category of the spans of the module revisions asked to resolvers.
+     */
+    public static final String RESOLVER = "resolver";
+
+    /**
+     * Category of the spans of the probes of the resolvers of a chain.
+     */
+    public static final String CHAIN = "chain";
+
+    /**
+     * Category of the spans of the downloads of module descriptors and artifacts.
+     */
+    public static final String DOWNLOAD = "download";
+
+    /**
+     * Category of the spans of the parses of module descriptors.
+     */
+    public static final String PARSE = "parse";
+
+    /**
+     * Category of the spans of the waits for cache locks.
+     */
+    public static final String LOCK = "lock";
+
+    private final long origin = System.nanoTime();
+
+    private final List/*<Span>*/ spans = new ArrayList();
+
+    /**
+     * Returns the trace of the resolve in progress in the current context, or <code>null</code>
+     * if the resolve isn't traced.
+     */
+    public static ResolveTrace getCurrent() {
+        return IvyContext.getContext().getResolveTrace();
+    }
+
+    /**
+     * Starts a span in the current thread, if the current context records a trace.
+     *
+     * @param category
+     *            the category of the span, one of the constants of this class
+     * @param name
+     *            the name of the span, for instance the name of the resolver
+     * @param detail
+     *            what the span works on, for instance a module revision id, may be
+     *            <code>null</code>
+     * @return the started span, to be given to {@link #end(Span)}, or <code>null</code> if the
+     *         current context records no trace
+     */
+    public static Span begin(String category, String name, Object detail) {
+        ResolveTrace trace = getCurrent();
+        return trace == null ? null : new Span(trace, category, name, detail);
+    }
+
+    /**
+     * Ends the given span and records it in its trace. Does nothing if the span is
+     * <code>null</code>.
+     */
+    public static void end(Span span) {
+        if (span != null) {
+            span.duration = System.nanoTime() - span.start;
+            span.trace.add(span);
+        }
+    }
+
+    private synchronized void add(Span span) {
+        spans.add(span);
+    }
+
+    /**
+     * Returns the spans recorded so far, in the order in which they were ended.
+     */
+    public synchronized Span[] getSpans() {
+        return (Span[]) spans.toArray(new Span[spans.size()]);
+    }
+
+    /**
+     * Returns the spans of the given category recorded so far.
+     */
+    public synchronized Span[] getSpans(String category) {
+        List found = new ArrayList();
+        for (Iterator iter = spans.iterator(); iter.hasNext();) {
+            Span span = (Span) iter.next();
+            if (span.category.equals(category)) {
+                found.add(span);
+            }
+        }
+        return (Span[]) found.toArray(new Span[found.size()]);
+    }
+
+    /**
+     * Writes the spans recorded so far as a trace event JSON object, with one complete event per
+     * span and the names of the threads which have recorded them.
+     */
+    public void writeChromeTrace(Writer out) throws IOException {
+        Span[] spans = getSpans();
+        Map/*<Long, String>*/ threads = new LinkedHashMap();
+        out.write("{\"traceEvents\": [");
+        for (int i = 0; i < spans.length; i++) {
+            Span span = spans[i];
+            threads.put(new Long(span.threadId), span.threadName);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("{\"name\": " + ResolveMetrics.toJsonString(span.name));
+            out.write(", \"cat\": " + ResolveMetrics.toJsonString(span.category));
+            out.write(", \"ph\": \"X\", \"ts\": " + toMicros(span.start - origin));
+            out.write(", \"dur\": " + toMicros(span.duration));
+            out.write(", \"pid\": 1, \"tid\": " + span.threadId);
+            if (span.detail != null) {
+                out.write(", \"args\": {\"detail\": "
+                        + ResolveMetrics.toJsonString(span.detail) + "}");
+            }
+            out.write("}");
+        }
+        for (Iterator iter = threads.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            out.write(",\n{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": "
+                    + entry.getKey() + ", \"args\": {\"name\": "
+                    + ResolveMetrics.toJsonString((String) entry.getValue()) + "}}");
+        }
+        out.write("\n],\n\"displayTimeUnit\": \"ms\"}\n");
+    }
+
+    private static String toMicros(long nanos) {
+        return String.valueOf(nanos / 1000);
+    }
+
+    /**
+     * A span of time spent by a thread on a part of a resolve.
+     */
+    public static final class Span {
+        private final ResolveTrace trace;
+
+        private final String category;
+
+        private final String name;
+
+        private final String detail;
+
+        private final long threadId;
+
+        private final String threadName;
+
+        private final long start;
+
+        private long duration;
+
+        private Span(ResolveTrace trace, String category, String name, Object detail) {
+            this.trace = trace;
+            this.category = category;
+            this.name = name;
+            this.detail = detail == null ? null : detail.toString();
+            Thread thread = Thread.currentThread();
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.start = System.nanoTime();
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        /**
+         * Returns the time at which the span started, in nanoseconds since the start of the trace.
+         */
+        public long getStart() {
+            return start - trace.origin;
+        }
+
+        /**
+         * Returns the duration of the span, in nanoseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+}
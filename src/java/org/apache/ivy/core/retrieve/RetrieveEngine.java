@@ -19,6 +19,8 @@ package org.apache.ivy.core.retrieve;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,9 +30,16 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
@@ -49,15 +58,35 @@ import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.plugins.report.XmlReportParser;
 import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.HexEncoder;
 import org.apache.ivy.util.Message;
 
 public class RetrieveEngine {
     private static final int KILO = 1024;
 
+    private static final int PARSED_REPORTS_SIZE = 20;
+
+    private static final String MODE_COPY = "copy";
+
+    private static final String MODE_SYMLINK = "symlink";
+
+    private static final String MODE_HARDLINK = "hardlink";
+
     private RetrieveEngineSettings settings;
 
     private EventManager eventManager;
 
+    /**
+     * The reports parsed by previous retrieves, keyed by their path, so that a retrieve done
+     * again after the same resolve doesn't parse them again. Each one is kept with the stamp of
+     * the report, including a digest of its content, recorded in the retrieve manifests too.
+     */
+    private final Map/*<String,ParsedReport>*/ parsedReports = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > PARSED_REPORTS_SIZE;
+        }
+    };
+
     public RetrieveEngine(RetrieveEngineSettings settings, EventManager eventManager) {
         this.settings = settings;
         this.eventManager = eventManager;
@@ -118,8 +147,13 @@ public class RetrieveEngine {
             // for sync)
             Collection targetIvysStructure = new HashSet(); // same for ivy files
 
+            RetrieveManifest manifest = getManifest(options, fileRetrieveRoot,
+                destFilePattern, destIvyPattern);
+            String mode = options.isMakeSymlinks() ? MODE_SYMLINK 
+                    : options.isMakeHardlinks() ? MODE_HARDLINK : MODE_COPY;
+
             // do retrieve
-            long totalCopiedSize = 0;
+            List/*<RetrieveTask>*/ tasks = new ArrayList();
             for (Iterator iter = artifactsToCopy.keySet().iterator(); iter.hasNext();) {
                 ArtifactDownloadReport artifact = (ArtifactDownloadReport) iter.next();
                 File archive = artifact.getLocalFile();
@@ -132,26 +166,18 @@ public class RetrieveEngine {
                 for (Iterator it2 = dest.iterator(); it2.hasNext();) {
                     IvyContext.getContext().checkInterrupted();
                     File destFile = settings.resolveFile((String) it2.next());
-                    if (!settings.isCheckUpToDate() || !upToDate(archive, destFile, options)) {
-                        Message.verbose("\t\tto " + destFile);
-                        if (this.eventManager != null) {
-                            this.eventManager.fireIvyEvent(
-                                new StartRetrieveArtifactEvent(artifact, destFile));
-                        }
-                        if (options.isMakeSymlinks()) {
-                            FileUtil.symlink(archive, destFile, null, true);
-                        } else {
-                            FileUtil.copy(archive, destFile, null, true);
-                        }
-                        if (this.eventManager != null) {
-                            this.eventManager.fireIvyEvent(
-                                new EndRetrieveArtifactEvent(artifact, destFile));
-                        }
-                        totalCopiedSize += destFile.length();
-                        report.addCopiedFile(destFile, artifact);
+                    if (manifest != null && manifest.isUpToDate(archive, destFile, mode)) {
+                        Message.verbose("\t\tto " + destFile + " [NOT REQUIRED]");
+                        report.addUpToDateFile(destFile, artifact);
+                    } else if (!settings.isCheckUpToDate()
+                            || !upToDate(archive, destFile, options)) {
+                        tasks.add(new RetrieveTask(artifact, destFile, mode));
                     } else {
                         Message.verbose("\t\tto " + destFile + " [NOT REQUIRED]");
                         report.addUpToDateFile(destFile, artifact);
+                        if (manifest != null) {
+                            manifest.addFile(archive, destFile, mode);
+                        }
                     }
 
                     if ("ivy".equals(artifact.getType())) {
@@ -164,6 +190,17 @@ public class RetrieveEngine {
                 }
             }
 
+            runTasks(tasks, options.getRetrieveThreads());
+            long totalCopiedSize = 0;
+            for (Iterator iter = tasks.iterator(); iter.hasNext();) {
+                RetrieveTask task = (RetrieveTask) iter.next();
+                totalCopiedSize += task.destFile.length();
+                report.addCopiedFile(task.destFile, task.artifact);
+                if (manifest != null) {
+                    manifest.addFile(task.artifact.getLocalFile(), task.destFile, mode);
+                }
+            }
+
             if (options.isSync()) {
                 Message.verbose("\tsyncing...");
                 
@@ -187,6 +224,9 @@ public class RetrieveEngine {
                     }
                 }
             }
+            if (manifest != null) {
+                manifest.save();
+            }
             long elapsedTime = System.currentTimeMillis() - start;
             String msg = "\t"
                 + report.getNbrArtifactsCopied()
@@ -278,13 +318,12 @@ public class RetrieveEngine {
         // String copyDestAbsolutePath -> Set (String conf)
         final Map conflictsConfMap = new HashMap(); 
         
-        XmlReportParser parser = new XmlReportParser();
         for (int i = 0; i < confs.length; i++) {
             final String conf = confs[i];
 
             File report = cacheManager.getConfigurationResolveReportInCache(options.getResolveId(),
                 conf);
-            parser.parse(report);
+            XmlReportParser parser = getParsedReport(report);
 
             Collection artifacts = new ArrayList(Arrays.asList(parser.getArtifactReports()));
             if (destIvyPattern != null) {
@@ -395,6 +434,122 @@ public class RetrieveEngine {
         return artifactsToCopy;
     }
 
+    private XmlReportParser getParsedReport(File report) throws ParseException {
+        String key = report.getAbsolutePath();
+        String stamp = RetrieveManifest.getReportStamp(report);
+        synchronized (parsedReports) {
+            ParsedReport parsed = (ParsedReport) parsedReports.get(key);
+            if (parsed != null && parsed.stamp.equals(stamp)) {
+                return parsed.parser;
+            }
+        }
+        XmlReportParser parser = new XmlReportParser();
+        parser.parse(report);
+        synchronized (parsedReports) {
+            parsedReports.put(key, new ParsedReport(stamp, parser));
+        }
+        return parser;
+    }
+
+    /**
+     * Returns the manifest of the previous retrieve with the same resolve id and destination, or <code>null</code> if the files must be checked or copied whatever the
+     * previous retrieve did.
+     */
+    private RetrieveManifest getManifest(RetrieveOptions options, File fileRetrieveRoot,
+            String destFilePattern, String destIvyPattern) {
+        String overwriteMode = options.getOverwriteMode();
+        if (!settings.isCheckUpToDate()
+                || (!RetrieveOptions.OVERWRITEMODE_NEWER.equals(overwriteMode) 
+                        && !RetrieveOptions.OVERWRITEMODE_DIFFERENT.equals(overwriteMode))) {
+            return null;
+        }
+        String destination = fileRetrieveRoot.getAbsolutePath() + "|" + destFilePattern + "|"
+                + destIvyPattern;
+        String hash;
+        try {
+            hash = HexEncoder.encode(MessageDigest.getInstance("SHA1").digest(
+                destination.getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("The SHA1 algorithm is not available in your classpath", e);
+        } catch (IOException e) {
+            throw new RuntimeException("UTF-8 not supported", e);
+        }
+        RetrieveManifest manifest = new RetrieveManifest(new File(
+            getCache().getResolutionCacheRoot(), "retrieve-" + options.getResolveId() + "-"
+                    + hash + ".properties"));
+        String[] confs = options.getConfs();
+        for (int i = 0; i < confs.length; i++) {
+            File report = getCache().getConfigurationResolveReportInCache(
+                options.getResolveId(), confs[i]);
+            manifest.addReport(report, RetrieveManifest.getReportStamp(report));
+        }
+        return manifest;
+    }
+
+    /**
+     * Copies (or links) the files of the given tasks, using the given number of threads.
+     */
+    private void runTasks(List tasks, int threads) throws IOException {
+        if (threads <= 1 || tasks.size() <= 1) {
+            for (Iterator iter = tasks.iterator(); iter.hasNext();) {
+                IvyContext.getContext().checkInterrupted();
+                ((RetrieveTask) iter.next()).call();
+            }
+            return;
+        }
+        Message.verbose("\tretrieving " + tasks.size() + " files using " + threads + " threads");
+        final IvyContext context = new IvyContext(IvyContext.getContext());
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()),
+            new ThreadFactory() {
+                private int count = 0;
+
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ivy-retrieve-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        try {
+            List futures = new ArrayList(tasks.size());
+            for (Iterator iter = tasks.iterator(); iter.hasNext();) {
+                final RetrieveTask task = (RetrieveTask) iter.next();
+                futures.add(executor.submit(new Callable() {
+                    public Object call() throws IOException {
+                        IvyContext.pushContext(new IvyContext(context));
+                        try {
+                            IvyContext.getContext().checkInterrupted();
+                            task.call();
+                            return null;
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    }
+                }));
+            }
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                try {
+                    ((Future) iter.next()).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // reset interrupt status
+                    throw new RuntimeException("operation interrupted");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new RuntimeException(String.valueOf(e.getCause()), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private boolean upToDate(File source, File target, RetrieveOptions options) {
         if (!target.exists()) {
             return false;
@@ -446,4 +601,50 @@ public class RetrieveEngine {
         };
     }
 
+
+    /**
+     * The retrieve of an artifact to one of its destination files.
+     */
+    private final class RetrieveTask {
+        private final ArtifactDownloadReport artifact;
+
+        private final File destFile;
+
+        private final String mode;
+
+        private RetrieveTask(ArtifactDownloadReport artifact, File destFile, String mode) {
+            this.artifact = artifact;
+            this.destFile = destFile;
+            this.mode = mode;
+        }
+
+        public void call() throws IOException {
+            File archive = artifact.getLocalFile();
+            Message.verbose("\t\tto " + destFile);
+            if (eventManager != null) {
+                eventManager.fireIvyEvent(new StartRetrieveArtifactEvent(artifact, destFile));
+            }
+            if (MODE_SYMLINK.equals(mode)) {
+                FileUtil.symlink(archive, destFile, null, true);
+            } else if (MODE_HARDLINK.equals(mode)) {
+                FileUtil.hardlink(archive, destFile, null, true);
+            } else {
+                FileUtil.copy(archive, destFile, null, true);
+            }
+            if (eventManager != null) {
+                eventManager.fireIvyEvent(new EndRetrieveArtifactEvent(artifact, destFile));
+            }
+        }
+    }
+
+    private static final class ParsedReport {
+        private final String stamp;
+
+        private final XmlReportParser parser;
+
+        private ParsedReport(String stamp, XmlReportParser parser) {
+            this.stamp = stamp;
+            this.parser = parser;
+        }
+    }
 }
@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.retrieve;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.PropertiesFile;
+
+/**
+ * Records what a retrieve placed in its destination, so that the next retrieve with the same
+ * destination patterns can skip the files which are still as they were left.
+ * <p>
+ * For each retrieved file, the manifest records the way it was retrieved (copy, symbolic link or
+ * hard link), the file of the cache it was retrieved from, and the last modification time and
+ * size of both files. It also records the stamp of the resolve reports the retrieve was based on,
+ * made of their last modification time, size and content digest: the same stamp identifies the
+ * reports already parsed by the retrieve engine.
+ * </p>
+ */
+final class RetrieveManifest {
+    private static final String REPORT_PREFIX = "report.";
+
+    private static final String FILE_PREFIX = "file.";
+
+    private final PropertiesFile properties;
+
+    private final Properties previous = new Properties();
+
+    RetrieveManifest(File file) {
+        properties = new PropertiesFile(file, "ivy retrieve manifest");
+        previous.putAll(properties);
+        properties.clear();
+    }
+
+    /**
+     * Records the stamp of a resolve report used by this retrieve.
+     */
+    void addReport(File report, String stamp) {
+        properties.setProperty(REPORT_PREFIX + report.getAbsolutePath(), stamp);
+    }
+
+    /**
+     * Returns <code>true</code> if the given file is still as the previous retrieve left it, after
+     * retrieving it from the given source with the given mode. In this case the file is recorded
+     * again in this manifest.
+     */
+    boolean isUpToDate(File source, File dest, String mode) {
+        String key = FILE_PREFIX + dest.getAbsolutePath();
+        String entry = previous.getProperty(key);
+        if (entry == null) {
+            return false;
+        }
+        String expected = mode + "|" + source.getAbsolutePath() + "|";
+        if (!entry.startsWith(expected)) {
+            return false;
+        }
+        int sep = entry.indexOf('|', expected.length());
+        if (sep == -1) {
+            return false;
+        }
+        if (!entry.substring(expected.length(), sep).equals(getStamp(source))) {
+            return false;
+        }
+        if (!entry.substring(sep + 1).equals(getStamp(dest))) {
+            return false;
+        }
+        properties.setProperty(key, entry);
+        return true;
+    }
+
+    /**
+     * Records the given file, just retrieved from the given source with the given mode.
+     */
+    void addFile(File source, File dest, String mode) {
+        properties.setProperty(FILE_PREFIX + dest.getAbsolutePath(), mode + "|"
+                + source.getAbsolutePath() + "|" + getStamp(source) + "|" + getStamp(dest));
+    }
+
+    /**
+     * Saves this manifest, unless it is the same as the previous one.
+     */
+    void save() {
+        if (!properties.equals(previous)) {
+            properties.save();
+        }
+    }
+
+    /**
+     * Returns the stamp of the given resolve report, which changes whenever its content changes,
+     * even when it is written again within the resolution of its last modification time.
+     */
+    static String getReportStamp(File report) {
+        String stamp = getStamp(report);
+        if (!report.exists()) {
+            return stamp;
+        }
+        try {
+            return stamp + ":" + ChecksumHelper.computeAsString(report, "sha1");
+        } catch (IOException e) {
+            return stamp;
+        }
+    }
+
+    private static String getStamp(File file) {
+        return file.lastModified() + ":" + file.length();
+    }
+}
@@ -74,6 +74,17 @@ public class RetrieveOptions extends LogOptions {
      */
     private boolean makeSymlinks = false;
 
+    /**
+     * True if hard links should be created instead of plain copy. Falls back to plain copy when
+     * hard links are not supported, for instance across file systems.
+     */
+    private boolean makeHardlinks = false;
+
+    /**
+     * The maximum number of artifacts copied (or linked) at the same time.
+     */
+    private int retrieveThreads = 1;
+
     /**
      * The id used to store the resolve information.
      */
@@ -94,6 +105,8 @@ public class RetrieveOptions extends LogOptions {
         this.overwriteMode = options.overwriteMode;
         this.useOrigin = options.useOrigin;
         this.makeSymlinks = options.makeSymlinks;
+        this.makeHardlinks = options.makeHardlinks;
+        this.retrieveThreads = options.retrieveThreads;
         this.resolveId = options.resolveId;
         this.mapper = options.mapper;
     }
@@ -152,6 +165,28 @@ public class RetrieveOptions extends LogOptions {
         return this;
     }
 
+    public boolean isMakeHardlinks() {
+        return makeHardlinks;
+    }
+
+    public RetrieveOptions setMakeHardlinks(boolean makeHardlinks) {
+        this.makeHardlinks = makeHardlinks;
+        return this;
+    }
+
+    /**
+     * Returns the maximum number of artifacts copied (or linked) at the same time. Artifacts are
+     * copied one after the other when this is 1, which is the default.
+     */
+    public int getRetrieveThreads() {
+        return retrieveThreads;
+    }
+
+    public RetrieveOptions setRetrieveThreads(int retrieveThreads) {
+        this.retrieveThreads = retrieveThreads;
+        return this;
+    }
+
     public boolean isSync() {
         return sync;
     }
@@ -87,7 +87,9 @@ import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParserRegistry;
 import org.apache.ivy.plugins.parser.ParserSettings;
 import org.apache.ivy.plugins.report.LogReportOutputter;
+import org.apache.ivy.plugins.report.MetricsReportOutputter;
 import org.apache.ivy.plugins.report.ReportOutputter;
+import org.apache.ivy.plugins.report.TraceReportOutputter;
 import org.apache.ivy.plugins.report.XmlReportOutputter;
 import org.apache.ivy.plugins.resolver.ChainResolver;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
@@ -285,6 +287,8 @@ public class IvySettings implements SortEngineSettings, PublishEngineSettings, P
 
         addReportOutputter(new LogReportOutputter());
         addReportOutputter(new XmlReportOutputter());
+        addReportOutputter(new MetricsReportOutputter());
+        addReportOutputter(new TraceReportOutputter());
 
         configureDefaultCircularDependencyStrategies();
 
@@ -307,6 +307,10 @@ public class XmlSettingsParser extends DefaultHandler {
         if (resolutionDir != null) {
             ivy.setDefaultResolutionCacheBasedir(resolutionDir);
         }
+        String resolutionMemorySize = (String) attributes.get("resolutionMemorySize");
+        if (resolutionMemorySize != null) {
+            ivy.setVariable("ivy.cache.resolution.memorysize", resolutionMemorySize, true);
+        }
         String useOrigin = (String) attributes.get("useOrigin");
         if (useOrigin != null) {
             ivy.setDefaultUseOrigin(Boolean.valueOf(useOrigin).booleanValue());
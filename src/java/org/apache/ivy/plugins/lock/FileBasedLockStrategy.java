@@ -25,6 +25,8 @@ import java.nio.channels.FileLock;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.util.Message;
 
 public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
@@ -43,7 +45,15 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
     
     private long timeout = DEFAULT_TIMEOUT;
     
+    /**
+     * Lock counters by locked file, to allow reentrant locking by the thread which holds the lock.
+     */
     private Map/*<File, Integer>*/ currentLockCounters = new HashMap();
+
+    /**
+     * Threads holding the locks currently acquired, by locked file.
+     */
+    private Map/*<File, Thread>*/ currentLockHolders = new HashMap();
     
     protected FileBasedLockStrategy() {
         this(new CreateFileLocker(false), false);
@@ -63,36 +73,51 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
         if (isDebugLocking()) {
             debugLocking("acquiring lock on " + file);
         }
+        ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.LOCK, "acquireLock", file);
         long start = System.currentTimeMillis();
         do {
             synchronized (this) {
                 if (hasLock(file)) {
-                    int holdLocks = incrementLock(file);
-                    if (isDebugLocking()) {
-                        debugLocking("reentrant lock acquired on " + file 
-                            + " in " + (System.currentTimeMillis() - start) + "ms"
-                            + " - hold locks = " + holdLocks);
+                    if (currentLockHolders.get(file) == Thread.currentThread()) {
+                        int holdLocks = incrementLock(file);
+                        if (isDebugLocking()) {
+                            debugLocking("reentrant lock acquired on " + file 
+                                + " in " + (System.currentTimeMillis() - start) + "ms"
+                                + " - hold locks = " + holdLocks);
+                        }
+                        lockAcquired(start, span);
+                        return true;
                     }
-                    return true;
-                }
-                if (locker.tryLock(file)) {
+                    // held by another thread of this JVM: wait for it to be released
+                } else if (locker.tryLock(file)) {
                     if (isDebugLocking()) {
                         debugLocking("lock acquired on " + file 
                             + " in " + (System.currentTimeMillis() - start) + "ms");
                     }
                     incrementLock(file);
+                    lockAcquired(start, span);
                     return true;
                 }
             }
             Thread.sleep(SLEEP_TIME);
         } while (System.currentTimeMillis() - start < timeout);
+        ResolveTrace.end(span);
         return false;
     }
 
+    private static void lockAcquired(long start, ResolveTrace.Span span) {
+        ResolveMetrics metrics = ResolveMetrics.getCurrent();
+        if (metrics != null) {
+            metrics.addLockWait(System.currentTimeMillis() - start);
+        }
+        ResolveTrace.end(span);
+    }
+
     protected void releaseLock(File file) {
         synchronized (this) {
             int holdLocks = decrementLock(file);
             if (holdLocks == 0) {
+                currentLockHolders.remove(file);
                 locker.unlock(file);
                 if (isDebugLocking()) {
                     debugLocking("lock released on " + file);
@@ -120,6 +145,7 @@ public abstract class FileBasedLockStrategy extends AbstractLockStrategy {
         Integer c = (Integer) currentLockCounters.get(file);
         int holdLocks = c == null ? 1 : c.intValue() + 1;
         currentLockCounters.put(file, new Integer(holdLocks));
+        currentLockHolders.put(file, Thread.currentThread());
         return holdLocks;
     }
 
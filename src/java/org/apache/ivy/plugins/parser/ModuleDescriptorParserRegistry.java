@@ -27,6 +27,8 @@ import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.osgi.core.OSGiManifestParser;
 import org.apache.ivy.plugins.parser.m2.PomModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
@@ -85,7 +87,21 @@ public final class ModuleDescriptorParserRegistry extends AbstractModuleDescript
             Message.warn("no module descriptor parser found for " + res);
             return null;
         }
-        return parser.parseDescriptor(settings, descriptorURL, res, validate);
+        ResolveMetrics metrics = ResolveMetrics.getCurrent();
+        if (metrics == null) {
+            return parser.parseDescriptor(settings, descriptorURL, res, validate);
+        }
+        ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.PARSE, parser.toString(),
+            descriptorURL);
+        long start = System.currentTimeMillis();
+        ModuleDescriptor md;
+        try {
+            md = parser.parseDescriptor(settings, descriptorURL, res, validate);
+        } finally {
+            ResolveTrace.end(span);
+        }
+        metrics.addParse(parser.toString(), System.currentTimeMillis() - start);
+        return md;
     }
 
     public boolean accept(Resource res) {
@@ -0,0 +1,243 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.parser.m2;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.plugins.resolver.AbstractResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+
+/**
+ * Keeps the parent poms and the imported poms (BOMs) used by the parsed poms, so that a pom used
+ * by many modules is resolved and read only once.
+ * <p>
+ * Each entry holds the resolved pom with the properties, dependency management and plugins read
+ * from it. The entries are kept by resolver, and are shared by all the resolves done with this
+ * resolver, except the entries of changing revisions (SNAPSHOT, dynamic, or matched by the
+ * changing pattern of the resolver), which are only used during the resolve in which they have
+ * been read.
+ * </p>
+ * <p>
+ * One cache is kept by {@link org.apache.ivy.core.resolve.ResolveEngine}, so that its entries
+ * don't outlive the settings and resolvers they have been read with.
+ * </p>
+ * <p>
+ * This cache has a limited size, keeps the most recently used entries, and can be used
+ * concurrently.
+ * </p>
+ */
+public final class ParentPomCache {
+    /**
+     * The default maximum number of poms in the cache.
+     */
+    public static final int DEFAULT_SIZE = 500;
+
+    private int maxSize;
+
+    private final LinkedHashMap/*<Key, ParentPom>*/ entries = new LinkedHashMap(16, 0.75f, true);
+
+    private long hits;
+
+    private long misses;
+
+    public ParentPomCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the pom of the given module revision used by the resolve in progress, or
+     * <code>null</code> if it's not in the cache.
+     */
+    public synchronized ParentPom get(DependencyResolver resolver, ModuleRevisionId mrid,
+            ResolveData data) {
+        ParentPom pom = (ParentPom) entries.get(new Key(resolver, mrid));
+        if (pom != null && pom.resolveData != null && pom.resolveData.get() != data) {
+            // a changing pom read in another resolve
+            entries.remove(new Key(resolver, mrid));
+            pom = null;
+        }
+        if (pom == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return pom;
+    }
+
+    /**
+     * Reads the parts of the given resolved pom used by the poms inheriting or importing it, and
+     * keeps them in the cache.
+     *
+     * @param resolver
+     *            the resolver the pom has been resolved with
+     * @param mrid
+     *            the requested module revision
+     * @param module
+     *            the resolved pom
+     * @param data
+     *            the data of the resolve in progress
+     * @return the pom which has been cached
+     */
+    public ParentPom put(DependencyResolver resolver, ModuleRevisionId mrid,
+            ResolvedModuleRevision module, ResolveData data) {
+        ParentPom pom = new ParentPom(module,
+                isChanging(mrid, module) ? new WeakReference(data) : null);
+        synchronized (this) {
+            if (maxSize > 0) {
+                entries.put(new Key(resolver, mrid), pom);
+                while (entries.size() > maxSize) {
+                    entries.remove(entries.keySet().iterator().next());
+                }
+            }
+        }
+        return pom;
+    }
+
+    private static boolean isChanging(ModuleRevisionId mrid, ResolvedModuleRevision module) {
+        String revision = mrid.getRevision();
+        if (revision == null || revision.endsWith("SNAPSHOT") || !mrid.equals(module.getId())) {
+            return true;
+        }
+        return module.getResolver() instanceof AbstractResolver
+                && ((AbstractResolver) module.getResolver()).isChangingRevision(revision);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum number of poms in the cache, 0 disabling the cache.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (entries.size() > Math.max(maxSize, 0)) {
+            entries.remove(entries.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Returns the number of poms found in the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of poms which were not in the cache and had to be resolved.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public synchronized String toString() {
+        return "parent pom cache: " + entries.size() + "/" + maxSize + " entries, " + hits
+                + " hits, " + misses + " misses";
+    }
+
+    /**
+     * A pom inherited or imported by other poms.
+     */
+    public static final class ParentPom {
+        private final ResolvedModuleRevision module;
+
+        private final Map/*<String, String>*/ properties;
+
+        private final List/*<PomDependencyMgt>*/ dependencyManagements;
+
+        private final List/*<PomDependencyMgt>*/ plugins;
+
+        private final Reference/*<ResolveData>*/ resolveData;
+
+        private ParentPom(ResolvedModuleRevision module, Reference/*<ResolveData>*/ resolveData) {
+            ModuleDescriptor md = module.getDescriptor();
+            this.module = module;
+            this.properties = Collections.unmodifiableMap(
+                PomModuleDescriptorBuilder.extractPomProperties(md.getExtraInfo()));
+            this.dependencyManagements = Collections.unmodifiableList(
+                PomModuleDescriptorBuilder.getDependencyManagements(md));
+            this.plugins = Collections.unmodifiableList(PomModuleDescriptorBuilder.getPlugins(md));
+            this.resolveData = resolveData;
+        }
+
+        public ResolvedModuleRevision getModule() {
+            return module;
+        }
+
+        public ModuleDescriptor getDescriptor() {
+            return module.getDescriptor();
+        }
+
+        public Map/*<String, String>*/ getProperties() {
+            return properties;
+        }
+
+        public List/*<PomDependencyMgt>*/ getDependencyManagements() {
+            return dependencyManagements;
+        }
+
+        public List/*<PomDependencyMgt>*/ getPlugins() {
+            return plugins;
+        }
+    }
+
+    private static final class Key {
+        private final DependencyResolver resolver;
+
+        private final ModuleRevisionId mrid;
+
+        private Key(DependencyResolver resolver, ModuleRevisionId mrid) {
+            this.resolver = resolver;
+            this.mrid = mrid;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return resolver == other.resolver && mrid.equals(other.mrid);
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(resolver) * 31 + mrid.hashCode();
+        }
+    }
+}
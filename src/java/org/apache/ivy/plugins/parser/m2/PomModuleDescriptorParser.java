@@ -45,6 +45,7 @@ import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.plugins.namespace.NameSpaceHelper;
 import org.apache.ivy.plugins.parser.ModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.parser.m2.ParentPomCache.ParentPom;
 import org.apache.ivy.plugins.parser.m2.PomModuleDescriptorBuilder.PomDependencyDescriptor;
 import org.apache.ivy.plugins.parser.m2.PomReader.PomDependencyData;
 import org.apache.ivy.plugins.parser.m2.PomReader.PomDependencyMgtElement;
@@ -132,6 +133,7 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
                 mdBuilder.addProperty((String) prop.getKey(), (String) prop.getValue());
             }
             
+            ParentPom parent = null;
             ModuleDescriptor parentDescr = null;
             if (domReader.hasParent()) {
                 //Is there any other parent properties?
@@ -140,17 +142,15 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
                     domReader.getParentGroupId(), 
                     domReader.getParentArtifactId(), 
                     domReader.getParentVersion());
-                ResolvedModuleRevision parentModule = parseOtherPom(ivySettings, 
-                    parentModRevID);
-                if (parentModule != null) {
-                    parentDescr = parentModule.getDescriptor();
+                parent = getParentPom(ivySettings, parentModRevID);
+                if (parent != null) {
+                    parentDescr = parent.getDescriptor();
                 } else {
                     throw new IOException("Impossible to load parent for " + res.getName() + "."
                        + " Parent=" + parentModRevID);
                 }
                 if (parentDescr != null) {
-                    Map parentPomProps = PomModuleDescriptorBuilder.extractPomProperties(
-                        parentDescr.getExtraInfo());
+                    Map parentPomProps = parent.getProperties();
                     for (Iterator iter = parentPomProps.entrySet().iterator(); iter.hasNext();) {
                         Map.Entry prop = (Map.Entry) iter.next();
                         domReader.setProperty((String) prop.getKey(), (String) prop.getValue());
@@ -229,7 +229,7 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
                     mdBuilder.addExtraInfos(parentDescr.getExtraInfo());
                     
                     // add dependency management info from parent
-                    List depMgt = PomModuleDescriptorBuilder.getDependencyManagements(parentDescr);
+                    List depMgt = parent.getDependencyManagements();
                     for (Iterator it = depMgt.iterator(); it.hasNext();) {
                         PomDependencyMgt dep = (PomDependencyMgt) it.next();
                         if (dep instanceof PomDependencyMgtElement) {
@@ -239,8 +239,7 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
                     }
                     
                     // add plugins from parent
-                    List /*<PomDependencyMgt>*/ plugins = 
-                                    PomModuleDescriptorBuilder.getPlugins(parentDescr);
+                    List /*<PomDependencyMgt>*/ plugins = parent.getPlugins();
                     for (Iterator it = plugins.iterator(); it.hasNext();) {
                         mdBuilder.addPlugin((PomDependencyMgt) it.next());
                     }
@@ -253,13 +252,10 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
                             dep.getGroupId(), 
                             dep.getArtifactId(), 
                             dep.getVersion());
-                        ResolvedModuleRevision importModule = parseOtherPom(ivySettings, 
-                            importModRevID);
+                        ParentPom importModule = getParentPom(ivySettings, importModRevID);
                         if (importModule != null) {
-                            ModuleDescriptor importDescr = importModule.getDescriptor();
-                            
                             // add dependency management info from imported module
-                            List depMgt = PomModuleDescriptorBuilder.getDependencyManagements(importDescr);
+                            List depMgt = importModule.getDependencyManagements();
                             for (Iterator it2 = depMgt.iterator(); it2.hasNext();) {
                                 PomDependencyMgt importedDepMgt = (PomDependencyMgt) it2.next();
                                 mdBuilder.addDependencyMgt(new DefaultPomDependencyMgt(
@@ -362,9 +358,51 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
         }
     }
 
+    /**
+     * Returns the given parent or imported pom, from the cache of parent poms of the resolve engine
+     * if possible. The cache is not used when the resolve is refreshing the modules.
+     */
+    private ParentPom getParentPom(ParserSettings ivySettings, ModuleRevisionId parentModRevID)
+            throws ParseException {
+        DependencyResolver resolver = ivySettings.getResolver(parentModRevID);
+        if (resolver == null) {
+            return null;
+        }
+        ResolveData data = getResolveData();
+        ParentPomCache cache = data.getEngine().getParentPomCache();
+        ParentPom pom = null;
+        if (!data.getOptions().isRefresh()) {
+            pom = cache.get(resolver, parentModRevID, data);
+        }
+        if (pom == null) {
+            ResolvedModuleRevision module = parseOtherPom(ivySettings, parentModRevID, resolver,
+                data);
+            if (module != null) {
+                pom = cache.put(resolver, parentModRevID, module, data);
+            }
+        }
+        return pom;
+    }
+
     private ResolvedModuleRevision parseOtherPom(ParserSettings ivySettings,
             ModuleRevisionId parentModRevID) throws ParseException {
+        DependencyResolver resolver = ivySettings.getResolver(parentModRevID);
+        if (resolver == null) {
+            // TODO: Throw exception here?
+            return null;
+        }
+        return parseOtherPom(ivySettings, parentModRevID, resolver, getResolveData());
+    }
+
+    private ResolvedModuleRevision parseOtherPom(ParserSettings ivySettings,
+            ModuleRevisionId parentModRevID, DependencyResolver resolver, ResolveData data)
+            throws ParseException {
         DependencyDescriptor dd = new DefaultDependencyDescriptor(parentModRevID, true);
+        dd = NameSpaceHelper.toSystem(dd, ivySettings.getContextNamespace());
+        return resolver.getDependency(dd, data);
+    }
+
+    private ResolveData getResolveData() {
         ResolveData data = IvyContext.getContext().getResolveData();
         if (data == null) {
             ResolveEngine engine = IvyContext.getContext().getIvy().getResolveEngine();
@@ -372,16 +410,7 @@ public final class PomModuleDescriptorParser implements ModuleDescriptorParser {
             options.setDownload(false);
             data = new ResolveData(engine, options);
         }
-        
-        DependencyResolver resolver = ivySettings.getResolver(parentModRevID);
-        if (resolver == null) {
-            // TODO: Throw exception here?
-            return null;
-        } else {
-            dd = NameSpaceHelper.toSystem(dd, ivySettings.getContextNamespace());
-            ResolvedModuleRevision otherModule = resolver.getDependency(dd, data);
-            return otherModule;
-        }
+        return data;
     }
 
     private ParseException newParserException(Exception e) {
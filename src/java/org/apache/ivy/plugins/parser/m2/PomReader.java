@@ -27,10 +27,14 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.License;
@@ -39,18 +43,18 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.util.XMLHelper;
 import org.apache.ivy.util.url.URLHandlerRegistry;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
+import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
- * Provides the method to read some data out of the DOM tree of a pom 
- * file.
+ * Provides the method to read some data out of a pom file.
+ * <p>
+ * The pom is read with a SAX parser, which only keeps the elements used by Ivy: the sections Ivy
+ * doesn't use, which can be large in generated poms, are skipped as they are parsed.
+ * </p>
  */
 public class PomReader {
     
@@ -81,32 +85,50 @@ public class PomReader {
     private static final String PLUGINS = "plugins";
     private static final String PLUGIN = "plugin";
     private static final String TYPE = "type";
+    private static final String BUILD = "build";
+
+    private static final Set/*<String>*/ CONTAINERS = new HashSet();
+
+    private static final Set/*<String>*/ VALUES = new HashSet();
+
+    static {
+        String[] coordinates = new String[] {GROUP_ID, ARTIFACT_ID, VERSION};
+        String[] dependency = new String[] {GROUP_ID, ARTIFACT_ID, VERSION, SCOPE, CLASSIFIER,
+                TYPE, OPTIONAL};
+
+        addValues("", new String[] {GROUP_ID, ARTIFACT_ID, VERSION, PACKAGING, HOMEPAGE,
+                DESCRIPTION});
+        addValues(PARENT, coordinates);
+        addValues(LICENSES + "/" + LICENSE, new String[] {LICENSE_NAME, LICENSE_URL});
+        addValues(DISTRIBUTION_MGT + "/" + RELOCATION, coordinates);
+        addValues(DEPENDENCIES + "/" + DEPENDENCY, dependency);
+        addValues(DEPENDENCIES + "/" + DEPENDENCY + "/" + EXCLUSIONS + "/" + EXCLUSION,
+            new String[] {GROUP_ID, ARTIFACT_ID});
+        addValues(DEPENDENCY_MGT + "/" + DEPENDENCIES + "/" + DEPENDENCY, dependency);
+        addValues(DEPENDENCY_MGT + "/" + DEPENDENCIES + "/" + DEPENDENCY + "/" + EXCLUSIONS + "/"
+                + EXCLUSION, new String[] {GROUP_ID, ARTIFACT_ID});
+        addValues(BUILD + "/" + PLUGINS + "/" + PLUGIN, coordinates);
+        CONTAINERS.add(PROPERTIES);
+    }
 
     private HashMap properties = new HashMap();
     
-    private final Element projectElement;
-    private final Element parentElement;
+    private final PomElement projectElement;
+    private final PomElement parentElement;
     
     public PomReader(URL descriptorURL, Resource res) throws IOException, SAXException {
         InputStream stream = new AddDTDFilterInputStream(URLHandlerRegistry.getDefault().openStream(descriptorURL));
         InputSource source = new InputSource(stream);
         source.setSystemId(XMLHelper.toSystemId(descriptorURL));
         try {
-            Document pomDomDoc = XMLHelper.parseToDom(source, new EntityResolver() {
-                public InputSource resolveEntity(String publicId, String systemId) 
-                                throws SAXException, IOException {
-                    if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
-                        return new InputSource(
-                                        PomReader.class.getResourceAsStream("m2-entities.ent"));
-                    }
-                    return null;
-                }
-            });
-            projectElement = pomDomDoc.getDocumentElement();
-            if (!PROJECT.equals(projectElement.getNodeName()) && !MODEL.equals(projectElement.getNodeName())) {
-                throw new SAXParseException("project must be the root tag" , res.getName() , 
-                                            res.getName(), 0, 0);
+            PomHandler handler = new PomHandler(res);
+            try {
+                XMLHelper.parse(source, null, handler, null);
+            } catch (ParserConfigurationException e) {
+                throw new SAXException("impossible to parse " + res.getName() + ": "
+                        + e.getMessage(), e);
             }
+            projectElement = handler.root;
             parentElement = getFirstChildElement(projectElement , PARENT);
         } finally {
             try {
@@ -117,6 +139,22 @@ public class PomReader {
         }
     }
 
+    /**
+     * Registers the elements read from the given parent element, the parent and its ancestors
+     * being registered as containers.
+     */
+    private static void addValues(String parentPath, String[] names) {
+        for (int i = 0; i < names.length; i++) {
+            VALUES.add(parentPath.length() == 0 ? names[i] : parentPath + "/" + names[i]);
+        }
+        String path = parentPath;
+        while (path.length() > 0) {
+            CONTAINERS.add(path);
+            int index = path.lastIndexOf('/');
+            path = index == -1 ? "" : path.substring(0, index);
+        }
+    }
+
 
     public boolean hasParent() {
         return parentElement != null;
@@ -212,15 +250,14 @@ public class PomReader {
     }
 
     public License[] getLicenses() {
-        Element licenses = getFirstChildElement(projectElement, LICENSES);
+        PomElement licenses = getFirstChildElement(projectElement, LICENSES);
         if (licenses == null) {
             return new License[0];
         }
-        licenses.normalize();
         List/*<License>*/ lics = new ArrayList();
-        for (Iterator it = getAllChilds(licenses).iterator(); it.hasNext();) {
-            Element license = (Element) it.next();
-            if (LICENSE.equals(license.getNodeName())) {
+        for (Iterator it = licenses.getChildren().iterator(); it.hasNext();) {
+            PomElement license = (PomElement) it.next();
+            if (LICENSE.equals(license.getName())) {
                 String name = getFirstChildText(license, LICENSE_NAME);
                 String url = getFirstChildText(license, LICENSE_URL);
                 
@@ -242,8 +279,8 @@ public class PomReader {
 
     
     public ModuleRevisionId getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt , RELOCATION);
+        PomElement distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
+        PomElement relocation = getFirstChildElement(distrMgt , RELOCATION);
         if (relocation == null) {
             return null;
         } else {
@@ -258,14 +295,13 @@ public class PomReader {
     }
     
     public List /* <PomDependencyData> */ getDependencies() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCIES);
+        PomElement dependenciesElement = getFirstChildElement(projectElement, DEPENDENCIES);
         LinkedList dependencies = new LinkedList();
         if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyData((Element) node));
+            for (Iterator it = dependenciesElement.getChildren().iterator(); it.hasNext();) {
+                PomElement element = (PomElement) it.next();
+                if (DEPENDENCY.equals(element.getName())) {
+                    dependencies.add(new PomDependencyData(element));
                 }
             }
         }
@@ -274,15 +310,14 @@ public class PomReader {
     
 
     public List /* <PomDependencyMgt> */ getDependencyMgt() {
-        Element dependenciesElement = getFirstChildElement(projectElement, DEPENDENCY_MGT);
+        PomElement dependenciesElement = getFirstChildElement(projectElement, DEPENDENCY_MGT);
         dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
         LinkedList dependencies = new LinkedList();
         if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    dependencies.add(new PomDependencyMgtElement((Element) node));
+            for (Iterator it = dependenciesElement.getChildren().iterator(); it.hasNext();) {
+                PomElement element = (PomElement) it.next();
+                if (DEPENDENCY.equals(element.getName())) {
+                    dependencies.add(new PomDependencyMgtElement(element));
                 }
             }
         }
@@ -290,13 +325,13 @@ public class PomReader {
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final PomElement depElement;
         
         public PomDependencyMgtElement(PomDependencyMgtElement copyFrom) {
             this(copyFrom.depElement);
         }
 
-        PomDependencyMgtElement(Element depElement) {
+        PomDependencyMgtElement(PomElement depElement) {
             this.depElement = depElement; 
         }
         
@@ -330,15 +365,14 @@ public class PomReader {
         }
         
         public List /*<ModuleId>*/ getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
+            PomElement exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             LinkedList exclusions = new LinkedList();
             if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
+                for (Iterator it = exclusionsElement.getChildren().iterator(); it.hasNext();) {
+                    PomElement element = (PomElement) it.next();
+                    if (EXCLUSION.equals(element.getName())) {
+                        String groupId = getFirstChildText(element, GROUP_ID);
+                        String artifactId = getFirstChildText(element, ARTIFACT_ID);
                         if ((groupId != null) && (artifactId != null)) {
                             exclusions.add(ModuleId.newInstance(groupId, artifactId));
                         }
@@ -352,18 +386,17 @@ public class PomReader {
     public List /* <PomPluginElement> */ getPlugins() {
         LinkedList plugins = new LinkedList();
 
-        Element buildElement = getFirstChildElement(projectElement, "build");
+        PomElement buildElement = getFirstChildElement(projectElement, BUILD);
         if (buildElement == null) {
             return plugins;
         }
         
-        Element pluginsElement = getFirstChildElement(buildElement, PLUGINS);
+        PomElement pluginsElement = getFirstChildElement(buildElement, PLUGINS);
         if (pluginsElement != null) {
-            NodeList childs = pluginsElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && PLUGIN.equals(node.getNodeName())) {
-                    plugins.add(new PomPluginElement((Element) node));
+            for (Iterator it = pluginsElement.getChildren().iterator(); it.hasNext();) {
+                PomElement element = (PomElement) it.next();
+                if (PLUGIN.equals(element.getName())) {
+                    plugins.add(new PomPluginElement(element));
                 }
             }
         }
@@ -371,9 +404,9 @@ public class PomReader {
     }
 
     public class PomPluginElement implements PomDependencyMgt {
-        private Element pluginElement;
+        private PomElement pluginElement;
         
-        PomPluginElement(Element pluginElement) {
+        PomPluginElement(PomElement pluginElement) {
             this.pluginElement = pluginElement; 
         }
         
@@ -403,13 +436,13 @@ public class PomReader {
     
     
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
+        private final PomElement depElement;
 
         public PomDependencyData(PomDependencyData copyFrom) {
             this(copyFrom.depElement);
         }
 
-        PomDependencyData(Element depElement) {
+        PomDependencyData(PomElement depElement) {
             super(depElement);
             this.depElement = depElement;
         }
@@ -430,8 +463,8 @@ public class PomReader {
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL); 
-            return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
+            PomElement e = getFirstChildElement(depElement, OPTIONAL); 
+            return (e != null) && "true".equalsIgnoreCase(e.getText());
         }
 
     }
@@ -441,13 +474,12 @@ public class PomReader {
      */
     public Map/* <String,String> */getPomProperties() {
         Map pomProperties = new HashMap();
-        Element propsEl = getFirstChildElement(projectElement, PROPERTIES);
+        PomElement propsEl = getFirstChildElement(projectElement, PROPERTIES);
         if (propsEl != null) {
-            propsEl.normalize();
-        }
-        for (Iterator it = getAllChilds(propsEl).iterator(); it.hasNext();) {
-            Element prop = (Element) it.next();
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
+            for (Iterator it = propsEl.getChildren().iterator(); it.hasNext();) {
+                PomElement prop = (PomElement) it.next();
+                pomProperties.put(prop.getName(), prop.getText());
+            }
         }
         return pomProperties;
     }
@@ -460,61 +492,151 @@ public class PomReader {
         }
     }
 
-    private static String getTextContent(Element element) {
-        StringBuffer result = new StringBuffer();
-        
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
-            
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
-                    break;
-                default:
-                    break;
-            }
-        }
-        
-        return result.toString();
-    }
-    
-    private static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
+    private static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
         if (node != null) {
-            return getTextContent(node);
+            return node.getText();
         } else {
             return null;
         }
     }
 
-    private static Element getFirstChildElement(Element parentElem, String name) {
+    private static PomElement getFirstChildElement(PomElement parentElem, String name) {
         if (parentElem == null) {
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+        for (Iterator it = parentElem.getChildren().iterator(); it.hasNext();) {
+            PomElement element = (PomElement) it.next();
+            if (name.equals(element.getName())) {
+                return element;
             }
         }
         return null;
     }
-    
-    private static List/* <Element> */getAllChilds(Element parent) {
-        List r = new LinkedList();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add(node);
+
+    /**
+     * An element of the pom read by Ivy, with its text and the child elements read by Ivy.
+     */
+    static final class PomElement {
+        private final String name;
+
+        private final String path;
+
+        private final boolean value;
+
+        private List/*<PomElement>*/ children = Collections.EMPTY_LIST;
+
+        private StringBuffer text;
+
+        private PomElement(String name, String path, boolean value) {
+            this.name = name;
+            this.path = path;
+            this.value = value;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the text directly contained by this element, the text of its children being
+         * excluded.
+         */
+        String getText() {
+            return text == null ? "" : text.toString();
+        }
+
+        List/*<PomElement>*/ getChildren() {
+            return children;
+        }
+
+        private void addChild(PomElement child) {
+            if (children.isEmpty()) {
+                children = new ArrayList(4);
+            }
+            children.add(child);
+        }
+
+        private void appendText(char[] ch, int start, int length) {
+            if (text == null) {
+                text = new StringBuffer(length);
+            }
+            text.append(ch, start, length);
+        }
+    }
+
+    /**
+     * Reads the elements of the pom used by Ivy in a single pass, skipping the other ones with
+     * their whole content, like most of the build section, the reporting section or the profiles.
+     */
+    private static final class PomHandler extends DefaultHandler {
+        private final Resource res;
+
+        private final LinkedList/*<PomElement>*/ stack = new LinkedList();
+
+        private PomElement root;
+
+        private int skipped;
+
+        private PomHandler(Resource res) {
+            this.res = res;
+        }
+
+        public InputSource resolveEntity(String publicId, String systemId) 
+                throws SAXException, IOException {
+            if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
+                return new InputSource(PomReader.class.getResourceAsStream("m2-entities.ent"));
+            }
+            return null;
+        }
+
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) throws SAXException {
+            if (skipped > 0) {
+                skipped++;
+                return;
+            }
+            if (root == null) {
+                if (!PROJECT.equals(qName) && !MODEL.equals(qName)) {
+                    throw new SAXParseException("project must be the root tag" , res.getName() , 
+                                                res.getName(), 0, 0);
+                }
+                root = new PomElement(qName, "", false);
+                stack.addLast(root);
+                return;
+            }
+            PomElement parent = (PomElement) stack.getLast();
+            if (parent.value) {
+                skipped++;
+                return;
+            }
+            String path = parent == root ? qName : parent.path + "/" + qName;
+            boolean value = VALUES.contains(path) || PROPERTIES.equals(parent.path);
+            if (!value && !CONTAINERS.contains(path)) {
+                skipped++;
+                return;
+            }
+            PomElement element = new PomElement(qName, path, value);
+            parent.addChild(element);
+            stack.addLast(element);
+        }
+
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (skipped > 0) {
+                skipped--;
+            } else {
+                stack.removeLast();
+            }
+        }
+
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            if (skipped == 0 && !stack.isEmpty()) {
+                PomElement element = (PomElement) stack.getLast();
+                if (element.value) {
+                    element.appendText(ch, start, length);
                 }
             }
         }
-        return r;
     }
 
     private static final class AddDTDFilterInputStream extends FilterInputStream {
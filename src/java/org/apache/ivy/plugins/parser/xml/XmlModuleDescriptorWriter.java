@@ -20,6 +20,7 @@ package org.apache.ivy.plugins.parser.xml;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.Arrays;
@@ -66,8 +67,20 @@ public final class XmlModuleDescriptorWriter {
         if (output.getParentFile() != null) {
             output.getParentFile().mkdirs();
         }
-        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output),
-                "UTF-8"));
+        OutputStream stream = new FileOutputStream(output);
+        try {
+            write(md, licenseHeader, stream);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Writes the given module descriptor to the given stream, which is left open.
+     */
+    public static void write(ModuleDescriptor md, String licenseHeader, OutputStream output)
+            throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(output, "UTF-8"));
         try {
             out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
             if (licenseHeader != null) {
@@ -93,7 +106,7 @@ public final class XmlModuleDescriptorWriter {
             printDependencies(md, out);
             out.println("</ivy-module>");
         } finally {
-            out.close();
+            out.flush();
         }
     }
 
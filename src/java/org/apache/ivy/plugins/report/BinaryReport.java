@@ -0,0 +1,488 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.report;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ConfigurationResolveReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.plugins.report.XmlReportParser.ParsedReport;
+import org.apache.ivy.util.Message;
+
+/**
+ * The binary form of an xml report of the resolution cache, written next to it so that
+ * {@link XmlReportParser} can read the report without parsing xml.
+ * <p>
+ * The binary file holds what {@link XmlReportParser} reads from the xml report: the module
+ * revisions in an indexed table, referred to by the lists of dependencies and by the download
+ * reports of their artifacts. It is built from the resolve report the xml report has been written
+ * from, without reading the xml report back. It also records the length and the modification
+ * time of the xml report it has been written for: if the xml report is written again by other
+ * means, the binary file is ignored and the xml report is parsed.
+ * </p>
+ */
+final class BinaryReport {
+    private static final int MAGIC = 0x49565252; // IVRR
+
+    private static final int VERSION = 1;
+
+    private static final String SUFFIX = ".bin";
+
+    private static final int NO_ORIGIN = 0;
+
+    private static final int UNKNOWN_ORIGIN = 1;
+
+    private static final int KNOWN_ORIGIN = 2;
+
+    private BinaryReport() {
+    }
+
+    /**
+     * Returns the binary file of the given xml report.
+     */
+    static File getBinaryFile(File xmlReport) {
+        String name = xmlReport.getName();
+        if (name.endsWith(".xml")) {
+            name = name.substring(0, name.length() - ".xml".length());
+        }
+        return new File(xmlReport.getParentFile(), name + SUFFIX);
+    }
+
+    /**
+     * Deletes the binary file of the given xml report, before the report is written again.
+     */
+    static void delete(File xmlReport) {
+        File file = getBinaryFile(xmlReport);
+        if (file.exists() && !file.delete()) {
+            Message.verbose("impossible to delete binary report " + file);
+        }
+    }
+
+    /**
+     * Writes the binary form of the given xml report, which has just been written from the given
+     * resolve report. Problems are only logged: the xml report is then parsed by the readers.
+     */
+    static void write(File xmlReport, ConfigurationResolveReport resolveReport) {
+        File file = getBinaryFile(xmlReport);
+        try {
+            ParsedReport report = toParsedReport(resolveReport);
+            File tmp = File.createTempFile(file.getName(), ".part", file.getParentFile());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(xmlReport.length());
+                out.writeLong(xmlReport.lastModified());
+                new Writer(out).write(report);
+            } finally {
+                out.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                tmp.delete();
+                Message.verbose("impossible to write binary report " + file);
+            }
+        } catch (IOException e) {
+            Message.verbose("impossible to write binary report " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Returns what {@link XmlReportParser} reads from the xml report written by
+     * {@link XmlReportWriter} for the given resolve report.
+     */
+    private static ParsedReport toParsedReport(ConfigurationResolveReport report) {
+        ParsedReport parsed = new ParsedReport();
+        ModuleRevisionId resolved = report.getModuleDescriptor().getModuleRevisionId();
+        parsed.mRevisionId = ModuleRevisionId.newInstance(resolved.getOrganisation(),
+            resolved.getName(), resolved.getBranch(), resolved.getRevision(),
+            resolved.getExtraAttributes());
+
+        Map/*<ModuleRevisionId, Integer>*/ positions = new HashMap();
+        int position = 0;
+        for (Iterator iter = report.getModuleRevisionIds().iterator(); iter.hasNext();) {
+            positions.put(iter.next(), new Integer(position++));
+        }
+        // the artifacts are listed by position of their module, as the parser does
+        SortedMap/*<Integer, List<ArtifactDownloadReport>>*/ revisionsMap = new TreeMap();
+        Date pubdate = null;
+        for (Iterator iter = report.getModuleIds().iterator(); iter.hasNext();) {
+            ModuleId mid = (ModuleId) iter.next();
+            for (Iterator it2 = report.getNodes(mid).iterator(); it2.hasNext();) {
+                IvyNode dep = (IvyNode) it2.next();
+                if (dep.hasProblem()) {
+                    parsed.hasError = true;
+                    continue;
+                }
+                if (dep.isEvicted(report.getConfiguration())) {
+                    continue;
+                }
+                Integer pos = (Integer) positions.get(dep.getResolvedId());
+                List revisionArtifacts = new ArrayList();
+                revisionsMap.put(pos == null ? new Integer(-1) : pos, revisionArtifacts);
+                ModuleDescriptor md = dep.getModuleRevision() == null ? null
+                        : dep.getModuleRevision().getDescriptor();
+                ModuleRevisionId mrid = ModuleRevisionId.newInstance(mid.getOrganisation(),
+                    mid.getName(), dep.getResolvedId().getBranch(),
+                    dep.getResolvedId().getRevision(), md != null ? md.getExtraAttributes()
+                            : dep.getResolvedId().getExtraAttributes());
+                parsed.mrids.add(mrid);
+                MetadataArtifactDownloadReport madr = null;
+                if (dep.getDescriptor() != null && dep.getDescriptor().isDefault()) {
+                    parsed.defaultMrids.add(mrid);
+                } else {
+                    // the metadata artifact gets the publication date of the previous revision
+                    madr = new MetadataArtifactDownloadReport(
+                            DefaultArtifact.newIvyArtifact(mrid, pubdate));
+                    parsed.metadataReports.put(mrid, madr);
+                    parsed.realMrids.add(mrid);
+                }
+                if (dep.isLoaded()) {
+                    // the report keeps the publication date to the second
+                    pubdate = new Date(dep.getPublication() / 1000 * 1000);
+                }
+                if (madr != null && dep.getModuleRevision() != null) {
+                    MetadataArtifactDownloadReport written = dep.getModuleRevision().getReport();
+                    copyDownloadReport(written, madr);
+                    madr.setSearched(written.isSearched());
+                    madr.setOriginalLocalFile(absolute(written.getOriginalLocalFile()));
+                }
+                ArtifactDownloadReport[] adrs = report.getDownloadReports(dep.getResolvedId());
+                for (int i = 0; i < adrs.length; i++) {
+                    Artifact artifact = new DefaultArtifact(mrid, pubdate, adrs[i].getName(),
+                            adrs[i].getType(), adrs[i].getExt(),
+                            adrs[i].getArtifact().getExtraAttributes());
+                    ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
+                    copyDownloadReport(adrs[i], adr);
+                    revisionArtifacts.add(adr);
+                }
+            }
+        }
+        for (Iterator it = revisionsMap.values().iterator(); it.hasNext();) {
+            List artifactReports = (List) it.next();
+            parsed.artifactReports.addAll(artifactReports);
+            for (Iterator iter = artifactReports.iterator(); iter.hasNext();) {
+                ArtifactDownloadReport adr = (ArtifactDownloadReport) iter.next();
+                if (adr.getDownloadStatus() != DownloadStatus.FAILED) {
+                    parsed.artifacts.add(adr.getArtifact());
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private static void copyDownloadReport(ArtifactDownloadReport from,
+            ArtifactDownloadReport to) {
+        to.setDownloadStatus(from.getDownloadStatus());
+        to.setDownloadDetails(from.getDownloadDetails());
+        to.setSize(from.getSize());
+        to.setDownloadTimeMillis(from.getDownloadTimeMillis());
+        to.setLocalFile(absolute(from.getLocalFile()));
+        ArtifactOrigin origin = from.getArtifactOrigin();
+        if (origin != null) {
+            if (ArtifactOrigin.isUnknown(origin)) {
+                to.setArtifactOrigin(ArtifactOrigin.unkwnown(to.getArtifact()));
+            } else {
+                to.setArtifactOrigin(new ArtifactOrigin(to.getArtifact(), origin.isLocal(),
+                    origin.getLocation()));
+            }
+        }
+    }
+
+    private static File absolute(File file) {
+        return file == null ? null : file.getAbsoluteFile();
+    }
+
+    /**
+     * Reads the binary form of the given xml report.
+     *
+     * @return the report, or <code>null</code> if there is no up to date binary form of the xml
+     *         report
+     */
+    static ParsedReport read(File xmlReport) {
+        File file = getBinaryFile(xmlReport);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    Message.debug("unsupported binary report " + file + ": ignored");
+                    return null;
+                }
+                if (in.readLong() != xmlReport.length()
+                        || in.readLong() != xmlReport.lastModified()) {
+                    Message.debug("binary report " + file + " is out of date: ignored");
+                    return null;
+                }
+                return new Reader(in).read();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Message.verbose("impossible to read binary report " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private static final class Writer {
+        private final DataOutputStream out;
+
+        private final Map/*<ModuleRevisionId, Integer>*/ indexes = new HashMap();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void write(ParsedReport report) throws IOException {
+            // the table of module revisions comes first
+            List table = new ArrayList();
+            index(table, report.mRevisionId);
+            for (Iterator iter = report.mrids.iterator(); iter.hasNext();) {
+                index(table, (ModuleRevisionId) iter.next());
+            }
+            for (Iterator iter = report.artifactReports.iterator(); iter.hasNext();) {
+                ArtifactDownloadReport adr = (ArtifactDownloadReport) iter.next();
+                index(table, adr.getArtifact().getModuleRevisionId());
+            }
+            out.writeInt(table.size());
+            for (Iterator iter = table.iterator(); iter.hasNext();) {
+                ModuleRevisionId mrid = (ModuleRevisionId) iter.next();
+                writeString(mrid.getOrganisation());
+                writeString(mrid.getName());
+                writeString(mrid.getBranch());
+                writeString(mrid.getRevision());
+                writeMap(mrid.getQualifiedExtraAttributes());
+            }
+
+            writeIndex(report.mRevisionId);
+            out.writeBoolean(report.hasError);
+            Set defaultMrids = new HashSet(report.defaultMrids);
+            out.writeInt(report.mrids.size());
+            for (Iterator iter = report.mrids.iterator(); iter.hasNext();) {
+                ModuleRevisionId mrid = (ModuleRevisionId) iter.next();
+                writeIndex(mrid);
+                out.writeBoolean(defaultMrids.contains(mrid));
+                MetadataArtifactDownloadReport madr = report.getMetadataArtifactReport(mrid);
+                out.writeBoolean(madr != null);
+                if (madr != null) {
+                    out.writeLong(madr.getArtifact().getPublicationDate().getTime());
+                    writeDownloadReport(madr);
+                    out.writeBoolean(madr.isSearched());
+                    writeFile(madr.getOriginalLocalFile());
+                }
+            }
+            out.writeInt(report.artifactReports.size());
+            for (Iterator iter = report.artifactReports.iterator(); iter.hasNext();) {
+                ArtifactDownloadReport adr = (ArtifactDownloadReport) iter.next();
+                Artifact artifact = adr.getArtifact();
+                writeIndex(artifact.getModuleRevisionId());
+                out.writeLong(artifact.getPublicationDate().getTime());
+                writeString(artifact.getName());
+                writeString(artifact.getType());
+                writeString(artifact.getExt());
+                writeMap(artifact.getQualifiedExtraAttributes());
+                writeDownloadReport(adr);
+            }
+        }
+
+        private void index(List table, ModuleRevisionId mrid) {
+            if (mrid != null && !indexes.containsKey(mrid)) {
+                indexes.put(mrid, new Integer(table.size()));
+                table.add(mrid);
+            }
+        }
+
+        private void writeIndex(ModuleRevisionId mrid) throws IOException {
+            out.writeInt(mrid == null ? -1 : ((Integer) indexes.get(mrid)).intValue());
+        }
+
+        private void writeDownloadReport(ArtifactDownloadReport adr) throws IOException {
+            writeString(adr.getDownloadStatus().toString());
+            writeString(adr.getDownloadDetails());
+            out.writeLong(adr.getSize());
+            out.writeLong(adr.getDownloadTimeMillis());
+            writeFile(adr.getLocalFile());
+            ArtifactOrigin origin = adr.getArtifactOrigin();
+            if (origin == null) {
+                out.writeByte(NO_ORIGIN);
+            } else if (ArtifactOrigin.isUnknown(origin)) {
+                out.writeByte(UNKNOWN_ORIGIN);
+            } else {
+                out.writeByte(KNOWN_ORIGIN);
+                out.writeBoolean(origin.isLocal());
+                writeString(origin.getLocation());
+            }
+        }
+
+        private void writeFile(File file) throws IOException {
+            writeString(file == null ? null : file.getPath());
+        }
+
+        private void writeMap(Map map) throws IOException {
+            out.writeInt(map.size());
+            for (Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                writeString((String) entry.getKey());
+                writeString((String) entry.getValue());
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            out.writeBoolean(s != null);
+            if (s != null) {
+                out.writeUTF(s);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final DataInputStream in;
+
+        private ModuleRevisionId[] table;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        private ParsedReport read() throws IOException {
+            table = new ModuleRevisionId[in.readInt()];
+            for (int i = 0; i < table.length; i++) {
+                String organisation = readString();
+                String name = readString();
+                String branch = readString();
+                String revision = readString();
+                table[i] = ModuleRevisionId.newInstance(organisation, name, branch, revision,
+                    readMap());
+            }
+
+            ParsedReport report = new ParsedReport();
+            report.mRevisionId = readIndex();
+            report.hasError = in.readBoolean();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ModuleRevisionId mrid = readIndex();
+                report.mrids.add(mrid);
+                if (in.readBoolean()) {
+                    report.defaultMrids.add(mrid);
+                } else {
+                    report.realMrids.add(mrid);
+                }
+                if (in.readBoolean()) {
+                    Date pubdate = new Date(in.readLong());
+                    MetadataArtifactDownloadReport madr = new MetadataArtifactDownloadReport(
+                            DefaultArtifact.newIvyArtifact(mrid, pubdate));
+                    readDownloadReport(madr);
+                    madr.setSearched(in.readBoolean());
+                    madr.setOriginalLocalFile(readFile());
+                    report.metadataReports.put(mrid, madr);
+                }
+            }
+            count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ModuleRevisionId mrid = readIndex();
+                Date pubdate = new Date(in.readLong());
+                String name = readString();
+                String type = readString();
+                String ext = readString();
+                Artifact artifact = new DefaultArtifact(mrid, pubdate, name, type, ext,
+                        readMap());
+                ArtifactDownloadReport adr = new ArtifactDownloadReport(artifact);
+                readDownloadReport(adr);
+                report.artifactReports.add(adr);
+                if (adr.getDownloadStatus() != DownloadStatus.FAILED) {
+                    report.artifacts.add(artifact);
+                }
+            }
+            return report;
+        }
+
+        private ModuleRevisionId readIndex() throws IOException {
+            int index = in.readInt();
+            return index == -1 ? null : table[index];
+        }
+
+        private void readDownloadReport(ArtifactDownloadReport adr) throws IOException {
+            adr.setDownloadStatus(DownloadStatus.fromString(readString()));
+            adr.setDownloadDetails(readString());
+            adr.setSize(in.readLong());
+            adr.setDownloadTimeMillis(in.readLong());
+            adr.setLocalFile(readFile());
+            switch (in.readByte()) {
+                case UNKNOWN_ORIGIN:
+                    adr.setArtifactOrigin(ArtifactOrigin.unkwnown(adr.getArtifact()));
+                    break;
+                case KNOWN_ORIGIN:
+                    boolean isLocal = in.readBoolean();
+                    adr.setArtifactOrigin(new ArtifactOrigin(adr.getArtifact(), isLocal,
+                        readString()));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private File readFile() throws IOException {
+            String path = readString();
+            return path == null ? null : new File(path);
+        }
+
+        private Map readMap() throws IOException {
+            int size = in.readInt();
+            Map map = new HashMap();
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                map.put(key, readString());
+            }
+            return map;
+        }
+
+        private String readString() throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+    }
+}
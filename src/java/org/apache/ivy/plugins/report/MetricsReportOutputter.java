@@ -0,0 +1,80 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.ivy.core.cache.ResolutionCacheManager;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.Message;
+
+/**
+ * A Report outputter writing a JSON summary of the {@link ResolveMetrics} of a resolve next to
+ * its xml reports in the resolution cache, with the total resolve and download times.
+ */
+public class MetricsReportOutputter implements ReportOutputter {
+    public String getName() {
+        return METRICS;
+    }
+
+    public void output(
+            ResolveReport report, ResolutionCacheManager cacheMgr, ResolveOptions options)
+            throws IOException {
+        File metricsFile = getMetricsFile(report, cacheMgr);
+        metricsFile.getParentFile().mkdirs();
+        Writer out = new OutputStreamWriter(new FileOutputStream(metricsFile), "UTF-8");
+        try {
+            out.write("{\n  \"module\": ");
+            out.write(ResolveMetrics.toJsonString(
+                report.getModuleDescriptor().getModuleRevisionId().toString()));
+            out.write(",\n  \"resolveId\": ");
+            out.write(ResolveMetrics.toJsonString(report.getResolveId()));
+            out.write(",\n  \"resolveTime\": " + report.getResolveTime());
+            out.write(",\n  \"downloadTime\": " + report.getDownloadTime());
+            out.write(",\n  \"downloadSize\": " + report.getDownloadSize());
+            out.write(",\n  \"metrics\": ");
+            out.write(report.getMetrics().toJson().replaceAll("\n", "\n  "));
+            out.write("\n}\n");
+        } finally {
+            out.close();
+        }
+        Message.verbose("\tmetrics of the resolve of "
+            + report.getModuleDescriptor().getModuleRevisionId() + " produced in " + metricsFile);
+    }
+
+    /**
+     * Returns the file in which the metrics of the given resolve are written: it's named after
+     * the resolve id, in the directory of the report of its first configuration.
+     */
+    public static File getMetricsFile(ResolveReport report, ResolutionCacheManager cacheMgr) {
+        return new File(getReportDir(report, cacheMgr), report.getResolveId() + "-metrics.json");
+    }
+
+    static File getReportDir(ResolveReport report, ResolutionCacheManager cacheMgr) {
+        String[] confs = report.getConfigurations();
+        return confs.length == 0 ? cacheMgr.getResolutionCacheRoot()
+                : cacheMgr.getConfigurationResolveReportInCache(report.getResolveId(), confs[0])
+                        .getParentFile();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.plugins.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.ivy.core.cache.ResolutionCacheManager;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolveTrace;
+import org.apache.ivy.util.Message;
+
+/**
+ * A Report outputter writing the {@link ResolveTrace} of a traced resolve next to its xml reports
+ * in the resolution cache, in the trace event format of chrome. Resolves which aren't traced are
+ * ignored.
+ * 
+ * @see ResolveOptions#isTrace()
+ */
+public class TraceReportOutputter implements ReportOutputter {
+    public String getName() {
+        return TRACE;
+    }
+
+    public void output(
+            ResolveReport report, ResolutionCacheManager cacheMgr, ResolveOptions options)
+            throws IOException {
+        ResolveTrace trace = report.getTrace();
+        if (trace == null) {
+            return;
+        }
+        File traceFile = getTraceFile(report, cacheMgr);
+        traceFile.getParentFile().mkdirs();
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(traceFile), "UTF-8"));
+        try {
+            trace.writeChromeTrace(out);
+        } finally {
+            out.close();
+        }
+        Message.verbose("\ttrace of the resolve of "
+            + report.getModuleDescriptor().getModuleRevisionId() + " produced in " + traceFile);
+    }
+
+    /**
+     * Returns the file in which the trace of the given resolve is written: it's named after the
+     * resolve id, in the directory of the report of its first configuration.
+     */
+    public static File getTraceFile(ResolveReport report, ResolutionCacheManager cacheMgr) {
+        return new File(MetricsReportOutputter.getReportDir(report, cacheMgr),
+            report.getResolveId() + "-trace.json");
+    }
+}
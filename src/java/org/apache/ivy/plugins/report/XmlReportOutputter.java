@@ -21,7 +21,17 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
 import org.apache.ivy.core.report.ConfigurationResolveReport;
 import org.apache.ivy.core.report.ResolveReport;
@@ -31,7 +41,12 @@ import org.apache.ivy.util.Message;
 
 /**
  * A Report outputter implementation using {@link XmlReportWriter} to write xml reports to the
- * resolution cache.
+ * resolution cache. The binary form of each report is written next to it, so that
+ * {@link XmlReportParser} can read it faster.
+ * <p>
+ * The reports of the configurations of a resolve are written concurrently when
+ * {@link ResolveOptions#getReportThreads()} is greater than 1.
+ * </p>
  */
 public class XmlReportOutputter implements ReportOutputter {
     private XmlReportWriter writer = new XmlReportWriter();
@@ -44,8 +59,69 @@ public class XmlReportOutputter implements ReportOutputter {
             ResolveReport report, ResolutionCacheManager cacheMgr, ResolveOptions options) 
             throws IOException {
         String[] confs = report.getConfigurations();
-        for (int i = 0; i < confs.length; i++) {
-            output(report.getConfigurationReport(confs[i]), report.getResolveId(), confs, cacheMgr);
+        int threads = Math.min(options.getReportThreads(), confs.length);
+        if (threads <= 1) {
+            for (int i = 0; i < confs.length; i++) {
+                output(report.getConfigurationReport(confs[i]), report.getResolveId(), confs,
+                    cacheMgr);
+            }
+            return;
+        }
+        Message.verbose("\twriting " + confs.length + " reports using " + threads + " threads");
+        outputConcurrently(report, confs, cacheMgr, threads);
+    }
+
+    private void outputConcurrently(final ResolveReport report, final String[] confs,
+            final ResolutionCacheManager cacheMgr, int threads) throws IOException {
+        final IvyContext context = new IvyContext(IvyContext.getContext());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int count = 0;
+
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ivy-report-" + (++count));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            List futures = new ArrayList(confs.length);
+            for (int i = 0; i < confs.length; i++) {
+                final ConfigurationResolveReport confReport = 
+                    report.getConfigurationReport(confs[i]);
+                futures.add(executor.submit(new Callable() {
+                    public Object call() throws IOException {
+                        IvyContext.pushContext(new IvyContext(context));
+                        try {
+                            IvyContext.getContext().checkInterrupted();
+                            output(confReport, report.getResolveId(), confs, cacheMgr);
+                            return null;
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    }
+                }));
+            }
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                try {
+                    ((Future) iter.next()).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // reset interrupt status
+                    throw new RuntimeException("operation interrupted");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    throw new RuntimeException(String.valueOf(e.getCause()), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
@@ -56,13 +132,23 @@ public class XmlReportOutputter implements ReportOutputter {
             resolveId, report.getConfiguration());
         File reportParentDir = reportFile.getParentFile();
         reportParentDir.mkdirs();
+        BinaryReport.delete(reportFile);
         OutputStream stream = new FileOutputStream(reportFile);
         writer.output(report, confs, stream);
         stream.close();
+        BinaryReport.write(reportFile, report);
 
         Message.verbose("\treport for " + report.getModuleDescriptor().getModuleRevisionId()
             + " " + report.getConfiguration() + " produced in " + reportFile);
 
+        copyStylesheets(reportParentDir);
+    }
+
+    /**
+     * Copies the stylesheets used to display the reports to the given directory, unless they are
+     * already there. Synchronized since the reports of a resolve may be written concurrently.
+     */
+    private static synchronized void copyStylesheets(File reportParentDir) throws IOException {
         File reportXsl = new File(reportParentDir, "ivy-report.xsl");
         File reportCss = new File(reportParentDir, "ivy-report.css");
         if (!reportXsl.exists()) {
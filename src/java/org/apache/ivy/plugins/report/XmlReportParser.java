@@ -45,7 +45,52 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 public class XmlReportParser {
-    private static class SaxXmlReportParser {
+    /**
+     * The data read from a report.
+     */
+    static class ParsedReport {
+        List/*<ModuleRevisionId>*/ mrids = new ArrayList();
+
+        List/*<ModuleRevisionId>*/ defaultMrids = new ArrayList();
+
+        List/*<ModuleRevisionId>*/ realMrids = new ArrayList();
+
+        List/*<Artifact>*/ artifacts = new ArrayList();
+
+        List/*<ArtifactDownloadReport>*/ artifactReports = new ArrayList();
+
+        Map/*<ModuleRevisionId,MetadataArtifactDownloadReport>*/ metadataReports = new HashMap();
+
+        ModuleRevisionId mRevisionId;
+
+        boolean hasError = false;
+
+        public List getArtifacts() {
+            return artifacts;
+        }
+
+        public List getArtifactReports() {
+            return artifactReports;
+        }
+
+        public List getModuleRevisionIds() {
+            return mrids;
+        }
+
+        public List getRealModuleRevisionIds() {
+            return realMrids;
+        }
+
+        public ModuleRevisionId getResolvedModule() {
+            return mRevisionId;
+        }
+
+        public MetadataArtifactDownloadReport getMetadataArtifactReport(ModuleRevisionId id) {
+            return (MetadataArtifactDownloadReport) metadataReports.get(id);
+        }
+    }
+
+    private static class SaxXmlReportParser extends ParsedReport {
         private final class XmlReportParserHandler extends DefaultHandler {
             private String organisation;
 
@@ -229,31 +274,9 @@ public class XmlReportParser {
             }
         }
 
-        private List/*<ModuleRevisionId>*/ mrids;
-
-        private List/*<ModuleRevisionId>*/ defaultMrids;
-
-        private List/*<ModuleRevisionId>*/ realMrids;
-
-        private List/*<Artifact>*/ artifacts;
-
-        private List/*<ArtifactDownloadReport>*/ artifactReports;
-        
-        private Map/*<ModuleRevisionId,MetadataArtifactDownloadReport>*/ metadataReports;
-
-        private ModuleRevisionId mRevisionId;
-
         private File report;
 
-        private boolean hasError = false;
-        
         SaxXmlReportParser(File report) {
-            artifacts = new ArrayList();
-            artifactReports = new ArrayList();
-            mrids = new ArrayList();
-            defaultMrids = new ArrayList();
-            realMrids = new ArrayList();
-            metadataReports = new HashMap();
             this.report = report;
         }
 
@@ -265,41 +288,30 @@ public class XmlReportParser {
         private static boolean parseBoolean(String str) {
             return (str != null) && str.equalsIgnoreCase("true");
         }
-
-        public List getArtifacts() {
-            return artifacts;
-        }
-
-        public List getArtifactReports() {
-            return artifactReports;
-        }
-
-        public List getModuleRevisionIds() {
-            return mrids;
-        }
-
-        public List getRealModuleRevisionIds() {
-            return realMrids;
-        }
-
-        public ModuleRevisionId getResolvedModule() {
-            return mRevisionId;
-        }
-
-        public MetadataArtifactDownloadReport getMetadataArtifactReport(ModuleRevisionId id) {
-            return (MetadataArtifactDownloadReport) metadataReports.get(id);
-        }
     }
 
-    private SaxXmlReportParser parser = null;
+    private ParsedReport parser = null;
 
+    /**
+     * Reads the given xml report, or its binary form if it has been written along with it and is
+     * up to date.
+     * 
+     * @see BinaryReport
+     */
     public void parse(File report) throws ParseException {
         if (!report.exists()) {
             throw new IllegalStateException("Report file '" + report.getAbsolutePath()
                     + "' does not exist.");
         }
 
-        parser = new SaxXmlReportParser(report);
+        parser = BinaryReport.read(report);
+        if (parser == null) {
+            parser = parseXml(report);
+        }
+    }
+
+    static ParsedReport parseXml(File report) throws ParseException {
+        SaxXmlReportParser parser = new SaxXmlReportParser(report);
         try {
             parser.parse();
         } catch (Exception e) {
@@ -308,6 +320,7 @@ public class XmlReportParser {
             pe.initCause(e);
             throw pe;
         }
+        return parser;
     }
 
     public Artifact[] getArtifacts() {
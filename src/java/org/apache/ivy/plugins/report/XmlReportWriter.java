@@ -22,11 +22,10 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -47,6 +46,10 @@ import org.apache.ivy.util.XMLHelper;
 
 /**
  * XmlReportWriter allows to write ResolveReport in an xml format. 
+ * <p>
+ * The report is streamed to the output as it is written: attribute values are escaped directly to
+ * the output, without building intermediate strings.
+ * </p>
  */
 public class XmlReportWriter {
     
@@ -71,35 +74,41 @@ public class XmlReportWriter {
         out.println("<?xml-stylesheet type=\"text/xsl\" href=\"ivy-report.xsl\"?>");
         out.println("<ivy-report version=\"1.0\">");
         out.println("\t<info");
-        out.println("\t\torganisation=\"" + XMLHelper.escape(mrid.getOrganisation()) + "\"");
-        out.println("\t\tmodule=\"" + XMLHelper.escape(mrid.getName()) + "\"");
-        out.println("\t\trevision=\"" + XMLHelper.escape(mrid.getRevision()) + "\"");
+        outputInfoAttribute(out, "organisation", mrid.getOrganisation());
+        outputInfoAttribute(out, "module", mrid.getName());
+        outputInfoAttribute(out, "revision", mrid.getRevision());
         if (mrid.getBranch() != null) {
-            out.println("\t\tbranch=\"" + XMLHelper.escape(mrid.getBranch()) + "\"");
+            outputInfoAttribute(out, "branch", mrid.getBranch());
         }
         Map extraAttributes = mrid.getExtraAttributes();
         for (Iterator it = extraAttributes.entrySet().iterator(); it.hasNext();) {
             Map.Entry entry = (Entry) it.next();
-            out.println("\t\textra-" + entry.getKey() 
-                + "=\"" + XMLHelper.escape(entry.getValue().toString()) + "\"");
+            outputInfoAttribute(out, "extra-" + entry.getKey(), entry.getValue().toString());
         }
-        out.println("\t\tconf=\"" + XMLHelper.escape(report.getConfiguration()) + "\"");
-        out.println("\t\tconfs=\"" + XMLHelper.escape(StringUtils.join(confs, ", ")) + "\"");
-        out.println("\t\tdate=\"" + DateUtil.format(report.getDate()) + "\"/>");
+        outputInfoAttribute(out, "conf", report.getConfiguration());
+        outputInfoAttribute(out, "confs", StringUtils.join(confs, ", "));
+        out.write("\t\tdate=\"");
+        out.write(DateUtil.format(report.getDate()));
+        out.println("\"/>");
 
         out.println("\t<dependencies>");
 
-        // create a list of ModuleRevisionIds indicating the position for each dependency
-        List dependencies = new ArrayList(report.getModuleRevisionIds());
+        // index the position of each dependency, from the most dependent to the least one
+        Map/*<ModuleRevisionId, Integer>*/ positions = new HashMap();
+        int position = 0;
+        for (Iterator iter = report.getModuleRevisionIds().iterator(); iter.hasNext();) {
+            positions.put(iter.next(), new Integer(position++));
+        }
 
         for (Iterator iter = report.getModuleIds().iterator(); iter.hasNext();) {
             ModuleId mid = (ModuleId) iter.next();
-            out.println("\t\t<module organisation=\"" 
-                + XMLHelper.escape(mid.getOrganisation()) + "\"" + " name=\""
-                    + XMLHelper.escape(mid.getName()) + "\">");
+            out.write("\t\t<module");
+            outputAttribute(out, "organisation", mid.getOrganisation());
+            outputAttribute(out, "name", mid.getName());
+            out.println(">");
             for (Iterator it2 = report.getNodes(mid).iterator(); it2.hasNext();) {
                 IvyNode dep = (IvyNode) it2.next();
-                ouputRevision(report, out, dependencies, dep);
+                ouputRevision(report, out, positions, dep);
             }
             out.println("\t\t</module>");
         }
@@ -109,78 +118,61 @@ public class XmlReportWriter {
     }
 
     private void ouputRevision(ConfigurationResolveReport report, PrintWriter out,
-            List dependencies, IvyNode dep) {
+            Map positions, IvyNode dep) {
         Map extraAttributes;
         ModuleDescriptor md = null;
         if (dep.getModuleRevision() != null) {
             md = dep.getModuleRevision().getDescriptor();
         }
-        StringBuffer details = new StringBuffer();
+        out.write("\t\t\t<revision");
+        outputAttribute(out, "name", dep.getResolvedId().getRevision());
+        if (dep.getResolvedId().getBranch() != null) {
+            outputAttribute(out, "branch", dep.getResolvedId().getBranch());
+        }
         if (dep.isLoaded()) {
-            details.append(" status=\"");
-            details.append(XMLHelper.escape(dep.getDescriptor().getStatus()));
-            details.append("\" pubdate=\"");
-            details.append(DateUtil.format(new Date(dep.getPublication())));
-            details.append("\" resolver=\"");
-            details.append(XMLHelper.escape(
-                dep.getModuleRevision().getResolver().getName()));
-            details.append("\" artresolver=\"");
-            details.append(XMLHelper.escape(
-                dep.getModuleRevision().getArtifactResolver().getName()));
-            details.append("\"");
+            outputAttribute(out, "status", dep.getDescriptor().getStatus());
+            outputRawAttribute(out, "pubdate", DateUtil.format(new Date(dep.getPublication())));
+            outputAttribute(out, "resolver", dep.getModuleRevision().getResolver().getName());
+            outputAttribute(out, "artresolver",
+                dep.getModuleRevision().getArtifactResolver().getName());
         }
         if (dep.isEvicted(report.getConfiguration())) {
             EvictionData ed = dep.getEvictedData(report.getConfiguration());
             if (ed.getConflictManager() != null) {
-                details.append(" evicted=\"").append(
-                    XMLHelper.escape(ed.getConflictManager().toString())).append("\"");
+                outputAttribute(out, "evicted", ed.getConflictManager().toString());
             } else {
-                details.append(" evicted=\"transitive\"");
+                outputRawAttribute(out, "evicted", "transitive");
             }
-            details.append(" evicted-reason=\"")
-                .append(XMLHelper.escape(ed.getDetail() == null ? "" : ed.getDetail()))
-                .append("\"");
+            outputAttribute(out, "evicted-reason", ed.getDetail() == null ? "" : ed.getDetail());
         }
         if (dep.hasProblem()) {
-            details.append(" error=\"").append(
-                XMLHelper.escape(dep.getProblem().getMessage())).append("\"");
+            outputAttribute(out, "error", dep.getProblem().getMessage());
         }
         if (md != null && md.getHomePage() != null) {
-            details.append(" homepage=\"").append(
-                XMLHelper.escape(md.getHomePage())).append("\"");
+            outputAttribute(out, "homepage", md.getHomePage());
         }
         extraAttributes = md != null ? md.getExtraAttributes() : dep.getResolvedId()
                 .getExtraAttributes();
-        for (Iterator iterator = extraAttributes.keySet().iterator(); iterator.hasNext();) {
-            String attName = (String) iterator.next();
-            details.append(" extra-").append(attName).append("=\"").append(
-                XMLHelper.escape(extraAttributes.get(attName).toString())).append("\"");
+        outputExtraAttributes(out, extraAttributes);
+        outputRawAttribute(out, "downloaded", String.valueOf(dep.isDownloaded()));
+        outputRawAttribute(out, "searched", String.valueOf(dep.isSearched()));
+        if (dep.getDescriptor() != null) {
+            outputRawAttribute(out, "default", String.valueOf(dep.getDescriptor().isDefault()));
         }
-        String defaultValue = dep.getDescriptor() != null ? " default=\""
-                + dep.getDescriptor().isDefault() + "\"" : "";
-        int position = dependencies.indexOf(dep.getResolvedId());
-        out.println("\t\t\t<revision name=\""
-                + XMLHelper.escape(dep.getResolvedId().getRevision())
-                + "\""
-                + (dep.getResolvedId().getBranch() == null ? "" : " branch=\""
-                        + XMLHelper.escape(
-                            dep.getResolvedId().getBranch()) + "\"") + details
-                + " downloaded=\"" + dep.isDownloaded() + "\"" + " searched=\""
-                + dep.isSearched() + "\"" + defaultValue + " conf=\""
-                + toString(dep.getConfigurations(report.getConfiguration())) + "\""
-                + " position=\"" + position + "\">");
+        outputRawAttribute(out, "conf",
+            toString(dep.getConfigurations(report.getConfiguration())));
+        Integer position = (Integer) positions.get(dep.getResolvedId());
+        outputRawAttribute(out, "position", position == null ? "-1" : position.toString());
+        out.println(">");
         if (md != null) {
             License[] licenses = md.getLicenses();
             for (int i = 0; i < licenses.length; i++) {
-                String lurl;
+                out.write("\t\t\t\t<license");
+                outputAttribute(out, "name", licenses[i].getName());
                 if (licenses[i].getUrl() != null) {
-                    lurl = " url=\"" + XMLHelper.escape(licenses[i].getUrl()) + "\"";
-                } else {
-                    lurl = "";
+                    outputAttribute(out, "url", licenses[i].getUrl());
                 }
-                out.println("\t\t\t\t<license name=\"" 
-                    + XMLHelper.escape(licenses[i].getName()) + "\""
-                        + lurl + "/>");
+                out.println("/>");
             }
         }
         outputMetadataArtifact(out, dep);
@@ -198,8 +190,9 @@ public class XmlReportWriter {
             if (selected != null) {
                 for (Iterator it3 = selected.iterator(); it3.hasNext();) {
                     IvyNode sel = (IvyNode) it3.next();
-                    out.println("\t\t\t\t<evicted-by rev=\""
-                            + XMLHelper.escape(sel.getResolvedId().getRevision()) + "\"/>");
+                    out.write("\t\t\t\t<evicted-by");
+                    outputAttribute(out, "rev", sel.getResolvedId().getRevision());
+                    out.println("/>");
                 }
             }
         }
@@ -208,27 +201,25 @@ public class XmlReportWriter {
     private void outputMetadataArtifact(PrintWriter out, IvyNode dep) {
         if (dep.getModuleRevision() != null) {
             MetadataArtifactDownloadReport madr = dep.getModuleRevision().getReport();
-            out.print("\t\t\t\t<metadata-artifact");
-            out.print(" status=\"" 
-                + XMLHelper.escape(madr.getDownloadStatus().toString()) + "\"");
-            out.print(" details=\"" + XMLHelper.escape(madr.getDownloadDetails()) + "\"");
-            out.print(" size=\"" + madr.getSize() + "\"");
-            out.print(" time=\"" + madr.getDownloadTimeMillis() + "\"");
+            out.write("\t\t\t\t<metadata-artifact");
+            outputAttribute(out, "status", madr.getDownloadStatus().toString());
+            outputAttribute(out, "details", madr.getDownloadDetails());
+            outputRawAttribute(out, "size", String.valueOf(madr.getSize()));
+            outputRawAttribute(out, "time", String.valueOf(madr.getDownloadTimeMillis()));
             if (madr.getLocalFile() != null) {
-                out.print(" location=\"" 
-                    + XMLHelper.escape(madr.getLocalFile().getAbsolutePath()) + "\"");
+                outputAttribute(out, "location", madr.getLocalFile().getAbsolutePath());
             }
 
-            out.print(" searched=\"" + madr.isSearched() + "\"");
+            outputRawAttribute(out, "searched", String.valueOf(madr.isSearched()));
             if (madr.getOriginalLocalFile() != null) {
-                out.print(" original-local-location=\"" 
-                    + XMLHelper.escape(madr.getOriginalLocalFile().getAbsolutePath()) + "\"");
+                outputAttribute(out, "original-local-location", 
+                    madr.getOriginalLocalFile().getAbsolutePath());
             }
 
             ArtifactOrigin origin = madr.getArtifactOrigin();
             if (origin != null) {
-                out.print(" origin-is-local=\"" + String.valueOf(origin.isLocal()) + "\""); 
-                out.print(" origin-location=\"" + XMLHelper.escape(origin.getLocation()) + "\"");
+                outputRawAttribute(out, "origin-is-local", String.valueOf(origin.isLocal())); 
+                outputAttribute(out, "origin-location", origin.getLocation());
             }
             out.println("/>");
             
@@ -238,77 +229,49 @@ public class XmlReportWriter {
     private void outputCallers(ConfigurationResolveReport report, PrintWriter out, IvyNode dep) {
         Caller[] callers = dep.getCallers(report.getConfiguration());
         for (int i = 0; i < callers.length; i++) {
-            StringBuffer callerDetails = new StringBuffer();
-            Map callerExtraAttributes = callers[i].getDependencyDescriptor()
-                    .getExtraAttributes();
-            for (Iterator iterator = callerExtraAttributes.keySet().iterator(); iterator
-                    .hasNext();) {
-                String attName = (String) iterator.next();
-                callerDetails.append(" extra-").append(attName).append("=\"").append(
-                    XMLHelper.escape(
-                        callerExtraAttributes.get(attName).toString())).append("\"");
-            }
-
-            out.println("\t\t\t\t<caller organisation=\""
-                    + XMLHelper.escape(
-                        callers[i].getModuleRevisionId().getOrganisation()) + "\""
-                    + " name=\"" 
-                    + XMLHelper.escape(
-                        callers[i].getModuleRevisionId().getName()) + "\""
-                    + " conf=\"" 
-                    + XMLHelper.escape(
-                        toString(callers[i].getCallerConfigurations())) + "\""
-                    + " rev=\"" 
-                    + XMLHelper.escape(
-                        callers[i].getAskedDependencyId(dep.getData()).getRevision()) + "\""
-                    + " rev-constraint-default=\"" 
-                    + XMLHelper.escape(
-                        callers[i].getDependencyDescriptor()
-                            .getDependencyRevisionId().getRevision()) + "\""
-                    + " rev-constraint-dynamic=\"" 
-                    + XMLHelper.escape(
-                        callers[i].getDependencyDescriptor()
-                            .getDynamicConstraintDependencyRevisionId().getRevision()) + "\""
-                    + " callerrev=\"" 
-                    + XMLHelper.escape(
-                        callers[i].getModuleRevisionId().getRevision()) + "\""
-                    + callerDetails + "/>");
+            out.write("\t\t\t\t<caller");
+            outputAttribute(out, "organisation", 
+                callers[i].getModuleRevisionId().getOrganisation());
+            outputAttribute(out, "name", callers[i].getModuleRevisionId().getName());
+            // the configurations have always been escaped twice in caller elements
+            outputAttribute(out, "conf", toString(callers[i].getCallerConfigurations()));
+            outputAttribute(out, "rev", 
+                callers[i].getAskedDependencyId(dep.getData()).getRevision());
+            outputAttribute(out, "rev-constraint-default", 
+                callers[i].getDependencyDescriptor().getDependencyRevisionId().getRevision());
+            outputAttribute(out, "rev-constraint-dynamic", 
+                callers[i].getDependencyDescriptor()
+                    .getDynamicConstraintDependencyRevisionId().getRevision());
+            outputAttribute(out, "callerrev", callers[i].getModuleRevisionId().getRevision());
+            outputExtraAttributes(out, callers[i].getDependencyDescriptor().getExtraAttributes());
+            out.println("/>");
         }
     }
 
     private void outputArtifacts(ConfigurationResolveReport report, PrintWriter out, IvyNode dep) {
-        Map extraAttributes;
         ArtifactDownloadReport[] adr = report.getDownloadReports(dep.getResolvedId());
         out.println("\t\t\t\t<artifacts>");
         for (int i = 0; i < adr.length; i++) {
-            out.print("\t\t\t\t\t<artifact name=\"" 
-                + XMLHelper.escape(adr[i].getName()) 
-                + "\" type=\"" + XMLHelper.escape(adr[i].getType()) 
-                + "\" ext=\"" + XMLHelper.escape(adr[i].getExt()) + "\"");
-            extraAttributes = adr[i].getArtifact().getExtraAttributes();
-            for (Iterator iterator = extraAttributes.keySet().iterator(); iterator
-                    .hasNext();) {
-                String attName = (String) iterator.next();
-                out.print(" extra-" + attName + "=\"" 
-                    + XMLHelper.escape(extraAttributes.get(attName).toString())
-                                + "\"");
-            }
-            out.print(" status=\"" 
-                + XMLHelper.escape(adr[i].getDownloadStatus().toString()) + "\"");
-            out.print(" details=\"" + XMLHelper.escape(adr[i].getDownloadDetails()) + "\"");
-            out.print(" size=\"" + adr[i].getSize() + "\"");
-            out.print(" time=\"" + adr[i].getDownloadTimeMillis() + "\"");
+            out.write("\t\t\t\t\t<artifact");
+            outputAttribute(out, "name", adr[i].getName());
+            outputAttribute(out, "type", adr[i].getType());
+            outputAttribute(out, "ext", adr[i].getExt());
+            outputExtraAttributes(out, adr[i].getArtifact().getExtraAttributes());
+            outputAttribute(out, "status", adr[i].getDownloadStatus().toString());
+            outputAttribute(out, "details", adr[i].getDownloadDetails());
+            outputRawAttribute(out, "size", String.valueOf(adr[i].getSize()));
+            outputRawAttribute(out, "time", String.valueOf(adr[i].getDownloadTimeMillis()));
             if (adr[i].getLocalFile() != null) {
-                out.print(" location=\"" 
-                    + XMLHelper.escape(adr[i].getLocalFile().getAbsolutePath()) + "\"");
+                outputAttribute(out, "location", adr[i].getLocalFile().getAbsolutePath());
             }
 
             ArtifactOrigin origin = adr[i].getArtifactOrigin();
             if (origin != null) {
                 out.println(">");
-                out.println("\t\t\t\t\t\t<origin-location is-local=\""
-                        + String.valueOf(origin.isLocal()) + "\"" + " location=\""
-                        + XMLHelper.escape(origin.getLocation()) + "\"/>");
+                out.write("\t\t\t\t\t\t<origin-location");
+                outputRawAttribute(out, "is-local", String.valueOf(origin.isLocal()));
+                outputAttribute(out, "location", origin.getLocation());
+                out.println("/>");
                 out.println("\t\t\t\t\t</artifact>");
             } else {
                 out.println("/>");
@@ -317,6 +280,84 @@ public class XmlReportWriter {
         out.println("\t\t\t\t</artifacts>");
     }
 
+    private void outputExtraAttributes(PrintWriter out, Map extraAttributes) {
+        for (Iterator iterator = extraAttributes.entrySet().iterator(); iterator.hasNext();) {
+            Map.Entry entry = (Entry) iterator.next();
+            outputAttribute(out, "extra-" + entry.getKey(), entry.getValue().toString());
+        }
+    }
+
+    /**
+     * Writes an attribute of the info element, on its own line.
+     */
+    private static void outputInfoAttribute(PrintWriter out, String name, String value) {
+        out.write("\t\t");
+        out.write(name);
+        out.write("=\"");
+        escape(out, value);
+        out.println("\"");
+    }
+
+    /**
+     * Writes an attribute preceded by a space, escaping its value.
+     */
+    private static void outputAttribute(PrintWriter out, String name, String value) {
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        escape(out, value);
+        out.write('"');
+    }
+
+    /**
+     * Writes an attribute preceded by a space, with a value which doesn't need to be escaped.
+     */
+    private static void outputRawAttribute(PrintWriter out, String name, String value) {
+        out.write(' ');
+        out.write(name);
+        out.write("=\"");
+        out.write(value);
+        out.write('"');
+    }
+
+    /**
+     * Writes the given text escaped as {@link XMLHelper#escape(String)} does, writing
+     * <code>null</code> for a <code>null</code> text.
+     */
+    private static void escape(PrintWriter out, String text) {
+        if (text == null) {
+            out.write("null");
+            return;
+        }
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            String entity;
+            switch (text.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '\'':
+                    entity = "&apos;";
+                    break;
+                case '\"':
+                    entity = "&quot;";
+                    break;
+                default:
+                    entity = null;
+            }
+            if (entity != null) {
+                out.write(text, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+        out.write(text, start, length - start);
+    }
+
     private String toString(String[] strs) {
         StringBuffer buf = new StringBuffer();
         for (int i = 0; i < strs.length; i++) {
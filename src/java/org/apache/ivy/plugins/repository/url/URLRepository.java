@@ -42,12 +42,14 @@ public class URLRepository extends AbstractRepository {
     private Map resourcesCache = new HashMap();
 
     public Resource getResource(String source) throws IOException {
-        Resource res = (Resource) resourcesCache.get(source);
-        if (res == null) {
-            res = new URLResource(new URL(source));
-            resourcesCache.put(source, res);
+        synchronized (resourcesCache) {
+            Resource res = (Resource) resourcesCache.get(source);
+            if (res == null) {
+                res = new URLResource(new URL(source));
+                resourcesCache.put(source, res);
+            }
+            return res;
         }
-        return res;
     }
     
     public void get(String source, File destination) throws IOException {
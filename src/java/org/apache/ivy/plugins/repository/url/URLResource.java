@@ -37,6 +37,8 @@ public class URLResource implements Resource {
 
     private boolean exists;
 
+    private String etag;
+
     public URLResource(URL url) {
         this.url = url;
     }
@@ -62,13 +64,52 @@ public class URLResource implements Resource {
     }
 
     private void init() {
-        URLInfo info = URLHandlerRegistry.getDefault().getURLInfo(url);
+        init(URLHandlerRegistry.getDefault().getURLInfo(url));
+    }
+
+    private void init(URLInfo info) {
         contentLength = info.getContentLength();
         lastModified = info.getLastModified();
         exists = info.isReachable();
+        etag = info.getETag();
         init = true;
     }
 
+    /**
+     * Returns the entity tag of this resource, which can be used to check later if it has been
+     * modified.
+     * 
+     * @return the entity tag, or <code>null</code> if the server doesn't give one
+     */
+    public String getETag() {
+        if (!init) {
+            init();
+        }
+        return etag;
+    }
+
+    /**
+     * Checks if this resource has been modified since it has been fetched with the given
+     * validators, by comparing them with the entity tag and last modification date of this
+     * resource, which are obtained with the request used to check its existence.
+     * 
+     * @param etag
+     *            the entity tag of the resource when it was fetched, <code>null</code> if unknown
+     * @param lastModified
+     *            the last modification time of the resource when it was fetched, 0 if unknown
+     * @return <code>false</code> if the resource is known not to have been modified,
+     *         <code>true</code> otherwise
+     */
+    public boolean isModified(String etag, long lastModified) {
+        if (!init) {
+            init();
+        }
+        if (etag != null && this.etag != null) {
+            return !etag.equals(this.etag);
+        }
+        return lastModified <= 0 || this.lastModified <= 0 || this.lastModified > lastModified;
+    }
+
     public long getContentLength() {
         if (!init) {
             init();
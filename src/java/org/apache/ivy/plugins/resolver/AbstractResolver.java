@@ -29,6 +29,7 @@ import org.apache.ivy.core.RelativeUrlResolver;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.CacheDownloadOptions;
 import org.apache.ivy.core.cache.CacheMetadataOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.DownloadListener;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.cache.ResolutionCacheManager;
@@ -380,6 +381,32 @@ public abstract class AbstractResolver
         return changingPattern;
     }
 
+    /**
+     * Indicates if the given revision is a changing one according to the changing pattern and
+     * matcher of this resolver, or of its cache manager when this resolver doesn't define one.
+     */
+    public boolean isChangingRevision(String revision) {
+        String pattern = getChangingPattern();
+        String matcherName = getChangingMatcherName();
+        if (pattern == null
+                && getRepositoryCacheManager() instanceof DefaultRepositoryCacheManager) {
+            DefaultRepositoryCacheManager cacheManager
+                = (DefaultRepositoryCacheManager) getRepositoryCacheManager();
+            pattern = cacheManager.getChangingPattern();
+            matcherName = cacheManager.getChangingMatcherName();
+        }
+        if (pattern == null || revision == null) {
+            return false;
+        }
+        PatternMatcher matcher = getSettings().getMatcher(
+            matcherName == null ? PatternMatcher.EXACT_OR_REGEXP : matcherName);
+        if (matcher == null) {
+            throw new IllegalStateException("unknown matcher '" + matcherName
+                    + "'. It is set as changing matcher in " + this);
+        }
+        return matcher.getMatcher(pattern).matches(revision);
+    }
+
     public void setCheckmodified(boolean check) {
         checkmodified = Boolean.valueOf(check);
     }
@@ -54,6 +54,8 @@ import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.IvyNode;
 import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.search.ModuleEntry;
 import org.apache.ivy.core.search.OrganisationEntry;
@@ -76,6 +78,7 @@ import org.apache.ivy.plugins.resolver.util.ResourceMDParser;
 import org.apache.ivy.plugins.version.VersionMatcher;
 import org.apache.ivy.util.Checks;
 import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.DownloadChecksums;
 import org.apache.ivy.util.HostUtil;
 import org.apache.ivy.util.Message;
 
@@ -138,7 +141,8 @@ public abstract class BasicResolver extends AbstractResolver {
 
     private List ivyattempts = new ArrayList();
 
-    private Map artattempts = new HashMap();
+    // artifacts of a single resolver may be downloaded by several threads at once
+    private Map artattempts = Collections.synchronizedMap(new HashMap());
 
     private boolean checkconsistency = true;
 
@@ -174,6 +178,27 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
             throws ParseException {
+        ResolveMetrics metrics = ResolveMetrics.getCurrent();
+        if (metrics == null) {
+            return doGetDependency(dd, data);
+        }
+        ResolvedModuleRevision previous = data.getCurrentResolvedModuleRevision();
+        ResolvedModuleRevision mr = null;
+        ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.RESOLVER, getName(),
+            dd.getDependencyRevisionId());
+        long start = System.currentTimeMillis();
+        try {
+            mr = doGetDependency(dd, data);
+            return mr;
+        } finally {
+            metrics.addResolverRequest(getName(), System.currentTimeMillis() - start,
+                mr != null && mr != previous);
+            ResolveTrace.end(span);
+        }
+    }
+
+    private ResolvedModuleRevision doGetDependency(DependencyDescriptor dd, ResolveData data)
+            throws ParseException {
         IvyContext context = IvyContext.pushNewCopyContext();
         try {
             ResolvedModuleRevision mr = data.getCurrentResolvedModuleRevision();
@@ -774,10 +799,13 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected void logArtifactAttempt(Artifact art, String attempt) {
-        List attempts = (List) artattempts.get(art);
-        if (attempts == null) {
-            attempts = new ArrayList();
-            artattempts.put(art, attempts);
+        List attempts;
+        synchronized (artattempts) {
+            attempts = (List) artattempts.get(art);
+            if (attempts == null) {
+                attempts = Collections.synchronizedList(new ArrayList());
+                artattempts.put(art, attempts);
+            }
         }
         attempts.add(attempt);
         Message.verbose("\t\ttried " + attempt);
@@ -798,14 +826,13 @@ public abstract class BasicResolver extends AbstractResolver {
             String m = (String) iter.next();
             Message.warn("  " + m);
         }
-        for (Iterator iter = artattempts.keySet().iterator(); iter.hasNext();) {
-            Artifact art = (Artifact) iter.next();
-            List attempts = (List) artattempts.get(art);
-            if (attempts != null) {
-                Message.warn("  -- artifact " + art + ":");
-                for (ListIterator iterator = attempts.listIterator(); iterator.hasNext();) {
-                    String m = (String) iterator.next();
-                    Message.warn("  " + m);
+        synchronized (artattempts) {
+            for (Iterator iter = artattempts.keySet().iterator(); iter.hasNext();) {
+                Artifact art = (Artifact) iter.next();
+                List attempts = (List) artattempts.get(art);
+                if (attempts != null) {
+                    Message.warn("  -- artifact " + art + ":");
+                    warnAttempts(attempts);
                 }
             }
         }
@@ -815,6 +842,12 @@ public abstract class BasicResolver extends AbstractResolver {
         Message.warn("==== " + getName() + ": tried");
         List attempts = (List) artattempts.get(art);
         if (attempts != null) {
+            warnAttempts(attempts);
+        }
+    }
+
+    private void warnAttempts(List attempts) {
+        synchronized (attempts) {
             for (ListIterator iter = attempts.listIterator(); iter.hasNext();) {
                 String m = (String) iter.next();
                 Message.warn("  " + m);
@@ -828,12 +861,23 @@ public abstract class BasicResolver extends AbstractResolver {
 
     public DownloadReport download(Artifact[] artifacts, DownloadOptions options) {
         RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        ResolveMetrics metrics = ResolveMetrics.getCurrent();
 
-        clearArtifactAttempts();
+        clearArtifactAttempts(artifacts);
         DownloadReport dr = new DownloadReport();
         for (int i = 0; i < artifacts.length; i++) {
-            ArtifactDownloadReport adr = cacheManager.download(artifacts[i],
-                artifactResourceResolver, downloader, getCacheDownloadOptions(options));
+            ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.DOWNLOAD, getName(),
+                artifacts[i]);
+            ArtifactDownloadReport adr;
+            try {
+                adr = cacheManager.download(artifacts[i], artifactResourceResolver, downloader,
+                    getCacheDownloadOptions(options));
+            } finally {
+                ResolveTrace.end(span);
+            }
+            if (metrics != null && DownloadStatus.SUCCESSFUL == adr.getDownloadStatus()) {
+                metrics.addDownload(getName(), adr.getSize());
+            }
             if (DownloadStatus.FAILED == adr.getDownloadStatus()) {
                 if (!ArtifactDownloadReport.MISSING_ARTIFACT.equals(adr.getDownloadDetails())) {
                     Message.warn("\t" + adr);
@@ -855,6 +899,16 @@ public abstract class BasicResolver extends AbstractResolver {
         artattempts.clear();
     }
 
+    /**
+     * Clears the attempts logged for the given artifacts only, so that other artifacts can be
+     * downloaded by this resolver at the same time.
+     */
+    protected void clearArtifactAttempts(Artifact[] artifacts) {
+        for (int i = 0; i < artifacts.length; i++) {
+            artattempts.remove(artifacts[i]);
+        }
+    }
+
     public ArtifactDownloadReport download(final ArtifactOrigin origin, DownloadOptions options) {
         Checks.checkNotNull(origin, "origin");
         return getRepositoryCacheManager().download(origin.getArtifact(),
@@ -975,11 +1029,29 @@ public abstract class BasicResolver extends AbstractResolver {
     }
 
     protected long getAndCheck(Resource resource, File dest) throws IOException {
-        long size = get(resource, dest);
         String[] checksums = getChecksumAlgorithms();
+        if (checksums.length == 0) {
+            return get(resource, dest);
+        }
+        // checksums are computed while the resource is downloaded, so that the downloaded file
+        // doesn't need to be read again to be checked
+        List known = new ArrayList();
+        for (int i = 0; i < checksums.length; i++) {
+            if (ChecksumHelper.isKnownAlgorithm(checksums[i])) {
+                known.add(checksums[i]);
+            }
+        }
+        DownloadChecksums computed = DownloadChecksums.start(
+            (String[]) known.toArray(new String[known.size()]));
+        long size;
+        try {
+            size = get(resource, dest);
+        } finally {
+            computed.stop();
+        }
         boolean checked = false;
         for (int i = 0; i < checksums.length && !checked; i++) {
-            checked = check(resource, dest, checksums[i]);
+            checked = check(resource, dest, checksums[i], computed);
         }
         return size;
     }
@@ -993,12 +1065,15 @@ public abstract class BasicResolver extends AbstractResolver {
      *            the file where the resource has been downloaded
      * @param algorithm
      *            the checksum algorithm to use
+     * @param computed
+     *            the checksums computed while downloading the resource
      * @return true if the checksum has been successfully checked, false if the checksum wasn't
      *         available
      * @throws IOException
      *             if a checksum exist but do not match the downloaded file checksum
      */
-    private boolean check(Resource resource, File dest, String algorithm) throws IOException {
+    private boolean check(Resource resource, File dest, String algorithm,
+            DownloadChecksums computed) throws IOException {
         if (!ChecksumHelper.isKnownAlgorithm(algorithm)) {
             throw new IllegalArgumentException("Unknown checksum algorithm: " + algorithm);
         }
@@ -1010,7 +1085,13 @@ public abstract class BasicResolver extends AbstractResolver {
             try {
                 get(csRes, csFile);
                 try {
-                    ChecksumHelper.check(dest, csFile, algorithm);
+                    String checksum = computed.getChecksum(algorithm, dest);
+                    if (checksum == null) {
+                        // the file has not been written by FileUtil
+                        checksum = ChecksumHelper.computeAsString(dest, algorithm);
+                    }
+                    ChecksumHelper.check(checksum, csFile, algorithm);
+                    DownloadChecksums.addVerified(algorithm, checksum);
                     Message.verbose(algorithm + " OK for " + resource);
                     return true;
                 } catch (IOException ex) {
@@ -104,7 +104,7 @@ public class CacheResolver extends FileSystemResolver {
 
     public DownloadReport download(Artifact[] artifacts, DownloadOptions options) {
         ensureConfigured();
-        clearArtifactAttempts();
+        clearArtifactAttempts(artifacts);
         DownloadReport dr = new DownloadReport();
         for (int i = 0; i < artifacts.length; i++) {
             final ArtifactDownloadReport adr = new ArtifactDownloadReport(artifacts[i]);
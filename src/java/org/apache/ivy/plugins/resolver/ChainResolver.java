@@ -28,7 +28,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
@@ -38,11 +45,14 @@ import org.apache.ivy.core.report.DownloadReport;
 import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveMetrics;
+import org.apache.ivy.core.resolve.ResolveTrace;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.plugins.latest.ArtifactInfo;
 import org.apache.ivy.plugins.latest.LatestStrategy;
 import org.apache.ivy.plugins.resolver.util.HasLatestStrategy;
 import org.apache.ivy.plugins.resolver.util.ResolvedResource;
+import org.apache.ivy.util.AbstractMessageLogger;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.StringUtils;
 
@@ -73,12 +83,52 @@ public class ChainResolver extends AbstractResolver {
 
     private boolean dual;
 
+    private boolean parallel = false;
+
+    private int parallelProbes = 0;
+
+    /**
+     * The threads probing resolvers concurrently, shared by all chains. Idle threads die after a
+     * minute, so no thread is kept for chains which aren't used anymore.
+     */
+    private static final ExecutorService PROBE_EXECUTOR = Executors
+            .newCachedThreadPool(new ThreadFactory() {
+                private int count = 0;
+
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "ivy-chain-" + (++count));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
     public void add(DependencyResolver resolver) {
         chain.add(resolver);
     }
 
     public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data)
             throws ParseException {
+        ResolveMetrics metrics = ResolveMetrics.getCurrent();
+        if (metrics == null) {
+            return doGetDependency(dd, data);
+        }
+        ResolvedModuleRevision previous = data.getCurrentResolvedModuleRevision();
+        ResolvedModuleRevision mr = null;
+        ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.RESOLVER, getName(),
+            dd.getDependencyRevisionId());
+        long start = System.currentTimeMillis();
+        try {
+            mr = doGetDependency(dd, data);
+            return mr;
+        } finally {
+            metrics.addResolverRequest(getName(), System.currentTimeMillis() - start,
+                mr != null && mr != previous);
+            ResolveTrace.end(span);
+        }
+    }
+
+    private ResolvedModuleRevision doGetDependency(DependencyDescriptor dd, ResolveData data)
+            throws ParseException {
         data = new ResolveData(data, doValidate(data));
 
         List errors = new ArrayList();
@@ -95,13 +145,23 @@ public class ChainResolver extends AbstractResolver {
             }
         }
         
-        for (Iterator iter = chain.iterator(); iter.hasNext();) {
+        List serialResolvers = chain;
+        if (isParallel() && chain.size() > 1 && !isSettled(dd, mr)) {
+            int count = parallelProbes <= 0 ? chain.size() : Math.min(parallelProbes, chain
+                    .size());
+            if (count > 1) {
+                mr = probeConcurrently(chain.subList(0, count), dd, data, mr, errors);
+                serialResolvers = chain.subList(count, chain.size());
+            }
+        }
+
+        for (Iterator iter = serialResolvers.iterator(); iter.hasNext();) {
             DependencyResolver resolver = (DependencyResolver) iter.next();
             LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
             try {
                 ResolvedModuleRevision previouslyResolved = mr;
                 data.setCurrentResolvedModuleRevision(previouslyResolved);
-                mr = resolver.getDependency(dd, data);
+                mr = probe(resolver, dd, data);
                 if (mr != previouslyResolved && isReturnFirst()) {
                     mr = forcedRevision(mr);
                 }
@@ -144,6 +204,233 @@ public class ChainResolver extends AbstractResolver {
         return resolvedRevision(mr);
     }
 
+    /**
+     * Asks the given resolvers for the dependency all at once, and combines their answers in chain
+     * order, as if they had been asked one after the other.
+     * <p>
+     * Each resolver is only asked to compare what it finds with the module revision known before
+     * the probe (<code>mr</code>), so the answers are then compared with each other using the
+     * latest strategy of the chain. As soon as the answer is settled (first found in return first
+     * mode, or static revision found), the probes of the following resolvers are ignored, since
+     * they would have been bypassed in a serial iteration. Those which haven't started yet are
+     * cancelled, the others are never interrupted: they are allowed to finish what they are
+     * writing in the cache, and are waited for before returning.
+     * </p>
+     * <p>
+     * Messages logged by each probe are buffered and logged in chain order once the probe is
+     * combined, messages of ignored probes are discarded.
+     * </p>
+     */
+    private ResolvedModuleRevision probeConcurrently(List resolvers, DependencyDescriptor dd,
+            ResolveData data, ResolvedModuleRevision mr, List errors) throws ParseException {
+        IvyContext context = IvyContext.getContext();
+        Map oldLatests = new HashMap();
+        List probes = new ArrayList();
+        for (Iterator iter = resolvers.iterator(); iter.hasNext();) {
+            DependencyResolver resolver = (DependencyResolver) iter.next();
+            LatestStrategy oldLatest = setLatestIfRequired(resolver, getLatestStrategy());
+            if (oldLatest != null) {
+                oldLatests.put(resolver, oldLatest);
+            }
+            ResolveData probeData = new ResolveData(data, data.isValidate());
+            probeData.setCurrentResolvedModuleRevision(mr);
+            probes.add(new Probe(context, resolver, dd, probeData));
+        }
+        Message.verbose(getName() + ": probing " + resolvers.size() + " resolvers for " + dd);
+        List futures = new ArrayList();
+        for (Iterator iter = probes.iterator(); iter.hasNext();) {
+            futures.add(PROBE_EXECUTOR.submit((Probe) iter.next()));
+        }
+
+        ResolvedModuleRevision initial = mr;
+        try {
+            for (int i = 0; i < probes.size(); i++) {
+                Probe probe = (Probe) probes.get(i);
+                Future future = (Future) futures.get(i);
+                if (isSettled(dd, mr) && !isForce(probe.resolver)) {
+                    // this resolver would have been bypassed
+                    future.cancel(false);
+                    continue;
+                }
+                ResolvedModuleRevision found;
+                try {
+                    found = (ResolvedModuleRevision) future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // reset interrupt status
+                    throw new RuntimeException("operation interrupted");
+                } catch (ExecutionException e) {
+                    probe.logger.replay();
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    Exception ex = (Exception) e.getCause();
+                    Message.verbose("problem occurred while resolving " + dd + " with "
+                            + probe.resolver + ": " + StringUtils.getStackTrace(ex));
+                    errors.add(ex);
+                    continue;
+                }
+                probe.logger.replay();
+                if (found == null || found == initial) {
+                    // nothing better than what was known before the probe
+                    continue;
+                }
+                ResolvedModuleRevision previouslyResolved = mr;
+                if (mr == initial || isAfter(found, mr, data.getDate())
+                        || (!found.getDescriptor().isDefault() && mr.getDescriptor().isDefault())) {
+                    Message.debug("\t" + getName() + ": keeping " + found.getId() + " found by "
+                            + probe.resolver.getName());
+                    mr = found;
+                }
+                if (mr != previouslyResolved && isReturnFirst()) {
+                    mr = forcedRevision(mr);
+                }
+            }
+        } finally {
+            for (Iterator iter = futures.iterator(); iter.hasNext();) {
+                ((Future) iter.next()).cancel(false);
+            }
+            awaitProbes(futures);
+            for (Iterator iter = oldLatests.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                setLatest((DependencyResolver) entry.getKey(), (LatestStrategy) entry.getValue());
+            }
+        }
+        if (mr != initial) {
+            // probes may have saved their own revision concurrently: the one kept is saved last
+            saveModuleRevisionIfNeeded(dd, mr);
+        }
+        checkInterrupted();
+        return mr;
+    }
+
+    /**
+     * Returns true if the given module revision would be returned as is by the following
+     * resolvers in the chain, without looking for the dependency themselves.
+     */
+    private boolean isSettled(DependencyDescriptor dd, ResolvedModuleRevision mr) {
+        if (mr == null) {
+            return false;
+        }
+        boolean isDynamic = getSettings().getVersionMatcher().isDynamic(
+            dd.getDependencyRevisionId());
+        return mr.isForce() || (!isDynamic && !mr.getDescriptor().isDefault());
+    }
+
+    private static ResolvedModuleRevision probe(DependencyResolver resolver,
+            DependencyDescriptor dd, ResolveData data) throws ParseException {
+        ResolveTrace.Span span = ResolveTrace.begin(ResolveTrace.CHAIN, resolver.getName(),
+            dd.getDependencyRevisionId());
+        try {
+            return resolver.getDependency(dd, data);
+        } finally {
+            ResolveTrace.end(span);
+        }
+    }
+
+    private static boolean isForce(DependencyResolver resolver) {
+        return resolver instanceof BasicResolver && ((BasicResolver) resolver).isForce();
+    }
+
+    /**
+     * Waits for the probes which were started to finish, their results being ignored.
+     */
+    private static void awaitProbes(List/*<Future>*/ futures) {
+        for (Iterator iter = futures.iterator(); iter.hasNext();) {
+            Future future = (Future) iter.next();
+            if (future.isCancelled()) {
+                continue;
+            }
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // reset interrupt status
+                return;
+            } catch (ExecutionException e) {
+                // ignored, as the result of the probe
+            }
+        }
+    }
+
+    private static final class Probe implements Callable {
+        private final IvyContext context;
+
+        private final DependencyResolver resolver;
+
+        private final DependencyDescriptor dd;
+
+        private final ResolveData data;
+
+        private final BufferedMessageLogger logger;
+
+        private Probe(IvyContext context, DependencyResolver resolver, DependencyDescriptor dd,
+                ResolveData data) {
+            this.context = new IvyContext(context);
+            this.resolver = resolver;
+            this.dd = dd;
+            this.data = data;
+            this.logger = new BufferedMessageLogger();
+            this.context.setMessageLogger(logger);
+        }
+
+        public Object call() throws Exception {
+            IvyContext.pushContext(context);
+            try {
+                return probe(resolver, dd, data);
+            } finally {
+                IvyContext.popContext();
+            }
+        }
+    }
+
+    /**
+     * Records messages, to log them later in the thread which called {@link #replay()}.
+     */
+    private static final class BufferedMessageLogger extends AbstractMessageLogger {
+        private static final int WARN = -1;
+
+        private static final int ERROR = -2;
+
+        private final List/*<Object[]>*/ messages = new ArrayList();
+
+        public synchronized void log(String msg, int level) {
+            messages.add(new Object[] {new Integer(level), msg});
+        }
+
+        public void rawlog(String msg, int level) {
+            log(msg, level);
+        }
+
+        public void warn(String msg) {
+            log(msg, WARN);
+        }
+
+        public void error(String msg) {
+            log(msg, ERROR);
+        }
+
+        protected void doProgress() {
+        }
+
+        protected void doEndProgress(String msg) {
+        }
+
+        public synchronized void replay() {
+            for (Iterator iter = messages.iterator(); iter.hasNext();) {
+                Object[] m = (Object[]) iter.next();
+                int level = ((Integer) m[0]).intValue();
+                String msg = (String) m[1];
+                if (level == WARN) {
+                    Message.warn(msg);
+                } else if (level == ERROR) {
+                    Message.error(msg);
+                } else {
+                    Message.log(level, msg);
+                }
+            }
+            messages.clear();
+        }
+    }
+
     private ResolvedModuleRevision resolvedRevision(ResolvedModuleRevision mr) {
         if (isDual() && mr != null) {
             return new ResolvedModuleRevision(
@@ -276,6 +563,11 @@ public class ChainResolver extends AbstractResolver {
         Message.verbose("\t" + getName() + " [chain] " + chain);
         Message.debug("\t\treturn first: " + isReturnFirst());
         Message.debug("\t\tdual: " + isDual());
+        Message.debug("\t\tparallel: " + isParallel());
+        if (isParallel()) {
+            Message.debug("\t\tparallel probes: "
+                    + (parallelProbes <= 0 ? "all" : String.valueOf(parallelProbes)));
+        }
         for (Iterator iter = chain.iterator(); iter.hasNext();) {
             DependencyResolver r = (DependencyResolver) iter.next();
             Message.debug("\t\t-> " + r.getName());
@@ -347,5 +639,30 @@ public class ChainResolver extends AbstractResolver {
         return dual;
     }
 
+    /**
+     * Sets whether the sub resolvers should be asked for a module all at once rather than one
+     * after the other. The module revision returned is the same as in the serial mode.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Sets the number of sub resolvers, from the beginning of the chain, to ask at once in parallel
+     * mode. The following ones are asked one after the other if still needed. 0 or less means all
+     * sub resolvers.
+     */
+    public void setParallelProbes(int parallelProbes) {
+        this.parallelProbes = parallelProbes;
+    }
+
+    public int getParallelProbes() {
+        return parallelProbes;
+    }
+
 
 }
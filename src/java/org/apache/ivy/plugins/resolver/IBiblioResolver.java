@@ -18,14 +18,17 @@
 package org.apache.ivy.plugins.resolver;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -33,11 +36,17 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.cache.ArtifactOrigin;
+import org.apache.ivy.core.cache.CacheResourceOptions;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
 import org.apache.ivy.core.report.DownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
 import org.apache.ivy.core.resolve.DownloadOptions;
 import org.apache.ivy.core.resolve.ResolveData;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
@@ -70,6 +79,8 @@ public class IBiblioResolver extends URLResolver {
     public static final String DEFAULT_ROOT = "http://www.ibiblio.org/maven/";
     public static final String DEFAULT_M2_ROOT = "http://repo1.maven.org/maven2/";
 
+    private static final int MAX_CACHED_MAVEN_METADATA = 500;
+
     private String root = null;
 
     private String pattern = null;
@@ -80,6 +91,16 @@ public class IBiblioResolver extends URLResolver {
     // use maven-metadata.xml is exists to list revisions
     private boolean useMavenMetadata = true;
 
+    /**
+     * The revisions listed by the maven-metadata.xml of the most recently listed modules, by
+     * location, with the stamp of the cached file they were parsed from as first element.
+     */
+    private final Map/*<String, String[]>*/ metadataRevisions = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > MAX_CACHED_MAVEN_METADATA;
+        }
+    };
+
     public IBiblioResolver() {
         // SNAPSHOT revisions are changing revisions
         setChangingMatcher(PatternMatcher.REGEXP);
@@ -465,25 +486,23 @@ public class IBiblioResolver extends URLResolver {
 
     private List listRevisionsWithMavenMetadata(Repository repository, String metadataLocation) {
         List revs = null;
-        InputStream metadataStream = null;
         try {
             Resource metadata = repository.getResource(metadataLocation);
-            if (metadata.exists()) {
-                Message.verbose("\tlisting revisions from maven-metadata: " + metadata);
-                final List metadataRevs = new ArrayList();
-                metadataStream = metadata.openStream();
-                XMLHelper.parse(metadataStream, null, new ContextualSAXHandler() {
-                    public void endElement(String uri, String localName, String qName) 
-                            throws SAXException {
-                        if ("metadata/versioning/versions/version".equals(getContext())) {
-                            metadataRevs.add(getText().trim());
-                        }
-                        super.endElement(uri, localName, qName);
-                    }
-                }, null);
-                revs = metadataRevs;
+            if (metadata.isLocal()) {
+                if (metadata.exists()) {
+                    Message.verbose("\tlisting revisions from maven-metadata: " + metadata);
+                    revs = parseMavenMetadataRevisions(metadata.openStream());
+                } else {
+                    Message.verbose("\tmaven-metadata not available: " + metadata);
+                }
             } else {
-                Message.verbose("\tmaven-metadata not available: " + metadata);
+                File cached = getCachedMavenMetadata(repository, metadata);
+                if (cached != null) {
+                    Message.verbose("\tlisting revisions from maven-metadata: " + metadata);
+                    revs = getMavenMetadataRevisions(metadataLocation, cached);
+                } else {
+                    Message.verbose("\tmaven-metadata not available: " + metadata);
+                }
             }
         } catch (IOException e) {
             Message.verbose(
@@ -494,17 +513,87 @@ public class IBiblioResolver extends URLResolver {
         } catch (ParserConfigurationException e) {
             Message.verbose(
                 "impossible to parse maven metadata file, ignored: " + e.getMessage());
+        }
+        return revs;
+    }
+
+    /**
+     * Returns the copy in the cache of the given remote maven-metadata.xml, downloaded again only
+     * if it has been modified, and checked only once during the listing ttl of the cache.
+     * 
+     * @return the cached file, or <code>null</code> if the maven-metadata.xml is not available
+     */
+    private File getCachedMavenMetadata(Repository repository, Resource metadata) {
+        CacheResourceOptions options = new CacheResourceOptions();
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        options.setTtl(cacheManager instanceof DefaultRepositoryCacheManager
+                ? ((DefaultRepositoryCacheManager) cacheManager).getListingTTL() : 0);
+        EventManager eventManager = getEventManager();
+        ArtifactDownloadReport report;
+        try {
+            if (eventManager != null) {
+                repository.addTransferListener(eventManager);
+            }
+            report = cacheManager.downloadRepositoryResource(metadata, "maven-metadata",
+                "maven-metadata", "xml", options, repository);
         } finally {
-            if (metadataStream != null) {
-                try {
-                    metadataStream.close();
-                } catch (IOException e) {
-                    // ignored
-                }
+            if (eventManager != null) {
+                repository.removeTransferListener(eventManager);
             }
         }
+        if (report.getDownloadStatus() == DownloadStatus.FAILED) {
+            return null;
+        }
+        return report.getLocalFile();
+    }
+
+    /**
+     * Returns the revisions listed by a cached maven-metadata.xml, which is parsed again only if
+     * it has been updated since it was last parsed.
+     */
+    private List getMavenMetadataRevisions(String metadataLocation, File cached)
+            throws IOException, SAXException, ParserConfigurationException {
+        String stamp = cached.lastModified() + ":" + cached.length();
+        synchronized (metadataRevisions) {
+            String[] entry = (String[]) metadataRevisions.get(metadataLocation);
+            if (entry != null && entry[0].equals(stamp)) {
+                return new ArrayList(Arrays.asList(entry).subList(1, entry.length));
+            }
+        }
+        List revs = parseMavenMetadataRevisions(new FileInputStream(cached));
+        String[] entry = new String[revs.size() + 1];
+        entry[0] = stamp;
+        for (int i = 0; i < revs.size(); i++) {
+            entry[i + 1] = (String) revs.get(i);
+        }
+        synchronized (metadataRevisions) {
+            metadataRevisions.put(metadataLocation, entry);
+        }
         return revs;
     }
+
+    private List parseMavenMetadataRevisions(InputStream metadataStream) 
+            throws IOException, SAXException, ParserConfigurationException {
+        try {
+            final List metadataRevs = new ArrayList();
+            XMLHelper.parse(metadataStream, null, new ContextualSAXHandler() {
+                public void endElement(String uri, String localName, String qName) 
+                        throws SAXException {
+                    if ("metadata/versioning/versions/version".equals(getContext())) {
+                        metadataRevs.add(getText().trim());
+                    }
+                    super.endElement(uri, localName, qName);
+                }
+            }, null);
+            return metadataRevs;
+        } finally {
+            try {
+                metadataStream.close();
+            } catch (IOException e) {
+                // ignored
+            }
+        }
+    }
     
     protected void findTokenValues(Collection names, List patterns, Map tokenValues, String token) {
         if (IvyPatternHelper.REVISION_KEY.equals(token)) {
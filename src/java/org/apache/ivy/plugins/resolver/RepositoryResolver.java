@@ -30,6 +30,9 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryCacheManager;
+import org.apache.ivy.core.cache.RepositoryListingCache;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -62,6 +65,10 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
     
     private String signerName = null;
 
+    // number of downloads in progress which need the event manager to listen to the repository:
+    // several downloads may run at the same time, and the listener must be registered only once
+    private int transferListenerUsers = 0;
+
     public RepositoryResolver() {
     }
 
@@ -182,7 +189,19 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
      */
     protected ResolvedResource[] listResources(
             Repository repository, ModuleRevisionId mrid, String pattern, Artifact artifact) {
-        return ResolverHelper.findAll(repository, mrid, pattern, artifact);
+        return ResolverHelper.findAll(repository, mrid, pattern, artifact, getListingCache());
+    }
+
+    /**
+     * Returns the cache to use to list the repository, or <code>null</code> if the repository
+     * should be listed each time.
+     */
+    protected RepositoryListingCache getListingCache() {
+        RepositoryCacheManager cacheManager = getRepositoryCacheManager();
+        if (cacheManager instanceof DefaultRepositoryCacheManager) {
+            return ((DefaultRepositoryCacheManager) cacheManager).getListingCache();
+        }
+        return null;
     }
 
     protected long get(Resource resource, File dest) throws IOException {
@@ -239,6 +258,11 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
         if (signerName != null) {
             putSignature(artifact, src, dest, overwrite);
         }
+
+        RepositoryListingCache listingCache = getListingCache();
+        if (listingCache != null) {
+            listingCache.evict(repository, repository.standardize(dest));
+        }
     }
 
     protected void putChecksum(Artifact artifact, File src, String dest, boolean overwrite,
@@ -277,12 +301,20 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
         EventManager eventManager = getEventManager();
         try {
             if (eventManager != null) {
-                repository.addTransferListener(eventManager);
+                synchronized (this) {
+                    if (transferListenerUsers++ == 0) {
+                        repository.addTransferListener(eventManager);
+                    }
+                }
             }
             return super.download(artifacts, options);
         } finally {
             if (eventManager != null) {
-                repository.removeTransferListener(eventManager);
+                synchronized (this) {
+                    if (--transferListenerUsers == 0) {
+                        repository.removeTransferListener(eventManager);
+                    }
+                }
             }
         }
     }
@@ -293,7 +325,7 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
             String partiallyResolvedPattern = IvyPatternHelper.substituteTokens(pattern,
                 tokenValues);
             String[] values = ResolverHelper.listTokenValues(repository, partiallyResolvedPattern,
-                token);
+                token, getListingCache());
             if (values != null) {
                 names.addAll(filterNames(new ArrayList(Arrays.asList(values))));
             }
@@ -301,7 +333,7 @@ public class RepositoryResolver extends AbstractPatternsBasedResolver {
     }
 
     protected String[] listTokenValues(String pattern, String token) {
-        return ResolverHelper.listTokenValues(repository, pattern, token);
+        return ResolverHelper.listTokenValues(repository, pattern, token, getListingCache());
     }
     
     protected boolean exist(String path) {
@@ -23,11 +23,14 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.RepositoryListingCache;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.repository.Repository;
@@ -35,11 +38,30 @@ import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.util.Message;
 
 public final class ResolverHelper {
+    private static final int NAME_PATTERNS_SIZE = 200;
+
+    // the compiled name patterns, which are the same for all the revisions of a module
+    private static final Map/*<String,Pattern>*/ NAME_PATTERNS = new LinkedHashMap(16, 0.75f,
+            true) {
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > NAME_PATTERNS_SIZE;
+        }
+    };
+
     private ResolverHelper() {
     }
     
     // lists all the values a token can take in a pattern, as listed by a given url lister
     public static String[] listTokenValues(Repository rep, String pattern, String token) {
+        return listTokenValues(rep, pattern, token, null);
+    }
+
+    /**
+     * Lists all the values a token can take in a pattern, using the given cache to list the
+     * repository, if any.
+     */
+    public static String[] listTokenValues(Repository rep, String pattern, String token,
+            RepositoryListingCache listingCache) {
         String fileSep = rep.getFileSeparator();
         pattern = rep.standardize(pattern);
         String tokenString = IvyPatternHelper.getTokenString(token);
@@ -54,14 +76,14 @@ public final class ResolverHelper {
                 && (index == 0 || fileSep.equals(pattern.substring(index - 1, index)))) {
             // the searched token is a whole name
             String root = pattern.substring(0, index);
-            return listAll(rep, root);
+            return listAll(rep, root, listingCache);
         } else {
             int slashIndex = pattern.substring(0, index).lastIndexOf(fileSep);
             String root = slashIndex == -1 ? "" : pattern.substring(0, slashIndex);
 
             try {
                 Message.debug("\tusing " + rep + " to list all in " + root);
-                List all = rep.list(root);
+                List all = list(rep, root, listingCache);
                 if (all != null) {
                     Message.debug("\t\tfound " + all.size() + " urls");
                     List ret = new ArrayList(all.size());
@@ -72,9 +94,7 @@ public final class ResolverHelper {
                     } else {
                         namePattern = pattern.substring(slashIndex + 1);
                     }
-                    namePattern = namePattern.replaceAll("\\.", "\\\\.");
-                    namePattern = IvyPatternHelper.substituteToken(namePattern, token, "(.+)");
-                    Pattern p = Pattern.compile(namePattern);
+                    Pattern p = getNamePattern(namePattern, token);
                     for (Iterator iter = all.iterator(); iter.hasNext();) {
                         String path = (String) iter.next();
                         Matcher m = p.matcher(path.substring(root.length() + 1));
@@ -101,11 +121,35 @@ public final class ResolverHelper {
         }
     }
 
+    private static Pattern getNamePattern(String namePattern, String token) {
+        String key = token + ":" + namePattern;
+        synchronized (NAME_PATTERNS) {
+            Pattern p = (Pattern) NAME_PATTERNS.get(key);
+            if (p == null) {
+                String regexp = namePattern.replaceAll("\\.", "\\\\.");
+                regexp = IvyPatternHelper.substituteToken(regexp, token, "(.+)");
+                p = Pattern.compile(regexp);
+                NAME_PATTERNS.put(key, p);
+            }
+            return p;
+        }
+    }
+
+    private static List list(Repository rep, String parent, RepositoryListingCache listingCache)
+            throws IOException {
+        return listingCache == null ? rep.list(parent) : listingCache.list(rep, parent);
+    }
+
     public static String[] listAll(Repository rep, String parent) {
+        return listAll(rep, parent, null);
+    }
+
+    public static String[] listAll(Repository rep, String parent,
+            RepositoryListingCache listingCache) {
         try {
             String fileSep = rep.getFileSeparator();
             Message.debug("\tusing " + rep + " to list all in " + parent);
-            List all = rep.list(parent);
+            List all = list(rep, parent, listingCache);
             if (all != null) {
                 Message.debug("\t\tfound " + all.size() + " resources");
                 List names = new ArrayList(all.size());
@@ -135,6 +179,11 @@ public final class ResolverHelper {
 
     public static ResolvedResource[] findAll(Repository rep, ModuleRevisionId mrid, String pattern,
             Artifact artifact) {
+        return findAll(rep, mrid, pattern, artifact, null);
+    }
+
+    public static ResolvedResource[] findAll(Repository rep, ModuleRevisionId mrid, String pattern,
+            Artifact artifact, RepositoryListingCache listingCache) {
         // substitute all but revision
         String partiallyResolvedPattern = IvyPatternHelper.substitute(pattern, ModuleRevisionId
                 .newInstance(mrid, IvyPatternHelper.getTokenString(IvyPatternHelper.REVISION_KEY)),
@@ -142,7 +191,7 @@ public final class ResolverHelper {
         Message.debug("\tlisting all in " + partiallyResolvedPattern);
 
         String[] revs = listTokenValues(rep, partiallyResolvedPattern,
-            IvyPatternHelper.REVISION_KEY);
+            IvyPatternHelper.REVISION_KEY, listingCache);
         if (revs != null) {
             Message.debug("\tfound revs: " + Arrays.asList(revs));
             List ret = new ArrayList(revs.length);
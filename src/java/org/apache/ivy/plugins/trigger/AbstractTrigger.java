@@ -27,6 +27,11 @@ import org.apache.ivy.util.filter.Filter;
  * the only method to implement in subclasses is {@link IvyListener#progress(IvyEvent)} which should
  * do whatever the trigger needs to do when the event occurs. This method will only be called when
  * an event matching the trigger filter occurs.
+ * <p>
+ * Events may be fired from several threads at the same time, for instance when artifacts are
+ * downloaded in parallel: triggers which can't handle concurrent events must synchronize
+ * themselves.
+ * </p>
  * 
  * @since 1.4
  */
@@ -56,7 +56,7 @@ public class LogTrigger extends AbstractTrigger {
      * 
      * @param message the message to log
      */
-    protected void log(String message) {
+    protected synchronized void log(String message) {
         if (file == null) {
             Message.info(message);
         } else {
@@ -36,6 +36,8 @@ public final class ChecksumHelper {
     static {
         algorithms.put("md5", "MD5");
         algorithms.put("sha1", "SHA-1");
+        algorithms.put("sha256", "SHA-256");
+        algorithms.put("sha512", "SHA-512");
     }
 
     /**
@@ -52,8 +54,43 @@ public final class ChecksumHelper {
      *             if an IO problem occur whle reading files or if the checksum is not compliant
      */
     public static void check(File dest, File checksumFile, String algorithm) throws IOException {
-        String csFileContent = FileUtil.readEntirely(
-            new BufferedReader(new FileReader(checksumFile))).trim().toLowerCase(Locale.US);
+        check(computeAsString(dest, algorithm), checksumFile, algorithm);
+    }
+
+    /**
+     * Checks an already computed checksum against the given checksumFile, and throws an
+     * IOException if the checksum is not compliant
+     * 
+     * @param computed
+     *            the checksum to test, as computed while downloading a file for instance
+     * @param checksumFile
+     *            the file containing the expected checksum
+     * @param algorithm
+     *            the checksum algorithm used
+     * @throws IOException
+     *             if an IO problem occur whle reading files or if the checksum is not compliant
+     */
+    public static void check(String computed, File checksumFile, String algorithm)
+            throws IOException {
+        String expected = parseChecksum(FileUtil.readEntirely(
+            new BufferedReader(new FileReader(checksumFile))));
+        computed = computed.trim().toLowerCase(Locale.US);
+        if (!expected.equals(computed)) {
+            throw new IOException("invalid " + algorithm + ": expected=" + expected + " computed="
+                    + computed);
+        }
+    }
+
+    /**
+     * Returns the checksum contained in the given content of a checksum file, in lower case,
+     * whatever the format of the checksum file.
+     * 
+     * @param csFileContent
+     *            the content of the checksum file
+     * @return the checksum it contains
+     */
+    public static String parseChecksum(String csFileContent) {
+        csFileContent = csFileContent.trim().toLowerCase(Locale.US);
         String expected;
         if (csFileContent.indexOf(' ') > -1
                 && (csFileContent.startsWith("md") || csFileContent.startsWith("sha"))) {
@@ -80,12 +117,7 @@ public final class ChecksumHelper {
                 expected = csFileContent;
             }
         }
-        
-        String computed = computeAsString(dest, algorithm).trim().toLowerCase(Locale.US);
-        if (!expected.equals(computed)) {
-            throw new IOException("invalid " + algorithm + ": expected=" + expected + " computed="
-                    + computed);
-        }
+        return expected;
     }
 
     public static String computeAsString(File f, String algorithm) throws IOException {
@@ -114,7 +146,7 @@ public final class ChecksumHelper {
         return algorithms.containsKey(algorithm);
     }
     
-    private static MessageDigest getMessageDigest(String algorithm) {
+    static MessageDigest getMessageDigest(String algorithm) {
         String mdAlgorithm = (String) algorithms.get(algorithm);
         if (mdAlgorithm == null) {
             throw new IllegalArgumentException("unknown algorithm " + algorithm);
@@ -0,0 +1,170 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Checksums computed while a file is downloaded, so that they can be verified without reading the
+ * downloaded file again.
+ * <p>
+ * The computation is started in the downloading thread with {@link #start(String[])}, and the copy
+ * methods of {@link FileUtil} then update the checksums with the bytes they write, until
+ * {@link #stop()} is called. If the file has not been entirely written by these methods, which is
+ * the case with repositories copying files by their own means, {@link #getChecksum(String, File)}
+ * returns <code>null</code> and the checksum has to be computed from the file.
+ * </p>
+ * <p>
+ * The checksums verified during a download are also kept for the downloading thread, so that the
+ * cache can record them along with the origin of the downloaded artifact.
+ * </p>
+ */
+public final class DownloadChecksums {
+    private static final ThreadLocal/*<DownloadChecksums>*/ CURRENT = new ThreadLocal();
+
+    private static final ThreadLocal/*<Map<String, String>>*/ VERIFIED = new ThreadLocal();
+
+    private final String[] algorithms;
+
+    private final MessageDigest[] digests;
+
+    private final String[] checksums;
+
+    private long length;
+
+    private DownloadChecksums(String[] algorithms) {
+        this.algorithms = algorithms;
+        this.digests = new MessageDigest[algorithms.length];
+        this.checksums = new String[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            digests[i] = ChecksumHelper.getMessageDigest(algorithms[i]);
+        }
+    }
+
+    /**
+     * Starts computing the checksums of the next file written in the current thread.
+     *
+     * @param algorithms
+     *            the checksum algorithms to compute, which must be known by
+     *            {@link ChecksumHelper}
+     * @return the started computation, which must be stopped once the file has been written
+     */
+    public static DownloadChecksums start(String[] algorithms) {
+        DownloadChecksums checksums = new DownloadChecksums(algorithms);
+        CURRENT.set(checksums);
+        return checksums;
+    }
+
+    /**
+     * Returns the computation in progress in the current thread, or <code>null</code> if none is.
+     */
+    static DownloadChecksums current() {
+        return (DownloadChecksums) CURRENT.get();
+    }
+
+    /**
+     * Stops this computation: the files written afterwards in this thread are not checksummed.
+     */
+    public void stop() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Restarts the computation, when a file is about to be written from its beginning.
+     */
+    void reset() {
+        for (int i = 0; i < digests.length; i++) {
+            digests[i].reset();
+            checksums[i] = null;
+        }
+        length = 0;
+    }
+
+    void update(byte[] buffer, int offset, int len) {
+        for (int i = 0; i < digests.length; i++) {
+            digests[i].update(buffer, offset, len);
+        }
+        length += len;
+    }
+
+    void update(ByteBuffer buffer) {
+        int position = buffer.position();
+        for (int i = 0; i < digests.length; i++) {
+            buffer.position(position);
+            digests[i].update(buffer);
+        }
+        buffer.position(buffer.limit());
+        length += buffer.limit() - position;
+    }
+
+    /**
+     * Returns the checksum computed for the given file with the given algorithm, or
+     * <code>null</code> if it has not been computed or if the file has not been entirely
+     * checksummed.
+     */
+    public String getChecksum(String algorithm, File file) {
+        if (length != file.length()) {
+            return null;
+        }
+        for (int i = 0; i < algorithms.length; i++) {
+            if (algorithms[i].equals(algorithm)) {
+                if (checksums[i] == null) {
+                    checksums[i] = ChecksumHelper.byteArrayToHexString(digests[i].digest());
+                }
+                return checksums[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets the checksums verified in the current thread, before a download.
+     */
+    public static void clearVerified() {
+        VERIFIED.remove();
+    }
+
+    /**
+     * Records a checksum verified in the current thread.
+     */
+    public static void addVerified(String algorithm, String checksum) {
+        Map verified = (Map) VERIFIED.get();
+        if (verified == null) {
+            verified = new LinkedHashMap();
+            VERIFIED.set(verified);
+        }
+        verified.put(algorithm, checksum);
+    }
+
+    /**
+     * Returns the checksums verified in the current thread since the last call to
+     * {@link #clearVerified()}, by algorithm, and forgets them.
+     */
+    public static Map/*<String, String>*/ getVerified() {
+        Map verified = (Map) VERIFIED.get();
+        VERIFIED.remove();
+        return verified == null ? new HashMap() : verified;
+    }
+}
@@ -28,6 +28,8 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -47,9 +49,19 @@ public final class FileUtil {
     }
     
     // according to tests by users, 64kB seems to be a good value for the buffer used during copy
-    // further improvements could be obtained using NIO API
     private static final int BUFFER_SIZE = 64 * 1024;
 
+    // the size of the chunks transferred between file channels, at the end of which progress is
+    // reported
+    private static final int TRANSFER_CHUNK_SIZE = 16 * BUFFER_SIZE;
+
+    // the direct buffers used to write streams to files, which are expensive to allocate
+    private static final ThreadLocal/*<ByteBuffer>*/ DIRECT_BUFFERS = new ThreadLocal() {
+        protected Object initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
     private static final byte[] EMPTY_BUFFER = new byte[0];
 
     public static void symlink(File src, File dest, CopyProgressListener l, boolean overwrite)
@@ -68,6 +80,21 @@ public final class FileUtil {
                 dest.getParentFile().mkdirs();
             }
 
+            if (NioFiles.isAvailable()) {
+                File target = src.getAbsoluteFile();
+                if (NioFiles.isSymbolicLink(dest)) {
+                    if (target.equals(NioFiles.readSymbolicLink(dest))) {
+                        Message.verbose(dest + " already links to " + src + ", nothing done");
+                        return;
+                    }
+                    dest.delete();
+                } else if (dest.exists()) {
+                    dest.delete();
+                }
+                NioFiles.createSymbolicLink(dest, target);
+                return;
+            }
+
             Runtime runtime = Runtime.getRuntime();
             Message.verbose("executing 'ln -s -f " + src.getAbsolutePath() + " " + dest.getPath()
                     + "'");
@@ -110,6 +137,61 @@ public final class FileUtil {
         }
     }
 
+    /**
+     * Creates a hard link to the given source file, or copies it if hard links are not supported
+     * by this JVM or by the file system, for instance if both files are not on the same volume.
+     * <p>
+     * Note that as both files share the same content, modifying one of them modifies the other.
+     * </p>
+     */
+    public static void hardlink(File src, File dest, CopyProgressListener l, boolean overwrite)
+            throws IOException {
+        if (!NioFiles.isAvailable()) {
+            copy(src, dest, l, overwrite);
+            return;
+        }
+        try {
+            if (dest.exists()) {
+                if (!dest.isFile()) {
+                    throw new IOException("impossible to copy: destination is not a file: " + dest);
+                }
+                if (!overwrite) {
+                    Message.verbose(dest + " already exists, nothing done");
+                    return;
+                }
+            }
+            if (dest.getParentFile() != null) {
+                dest.getParentFile().mkdirs();
+            }
+            if (dest.exists() || NioFiles.isSymbolicLink(dest)) {
+                dest.delete();
+            }
+            NioFiles.createLink(dest, src);
+        } catch (IOException x) {
+            Message.verbose("hardlink failed; falling back to copy");
+            StringWriter buffer = new StringWriter();
+            x.printStackTrace(new PrintWriter(buffer));
+            Message.debug(buffer.toString());
+            copy(src, dest, l, overwrite);
+        }
+    }
+
+    /**
+     * Returns an object identifying the given file in its file system, like its device and inode,
+     * without opening it. Returns <code>null</code> if it can't be known, because this JVM or the
+     * file system doesn't give it, or because the file doesn't exist.
+     */
+    public static Object getFileKey(File file) {
+        if (!NioFiles.isAvailable()) {
+            return null;
+        }
+        try {
+            return NioFiles.getFileKey(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     public static boolean copy(File src, File dest, CopyProgressListener l) throws IOException {
         return copy(src, dest, l, false);
     }
@@ -129,7 +211,17 @@ public final class FileUtil {
                 return false;
             }
         }
-        copy(new FileInputStream(src), dest, l);
+        if (l == null && NioFiles.isAvailable() && DownloadChecksums.current() == null) {
+            // let the file system copy the file, which avoids reading it, and may even share its
+            // blocks on copy-on-write file systems. This also replaces a symbolic link rather
+            // than writing through it.
+            if (dest.getParentFile() != null) {
+                dest.getParentFile().mkdirs();
+            }
+            NioFiles.copy(src, dest);
+        } else {
+            transfer(src, dest, l);
+        }
         long srcLen = src.length();
         long destLen = dest.length();
         if (srcLen != destLen) {
@@ -142,6 +234,91 @@ public final class FileUtil {
         return true;
     }
 
+    /**
+     * Copies a file to another one, with channels transferring chunks of the file without
+     * reading them in the Java heap. Progress is reported at the end of each chunk.
+     * <p>
+     * If checksums are computed in the current thread, the chunks are read in a direct buffer to
+     * be checksummed, and written from it.
+     * </p>
+     */
+    private static void transfer(File src, File dest, CopyProgressListener l) throws IOException {
+        if (dest.getParentFile() != null) {
+            dest.getParentFile().mkdirs();
+        }
+        CopyProgressEvent evt = null;
+        if (l != null) {
+            evt = new CopyProgressEvent();
+        }
+        DownloadChecksums checksums = DownloadChecksums.current();
+        if (checksums != null) {
+            checksums.reset();
+        }
+        FileInputStream in = new FileInputStream(src);
+        try {
+            FileOutputStream out = new FileOutputStream(dest);
+            try {
+                FileChannel source = in.getChannel();
+                FileChannel target = out.getChannel();
+                long size = source.size();
+                long total = 0;
+
+                if (l != null) {
+                    l.start(evt);
+                }
+                while (total < size) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IOException("transfer interrupted");
+                    }
+                    long c;
+                    if (checksums == null) {
+                        c = source.transferTo(total, Math.min(TRANSFER_CHUNK_SIZE, size - total),
+                            target);
+                    } else {
+                        c = transferChecksummed(source, target, checksums);
+                    }
+                    if (c <= 0) {
+                        // the source has been truncated, which is detected by the caller
+                        break;
+                    }
+                    total += c;
+                    if (l != null) {
+                        l.progress(evt.update(EMPTY_BUFFER, (int) c, total));
+                    }
+                }
+
+                if (l != null) {
+                    evt.update(EMPTY_BUFFER, 0, total);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+
+        if (l != null) {
+            l.end(evt);
+        }
+    }
+
+    private static int transferChecksummed(FileChannel source, FileChannel target,
+            DownloadChecksums checksums) throws IOException {
+        ByteBuffer direct = (ByteBuffer) DIRECT_BUFFERS.get();
+        direct.clear();
+        int c = source.read(direct);
+        if (c <= 0) {
+            return c;
+        }
+        direct.flip();
+        checksums.update(direct);
+        direct.rewind();
+        while (direct.hasRemaining()) {
+            target.write(direct);
+        }
+        return c;
+    }
+
     public static void copy(URL src, File dest, CopyProgressListener l) throws IOException {
         URLHandlerRegistry.getDefault().download(src, dest, l);
     }
@@ -150,11 +327,74 @@ public final class FileUtil {
         URLHandlerRegistry.getDefault().upload(src, dest, l);
     }
 
+    /**
+     * Copies the given stream to the given file, which is written through a direct buffer so
+     * that the data is not copied once more by the JVM before being written. The stream is
+     * closed when this method returns.
+     * <p>
+     * If checksums are computed in the current thread, they are updated with the written data.
+     * </p>
+     */
     public static void copy(InputStream src, File dest, CopyProgressListener l) throws IOException {
         if (dest.getParentFile() != null) {
             dest.getParentFile().mkdirs();
         }
-        copy(src, new FileOutputStream(dest), l);
+        CopyProgressEvent evt = null;
+        if (l != null) {
+            evt = new CopyProgressEvent();
+        }
+        DownloadChecksums checksums = DownloadChecksums.current();
+        if (checksums != null) {
+            checksums.reset();
+        }
+        try {
+            FileOutputStream out = new FileOutputStream(dest);
+            try {
+                FileChannel target = out.getChannel();
+                ByteBuffer direct = (ByteBuffer) DIRECT_BUFFERS.get();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int c;
+                long total = 0;
+
+                if (l != null) {
+                    l.start(evt);
+                }
+                while ((c = src.read(buffer)) != -1) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new IOException("transfer interrupted");
+                    }
+                    direct.clear();
+                    direct.put(buffer, 0, c);
+                    direct.flip();
+                    while (direct.hasRemaining()) {
+                        target.write(direct);
+                    }
+                    if (checksums != null) {
+                        checksums.update(buffer, 0, c);
+                    }
+                    total += c;
+                    if (l != null) {
+                        l.progress(evt.update(buffer, c, total));
+                    }
+                }
+
+                if (l != null) {
+                    evt.update(EMPTY_BUFFER, 0, total);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            try {
+                src.close();
+            } catch (IOException ex) {
+                // ignore
+            }
+        }
+
+        if (l != null) {
+            l.end(evt);
+        }
     }
 
     public static void copy(InputStream src, OutputStream dest, CopyProgressListener l) 
@@ -0,0 +1,183 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Access to the file operations of java.nio.file, which are used when Ivy runs on Java 7 or
+ * later. As Ivy still runs on Java 6, these operations are invoked by reflection, and callers must
+ * check {@link #isAvailable()} and fall back to java.io otherwise.
+ */
+final class NioFiles {
+    private static Method toPath;
+
+    private static Method toFile;
+
+    private static Method createSymbolicLink;
+
+    private static Method createLink;
+
+    private static Method readSymbolicLink;
+
+    private static Method isSymbolicLink;
+
+    private static Method copy;
+
+    private static Method readAttributes;
+
+    private static Method fileKey;
+
+    private static Class basicAttributesClass;
+
+    private static Object noLinkOptions;
+
+    private static Object noAttributes;
+
+    private static Object replaceExisting;
+
+    static {
+        try {
+            Class pathClass = Class.forName("java.nio.file.Path");
+            Class filesClass = Class.forName("java.nio.file.Files");
+            Class attributeClass = Class.forName("java.nio.file.attribute.FileAttribute");
+            Class copyOptionClass = Class.forName("java.nio.file.CopyOption");
+            Class attributesClass = Array.newInstance(attributeClass, 0).getClass();
+            Class copyOptionsClass = Array.newInstance(copyOptionClass, 0).getClass();
+
+            toPath = File.class.getMethod("toPath", new Class[0]);
+            toFile = pathClass.getMethod("toFile", new Class[0]);
+            createSymbolicLink = filesClass.getMethod("createSymbolicLink", new Class[] {
+                    pathClass, pathClass, attributesClass});
+            createLink = filesClass.getMethod("createLink", new Class[] {pathClass, pathClass});
+            readSymbolicLink = filesClass.getMethod("readSymbolicLink", new Class[] {pathClass});
+            isSymbolicLink = filesClass.getMethod("isSymbolicLink", new Class[] {pathClass});
+            copy = filesClass.getMethod("copy", new Class[] {pathClass, pathClass,
+                    copyOptionsClass});
+            Class linkOptionClass = Class.forName("java.nio.file.LinkOption");
+            Class linkOptionsClass = Array.newInstance(linkOptionClass, 0).getClass();
+            basicAttributesClass = Class.forName("java.nio.file.attribute.BasicFileAttributes");
+            readAttributes = filesClass.getMethod("readAttributes", new Class[] {pathClass,
+                    Class.class, linkOptionsClass});
+            fileKey = basicAttributesClass.getMethod("fileKey", new Class[0]);
+            noLinkOptions = Array.newInstance(linkOptionClass, 0);
+            noAttributes = Array.newInstance(attributeClass, 0);
+            replaceExisting = Array.newInstance(copyOptionClass, 1);
+            Array.set(replaceExisting, 0, Class.forName("java.nio.file.StandardCopyOption")
+                    .getField("REPLACE_EXISTING").get(null));
+        } catch (Exception e) {
+            Message.debug("java.nio.file is not available, using java.io only: " + e);
+            toPath = null;
+        }
+    }
+
+    private NioFiles() {
+    }
+
+    /**
+     * Returns <code>true</code> if java.nio.file can be used in this JVM.
+     */
+    public static boolean isAvailable() {
+        return toPath != null;
+    }
+
+    /**
+     * Creates a symbolic link to the given target, failing if the link already exists.
+     */
+    public static void createSymbolicLink(File link, File target) throws IOException {
+        invoke(createSymbolicLink, new Object[] {path(link), path(target), noAttributes});
+    }
+
+    /**
+     * Creates a hard link to the given existing file, failing if the link already exists.
+     */
+    public static void createLink(File link, File existing) throws IOException {
+        invoke(createLink, new Object[] {path(link), path(existing)});
+    }
+
+    /**
+     * Returns the target of the given symbolic link.
+     */
+    public static File readSymbolicLink(File link) throws IOException {
+        return (File) invoke(toFile, invoke(readSymbolicLink, new Object[] {path(link)}),
+            new Object[0]);
+    }
+
+    public static boolean isSymbolicLink(File file) {
+        try {
+            return ((Boolean) invoke(isSymbolicLink, new Object[] {path(file)})).booleanValue();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the given file, replacing the destination if it exists. The copy is done by the file
+     * system when it can, which may share the blocks of the file on copy-on-write file systems.
+     */
+    public static void copy(File src, File dest) throws IOException {
+        invoke(copy, new Object[] {path(src), path(dest), replaceExisting});
+    }
+
+    /**
+     * Returns the object identifying the given file in its file system, like its device and
+     * inode, or <code>null</code> if the file system doesn't give one. The file is not opened.
+     */
+    public static Object getFileKey(File file) throws IOException {
+        Object attributes = invoke(readAttributes, new Object[] {path(file), basicAttributesClass,
+                noLinkOptions});
+        return invoke(fileKey, attributes, new Object[0]);
+    }
+
+    private static Object path(File file) throws IOException {
+        return invoke(toPath, file, new Object[0]);
+    }
+
+    private static Object invoke(Method method, Object[] args) throws IOException {
+        return invoke(method, null, args);
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args)
+            throws IOException {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable t = e.getTargetException();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof UnsupportedOperationException || t instanceof SecurityException) {
+                // links not supported by the file system, or not allowed
+                throw new IOException(method.getName() + " failed: " + t);
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new IOException(method.getName() + " failed: " + t);
+        } catch (IllegalAccessException e) {
+            throw new IOException(method.getName() + " failed: " + e);
+        }
+    }
+}
@@ -53,14 +53,32 @@ public class PropertiesFile extends Properties {
         }
     }
 
+    /**
+     * Saves the properties to the file. The properties are first written to a temporary file in
+     * the same directory, which then replaces the file, so that readers never see a partially
+     * written file.
+     */
     public void save() {
         FileOutputStream fos = null;
+        File tmp = null;
         try {
-            if (file.getParentFile() != null && !file.getParentFile().exists()) {
-                file.getParentFile().mkdirs();
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
             }
-            fos = new FileOutputStream(file);
+            tmp = File.createTempFile(file.getName(), ".part", dir);
+            fos = new FileOutputStream(tmp);
             store(fos, header);
+            fos.close();
+            fos = null;
+            if (!tmp.renameTo(file)) {
+                // some platforms can't rename over an existing file
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("impossible to move " + tmp + " to " + file);
+                }
+            }
+            tmp = null;
         } catch (Exception ex) {
             Message.warn("exception occurred while writing properties file " + file + ": "
                     + ex.getMessage());
@@ -72,6 +90,9 @@ public class PropertiesFile extends Properties {
         } catch (IOException e) {
             // ignored
         }
+        if (tmp != null) {
+            tmp.delete();
+        }
     }
 
 }
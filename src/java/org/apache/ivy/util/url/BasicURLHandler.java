@@ -25,9 +25,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.util.CopyProgressListener;
@@ -35,12 +40,26 @@ import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 
 /**
- * 
+ * An URLHandler based on the URL connections of the JDK.
+ * <p>
+ * HTTP connections are released to the keep-alive cache of the JDK once their response has been
+ * read, so that following requests to the same host reuse them rather than opening a new TCP
+ * connection and going through a new TLS handshake. The number of idle connections kept per host
+ * is the one of the <code>http.maxConnections</code> system property of the JDK. The number of
+ * connections opened at the same time to a single host can be bounded, either with
+ * {@link #setMaxConnectionsPerHost(int)} or with the
+ * <code>ivy.http.maxConnectionsPerHost</code> system property.
+ * </p>
  */
 public class BasicURLHandler extends AbstractURLHandler {
 
     private static final int BUFFER_SIZE = 64 * 1024;
 
+    private int maxConnectionsPerHost = Integer.getInteger(
+        URLHandlerRegistry.MAX_CONNECTIONS_PER_HOST_PROPERTY, 0).intValue();
+
+    private final Map/*<String,Semaphore>*/ hostPermits = new HashMap();
+
     private static final class HttpStatus {
         static final int SC_OK = 200;
 
@@ -50,6 +69,24 @@ public class BasicURLHandler extends AbstractURLHandler {
         }
     }
 
+    /**
+     * Sets the maximum number of connections this handler opens at the same time to a single
+     * host. Threads needing a connection to a host which has already this number of connections
+     * wait for one of them to be released.
+     * 
+     * @param maxConnectionsPerHost
+     *            the maximum number of connections per host, 0 or less for no limit
+     */
+    public synchronized void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        // connections in use release their permit to the previous semaphores, which is harmless
+        hostPermits.clear();
+    }
+
+    public synchronized int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
     public URLInfo getURLInfo(URL url) {
         return getURLInfo(url, 0);
     }
@@ -61,8 +98,10 @@ public class BasicURLHandler extends AbstractURLHandler {
         }
         
         URLConnection con = null;
+        Semaphore permit = null;
         try {
             url = normalizeToURL(url);
+            permit = acquireConnection(url);
             con = url.openConnection();
             con.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
             if (con instanceof HttpURLConnection) {
@@ -72,7 +111,8 @@ public class BasicURLHandler extends AbstractURLHandler {
                 }
                 if (checkStatusCode(url, httpCon)) {
                     String bodyCharset = getCharSetFromContentType(con.getContentType());
-                    return new URLInfo(true, httpCon.getContentLength(), con.getLastModified(), bodyCharset);
+                    return new URLInfo(true, httpCon.getContentLength(), con.getLastModified(),
+                            bodyCharset, con.getHeaderField("ETag"));
                 }
             } else {
                 int contentLength = con.getContentLength();
@@ -90,8 +130,12 @@ public class BasicURLHandler extends AbstractURLHandler {
                 + "a proxy server that is not well configured.");
         } catch (IOException e) {
             Message.error("Server access Error: " + e.getMessage() + " url=" + url);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Message.verbose("interrupted while waiting for a connection to " + url);
         } finally {
             disconnect(con);
+            releaseConnection(permit);
         }
         return UNAVAILABLE;
     }
@@ -155,8 +199,10 @@ public class BasicURLHandler extends AbstractURLHandler {
         }
 
         URLConnection conn = null;
+        Semaphore permit = null;
         try {
             url = normalizeToURL(url);
+            permit = acquireConnectionInterruptibly(url);
             conn = url.openConnection();
             conn.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
             conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
@@ -180,18 +226,28 @@ public class BasicURLHandler extends AbstractURLHandler {
             return new ByteArrayInputStream(outStream.toByteArray());
         } finally {
             disconnect(conn);
+            releaseConnection(permit);
         }
     }
     
     public void download(URL src, File dest, CopyProgressListener l) throws IOException {
+        File file = getLocalFile(src);
+        if (file != null) {
+            // local files are copied by channels rather than read through a stream
+            FileUtil.copy(file, dest, l, true);
+            return;
+        }
+
         // Install the IvyAuthenticator
         if ("http".equals(src.getProtocol()) || "https".equals(src.getProtocol())) {
             IvyAuthenticator.install();
         }
 
         URLConnection srcConn = null;
+        Semaphore permit = null;
         try {
             src = normalizeToURL(src);
+            permit = acquireConnectionInterruptibly(src);
             srcConn = src.openConnection();
             srcConn.setRequestProperty("User-Agent", "Apache Ivy/" + Ivy.getIvyVersion());
             srcConn.setRequestProperty("Accept-Encoding", "gzip,deflate");
@@ -227,6 +283,22 @@ public class BasicURLHandler extends AbstractURLHandler {
             }
         } finally {
             disconnect(srcConn);
+            releaseConnection(permit);
+        }
+    }
+
+    private File getLocalFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            File file = new File(new URI(url.toExternalForm()));
+            return file.isFile() ? file : null;
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            // not a plain file URL, with an authority for instance
+            return null;
         }
     }
 
@@ -240,8 +312,10 @@ public class BasicURLHandler extends AbstractURLHandler {
         IvyAuthenticator.install();
 
         HttpURLConnection conn = null;
+        Semaphore permit = null;
         try {
             dest = normalizeToURL(dest);
+            permit = acquireConnectionInterruptibly(dest);
             conn = (HttpURLConnection) dest.openConnection();
             conn.setDoOutput(true);
             conn.setRequestMethod("PUT");
@@ -264,20 +338,63 @@ public class BasicURLHandler extends AbstractURLHandler {
             validatePutStatusCode(dest, conn.getResponseCode(), conn.getResponseMessage());
         } finally {
             disconnect(conn);
+            releaseConnection(permit);
+        }
+    }
+
+    /**
+     * Waits until a connection to the host of the given URL can be opened.
+     * 
+     * @return the permit to give back to {@link #releaseConnection(Semaphore)} once the
+     *         connection has been released, <code>null</code> if the connections to this host are
+     *         not limited
+     */
+    private Semaphore acquireConnection(URL url) throws InterruptedException {
+        if (!"http".equals(url.getProtocol()) && !"https".equals(url.getProtocol())) {
+            return null;
+        }
+        Semaphore permit;
+        synchronized (this) {
+            if (maxConnectionsPerHost <= 0) {
+                return null;
+            }
+            String host = url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+            permit = (Semaphore) hostPermits.get(host);
+            if (permit == null) {
+                permit = new Semaphore(maxConnectionsPerHost, true);
+                hostPermits.put(host, permit);
+            }
+        }
+        permit.acquire();
+        return permit;
+    }
+
+    private Semaphore acquireConnectionInterruptibly(URL url) throws IOException {
+        try {
+            return acquireConnection(url);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for a connection to " + url);
+        }
+    }
+
+    private void releaseConnection(Semaphore permit) {
+        if (permit != null) {
+            permit.release();
         }
     }
 
     private void disconnect(URLConnection con) {
         if (con instanceof HttpURLConnection) {
-            if (!"HEAD".equals(((HttpURLConnection) con).getRequestMethod())) {
-                // We must read the response body before disconnecting!
-                // Cfr. http://java.sun.com/j2se/1.5.0/docs/guide/net/http-keepalive.html
-                // [quote]Do not abandon a connection by ignoring the response body. Doing
-                // so may results in idle TCP connections.[/quote]
-                readResponseBody((HttpURLConnection) con);
+            // We must read the response body rather than disconnecting, so that the connection
+            // goes back to the keep-alive cache of the JDK and is reused by the next request.
+            // Cfr. http://java.sun.com/j2se/1.5.0/docs/guide/net/http-keepalive.html
+            // [quote]Do not abandon a connection by ignoring the response body. Doing
+            // so may results in idle TCP connections.[/quote]
+            if (!readResponseBody((HttpURLConnection) con)) {
+                // the connection is in an unknown state, it must not be reused
+                ((HttpURLConnection) con).disconnect();
             }
-            
-            ((HttpURLConnection) con).disconnect();
         } else if (con != null) {
             try {
                 con.getInputStream().close();
@@ -288,43 +405,38 @@ public class BasicURLHandler extends AbstractURLHandler {
     }
 
     /** 
-     * Read and ignore the response body. 
+     * Read and ignore the response body.
+     * 
+     * @return <code>true</code> if the whole response body has been read
      */
-    private void readResponseBody(HttpURLConnection conn) {
+    private boolean readResponseBody(HttpURLConnection conn) {
         byte[] buffer = new byte[BUFFER_SIZE];
         
         InputStream inStream = null;
         try {
             inStream = conn.getInputStream();
+        } catch (IOException e) {
+            // the body of an error response is in the error stream
+        }
+        return skipContent(inStream, buffer) & skipContent(conn.getErrorStream(), buffer);
+    }
+
+    private boolean skipContent(InputStream inStream, byte[] buffer) {
+        if (inStream == null) {
+            return true;
+        }
+        try {
             while (inStream.read(buffer) > 0) {
                 //Skip content
             }
+            return true;
         } catch (IOException e) {
-            // ignore
+            return false;
         } finally {
-            if (inStream != null) {
-                try {
-                    inStream.close();
-                } catch (IOException e) {
-                    // ignore
-                }
-            }
-        }
-        
-        InputStream errStream = conn.getErrorStream();
-        if (errStream != null) {
             try {
-                while (errStream.read(buffer) > 0) {
-                    //Skip content
-                }
+                inStream.close();
             } catch (IOException e) {
                 // ignore
-            } finally {
-                try {
-                    errStream.close();                
-                } catch (IOException e) {
-                    // ignore
-                }
             }
         }
     }
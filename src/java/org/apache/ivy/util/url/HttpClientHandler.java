@@ -47,6 +47,7 @@ import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.ivy.Ivy;
 import org.apache.ivy.util.CopyProgressListener;
@@ -55,9 +56,26 @@ import org.apache.ivy.util.HostUtil;
 import org.apache.ivy.util.Message;
 
 /**
- *
+ * An URLHandler based on commons-httpclient.
+ * <p>
+ * All the instances of this handler share a single client, whose pool of keep-alive connections
+ * is safe for concurrent use. The number of connections of this pool is bounded per host and in
+ * total, either with {@link #setMaxConnectionsPerHost(int)} and {@link #setMaxConnections(int)}
+ * or with the <code>ivy.http.maxConnectionsPerHost</code> and <code>ivy.http.maxConnections</code>
+ * system properties.
+ * </p>
  */
 public class HttpClientHandler extends AbstractURLHandler {
+    /**
+     * Default maximum number of pooled connections per host, enough for parallel downloads.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+
+    /**
+     * Default maximum number of pooled connections.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 32;
+
     private static final SimpleDateFormat LAST_MODIFIED_FORMAT = new SimpleDateFormat(
             "EEE, d MMM yyyy HH:mm:ss z", Locale.US);
 
@@ -74,6 +92,8 @@ public class HttpClientHandler extends AbstractURLHandler {
 
     private static HttpClient httpClient;
 
+    private static MultiThreadedHttpConnectionManager connectionManager;
+
     public HttpClientHandler() {
         configureProxy();
     }
@@ -153,9 +173,13 @@ public class HttpClientHandler extends AbstractURLHandler {
                 method = doGet(url, timeout);
             }
             if (checkStatusCode(url, method)) {
-                String contentType = method.getResponseHeader("content-type").getValue();
-                String bodyCharset = BasicURLHandler.getCharSetFromContentType(contentType);
-                return new URLInfo(true, getResponseContentLength(method), getLastModified(method), bodyCharset);
+                Header contentType = method.getResponseHeader("content-type");
+                String bodyCharset = BasicURLHandler.getCharSetFromContentType(
+                    contentType == null ? null : contentType.getValue());
+                Header etagHeader = method.getResponseHeader("ETag");
+                return new URLInfo(true, getResponseContentLength(method),
+                        getLastModified(method), bodyCharset, 
+                        etagHeader == null ? null : etagHeader.getValue());
             }
         } catch (HttpException e) {
             Message.error("HttpClientHandler: " + e.getMessage() + ":" + e.getReasonCode() + "="
@@ -246,11 +270,43 @@ public class HttpClientHandler extends AbstractURLHandler {
         return helper.getHttpClientMajorVersion();
     }
 
+    /**
+     * Sets the maximum number of connections opened at the same time to a single host by all the
+     * instances of this handler.
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        getConnectionManagerParams().setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return getConnectionManagerParams().getDefaultMaxConnectionsPerHost();
+    }
+
+    /**
+     * Sets the maximum number of connections opened at the same time by all the instances of this
+     * handler.
+     */
+    public void setMaxConnections(int maxConnections) {
+        getConnectionManagerParams().setMaxTotalConnections(maxConnections);
+    }
+
+    public int getMaxConnections() {
+        return getConnectionManagerParams().getMaxTotalConnections();
+    }
+
+    private HttpConnectionManagerParams getConnectionManagerParams() {
+        synchronized (HttpClientHandler.class) {
+            getClient();
+            return connectionManager.getParams();
+        }
+    }
+
     private GetMethod doGet(URL url, int timeout) throws IOException {
         HttpClient client = getClient();
-        client.setTimeout(timeout);
 
         GetMethod get = new GetMethod(normalizeToString(url));
+        // the client is shared, the timeout is a parameter of the request only
+        get.getParams().setSoTimeout(timeout);
         get.setDoAuthentication(useAuthentication(url) || useProxyAuthentication());
         get.setRequestHeader("Accept-Encoding", "gzip,deflate");
         client.executeMethod(get);
@@ -259,51 +315,63 @@ public class HttpClientHandler extends AbstractURLHandler {
 
     private HeadMethod doHead(URL url, int timeout) throws IOException {
         HttpClient client = getClient();
-        client.setTimeout(timeout);
 
         HeadMethod head = new HeadMethod(normalizeToString(url));
+        head.getParams().setSoTimeout(timeout);
         head.setDoAuthentication(useAuthentication(url) || useProxyAuthentication());
         client.executeMethod(head);
         return head;
     }
 
     private HttpClient getClient() {
-        if (httpClient == null) {
-            final MultiThreadedHttpConnectionManager connManager = 
-                new MultiThreadedHttpConnectionManager();
-            httpClient = new HttpClient(connManager);
-
-            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
-                public void run() {
-                    connManager.shutdown();
+        synchronized (HttpClientHandler.class) {
+            if (httpClient == null) {
+                final MultiThreadedHttpConnectionManager connManager = 
+                    new MultiThreadedHttpConnectionManager();
+                HttpConnectionManagerParams params = connManager.getParams();
+                params.setDefaultMaxConnectionsPerHost(Integer.getInteger(
+                    URLHandlerRegistry.MAX_CONNECTIONS_PER_HOST_PROPERTY,
+                    DEFAULT_MAX_CONNECTIONS_PER_HOST).intValue());
+                params.setMaxTotalConnections(Integer.getInteger(
+                    URLHandlerRegistry.MAX_CONNECTIONS_PROPERTY, DEFAULT_MAX_CONNECTIONS)
+                        .intValue());
+                // pooled connections may have been closed by the server while idle
+                params.setStaleCheckingEnabled(true);
+                connectionManager = connManager;
+                httpClient = new HttpClient(connManager);
+
+                Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                    public void run() {
+                        connManager.shutdown();
+                    }
+                }));
+
+                List authPrefs = new ArrayList(3);
+                authPrefs.add(AuthPolicy.DIGEST);
+                authPrefs.add(AuthPolicy.BASIC);
+                // put it at the end to give less priority (IVY-213)
+                authPrefs.add(AuthPolicy.NTLM);
+                httpClient.getParams().setParameter(AuthPolicy.AUTH_SCHEME_PRIORITY, authPrefs);
+
+                if (useProxy()) {
+                    httpClient.getHostConfiguration().setProxy(proxyHost, proxyPort);
+                    if (useProxyAuthentication()) {
+                        httpClient.getState().setProxyCredentials(
+                            new AuthScope(proxyHost, proxyPort, AuthScope.ANY_REALM),
+                            createCredentials(proxyUserName, proxyPasswd));
+                    }
                 }
-            }));
-
-            List authPrefs = new ArrayList(3);
-            authPrefs.add(AuthPolicy.DIGEST);
-            authPrefs.add(AuthPolicy.BASIC);
-            authPrefs.add(AuthPolicy.NTLM); // put it at the end to give less priority (IVY-213)
-            httpClient.getParams().setParameter(AuthPolicy.AUTH_SCHEME_PRIORITY, authPrefs);
-
-            if (useProxy()) {
-                httpClient.getHostConfiguration().setProxy(proxyHost, proxyPort);
-                if (useProxyAuthentication()) {
-                    httpClient.getState().setProxyCredentials(
-                        new AuthScope(proxyHost, proxyPort, AuthScope.ANY_REALM),
-                        createCredentials(proxyUserName, proxyPasswd));
-                }
-            }
 
-            // user-agent
-            httpClient.getParams().setParameter(HttpMethodParams.USER_AGENT,
-                "Apache Ivy/" + Ivy.getIvyVersion());
+                // user-agent
+                httpClient.getParams().setParameter(HttpMethodParams.USER_AGENT,
+                    "Apache Ivy/" + Ivy.getIvyVersion());
 
-            // authentication
-            httpClient.getParams().setParameter(CredentialsProvider.PROVIDER, 
-                new IvyCredentialsProvider()); 
+                // authentication
+                httpClient.getParams().setParameter(CredentialsProvider.PROVIDER, 
+                    new IvyCredentialsProvider()); 
+            }
+            return httpClient;
         }
-
-        return httpClient;
     }
 
     private boolean useProxy() {
@@ -50,15 +50,23 @@ public interface URLHandler {
 
         private String bodyCharset;
 
+        private String etag;
+
         protected URLInfo(boolean available, long contentLength, long lastModified) {
             this(available, contentLength, lastModified, null);
         }
 
         protected URLInfo(boolean available, long contentLength, long lastModified, String bodyCharset) {
+            this(available, contentLength, lastModified, bodyCharset, null);
+        }
+
+        protected URLInfo(boolean available, long contentLength, long lastModified,
+                String bodyCharset, String etag) {
             this.available = available;
             this.contentLength = contentLength;
             this.lastModified = lastModified;
             this.bodyCharset = bodyCharset;
+            this.etag = etag;
         }
 
         public boolean isReachable() {
@@ -76,6 +84,15 @@ public interface URLHandler {
         public String getBodyCharset() {
             return bodyCharset;
         }
+
+        /**
+         * Returns the entity tag of the target, which can be used to revalidate it later.
+         * 
+         * @return the entity tag, or <code>null</code> if the target has none
+         */
+        public String getETag() {
+            return etag;
+        }
     }
 
     public static final URLInfo UNAVAILABLE = new URLInfo(false, 0, 0);
@@ -23,10 +23,32 @@ import org.apache.ivy.util.Message;
  *
  */
 public final class URLHandlerRegistry {
+    /**
+     * System property giving the maximum number of connections opened at the same time to a
+     * single host by the http handlers.
+     */
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = 
+        "ivy.http.maxConnectionsPerHost";
+
+    /**
+     * System property giving the maximum number of connections opened at the same time by the
+     * pooled http handler.
+     */
+    public static final String MAX_CONNECTIONS_PROPERTY = "ivy.http.maxConnections";
+
+    /**
+     * System property which, when set to true, makes the default handler use the pooled http
+     * handler for http and https URLs.
+     */
+    public static final String POOLED_HTTP_PROPERTY = "ivy.http.pooled";
+
     private URLHandlerRegistry() {
     }
     
-    private static URLHandler defaultHandler = new BasicURLHandler();
+    private static URLHandler pooledHttpHandler;
+
+    private static URLHandler defaultHandler = Boolean.getBoolean(POOLED_HTTP_PROPERTY)
+            ? newPooledHttpDispatcher() : new BasicURLHandler();
 
     public static URLHandler getDefault() {
         return defaultHandler;
@@ -48,4 +70,55 @@ public final class URLHandlerRegistry {
         return getDefault();
     }
 
+    /**
+     * Returns the handler of http and https URLs which keeps connections alive in a pool shared
+     * by all threads. It is based on commons-httpclient when it is available in the classpath,
+     * and on the keep-alive cache of the JDK otherwise.
+     * 
+     * @return the shared pooled http handler
+     */
+    public static synchronized URLHandler getPooledHttp() {
+        if (pooledHttpHandler == null) {
+            pooledHttpHandler = newPooledHttp();
+        }
+        return pooledHttpHandler;
+    }
+
+    /**
+     * Makes the default handler use the pooled http handler for http and https URLs.
+     * 
+     * @see #getPooledHttp()
+     */
+    public static void usePooledHttp() {
+        setDefault(newPooledHttpDispatcher());
+    }
+
+    private static URLHandlerDispatcher newPooledHttpDispatcher() {
+        URLHandlerDispatcher dispatcher = new URLHandlerDispatcher();
+        URLHandler httpHandler = getPooledHttp();
+        dispatcher.setDownloader("http", httpHandler);
+        dispatcher.setDownloader("https", httpHandler);
+        return dispatcher;
+    }
+
+    private static URLHandler newPooledHttp() {
+        try {
+            // only commons-httpclient 3.x has a configurable pool of connections
+            Class.forName("org.apache.commons.httpclient.params.HttpConnectionManagerParams");
+            Class handler = Class.forName("org.apache.ivy.util.url.HttpClientHandler");
+            Message.verbose("using commons httpclient pooled http handler");
+            return (URLHandler) handler.newInstance();
+        } catch (ClassNotFoundException e) {
+            Message.verbose("commons httpclient 3.x is not available, "
+                + "using jdk keep-alive http handler");
+        } catch (InstantiationException e) {
+            Message.verbose("impossible to instantiate the commons httpclient handler: " + e);
+        } catch (IllegalAccessException e) {
+            Message.verbose("impossible to instantiate the commons httpclient handler: " + e);
+        } catch (LinkageError e) {
+            Message.verbose("impossible to load the commons httpclient handler: " + e);
+        }
+        return new BasicURLHandler();
+    }
+
 }
@@ -0,0 +1,181 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.cache.BinaryCacheDataStore.DataFile;
+import org.apache.ivy.core.cache.CacheDataStore.ModuleData;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.util.FileUtil;
+
+public class BinaryCacheDataStoreTest extends TestCase {
+    private File dir;
+
+    private File file;
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("ivydatastore", ".dir");
+        dir.delete();
+        dir.mkdirs();
+        file = new File(dir, BinaryCacheDataStore.DATA_FILE_NAME);
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testUpdate() throws Exception {
+        DataFile data = new DataFile(file);
+        assertNull(data.get("mod1"));
+
+        Map changes = new HashMap();
+        changes.put("a", "1");
+        changes.put("b", "2");
+        data.update("mod1", changes, false);
+        data.update("mod1", Collections.singletonMap("b", null), false);
+        data.update("mod2", Collections.singletonMap("a", "3"), false);
+
+        assertEquals(Collections.singletonMap("a", "1"), data.get("mod1"));
+        assertEquals(Collections.singletonMap("a", "3"), data.get("mod2"));
+
+        // only if absent
+        data.update("mod2", Collections.singletonMap("a", "4"), true);
+        assertEquals(Collections.singletonMap("a", "3"), data.get("mod2"));
+        data.close();
+
+        // read from file
+        data = new DataFile(file);
+        assertEquals(Collections.singletonMap("a", "1"), data.get("mod1"));
+        assertEquals(Collections.singletonMap("a", "3"), data.get("mod2"));
+        data.close();
+    }
+
+    public void testSharedFile() throws Exception {
+        // two instances stand for two processes sharing the file
+        DataFile data1 = new DataFile(file);
+        DataFile data2 = new DataFile(file);
+        data1.update("mod1", Collections.singletonMap("a", "1"), false);
+        assertEquals(Collections.singletonMap("a", "1"), data2.get("mod1"));
+
+        data2.update("mod1", Collections.singletonMap("a", "2"), false);
+        assertEquals(Collections.singletonMap("a", "2"), data1.get("mod1"));
+
+        // enough updates to compact the file
+        StringBuffer value = new StringBuffer();
+        for (int i = 0; i < 100; i++) {
+            value.append('x');
+        }
+        long size = 0;
+        for (int i = 0; i < 30000 && size <= file.length(); i++) {
+            size = file.length();
+            data1.update("mod1", Collections.singletonMap("a", value.toString() + i), false);
+        }
+        assertTrue("file not compacted", file.length() < size);
+        data1.update("mod2", Collections.singletonMap("a", "1"), false);
+
+        // the other instance must switch to the compacted file
+        assertEquals(Collections.singletonMap("a", "1"), data2.get("mod2"));
+        data2.update("mod3", Collections.singletonMap("a", "1"), false);
+        assertEquals(Collections.singletonMap("a", "1"), data1.get("mod3"));
+        assertEquals(data1.get("mod1"), data2.get("mod1"));
+        data1.close();
+        data2.close();
+    }
+
+    public void testTrailingGarbage() throws Exception {
+        DataFile data = new DataFile(file);
+        data.update("mod1", Collections.singletonMap("a", "1"), false);
+        data.close();
+
+        // as left by a process killed while writing a record
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] {0, 0, 0, 42, 1, 2, 3});
+        out.close();
+
+        data = new DataFile(file);
+        assertEquals(Collections.singletonMap("a", "1"), data.get("mod1"));
+        data.update("mod2", Collections.singletonMap("a", "2"), false);
+        data.close();
+
+        data = new DataFile(file);
+        assertEquals(Collections.singletonMap("a", "1"), data.get("mod1"));
+        assertEquals(Collections.singletonMap("a", "2"), data.get("mod2"));
+        data.close();
+    }
+
+    public void testDeletedFile() throws Exception {
+        DataFile data = new DataFile(file);
+        data.update("mod1", Collections.singletonMap("a", "1"), false);
+        assertNotNull(data.get("mod1"));
+
+        file.delete();
+        assertNull(data.get("mod1"));
+
+        data.update("mod2", Collections.singletonMap("a", "2"), false);
+        assertTrue(file.exists());
+        data.close();
+        data = new DataFile(file);
+        assertNull(data.get("mod1"));
+        assertEquals(Collections.singletonMap("a", "2"), data.get("mod2"));
+        data.close();
+    }
+
+    public void testReplacedFile() throws Exception {
+        DataFile data1 = new DataFile(file);
+        data1.update("mod1", Collections.singletonMap("a", "1"), false);
+
+        // another process deletes the file and creates a new one
+        file.delete();
+        DataFile data2 = new DataFile(file);
+        data2.update("mod2", Collections.singletonMap("a", "2"), false);
+
+        data1.update("mod3", Collections.singletonMap("a", "3"), false);
+        assertEquals(Collections.singletonMap("a", "3"), data2.get("mod3"));
+        assertEquals(Collections.singletonMap("a", "2"), data1.get("mod2"));
+        assertNull(data2.get("mod1"));
+        data1.close();
+        data2.close();
+    }
+
+    public void testSharedDataFileReleased() throws Exception {
+        BinaryCacheDataStore store1 = new BinaryCacheDataStore(dir, "[module]/ivydata.properties");
+        BinaryCacheDataStore store2 = new BinaryCacheDataStore(dir, "[module]/ivydata.properties");
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0");
+        ModuleData data = store1.getData(mrid);
+        data.setProperty("a", "1");
+        data.save();
+        assertEquals("1", store2.getData(mrid).getProperty("a"));
+
+        // the data file is kept opened until the last store using it is closed
+        store1.close();
+        store1.close();
+        assertEquals("1", store2.getData(mrid).getProperty("a"));
+        store2.close();
+
+        BinaryCacheDataStore store3 = new BinaryCacheDataStore(dir, "[module]/ivydata.properties");
+        assertEquals("1", store3.getData(mrid).getProperty("a"));
+        store3.close();
+    }
+}
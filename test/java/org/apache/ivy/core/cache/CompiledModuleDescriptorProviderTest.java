@@ -0,0 +1,265 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.conflict.ConflictManager;
+import org.apache.ivy.plugins.conflict.FixedConflictManager;
+import org.apache.ivy.plugins.matcher.MapMatcher;
+import org.apache.ivy.plugins.parser.ParserSettings;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriterTest;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorWriter;
+import org.apache.ivy.util.FileUtil;
+
+public class CompiledModuleDescriptorProviderTest extends TestCase {
+    private File dir;
+
+    private IvySettings settings;
+
+    private ParsingProvider parsingProvider;
+
+    private CompiledModuleDescriptorProvider provider;
+
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("ivycompiled", ".dir");
+        dir.delete();
+        dir.mkdirs();
+        settings = new IvySettings();
+        settings.setVariable("compiled.rev", "1.0");
+        parsingProvider = new ParsingProvider();
+        provider = new CompiledModuleDescriptorProvider(
+            XmlModuleDescriptorParser.getInstance(), parsingProvider);
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(dir);
+    }
+
+    public void testCompile() throws Exception {
+        File ivyFile = copy(getClass().getResource("compiled-descriptor.xml"));
+        ModuleDescriptor parsed = provider.provideModule(settings, ivyFile, false);
+        assertEquals(1, parsingProvider.count);
+        assertTrue(CompiledModuleDescriptorProvider.getCompiledFile(ivyFile).exists());
+
+        ModuleDescriptor compiled = provider.provideModule(settings, ivyFile, false);
+        assertEquals(1, parsingProvider.count);
+        assertNotSame(parsed, compiled);
+        assertEquals("1.0", compiled.getModuleRevisionId().getRevision());
+        assertSameDescriptor(parsed, compiled);
+    }
+
+    public void testCompileParserTestDescriptors() throws Exception {
+        String[] resources = new String[] {"test-simple.xml", "test-info.xml",
+                "test-dependencies.xml", "test-defaultconf.xml", "test-defaultconfmapping.xml",
+                "test-configextendsothers1.xml", "test-extra-attributes.xml",
+                "test-artifacts-defaults.xml", "test-nopublication.xml"};
+        for (int i = 0; i < resources.length; i++) {
+            File ivyFile = copy(XmlModuleDescriptorWriterTest.class.getResource(resources[i]));
+            ModuleDescriptor parsed = provider.provideModule(settings, ivyFile, false);
+            ModuleDescriptor compiled = provider.provideModule(settings, ivyFile, false);
+            assertEquals(resources[i], i + 1, parsingProvider.count);
+            assertSameDescriptor(parsed, compiled);
+        }
+    }
+
+    public void testInheritedDescriptorNotCompiled() throws Exception {
+        File ivyFile = copy(XmlModuleDescriptorWriterTest.class.getResource(
+            "test-extends-configurations.xml"));
+        copy(XmlModuleDescriptorWriterTest.class.getResource("test-extends-parent.xml"));
+        provider.provideModule(settings, ivyFile, false);
+        assertFalse(CompiledModuleDescriptorProvider.getCompiledFile(ivyFile).exists());
+        provider.provideModule(settings, ivyFile, false);
+        assertEquals(2, parsingProvider.count);
+    }
+
+    public void testModifiedDescriptor() throws Exception {
+        File ivyFile = copy(getClass().getResource("compiled-descriptor.xml"));
+        provider.provideModule(settings, ivyFile, false);
+        ivyFile.setLastModified(ivyFile.lastModified() - 10000);
+        provider.provideModule(settings, ivyFile, false);
+        assertEquals(2, parsingProvider.count);
+
+        // the descriptor has been compiled again
+        provider.provideModule(settings, ivyFile, false);
+        assertEquals(2, parsingProvider.count);
+    }
+
+    public void testVariableChange() throws Exception {
+        File ivyFile = copy(getClass().getResource("compiled-descriptor.xml"));
+        provider.provideModule(settings, ivyFile, false);
+        settings.setVariable("compiled.rev", "2.0");
+        ModuleDescriptor md = provider.provideModule(settings, ivyFile, false);
+        assertEquals(2, parsingProvider.count);
+        assertEquals("2.0", md.getModuleRevisionId().getRevision());
+    }
+
+    public void testValidation() throws Exception {
+        File ivyFile = copy(getClass().getResource("compiled-descriptor.xml"));
+        provider.provideModule(settings, ivyFile, false);
+        provider.provideModule(settings, ivyFile, true);
+        assertEquals(2, parsingProvider.count);
+
+        // a validated descriptor can be used without validation
+        provider.provideModule(settings, ivyFile, false);
+        assertEquals(2, parsingProvider.count);
+    }
+
+    public void testCorruptedCompiledDescriptor() throws Exception {
+        File ivyFile = copy(getClass().getResource("compiled-descriptor.xml"));
+        provider.provideModule(settings, ivyFile, false);
+        File compiledFile = CompiledModuleDescriptorProvider.getCompiledFile(ivyFile);
+        RandomAccessFile raf = new RandomAccessFile(compiledFile, "rw");
+        try {
+            raf.seek(raf.length() - 10);
+            raf.write(new byte[] {1, 2, 3});
+        } finally {
+            raf.close();
+        }
+        ModuleDescriptor md = provider.provideModule(settings, ivyFile, false);
+        assertEquals(2, parsingProvider.count);
+        assertEquals("mymodule", md.getModuleRevisionId().getName());
+    }
+
+    private void assertSameDescriptor(ModuleDescriptor expected, ModuleDescriptor actual)
+            throws IOException {
+        assertEquals(write(expected), write(actual));
+        assertEquals(expected.getResolvedModuleRevisionId(),
+            actual.getResolvedModuleRevisionId());
+        assertEquals(expected.getResolvedPublicationDate(), actual.getResolvedPublicationDate());
+        assertEquals(expected.getLastModified(), actual.getLastModified());
+        assertEquals(expected.getMetadataArtifact(), actual.getMetadataArtifact());
+        assertSame(expected.getParser(), actual.getParser());
+        assertEquals(expected.getResource().getName(), actual.getResource().getName());
+
+        DependencyDescriptor[] expectedDds = expected.getDependencies();
+        DependencyDescriptor[] actualDds = actual.getDependencies();
+        assertEquals(expectedDds.length, actualDds.length);
+        for (int i = 0; i < expectedDds.length; i++) {
+            DefaultDependencyDescriptor expectedDd = (DefaultDependencyDescriptor) expectedDds[i];
+            DefaultDependencyDescriptor actualDd = (DefaultDependencyDescriptor) actualDds[i];
+            String[] confs = expectedDd.getModuleConfigurations();
+            assertEquals(Arrays.asList(confs),
+                Arrays.asList(actualDd.getModuleConfigurations()));
+            for (int j = 0; j < confs.length; j++) {
+                assertEquals(Arrays.asList(expectedDd.getRawDependencyConfigurations(confs[j])),
+                    Arrays.asList(actualDd.getRawDependencyConfigurations(confs[j])));
+                assertEquals(
+                    Arrays.asList(expectedDd.getDependencyArtifacts(confs[j])),
+                    Arrays.asList(actualDd.getDependencyArtifacts(confs[j])));
+            }
+            assertEquals(expectedDd.getSourceModule(), actualDd.getSourceModule());
+            assertEquals(expectedDd.getDynamicConstraintDependencyRevisionId(),
+                actualDd.getDynamicConstraintDependencyRevisionId());
+
+            DependencyArtifactDescriptor[] expectedDads = expectedDd.getRawDependencyArtifacts();
+            DependencyArtifactDescriptor[] actualDads = actualDd.getRawDependencyArtifacts();
+            assertEquals(expectedDads.length, actualDads.length);
+            for (int j = 0; j < expectedDads.length; j++) {
+                assertEquals(expectedDads[j], actualDads[j]);
+                assertEquals(Arrays.asList(expectedDads[j].getConfigurations()),
+                    Arrays.asList(actualDads[j].getConfigurations()));
+            }
+            IncludeRule[] expectedIncludes = expectedDd.getRawIncludeRules();
+            IncludeRule[] actualIncludes = actualDd.getRawIncludeRules();
+            assertEquals(expectedIncludes.length, actualIncludes.length);
+            for (int j = 0; j < expectedIncludes.length; j++) {
+                assertEquals(expectedIncludes[j].getAttributes(),
+                    actualIncludes[j].getAttributes());
+                assertEquals(Arrays.asList(expectedIncludes[j].getConfigurations()),
+                    Arrays.asList(actualIncludes[j].getConfigurations()));
+            }
+            ExcludeRule[] expectedExcludes = expectedDd.getRawExcludeRules();
+            ExcludeRule[] actualExcludes = actualDd.getRawExcludeRules();
+            assertEquals(expectedExcludes.length, actualExcludes.length);
+            for (int j = 0; j < expectedExcludes.length; j++) {
+                assertEquals(expectedExcludes[j].getAttributes(),
+                    actualExcludes[j].getAttributes());
+                assertEquals(Arrays.asList(expectedExcludes[j].getConfigurations()),
+                    Arrays.asList(actualExcludes[j].getConfigurations()));
+            }
+        }
+
+        Map expectedCms = ((DefaultModuleDescriptor) expected).getAllConflictManagers()
+                .getAllRules();
+        Map actualCms = ((DefaultModuleDescriptor) actual).getAllConflictManagers().getAllRules();
+        assertEquals(expectedCms.size(), actualCms.size());
+        for (Iterator it = expectedCms.keySet().iterator(), it2 = actualCms.keySet().iterator();
+                it.hasNext();) {
+            MapMatcher expectedMatcher = (MapMatcher) it.next();
+            MapMatcher actualMatcher = (MapMatcher) it2.next();
+            assertEquals(expectedMatcher.toString(), actualMatcher.toString());
+            ConflictManager expectedCm = (ConflictManager) expectedCms.get(expectedMatcher);
+            ConflictManager actualCm = (ConflictManager) actualCms.get(actualMatcher);
+            if (expectedCm instanceof FixedConflictManager) {
+                assertEquals(((FixedConflictManager) expectedCm).getRevs(),
+                    ((FixedConflictManager) actualCm).getRevs());
+            } else {
+                assertSame(expectedCm, actualCm);
+            }
+        }
+        ModuleId mid = ModuleId.newInstance("yourorg", "yourmodule1");
+        assertEquals(String.valueOf(expected.getConflictManager(mid)),
+            String.valueOf(actual.getConflictManager(mid)));
+    }
+
+    private String write(ModuleDescriptor md) throws IOException {
+        File file = new File(dir, "written.xml");
+        XmlModuleDescriptorWriter.write(md, file);
+        String content = FileUtil.readEntirely(file);
+        file.delete();
+        return content;
+    }
+
+    private File copy(URL resource) throws IOException {
+        String path = resource.getPath();
+        File file = new File(dir, path.substring(path.lastIndexOf('/') + 1));
+        FileUtil.copy(resource, file, null);
+        return file;
+    }
+
+    private static class ParsingProvider implements ModuleDescriptorProvider {
+        private int count = 0;
+
+        public ModuleDescriptor provideModule(ParserSettings ivySettings, File descriptorFile,
+                boolean validate) throws ParseException, IOException {
+            count++;
+            return XmlModuleDescriptorParser.getInstance().parseDescriptor(ivySettings,
+                descriptorFile.toURI().toURL(), validate);
+        }
+    }
+}
@@ -18,7 +18,16 @@
 package org.apache.ivy.core.cache;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
 
 import junit.framework.TestCase;
 
@@ -27,10 +36,19 @@ import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.URLResolver;
+import org.apache.ivy.util.ChecksumHelper;
+import org.apache.ivy.util.FileUtil;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Delete;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
 /**
  * @see DefaultResolutionCacheManager
  */
@@ -100,6 +118,224 @@ public class DefaultRepositoryCacheManagerTest extends TestCase {
         assertTrue(ArtifactOrigin.isUnknown(found));
     }
 
+    public void testConcurrentArtifactOrigins() throws Exception {
+        // origins of artifacts of the same module saved at the same time must all be kept
+        final Artifact[] artifacts = new Artifact[10];
+        Thread[] threads = new Thread[artifacts.length];
+        for (int i = 0; i < artifacts.length; i++) {
+            artifacts[i] = createArtifact("org", "module", "rev", "name" + i, "type", "ext");
+            final Artifact a = artifacts[i];
+            threads[i] = new Thread() {
+                public void run() {
+                    cacheManager.saveArtifactOrigin(a,
+                        new ArtifactOrigin(a, true, "/" + a.getName()));
+                }
+            };
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+
+        assertEquals(origin, cacheManager.getSavedArtifactOrigin(artifact));
+        for (int i = 0; i < artifacts.length; i++) {
+            ArtifactOrigin found = cacheManager.getSavedArtifactOrigin(artifacts[i]);
+            assertEquals("/name" + i, found.getLocation());
+        }
+    }
+
+    public void testBinaryDataStore() throws Exception {
+        cacheManager.setDataStore(DefaultRepositoryCacheManager.DATA_STORE_BINARY);
+
+        // the origin saved in the properties file is imported
+        ArtifactOrigin found = cacheManager.getSavedArtifactOrigin(artifact);
+        assertEquals(origin, found);
+
+        Artifact artifact2 = createArtifact("org", "module2", "rev", "name", "type", "ext");
+        ArtifactOrigin origin2 = new ArtifactOrigin(artifact2, false, "http://some/where");
+        cacheManager.saveArtifactOrigin(artifact2, origin2);
+        assertEquals(origin2, cacheManager.getSavedArtifactOrigin(artifact2));
+        assertTrue(new File(cacheManager.getRepositoryCacheRoot(), 
+            BinaryCacheDataStore.DATA_FILE_NAME).exists());
+        assertFalse(new File(cacheManager.getRepositoryCacheRoot(), 
+            "org/module2/ivydata-rev.properties").exists());
+
+        // and is kept when switching back and forth
+        cacheManager.setDataStore(DefaultRepositoryCacheManager.DATA_STORE_PROPERTIES);
+        assertTrue(ArtifactOrigin.isUnknown(cacheManager.getSavedArtifactOrigin(artifact2)));
+        cacheManager.setDataStore(DefaultRepositoryCacheManager.DATA_STORE_BINARY);
+        assertEquals(origin2, cacheManager.getSavedArtifactOrigin(artifact2));
+    }
+
+    public void testArtifactOriginETag() {
+        origin.setETag("\"1234\"");
+        cacheManager.saveArtifactOrigin(artifact, origin);
+        assertEquals("\"1234\"", cacheManager.getSavedArtifactOrigin(artifact).getETag());
+
+        origin.setETag(null);
+        cacheManager.saveArtifactOrigin(artifact, origin);
+        assertNull(cacheManager.getSavedArtifactOrigin(artifact).getETag());
+    }
+
+    public void testETagRevalidation() throws Exception {
+        // a repository which doesn't give reliable last modified dates, but gives entity tags
+        List/*<String>*/ requests = new ArrayList();
+        HttpServer server = startServer(requests, new String[] {""}, false);
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort() + "/";
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org1", "mod1.1", "1.0");
+            ResolveReport report = newHttpIvy(base).resolve(mrid, new ResolveOptions(), false);
+            assertFalse(report.hasError());
+            assertTrue(requests.contains("GET ivy-1.0.xml 200"));
+
+            // a new instance doesn't know the remote resources, as in a new build
+            requests.clear();
+            report = newHttpIvy(base).resolve(mrid, new ResolveOptions(), false);
+            assertFalse(report.hasError());
+            // the ivy file looks modified, but has the same entity tag: it isn't downloaded again
+            assertTrue(requests.toString(), requests.contains("HEAD ivy-1.0.xml 200"));
+            assertFalse(requests.toString(), requests.contains("GET ivy-1.0.xml 200"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testModifiedRevalidation() throws Exception {
+        List/*<String>*/ requests = new ArrayList();
+        String[] generation = new String[] {"1"};
+        HttpServer server = startServer(requests, generation, false);
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort() + "/";
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org1", "mod1.1", "1.0");
+            ResolveReport report = newHttpIvy(base).resolve(mrid, new ResolveOptions(), false);
+            assertFalse(report.hasError());
+
+            // the ivy file changes its entity tag
+            generation[0] = "2";
+            requests.clear();
+            report = newHttpIvy(base).resolve(mrid, new ResolveOptions(), false);
+            assertFalse(report.hasError());
+            // the entity tag tells it has been modified: it is downloaded again
+            List ivyRequests = new ArrayList();
+            for (int i = 0; i < requests.size(); i++) {
+                if (((String) requests.get(i)).indexOf(" ivy-1.0.xml ") != -1) {
+                    ivyRequests.add(requests.get(i));
+                }
+            }
+            assertEquals(Arrays.asList(new String[] {"HEAD ivy-1.0.xml 200",
+                    "GET ivy-1.0.xml 200"}), ivyRequests);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testChecksumRevalidation() throws Exception {
+        // a repository which gives neither reliable last modified dates nor entity tags, but
+        // publishes checksums
+        List/*<String>*/ requests = new ArrayList();
+        HttpServer server = startServer(requests, new String[] {null}, true);
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort() + "/";
+            ModuleRevisionId mrid = ModuleRevisionId.newInstance("org1", "mod1.1", "1.0");
+            ResolveReport report = newHttpIvy(base).resolve(mrid, new ResolveOptions(), false);
+            assertFalse(report.hasError());
+            assertTrue(requests.contains("GET ivy-1.0.xml 200"));
+            assertTrue(requests.contains("GET ivy-1.0.xml.sha1 200"));
+
+            requests.clear();
+            report = newHttpIvy(base).resolve(mrid, new ResolveOptions(), false);
+            assertFalse(report.hasError());
+            // the ivy file looks modified, but has the same checksum: it isn't downloaded again
+            assertTrue(requests.toString(), requests.contains("GET ivy-1.0.xml.sha1 200"));
+            assertFalse(requests.toString(), requests.contains("GET ivy-1.0.xml 200"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Starts a server of the files of the repository 1, giving an entity tag made of the date and
+     * length of the files and of the first element of the given generation (no entity tag if it
+     * is <code>null</code>), and a last modified date which is later at each request. The SHA1
+     * checksums of the files are served too if asked. The requests it receives are recorded in
+     * the given list.
+     */
+    private HttpServer startServer(final List/*<String>*/ requests, final String[] generation,
+            final boolean checksums) throws IOException {
+        final File root = new File("test/repositories/1");
+        final long[] count = new long[1];
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                File file = new File(root, exchange.getRequestURI().getPath());
+                String path = file.getPath();
+                byte[] checksum = null;
+                if (checksums && path.endsWith(".sha1")) {
+                    File source = new File(path.substring(0, path.length() - ".sha1".length()));
+                    if (source.isFile()) {
+                        checksum = ChecksumHelper.computeAsString(source, "sha1").getBytes(
+                            "US-ASCII");
+                    }
+                }
+                String etag = "\"" + file.lastModified() + "-" + file.length() + generation[0]
+                        + "\"";
+                int status;
+                if (!file.isFile() && checksum == null) {
+                    status = 404;
+                } else {
+                    status = 200;
+                }
+                long lastModified;
+                synchronized (requests) {
+                    requests.add(exchange.getRequestMethod() + " " + file.getName() + " "
+                            + status);
+                    lastModified = System.currentTimeMillis() + 1000L * ++count[0];
+                }
+                if (status == 200) {
+                    SimpleDateFormat format = new SimpleDateFormat(
+                            "EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+                    exchange.getResponseHeaders().set("Last-Modified",
+                        format.format(new Date(lastModified)));
+                    if (generation[0] != null) {
+                        exchange.getResponseHeaders().set("ETag", etag);
+                    }
+                }
+                if (status != 200 || "HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else if (checksum != null) {
+                    exchange.sendResponseHeaders(status, checksum.length);
+                    exchange.getResponseBody().write(checksum);
+                } else {
+                    exchange.sendResponseHeaders(status, file.length());
+                    FileUtil.copy(new FileInputStream(file), exchange.getResponseBody(), null);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private Ivy newHttpIvy(String base) throws Exception {
+        Ivy ivy = new Ivy();
+        ivy.configureDefault();
+        IvySettings settings = ivy.getSettings();
+        settings.setDefaultCache(cacheManager.getBasedir());
+        URLResolver resolver = new URLResolver();
+        resolver.setName("http");
+        resolver.setSettings(settings);
+        resolver.addIvyPattern(base + "[organisation]/[module]/ivys/ivy-[revision].xml");
+        resolver.addArtifactPattern(
+            base + "[organisation]/[module]/[type]s/[artifact]-[revision].[ext]");
+        resolver.setCheckmodified(true);
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("http");
+        return ivy;
+    }
+
     protected Artifact createArtifact(String org, String module, String rev, String name,
             String type, String ext) {
         ModuleId mid = new ModuleId(org, module);
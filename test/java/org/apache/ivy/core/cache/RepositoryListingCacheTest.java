@@ -0,0 +1,221 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.core.event.EventManager;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveEngine;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.core.sort.SortEngine;
+import org.apache.ivy.plugins.repository.AbstractRepository;
+import org.apache.ivy.plugins.repository.Resource;
+import org.apache.ivy.plugins.repository.file.FileRepository;
+import org.apache.ivy.plugins.resolver.RepositoryResolver;
+import org.apache.ivy.plugins.resolver.util.ResolverHelper;
+import org.apache.ivy.util.FileUtil;
+
+public class RepositoryListingCacheTest extends TestCase {
+    private File dir;
+
+    protected void setUp() throws Exception {
+        dir = new File("build/cache/listings");
+    }
+
+    protected void tearDown() throws Exception {
+        FileUtil.forceDelete(new File("build/cache"));
+    }
+
+    public void testList() throws Exception {
+        CountingRepository rep = new CountingRepository();
+        RepositoryListingCache cache = new RepositoryListingCache(dir, 60000);
+
+        assertEquals(Arrays.asList(new String[] {"mod/1.0", "mod/1.1"}), cache.list(rep, "mod"));
+        assertEquals(Arrays.asList(new String[] {"mod/1.0", "mod/1.1"}), cache.list(rep, "mod"));
+        assertEquals(1, rep.count);
+
+        cache.list(rep, "other");
+        assertEquals(2, rep.count);
+    }
+
+    public void testSharedOnDisk() throws Exception {
+        CountingRepository rep = new CountingRepository();
+        new RepositoryListingCache(dir, 60000).list(rep, "mod");
+        assertEquals(1, rep.count);
+
+        // another cache using the same directory, as in another JVM
+        RepositoryListingCache cache = new RepositoryListingCache(dir, 60000);
+        assertEquals(Arrays.asList(new String[] {"mod/1.0", "mod/1.1"}), cache.list(rep, "mod"));
+        assertEquals(1, rep.count);
+
+        // a repository of another name is listed
+        rep.setName("other");
+        cache.list(rep, "mod");
+        assertEquals(2, rep.count);
+    }
+
+    public void testExpired() throws Exception {
+        CountingRepository rep = new CountingRepository();
+        RepositoryListingCache cache = new RepositoryListingCache(dir, 10);
+        cache.list(rep, "mod");
+        Thread.sleep(20);
+        cache.list(rep, "mod");
+        assertEquals(2, rep.count);
+    }
+
+    public void testNotCached() throws Exception {
+        CountingRepository rep = new CountingRepository();
+        RepositoryListingCache cache = new RepositoryListingCache(dir, 60000);
+        rep.entries = null;
+        assertNull(cache.list(rep, "mod"));
+        assertNull(cache.list(rep, "mod"));
+        assertEquals(2, rep.count);
+
+        cache.list(new FileRepository(), new File("test/repositories/1/org1").getAbsolutePath());
+        assertFalse(dir.exists());
+    }
+
+    public void testListTokenValues() throws Exception {
+        CountingRepository rep = new CountingRepository();
+        RepositoryListingCache cache = new RepositoryListingCache(dir, 60000);
+        String[] revs = ResolverHelper.listTokenValues(rep, "mod/[revision]/ivy.xml", "revision",
+            cache);
+        assertEquals(Arrays.asList(new String[] {"1.0", "1.1"}), Arrays.asList(revs));
+        revs = ResolverHelper.listTokenValues(rep, "mod/[revision]/ivy.xml", "revision", cache);
+        assertEquals(Arrays.asList(new String[] {"1.0", "1.1"}), Arrays.asList(revs));
+        assertEquals(1, rep.count);
+
+        revs = ResolverHelper.listTokenValues(rep, "mod/ivy-[revision].xml", "revision", cache);
+        assertEquals(0, revs.length);
+        revs = ResolverHelper.listTokenValues(rep, "mod/ivy-[revision].xml", "revision", cache);
+        assertEquals(0, revs.length);
+        assertEquals(2, rep.count);
+    }
+
+    public void testPublishThenResolveLatest() throws Exception {
+        IvySettings settings = new IvySettings();
+        settings.setDefaultCache(new File("build/cache"));
+        DefaultRepositoryCacheManager cacheManager = 
+            (DefaultRepositoryCacheManager) settings.getDefaultRepositoryCacheManager();
+        cacheManager.setListingTTL(60000);
+        cacheManager.setDefaultTTL(0);
+        ResolveEngine engine = new ResolveEngine(settings, new EventManager(), 
+            new SortEngine(settings));
+
+        RepositoryResolver resolver = new RepositoryResolver();
+        resolver.setName("remote");
+        resolver.setSettings(settings);
+        resolver.setRepository(new RemoteRepository());
+        resolver.addIvyPattern(new File("build/cache/repository").getAbsolutePath()
+                + "/[organisation]/[module]/[revision]/ivy.xml");
+        resolver.addArtifactPattern(new File("build/cache/repository").getAbsolutePath()
+                + "/[organisation]/[module]/[revision]/[artifact].[ext]");
+        settings.addResolver(resolver);
+        settings.setDefaultResolver("remote");
+
+        publish(resolver, "1.0");
+        assertEquals("1.0", resolveLatest(engine, resolver));
+
+        // the listing of the module revisions must not hide the new revision
+        publish(resolver, "1.1");
+        assertEquals("1.1", resolveLatest(engine, resolver));
+    }
+
+    private void publish(RepositoryResolver resolver, String revision) throws Exception {
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", revision);
+        File ivyFile = new File("build/cache/ivy-" + revision + ".xml");
+        FileUtil.copy(new ByteArrayInputStream(("<ivy-module version=\"2.0\"><info "
+                + "organisation=\"org\" module=\"mod\" revision=\"" + revision 
+                + "\" status=\"integration\"/></ivy-module>").getBytes("UTF-8")), ivyFile, null);
+        resolver.beginPublishTransaction(mrid, false);
+        resolver.publish(DefaultArtifact.newIvyArtifact(mrid, new Date()), ivyFile, false);
+        resolver.commitPublishTransaction();
+    }
+
+    private String resolveLatest(ResolveEngine engine, RepositoryResolver resolver)
+            throws Exception {
+        ResolvedModuleRevision rmr = resolver.getDependency(new DefaultDependencyDescriptor(
+                ModuleRevisionId.newInstance("org", "mod", "latest.integration"), false),
+            new ResolveData(engine, new ResolveOptions()));
+        assertNotNull(rmr);
+        return rmr.getId().getRevision();
+    }
+
+    /**
+     * A file repository whose listings can be cached, as those of remote repositories.
+     */
+    private static class RemoteRepository extends AbstractRepository {
+        private final FileRepository repository = new FileRepository();
+
+        public RemoteRepository() {
+            setName("remote");
+        }
+
+        public List list(String parent) throws IOException {
+            return repository.list(parent);
+        }
+
+        public Resource getResource(String source) throws IOException {
+            return repository.getResource(source);
+        }
+
+        public void get(String source, File destination) throws IOException {
+            repository.get(source, destination);
+        }
+
+        public void put(File source, String destination, boolean overwrite) throws IOException {
+            repository.put(source, destination, overwrite);
+        }
+    }
+
+    private static class CountingRepository extends AbstractRepository {
+        private int count;
+
+        private List entries = Arrays.asList(new String[] {"mod/1.0", "mod/1.1"});
+
+        public CountingRepository() {
+            setName("counting");
+        }
+
+        public List list(String parent) throws IOException {
+            count++;
+            return entries;
+        }
+
+        public Resource getResource(String source) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        public void get(String source, File destination) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
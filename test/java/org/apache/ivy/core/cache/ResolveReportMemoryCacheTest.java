@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.cache;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.DownloadStatus;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.filter.FilterHelper;
+
+public class ResolveReportMemoryCacheTest extends TestCase {
+    private Ivy ivy;
+
+    private File cache;
+
+    protected void setUp() throws Exception {
+        cache = new File("build/cache");
+        System.setProperty("ivy.cache.dir", cache.getAbsolutePath());
+        cache.mkdirs();
+
+        ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        getResolutionCacheManager().setReportMemorySize(10);
+    }
+
+    protected void tearDown() throws Exception {
+        CacheCleaner.deleteDir(cache);
+    }
+
+    private DefaultResolutionCacheManager getResolutionCacheManager() {
+        return (DefaultResolutionCacheManager) ivy.getSettings().getResolutionCacheManager();
+    }
+
+    private DefaultModuleDescriptor newModuleDescriptor(String revision, boolean changing) {
+        DefaultModuleDescriptor md = DefaultModuleDescriptor.newDefaultInstance(
+            ModuleRevisionId.newInstance("apache", "resolve-report-cache", "1.0"));
+        md.setResolvedPublicationDate(new Date(0));
+        md.setLastModified(0);
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md,
+            ModuleRevisionId.newInstance("org1", "mod1.2", revision), false, changing, true);
+        dd.addDependencyConfiguration("default", "default");
+        md.addDependency(dd);
+        return md;
+    }
+
+    private ResolveOptions getResolveOptions() {
+        return new ResolveOptions().setConfs(new String[] {"default"});
+    }
+
+    /**
+     * Asserts that the given report is a copy of the given cached report, which shares its
+     * dependencies, instead of the report of a new resolve.
+     */
+    private static void assertReused(ResolveReport cached, ResolveReport report) {
+        assertNotSame(cached, report);
+        assertSame(cached.getDependencies().get(0), report.getDependencies().get(0));
+    }
+
+    private static void assertNotReused(ResolveReport cached, ResolveReport report) {
+        assertNotSame(cached.getDependencies().get(0), report.getDependencies().get(0));
+    }
+
+    public void testSameInputs() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        assertFalse(report.hasError());
+        ArtifactDownloadReport[] adrs = report.getAllArtifactsReports();
+        assertEquals(1, adrs.length);
+        assertEquals(DownloadStatus.SUCCESSFUL, adrs[0].getDownloadStatus());
+
+        ResolveReport reused = ivy.resolve(md, getResolveOptions());
+        assertReused(report, reused);
+        // the artifact is now in cache
+        ArtifactDownloadReport[] reusedAdrs = reused.getAllArtifactsReports();
+        assertEquals(1, reusedAdrs.length);
+        assertEquals(DownloadStatus.NO, reusedAdrs[0].getDownloadStatus());
+        assertEquals(adrs[0].getLocalFile(), reusedAdrs[0].getLocalFile());
+        assertEquals(0, reused.getDownloadSize());
+        // the cached report is left as its own resolve produced it
+        assertEquals(DownloadStatus.SUCCESSFUL, adrs[0].getDownloadStatus());
+        assertSame(adrs[0], report.getAllArtifactsReports()[0]);
+        assertEquals(adrs[0].getSize(), report.getDownloadSize());
+        assertNotSame(report.getMetrics(), reused.getMetrics());
+        // an equal descriptor gives the same fingerprint
+        assertReused(report, ivy.resolve(newModuleDescriptor("2.0", false), getResolveOptions()));
+        assertTrue(getResolutionCacheManager().getConfigurationResolveReportInCache(
+            report.getResolveId(), "default").exists());
+    }
+
+    public void testDisabled() throws Exception {
+        getResolutionCacheManager().setReportMemorySize(0);
+        assertNull(getResolutionCacheManager().getReportMemoryCache());
+
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        assertNotReused(report, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testDifferentInputs() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+
+        assertNotReused(report, ivy.resolve(newModuleDescriptor("1.1", false),
+            getResolveOptions()));
+        assertNotReused(report, ivy.resolve(md, getResolveOptions().setTransitive(false)));
+        assertNotReused(report, ivy.resolve(md, getResolveOptions().setDownload(false)));
+
+        ResolveReport other = ivy.resolve(md, getResolveOptions());
+        ivy.getSettings().setDefaultConflictManager(
+            ivy.getSettings().getConflictManager("latest-time"));
+        assertNotReused(other, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testArtifactFilter() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions().setArtifactFilter(
+            FilterHelper.getArtifactTypeFilter("jar")));
+        assertEquals(1, report.getAllArtifactsReports().length);
+        // filters are not compared, even when they are equal
+        assertNotReused(report, ivy.resolve(md, getResolveOptions().setArtifactFilter(
+            FilterHelper.getArtifactTypeFilter("jar"))));
+        assertNotReused(report, ivy.resolve(md, getResolveOptions().setArtifactFilter(
+            FilterHelper.getArtifactTypeFilter("source"))));
+    }
+
+    public void testOtherRepositoryCacheManager() throws Exception {
+        final RepositoryCacheManager defaultCacheManager = ivy.getSettings()
+                .getDefaultRepositoryCacheManager();
+        // a cache manager which doesn't tell when the data it returns expires
+        ivy.getSettings().addRepositoryCacheManager((RepositoryCacheManager) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[] {RepositoryCacheManager.class},
+            new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args)
+                        throws Throwable {
+                    if ("getName".equals(method.getName())) {
+                        return "other-cache";
+                    }
+                    try {
+                        return method.invoke(defaultCacheManager, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }
+            }));
+
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        assertFalse(report.hasError());
+        assertNotReused(report, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testRefresh() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+
+        ResolveReport refreshed = ivy.resolve(md, getResolveOptions().setRefresh(true));
+        assertNotReused(report, refreshed);
+        assertReused(refreshed, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testDynamicRevision() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("latest.integration", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        // the resolved revision is cached for the default ttl
+        assertReused(report, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testDynamicRevisionWithoutTTL() throws Exception {
+        ((DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager())
+                .setDefaultTTL(0);
+        DefaultModuleDescriptor md = newModuleDescriptor("latest.integration", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        assertNotReused(report, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testChangingDependency() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", true);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        assertNotReused(report, ivy.resolve(md, getResolveOptions()));
+    }
+
+    public void testCleanedRepositoryCache() throws Exception {
+        DefaultModuleDescriptor md = newModuleDescriptor("2.0", false);
+        ResolveReport report = ivy.resolve(md, getResolveOptions());
+        ArtifactDownloadReport[] adrs = report.getAllArtifactsReports();
+        assertEquals(1, adrs.length);
+        assertTrue(adrs[0].getLocalFile().delete());
+
+        ResolveReport other = ivy.resolve(md, getResolveOptions());
+        assertNotReused(report, other);
+        assertTrue(other.getAllArtifactsReports()[0].getLocalFile().exists());
+    }
+
+    public void testInvalidSize() throws Exception {
+        ivy = Ivy.newInstance();
+        ivy.getSettings().setVariable("ivy.cache.resolution.memorysize", "ten");
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        assertNull(getResolutionCacheManager().getReportMemoryCache());
+
+        ResolveReport report = ivy.resolve(newModuleDescriptor("2.0", false), getResolveOptions());
+        assertFalse(report.hasError());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.ivy.core.event;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class EventManagerTest extends TestCase {
+    public void testConcurrentEvents() throws Exception {
+        final EventManager eventManager = new EventManager();
+        final CountDownLatch notified = new CountDownLatch(2);
+        final boolean[] concurrent = new boolean[2];
+        eventManager.addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                notified.countDown();
+                try {
+                    // both events are notified at the same time
+                    concurrent[Integer.parseInt(event.getName())] = notified.await(10,
+                        TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            final String name = String.valueOf(i);
+            threads[i] = new Thread() {
+                public void run() {
+                    eventManager.fireIvyEvent(new IvyEvent(name));
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertTrue(concurrent[0]);
+        assertTrue(concurrent[1]);
+    }
+}
@@ -67,6 +67,57 @@ public class ModuleRevisionIdTest extends TestCase {
 
     }
 
+    public void testIntern() {
+        Map extraAttributes = new HashMap();
+        extraAttributes.put("extra", "extravalue");
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "name", "branch", "1.0",
+            extraAttributes);
+        assertSame(mrid, ModuleRevisionId.newInstance("org", "name", "branch", "1.0",
+            extraAttributes));
+        assertSame(mrid.getModuleId(), ModuleId.newInstance("org", "name"));
+
+        ModuleRevisionId other = new ModuleRevisionId(ModuleId.newInstance("org", "name"),
+                "branch", "1.0");
+        assertFalse(mrid.equals(other));
+        assertFalse(other.equals(mrid));
+        assertEquals(other, new ModuleRevisionId(ModuleId.newInstance("org", "name"),
+                "branch", "1.0"));
+        assertSame(ModuleRevisionId.intern(other), ModuleRevisionId.newInstance("org", "name",
+            "branch", "1.0"));
+        assertFalse(mrid.equals(ModuleRevisionId.newInstance("org", "name", "branch", "1.1",
+            extraAttributes)));
+
+        ArtifactRevisionId arid = ArtifactRevisionId.newInstance(mrid, "name", "jar", "jar");
+        assertSame(arid, ArtifactRevisionId.newInstance(mrid, "name", "jar", "jar"));
+        assertEquals(arid, new ArtifactRevisionId(
+                new ArtifactId(mrid.getModuleId(), "name", "jar", "jar"), mrid));
+        assertFalse(arid.equals(ArtifactRevisionId.newInstance(mrid, "name", "src", "jar")));
+    }
+
+    public void testInternConcurrently() throws Exception {
+        final ModuleRevisionId[][] results = new ModuleRevisionId[4][100];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final ModuleRevisionId[] result = results[i];
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < result.length; j++) {
+                        result[j] = ModuleRevisionId.newInstance("org", "concurrent", "1." + j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        for (int i = 1; i < results.length; i++) {
+            for (int j = 0; j < results[i].length; j++) {
+                assertSame(results[0][j], results[i][j]);
+            }
+        }
+    }
+
     private void testEncodeDecodeToString(ModuleRevisionId mrid) {
         assertEquals(mrid, ModuleRevisionId.decode(mrid.encodeToString()));
     }
@@ -17,7 +17,9 @@
  */
 package org.apache.ivy.core.resolve;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -60,6 +62,9 @@ import org.apache.ivy.plugins.circular.WarnCircularDependencyStrategy;
 import org.apache.ivy.plugins.conflict.StrictConflictException;
 import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.apache.ivy.plugins.report.MetricsReportOutputter;
+import org.apache.ivy.plugins.report.TraceReportOutputter;
+import org.apache.ivy.plugins.report.XmlReportWriter;
 import org.apache.ivy.plugins.repository.AbstractRepository;
 import org.apache.ivy.plugins.repository.Resource;
 import org.apache.ivy.plugins.resolver.BasicResolver;
@@ -275,6 +280,131 @@ public class ResolveTest extends TestCase {
         assertTrue(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
     }
 
+    public void testResolveSimpleMetrics() throws Exception {
+        // mod2.1 depends on mod1.1 which depends on mod1.2
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.1/ivys/ivy-0.3.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+
+        // both are found by the resolver 1 of the chain, which downloads the descriptor of mod1.1
+        // and the artifacts of both, mod1.2 having no descriptor
+        ResolveMetrics metrics = report.getMetrics();
+        ResolveMetrics.ResolverMetrics chain = metrics.getResolverMetrics("test");
+        assertNotNull(chain);
+        assertEquals(2, chain.getRequests().getCount());
+        assertEquals(0, chain.getNotFound());
+        ResolveMetrics.ResolverMetrics resolver = metrics.getResolverMetrics("1");
+        assertNotNull(resolver);
+        assertEquals(2, resolver.getRequests().getCount());
+        assertEquals(0, resolver.getNotFound());
+        assertEquals(3, resolver.getDownloads());
+        assertEquals(new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").length()
+                + new File("test/repositories/1/org1/mod1.1/jars/mod1.1-1.0.jar").length()
+                + new File("test/repositories/1/org1/mod1.2/jars/mod1.2-2.0.jar").length(),
+            resolver.getDownloadedBytes());
+        assertEquals(0, metrics.getMetadataCacheHits());
+        assertTrue(metrics.getMetadataCacheMisses() > 0);
+        assertEquals(0, metrics.getArtifactCacheHits());
+        assertEquals(2, metrics.getArtifactCacheMisses());
+        assertEquals(1, metrics.getParseTimes("ivy parser").getCount());
+
+        File metricsFile = MetricsReportOutputter.getMetricsFile(report,
+            ivy.getResolutionCacheManager());
+        assertTrue(metricsFile.exists());
+        String json = FileUtil.readEntirely(metricsFile);
+        assertTrue(json, json.indexOf("\"resolveId\": \"org2-mod2.1\"") != -1);
+        assertTrue(json, json.indexOf("\"1\": {\"requests\": 2") != -1);
+
+        // a new resolve finds everything in the cache and downloads nothing
+        Ivy ivy = Ivy.newInstance();
+        ivy.configure(new File("test/repositories/ivysettings.xml"));
+        report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.1/ivys/ivy-0.3.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+        metrics = report.getMetrics();
+        assertTrue(metrics.getMetadataCacheHits() > 0);
+        assertEquals(0, metrics.getMetadataCacheMisses());
+        assertEquals(2, metrics.getArtifactCacheHits());
+        assertEquals(0, metrics.getArtifactCacheMisses());
+        resolver = metrics.getResolverMetrics("1");
+        assertTrue(resolver == null || resolver.getDownloads() == 0);
+    }
+
+    public void testResolveSimpleTrace() throws Exception {
+        // mod2.1 depends on mod1.1 which depends on mod1.2
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.1/ivys/ivy-0.3.xml").toURL(),
+            getResolveOptions(new String[] {"*"}).setTrace(true));
+        assertFalse(report.hasError());
+
+        ResolveTrace trace = report.getTrace();
+        assertNotNull(trace);
+        assertEquals(2, trace.getSpans(ResolveTrace.PHASE).length);
+        assertEquals("resolve", trace.getSpans(ResolveTrace.PHASE)[0].getName());
+        assertEquals("download", trace.getSpans(ResolveTrace.PHASE)[1].getName());
+        Set loaded = new HashSet();
+        ResolveTrace.Span[] spans = trace.getSpans(ResolveTrace.NODE);
+        for (int i = 0; i < spans.length; i++) {
+            loaded.add(spans[i].getDetail());
+        }
+        assertTrue(loaded.toString(), loaded.contains("org1#mod1.1;1.0"));
+        assertTrue(loaded.toString(), loaded.contains("org1#mod1.2;2.0"));
+
+        // the resolver 1 is asked for both dependencies when probed by the chain
+        ResolveTrace.Span[] probes = trace.getSpans(ResolveTrace.CHAIN);
+        ResolveTrace.Span[] requests = trace.getSpans(ResolveTrace.RESOLVER);
+        int found = 0;
+        for (int i = 0; i < probes.length; i++) {
+            if (!"1".equals(probes[i].getName())) {
+                continue;
+            }
+            for (int j = 0; j < requests.length; j++) {
+                if ("1".equals(requests[j].getName())
+                        && requests[j].getDetail().equals(probes[i].getDetail())) {
+                    assertTrue(requests[j].getStart() >= probes[i].getStart());
+                    assertTrue(requests[j].getStart() + requests[j].getDuration()
+                        <= probes[i].getStart() + probes[i].getDuration());
+                    found++;
+                }
+            }
+        }
+        assertEquals(2, found);
+        // the descriptor of mod1.1 and the artifacts of both
+        assertEquals(3, trace.getSpans(ResolveTrace.DOWNLOAD).length);
+        assertEquals(1, trace.getSpans(ResolveTrace.PARSE).length);
+
+        File traceFile = TraceReportOutputter.getTraceFile(report,
+            ivy.getResolutionCacheManager());
+        assertTrue(traceFile.exists());
+        String json = FileUtil.readEntirely(traceFile);
+        assertTrue(json, json.startsWith("{\"traceEvents\": ["));
+        assertTrue(json, json.indexOf("\"name\": \"loadData\", \"cat\": \"node\", "
+            + "\"ph\": \"X\"") != -1);
+        assertTrue(json, json.indexOf("\"args\": {\"detail\": \"org1#mod1.1;1.0\"}") != -1);
+        assertTrue(json, json.indexOf("\"name\": \"thread_name\"") != -1);
+    }
+
+    public void testResolveNotTraced() throws Exception {
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.1/ivys/ivy-0.3.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertFalse(report.hasError());
+        assertNull(report.getTrace());
+        assertFalse(TraceReportOutputter.getTraceFile(report, ivy.getResolutionCacheManager())
+                .exists());
+
+        // the trace can also be enabled in the settings
+        ivy.getSettings().setVariable("ivy.resolve.trace", "true");
+        report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.1/ivys/ivy-0.3.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertNotNull(report.getTrace());
+        assertTrue(TraceReportOutputter.getTraceFile(report, ivy.getResolutionCacheManager())
+                .exists());
+    }
+
     public void testResolveBadStatus() throws Exception {
         // mod1.4 depends on modfailure, modfailure has a bad status
         ResolveReport report = ivy.resolve(new File(
@@ -1297,6 +1427,61 @@ public class ResolveTest extends TestCase {
                 .exists());
     }
 
+    public void testResolveConflictsWithArtifactsAndDownloadThreads() throws Exception {
+        // same as testResolveConflictsWithArtifacts, downloading artifacts in parallel
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.6/ivys/ivy-0.12.xml").toURL(),
+            getResolveOptions(new String[] {"*"}).setDownloadThreads(4));
+        assertFalse(report.hasError());
+
+        // dependencies
+        assertTrue(getArchiveFileInCache("org1", "mod1.3", "3.1", "mod1.3-A", "jar", "jar")
+                .exists());
+        assertTrue(getArchiveFileInCache("org1", "mod1.3", "3.1", "mod1.3-C", "jar", "jar")
+                .exists());
+
+        // the artifact reports must be the same as the ones of a serial resolve
+        ResolveReport serial = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.6/ivys/ivy-0.12.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertEquals(getArtifacts(serial.getAllArtifactsReports()),
+            getArtifacts(report.getAllArtifactsReports()));
+        assertEquals(getArtifacts(serial.getFailedArtifactsReports()),
+            getArtifacts(report.getFailedArtifactsReports()));
+    }
+
+    public void testResolveConflictsWithArtifactsAndPipelinedDownloads() throws Exception {
+        // same as testResolveConflictsWithArtifacts, downloading artifacts during the resolve
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.6/ivys/ivy-0.12.xml").toURL(),
+            getResolveOptions(new String[] {"*"}).setDownloadThreads(4)
+                    .setPipelineDownloads(true));
+        assertFalse(report.hasError());
+
+        // dependencies
+        assertTrue(getArchiveFileInCache("org1", "mod1.3", "3.1", "mod1.3-A", "jar", "jar")
+                .exists());
+        assertTrue(getArchiveFileInCache("org1", "mod1.3", "3.1", "mod1.3-C", "jar", "jar")
+                .exists());
+
+        // the artifact reports must be the same as the ones of a serial resolve
+        ResolveReport serial = ivy.resolve(new File(
+                "test/repositories/1/org2/mod2.6/ivys/ivy-0.12.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertEquals(getArtifacts(serial.getAllArtifactsReports()),
+            getArtifacts(report.getAllArtifactsReports()));
+        assertEquals(getArtifacts(serial.getFailedArtifactsReports()),
+            getArtifacts(report.getFailedArtifactsReports()));
+    }
+
+    private Set getArtifacts(ArtifactDownloadReport[] adrs) {
+        Set artifacts = new HashSet();
+        for (int i = 0; i < adrs.length; i++) {
+            artifacts.add(adrs[i].getArtifact());
+        }
+        return artifacts;
+    }
+
     public void testResolveSeveralDefaultWithArtifactsAndConfs() throws Exception {
         // test case for IVY-283
         Ivy ivy = new Ivy();
@@ -2141,6 +2326,67 @@ public class ResolveTest extends TestCase {
         assertFalse(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
     }
 
+    public void testTransitiveEvictionWithPrefetch() throws Exception {
+        // same as testTransitiveEviction, looking up dependencies ahead of the resolve walk
+        ResolveReport report = ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml")
+                .toURL(), getResolveOptions(new String[] {"*"}).setPrefetchThreads(4));
+        assertNotNull(report);
+        assertFalse(report.hasError());
+
+        assertTrue(getArchiveFileInCache("org7", "mod7.2", "1.0", "mod7.2", "jar", "jar").exists());
+        assertTrue(getArchiveFileInCache("org7", "mod7.1", "2.0", "mod7.1", "jar", "jar").exists());
+        assertFalse(getArchiveFileInCache("org7", "mod7.1", "1.0", "mod7.1", "jar", "jar").exists());
+        assertFalse(getArchiveFileInCache("org1", "mod1.2", "2.0", "mod1.2", "jar", "jar").exists());
+
+        // the report must be the same as the one of a serial resolve
+        ResolveReport serial = ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml")
+                .toURL(), getResolveOptions(new String[] {"*"}));
+        String[] confs = report.getConfigurations();
+        assertEquals(Arrays.asList(serial.getConfigurations()), Arrays.asList(confs));
+        for (int i = 0; i < confs.length; i++) {
+            ConfigurationResolveReport confReport = report.getConfigurationReport(confs[i]);
+            ConfigurationResolveReport serialReport = serial.getConfigurationReport(confs[i]);
+            assertEquals(serialReport.getModuleRevisionIds(), confReport.getModuleRevisionIds());
+            assertEquals(getIds(serialReport.getEvictedNodes()), 
+                getIds(confReport.getEvictedNodes()));
+        }
+    }
+
+    public void testTransitiveEvictionWithPipelinedDownloads() throws Exception {
+        // same as testTransitiveEviction, downloading artifacts during the resolve
+        ResolveReport report = ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml")
+                .toURL(), getResolveOptions(new String[] {"*"}).setPipelineDownloads(true));
+        assertNotNull(report);
+        assertFalse(report.hasError());
+
+        assertTrue(getArchiveFileInCache("org7", "mod7.2", "1.0", "mod7.2", "jar", "jar").exists());
+        assertTrue(getArchiveFileInCache("org7", "mod7.1", "2.0", "mod7.1", "jar", "jar").exists());
+
+        // the report must be the same as the one of a serial resolve, even if the artifacts of
+        // evicted modules have been downloaded ahead
+        ResolveReport serial = ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml")
+                .toURL(), getResolveOptions(new String[] {"*"}));
+        String[] confs = report.getConfigurations();
+        assertEquals(Arrays.asList(serial.getConfigurations()), Arrays.asList(confs));
+        for (int i = 0; i < confs.length; i++) {
+            ConfigurationResolveReport confReport = report.getConfigurationReport(confs[i]);
+            ConfigurationResolveReport serialReport = serial.getConfigurationReport(confs[i]);
+            assertEquals(serialReport.getModuleRevisionIds(), confReport.getModuleRevisionIds());
+            assertEquals(getIds(serialReport.getEvictedNodes()), 
+                getIds(confReport.getEvictedNodes()));
+        }
+        assertEquals(getArtifacts(serial.getAllArtifactsReports()),
+            getArtifacts(report.getAllArtifactsReports()));
+    }
+
+    private Set getIds(IvyNode[] nodes) {
+        Set ids = new HashSet();
+        for (int i = 0; i < nodes.length; i++) {
+            ids.add(nodes[i].getId());
+        }
+        return ids;
+    }
+
     public void testTransitiveEviction2() throws Exception {
         // IVY-199
         // mod4.1 v 4.13 depends on
@@ -4103,6 +4349,32 @@ public class ResolveTest extends TestCase {
             getArtifact("org.apache", "test", "1.2", "test", "jar", "jar"));
     }
 
+    public void testResolveMaven2WithConflictAndReportThreads() throws Exception {
+        // same as testResolveMaven2WithConflict2, writing the reports of all confs concurrently
+        Ivy ivy = new Ivy();
+        ivy.configure(new File("test/repositories/m2/ivysettings.xml").toURL());
+        ResolveReport report = ivy.resolve(ResolveTest.class.getResource("ivy-874.xml"),
+            getResolveOptions(new String[] {"*"}).setReportThreads(4));
+        assertFalse(report.hasError());
+
+        // the reports must be the same as the ones written one after the other
+        String[] confs = report.getConfigurations();
+        assertEquals(8, confs.length);
+        for (int i = 0; i < confs.length; i++) {
+            File reportFile = getConfigurationResolveReportInCache(ivy, report.getResolveId(),
+                confs[i]);
+            assertTrue(reportFile.exists());
+            ByteArrayOutputStream written = new ByteArrayOutputStream();
+            FileUtil.copy(new FileInputStream(reportFile), written, null);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new XmlReportWriter().output(report.getConfigurationReport(confs[i]), confs,
+                expected);
+            assertEquals(confs[i], expected.toString("UTF-8"), written.toString("UTF-8"));
+        }
+        assertTrue(new File(getConfigurationResolveReportInCache(ivy, report.getResolveId(),
+            "default").getParentFile(), "ivy-report.xsl").exists());
+    }
+
     public void testResolveMaven2RelocationOfGroupId() throws Exception {
         //Same as testResolveMaven2 but with a relocated module pointing to the module
         //used in testResolveMaven2.
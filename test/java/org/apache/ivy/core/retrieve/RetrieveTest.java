@@ -17,9 +17,12 @@
  */
 package org.apache.ivy.core.retrieve;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +40,7 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.Message;
 import org.apache.ivy.util.MockMessageLogger;
 import org.apache.tools.ant.Project;
@@ -210,6 +214,27 @@ public class RetrieveTest extends TestCase {
             "jar", "default"));
     }
 
+    public void testRetrieveWithHardlinks() throws Exception {
+        // mod1.1 depends on mod1.2
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        assertNotNull(report);
+        ModuleDescriptor md = report.getModuleDescriptor();
+        assertNotNull(md);
+
+        String pattern = "build/test/retrieve/[module]/[conf]/[artifact]-[revision].[ext]";
+        ivy.retrieve(md.getModuleRevisionId(), pattern, getRetrieveOptions().setMakeHardlinks(
+            true));
+        File file = new File(IvyPatternHelper.substitute(pattern, "org1", "mod1.2", "2.0",
+            "mod1.2", "jar", "jar", "default"));
+        assertTrue(file.exists());
+        // a hard link isn't a symbolic link
+        assertEquals(file.getAbsoluteFile(), file.getCanonicalFile());
+        assertEquals(report.getAllArtifactsReports()[0].getLocalFile().lastModified(),
+            file.lastModified());
+    }
+
     private void assertLink(String filename) throws IOException {
         // if the OS is known to support symlink, check that the file is a symlink,
         // otherwise just check the file exist.
@@ -278,6 +303,84 @@ public class RetrieveTest extends TestCase {
         assertEquals(3, artifactsToCopy.size());
     }
 
+    public void testRetrieveWithManifest() throws Exception {
+        // mod1.1 depends on mod1.2
+        URL ivyFile = new File("test/repositories/1/org1/mod1.1/ivys/ivy-1.0.xml").toURL();
+        ResolveReport report = ivy.resolve(ivyFile, getResolveOptions(new String[] {"*"}));
+        ModuleRevisionId mrid = report.getModuleDescriptor().getModuleRevisionId();
+        String pattern = "build/test/retrieve/[module]/[conf]/[artifact]-[revision].[ext]";
+        File file = new File(IvyPatternHelper.substitute(pattern, "org1", "mod1.2", "2.0",
+            "mod1.2", "jar", "jar", "default"));
+
+        RetrieveReport retrieveReport = ivy.retrieve(mrid, getRetrieveOptions()
+                .setDestArtifactPattern(pattern));
+        assertEquals(1, retrieveReport.getNbrArtifactsCopied());
+
+        retrieveReport = ivy.retrieve(mrid, getRetrieveOptions().setDestArtifactPattern(pattern));
+        assertEquals(0, retrieveReport.getNbrArtifactsCopied());
+        assertEquals(1, retrieveReport.getNbrArtifactsUpToDate());
+        assertNotNull(retrieveReport.getDownloadReport().get(
+            ivy.getSettings().resolveFile(file.getPath())));
+
+        // the cached file is checked even without a new resolve
+        File archive = report.getAllArtifactsReports()[0].getLocalFile();
+        long lastModified = archive.lastModified();
+        archive.setLastModified(lastModified + 60000);
+        retrieveReport = ivy.retrieve(mrid, getRetrieveOptions().setDestArtifactPattern(pattern));
+        assertEquals(1, retrieveReport.getNbrArtifactsCopied());
+        archive.setLastModified(lastModified);
+
+        // the retrieved file has been modified since the previous retrieve
+        FileUtil.copy(new ByteArrayInputStream(new byte[] {1, 2, 3}), file, null);
+        file.setLastModified(System.currentTimeMillis() + 60000);
+        retrieveReport = ivy.retrieve(mrid, getRetrieveOptions().setDestArtifactPattern(pattern)
+                .setOverwriteMode(RetrieveOptions.OVERWRITEMODE_DIFFERENT));
+        assertEquals(1, retrieveReport.getNbrArtifactsCopied());
+
+        // the cached file has been modified by a new resolve
+        archive.setLastModified(archive.lastModified() - 60000);
+        ivy.resolve(ivyFile, getResolveOptions(new String[] {"*"}));
+        retrieveReport = ivy.retrieve(mrid, getRetrieveOptions().setDestArtifactPattern(pattern)
+                .setOverwriteMode(RetrieveOptions.OVERWRITEMODE_DIFFERENT));
+        assertEquals(1, retrieveReport.getNbrArtifactsCopied());
+        assertEquals(archive.lastModified(), file.lastModified());
+    }
+
+    public void testReportStamp() throws Exception {
+        File report = new File("build/test/retrieve/report.xml");
+        FileUtil.copy(new ByteArrayInputStream(new byte[] {1, 2, 3}), report, null);
+        long lastModified = report.lastModified();
+        String stamp = RetrieveManifest.getReportStamp(report);
+        assertEquals(stamp, RetrieveManifest.getReportStamp(report));
+
+        // written again with the same size within the same second
+        FileUtil.copy(new ByteArrayInputStream(new byte[] {1, 2, 4}), report, null);
+        report.setLastModified(lastModified);
+        assertFalse(stamp.equals(RetrieveManifest.getReportStamp(report)));
+    }
+
+    public void testRetrieveThreads() throws Exception {
+        ResolveReport report = ivy.resolve(new File(
+                "test/repositories/1/org20/mod20.1/ivys/ivy-1.2.xml").toURL(),
+            getResolveOptions(new String[] {"*"}));
+        ModuleRevisionId mrid = report.getModuleDescriptor().getModuleRevisionId();
+
+        final List events = new ArrayList();
+        ivy.getEventManager().addIvyListener(new IvyListener() {
+            public void progress(IvyEvent event) {
+                events.add(event);
+            }
+        });
+        String pattern = "build/test/retrieve/[module]/[conf]/[artifact]-[revision].[ext]";
+        RetrieveReport retrieveReport = ivy.retrieve(mrid, getRetrieveOptions()
+                .setDestArtifactPattern(pattern).setRetrieveThreads(4));
+        assertTrue(retrieveReport.getNbrArtifactsCopied() > 1);
+        assertEquals(2 + 2 * retrieveReport.getNbrArtifactsCopied(), events.size());
+        for (Iterator iter = retrieveReport.getCopiedFiles().iterator(); iter.hasNext();) {
+            assertTrue(((File) iter.next()).exists());
+        }
+    }
+
     private RetrieveOptions getRetrieveOptions() {
         return new RetrieveOptions();
     }
@@ -25,8 +25,11 @@ import java.text.ParseException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor;
 import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
@@ -37,8 +40,11 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.resolve.ResolveData;
+import org.apache.ivy.core.resolve.ResolveEngine;
+import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
 import org.apache.ivy.plugins.parser.AbstractModuleDescriptorParserTester;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
 import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParserTest;
@@ -128,6 +134,34 @@ public class PomModuleDescriptorParserTest extends AbstractModuleDescriptorParse
         assertEquals(mrid, md.getModuleRevisionId());
     }
 
+    public void testSkippedSections() throws Exception {
+        ModuleDescriptor md = PomModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, getClass().getResource("test-skipped-sections.pom"), false);
+        assertNotNull(md);
+
+        assertEquals(ModuleRevisionId.newInstance("org.apache", "test", "1.0"), md
+                .getModuleRevisionId());
+        assertEquals("a <streamed> pom", md.getDescription());
+
+        Map properties = PomModuleDescriptorBuilder.extractPomProperties(md.getExtraInfo());
+        assertEquals("1.0.4", properties.get("commons.version"));
+        assertEquals("value", properties.get("nested"));
+
+        DependencyDescriptor[] dds = md.getDependencies();
+        assertEquals(1, dds.length);
+        assertEquals(ModuleRevisionId.newInstance("commons-logging", "commons-logging", "1.0.4"),
+            dds[0].getDependencyRevisionId());
+        ExcludeRule[] excludes = dds[0].getAllExcludeRules();
+        assertEquals(1, excludes.length);
+        assertEquals("log4j", excludes[0].getId().getModuleId().getOrganisation());
+
+        List plugins = PomModuleDescriptorBuilder.getPlugins(md);
+        assertEquals(1, plugins.size());
+        PomDependencyMgt plugin = (PomDependencyMgt) plugins.get(0);
+        assertEquals("maven-compiler-plugin", plugin.getArtifactId());
+        assertEquals("2.0.2", plugin.getVersion());
+    }
+
     public void testPackaging() throws Exception {
         ModuleDescriptor md = PomModuleDescriptorParser.getInstance().parseDescriptor(
             settings, getClass().getResource("test-packaging.pom"), false);
@@ -815,6 +849,111 @@ public class PomModuleDescriptorParserTest extends AbstractModuleDescriptorParse
                 .getDependencyRevisionId());
     }
 
+    public void testParentPomCache() throws ParseException, IOException {
+        final int[] resolved = new int[1];
+        settings.setDictatorResolver(new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data) throws ParseException {
+                resolved[0]++;
+                try {
+                    ModuleDescriptor moduleDescriptor = PomModuleDescriptorParser.getInstance().parseDescriptor(
+                        settings, getClass().getResource("test-version.pom"), false);
+                    return new ResolvedModuleRevision(null,null,moduleDescriptor,null);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        ParentPomCache cache = IvyContext.getContext().getIvy().getResolveEngine()
+                .getParentPomCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+
+        ModuleDescriptor md = PomModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, getClass().getResource("test-parent-properties.pom"), false);
+        assertEquals(ModuleRevisionId.newInstance("org.apache", "test-version-other", "5.76"),
+            md.getDependencies()[0].getDependencyRevisionId());
+        md = PomModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, getClass().getResource("test-override-parent-properties.pom"), false);
+        assertEquals(ModuleRevisionId.newInstance("org.apache", "test-yet-other", "5.79"),
+            md.getDependencies()[1].getDependencyRevisionId());
+
+        // the parent has been resolved only once
+        assertEquals(1, resolved[0]);
+        assertEquals(hits + 1, cache.getHits());
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    public void testParentPomCacheRefresh() throws ParseException, IOException {
+        final int[] resolved = new int[1];
+        settings.setDictatorResolver(new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data) throws ParseException {
+                resolved[0]++;
+                try {
+                    ModuleDescriptor moduleDescriptor = PomModuleDescriptorParser.getInstance().parseDescriptor(
+                        settings, getClass().getResource("test-version.pom"), false);
+                    return new ResolvedModuleRevision(null,null,moduleDescriptor,null);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+        ResolveEngine engine = IvyContext.getContext().getIvy().getResolveEngine();
+        IvyContext.pushNewCopyContext().setResolveData(
+            new ResolveData(engine, new ResolveOptions().setRefresh(true)));
+        try {
+            PomModuleDescriptorParser.getInstance().parseDescriptor(
+                settings, getClass().getResource("test-parent-properties.pom"), false);
+            PomModuleDescriptorParser.getInstance().parseDescriptor(
+                settings, getClass().getResource("test-override-parent-properties.pom"), false);
+        } finally {
+            IvyContext.popContext();
+        }
+
+        // a refreshing resolve doesn't use the cached parent
+        assertEquals(2, resolved[0]);
+    }
+
+    public void testParentPomCacheChangingPattern() throws ParseException, IOException {
+        final int[] resolved = new int[1];
+        MockResolver resolver = new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data) throws ParseException {
+                resolved[0]++;
+                try {
+                    ModuleDescriptor moduleDescriptor = PomModuleDescriptorParser.getInstance().parseDescriptor(
+                        settings, getClass().getResource("test-version.pom"), false);
+                    return new ResolvedModuleRevision(this,this,moduleDescriptor,null);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        resolver.setSettings(settings);
+        resolver.setChangingMatcher(PatternMatcher.REGEXP);
+        resolver.setChangingPattern("1\\..*");
+        settings.setDictatorResolver(resolver);
+
+        PomModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, getClass().getResource("test-parent-properties.pom"), false);
+        PomModuleDescriptorParser.getInstance().parseDescriptor(
+            settings, getClass().getResource("test-override-parent-properties.pom"), false);
+
+        // the parent matches the changing pattern, and is not reused by another resolve
+        assertEquals(2, resolved[0]);
+    }
+
+    public void testParentPomCacheByEngine() throws ParseException, IOException {
+        Ivy ivy = Ivy.newInstance(settings);
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            testParentPomCache();
+            assertEquals(1, ivy.getResolveEngine().getParentPomCache().size());
+        } finally {
+            IvyContext.popContext();
+        }
+        assertNotSame(ivy.getResolveEngine().getParentPomCache(),
+            IvyContext.getContext().getIvy().getResolveEngine().getParentPomCache());
+    }
+
     public void testOverrideGrandparentProperties() throws ParseException, IOException {
         settings.setDictatorResolver(new MockResolver() {
             public ResolvedModuleRevision getDependency(DependencyDescriptor dd, ResolveData data) throws ParseException {
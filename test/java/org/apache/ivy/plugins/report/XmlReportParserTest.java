@@ -18,14 +18,19 @@
 package org.apache.ivy.plugins.report;
 
 import java.io.File;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
 
 import org.apache.ivy.Ivy;
 import org.apache.ivy.core.cache.DefaultResolutionCacheManager;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.MetadataArtifactDownloadReport;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.plugins.report.XmlReportParser.ParsedReport;
+import org.apache.ivy.util.FileUtil;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Delete;
 
@@ -73,6 +78,107 @@ public class XmlReportParserTest extends TestCase {
         assertEquals("Resolved module doesn't equals parsed module", modRevId, parsedModRevId);
     }
 
+    public void testBinaryReport() throws Exception {
+        // mod7.3 depends on mod7.2 and mod7.1, with an evicted revision of mod7.1
+        ResolveReport report = _ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml")
+                .toURL(), getResolveOptions(new String[] {"default"}).setResolveId(
+                "testBinaryReport"));
+        assertFalse(report.hasError());
+
+        File xml = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            "testBinaryReport", "default");
+        ParsedReport binary = assertSameAsXml(xml);
+        assertEquals(2, binary.getArtifactReports().size());
+
+        XmlReportParser parser = new XmlReportParser();
+        parser.parse(xml);
+        assertEquals(XmlReportParser.parseXml(xml).getArtifacts(),
+            Arrays.asList(parser.getArtifacts()));
+    }
+
+    public void testBinaryReportWithError() throws Exception {
+        // mod1.4 depends on a revision range of mod1.2 which is not found
+        ResolveReport report = _ivy.resolve(new File(
+                "test/repositories/1/org1/mod1.4/ivys/ivy-1.0.3.xml").toURL(),
+            getResolveOptions(new String[] {"default"}).setResolveId("testBinaryReportWithError"));
+        assertTrue(report.hasError());
+
+        File xml = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            "testBinaryReportWithError", "default");
+        ParsedReport binary = assertSameAsXml(xml);
+        assertTrue(binary.hasError);
+    }
+
+    /**
+     * Checks that the binary form of the given xml report holds what is parsed from the xml.
+     */
+    private ParsedReport assertSameAsXml(File xml) throws Exception {
+        assertTrue(BinaryReport.getBinaryFile(xml).exists());
+        ParsedReport binary = BinaryReport.read(xml);
+        assertNotNull(binary);
+        ParsedReport parsed = XmlReportParser.parseXml(xml);
+
+        assertEquals(parsed.getResolvedModule(), binary.getResolvedModule());
+        assertEquals(parsed.hasError, binary.hasError);
+        assertEquals(parsed.getModuleRevisionIds(), binary.getModuleRevisionIds());
+        assertEquals(parsed.getRealModuleRevisionIds(), binary.getRealModuleRevisionIds());
+        assertEquals(parsed.defaultMrids, binary.defaultMrids);
+        assertEquals(parsed.getArtifacts(), binary.getArtifacts());
+        assertEquals(parsed.getArtifactReports().size(), binary.getArtifactReports().size());
+        for (int i = 0; i < parsed.getArtifactReports().size(); i++) {
+            assertSameReport((ArtifactDownloadReport) parsed.getArtifactReports().get(i),
+                (ArtifactDownloadReport) binary.getArtifactReports().get(i));
+        }
+        for (int i = 0; i < parsed.getRealModuleRevisionIds().size(); i++) {
+            ModuleRevisionId mrid = (ModuleRevisionId) parsed.getRealModuleRevisionIds().get(i);
+            MetadataArtifactDownloadReport madr = parsed.getMetadataArtifactReport(mrid);
+            MetadataArtifactDownloadReport binaryMadr = binary.getMetadataArtifactReport(mrid);
+            assertSameReport(madr, binaryMadr);
+            assertEquals(madr.isSearched(), binaryMadr.isSearched());
+            assertEquals(madr.getOriginalLocalFile(), binaryMadr.getOriginalLocalFile());
+        }
+        return binary;
+    }
+
+    public void testOutOfDateBinaryReport() throws Exception {
+        _ivy.resolve(new File("test/repositories/2/mod7.3/ivy-1.0.xml").toURL(),
+            getResolveOptions(new String[] {"default"}).setResolveId("testOutOfDateBinaryReport"));
+        File xml = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            "testOutOfDateBinaryReport", "default");
+        File previousBinary = new File(_cache, "previous.bin");
+        FileUtil.copy(BinaryReport.getBinaryFile(xml), previousBinary, null);
+
+        // the report is written again, and the previous binary form is put back
+        ResolveReport report = _ivy.resolve(new File(
+                "test/java/org/apache/ivy/plugins/report/ivy-with-info.xml").toURL(),
+            getResolveOptions(new String[] {"default"}).setValidate(false).setResolveId(
+                "testOutOfDateBinaryReport"));
+        FileUtil.copy(previousBinary, BinaryReport.getBinaryFile(xml), null, true);
+
+        assertNull(BinaryReport.read(xml));
+        XmlReportParser parser = new XmlReportParser();
+        parser.parse(xml);
+        assertEquals(report.getModuleDescriptor().getModuleRevisionId(),
+            parser.getResolvedModule());
+    }
+
+    private void assertSameReport(ArtifactDownloadReport expected, ArtifactDownloadReport actual) {
+        // the publication date of metadata artifacts may be the parsing date
+        assertEquals(expected.getArtifact().getId(), actual.getArtifact().getId());
+        assertEquals(expected.getDownloadStatus(), actual.getDownloadStatus());
+        assertEquals(expected.getDownloadDetails(), actual.getDownloadDetails());
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getDownloadTimeMillis(), actual.getDownloadTimeMillis());
+        assertEquals(expected.getLocalFile(), actual.getLocalFile());
+        assertEquals(expected.getArtifactOrigin() == null, actual.getArtifactOrigin() == null);
+        if (expected.getArtifactOrigin() != null) {
+            assertEquals(expected.getArtifactOrigin().getLocation(),
+                actual.getArtifactOrigin().getLocation());
+            assertEquals(expected.getArtifactOrigin().isLocal(),
+                actual.getArtifactOrigin().isLocal());
+        }
+    }
+
     private ResolveOptions getResolveOptions(String[] confs) {
         return new ResolveOptions().setConfs(confs);
     }
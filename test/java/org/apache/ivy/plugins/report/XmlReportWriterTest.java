@@ -17,9 +17,13 @@
  */
 package org.apache.ivy.plugins.report;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
 
 import junit.framework.TestCase;
 
@@ -28,6 +32,7 @@ import org.apache.ivy.core.cache.DefaultResolutionCacheManager;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.ResolveOptions;
 import org.apache.ivy.util.CacheCleaner;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.XMLHelper;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -129,6 +134,36 @@ public class XmlReportWriterTest extends TestCase {
         assertTrue("XML doesn't contain extra attribute 2", xml.indexOf(extra2Attribute) != -1);
     }
 
+    public void testReportThreadsGolden() throws Exception {
+        _ivy.configure(new File("test/repositories/IVY-635/ivysettings.xml"));
+        ResolveReport report = _ivy.resolve(new File(
+                "test/java/org/apache/ivy/plugins/report/ivy-report-golden.xml").toURL(),
+            getResolveOptions(new String[] {"*"}).setReportThreads(2));
+        assertFalse(report.hasError());
+
+        // the reports written concurrently are the same as the ones written by the writer of
+        // previous versions, which escapes the configurations of the callers twice
+        assertSameAsGolden(report, "default", "ivy-report-golden-default-report.xml");
+        assertSameAsGolden(report, "a&b", "ivy-report-golden-ab-report.xml");
+    }
+
+    private void assertSameAsGolden(ResolveReport report, String conf, String golden)
+            throws IOException {
+        File reportFile = _ivy.getResolutionCacheManager().getConfigurationResolveReportInCache(
+            report.getResolveId(), conf);
+        String expected = FileUtil.readEntirely(new BufferedReader(new InputStreamReader(
+                XmlReportWriterTest.class.getResourceAsStream(golden),
+                XmlReportWriter.REPORT_ENCODING)));
+        String actual = FileUtil.readEntirely(new BufferedReader(new InputStreamReader(
+                new FileInputStream(reportFile), XmlReportWriter.REPORT_ENCODING)));
+        // the dates, the download times and the absolute paths depend on the run
+        actual = actual.replaceAll("date=\"\\d{14}\"", "date=\"DATE\"")
+                .replaceAll(" time=\"\\d+\"", " time=\"TIME\"")
+                .replace(XMLHelper.escape(new File("").getAbsolutePath()), "BASEDIR")
+                .replace(File.separatorChar, '/');
+        assertEquals(conf, expected, actual);
+    }
+
     private ResolveOptions getResolveOptions(String[] confs) {
         return new ResolveOptions().setConfs(confs);
     }
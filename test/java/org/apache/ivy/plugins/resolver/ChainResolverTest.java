@@ -18,6 +18,8 @@
 package org.apache.ivy.plugins.resolver;
 
 import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -480,6 +482,126 @@ public class ChainResolverTest extends AbstractDependencyResolverTest {
         return chain;
     }
 
+    public void testParallelResolveOrder() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setParallel(true);
+        chain.setParallelProbes(2);
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", false, null),
+                MockResolver.buildMockResolver(settings, "2", false, null),
+                MockResolver.buildMockResolver(settings, "3", true, null),
+                MockResolver.buildMockResolver(settings, "4", true, null)};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(ModuleRevisionId
+                .newInstance("org", "mod", "rev"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("3", rmr.getResolver().getName());
+        List ddAsList = Arrays.asList(new DependencyDescriptor[] {dd});
+        assertEquals(ddAsList, resolvers[0].askedDeps);
+        assertEquals(ddAsList, resolvers[1].askedDeps);
+        assertEquals(ddAsList, resolvers[2].askedDeps);
+        assertTrue(resolvers[3].askedDeps.isEmpty());
+    }
+
+    public void testParallelLatestRevisionResolve() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setLatestStrategy(new LatestRevisionStrategy());
+        chain.setParallel(true);
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", true, ModuleRevisionId.newInstance("org",
+                    "mod", "1"), new GregorianCalendar(2005, 1, 20).getTime()),
+                MockResolver.buildMockResolver(settings, "2", false, null),
+                MockResolver.buildMockResolver(settings, "3", true, ModuleRevisionId.newInstance("org",
+                    "mod", "4"), new GregorianCalendar(2005, 1, 25).getTime()), // latest
+                MockResolver.buildMockResolver(settings, "4", true, ModuleRevisionId.newInstance("org",
+                    "mod", "2"), new GregorianCalendar(2005, 1, 22).getTime()),
+                MockResolver.buildMockResolver(settings, "5", true, ModuleRevisionId.newInstance("org",
+                    "mod", "4"), new GregorianCalendar(2005, 1, 18).getTime())};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(ModuleRevisionId
+                .newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        // same revision found by 3 and 5: the first one in the chain is kept
+        assertEquals("3", rmr.getResolver().getName());
+        List ddAsList = Arrays.asList(new DependencyDescriptor[] {dd});
+        for (int i = 0; i < resolvers.length; i++) {
+            assertEquals(ddAsList, resolvers[i].askedDeps);
+        }
+    }
+
+    public void testParallelReturnFirst() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setReturnFirst(true);
+        chain.setParallel(true);
+        chain.setLatestStrategy(new LatestRevisionStrategy());
+        MockResolver[] resolvers = new MockResolver[] {
+                MockResolver.buildMockResolver(settings, "1", false, null),
+                MockResolver.buildMockResolver(settings, "2", true, ModuleRevisionId.newInstance("org",
+                    "mod", "1"), new GregorianCalendar(2005, 1, 20).getTime()),
+                MockResolver.buildMockResolver(settings, "3", true, ModuleRevisionId.newInstance("org",
+                    "mod", "2"), new GregorianCalendar(2005, 1, 25).getTime())};
+        for (int i = 0; i < resolvers.length; i++) {
+            chain.add(resolvers[i]);
+        }
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(ModuleRevisionId
+                .newInstance("org", "mod", "latest.integration"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("2", rmr.getResolver().getName());
+        assertTrue(rmr.isForce());
+    }
+
+    public void testParallelDoesNotInterruptBypassedProbes() throws Exception {
+        ChainResolver chain = new ChainResolver();
+        chain.setName("chain");
+        chain.setSettings(settings);
+        chain.setParallel(true);
+        chain.add(MockResolver.buildMockResolver(settings, "1", true, null));
+        final List events = Collections.synchronizedList(new ArrayList());
+        MockResolver slow = new MockResolver() {
+            public ResolvedModuleRevision getDependency(DependencyDescriptor dd,
+                    ResolveData data) throws ParseException {
+                events.add("started");
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    events.add("interrupted");
+                    throw new RuntimeException("interrupted");
+                }
+                events.add("finished");
+                return super.getDependency(dd, data);
+            }
+        };
+        slow.setName("2");
+        slow.setSettings(settings);
+        chain.add(slow);
+
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(ModuleRevisionId
+                .newInstance("org", "mod", "rev"), false);
+        ResolvedModuleRevision rmr = chain.getDependency(dd, data);
+        assertNotNull(rmr);
+        assertEquals("1", rmr.getResolver().getName());
+        // the bypassed probe is either cancelled before starting, or allowed to finish
+        if (!events.isEmpty()) {
+            assertEquals(Arrays.asList(new String[] {"started", "finished"}), events);
+        }
+    }
+
     public void testDual() throws Exception {
         ChainResolver chain = new ChainResolver();
         chain.setName("chain");
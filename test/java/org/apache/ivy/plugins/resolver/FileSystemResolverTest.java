@@ -243,6 +243,36 @@ public class FileSystemResolverTest extends AbstractDependencyResolverTest {
         assertEquals(1, dr.getArtifactsReports(DownloadStatus.SUCCESSFUL).length);
     }
 
+    public void testChecksumRecorded() throws Exception {
+        FileSystemResolver resolver = new FileSystemResolver();
+        resolver.setName("test");
+        resolver.setSettings(settings);
+
+        resolver.addIvyPattern(settings.getBaseDir() + "/test/repositories/checksums/[module]/[artifact]-[revision].[ext]");
+        resolver
+                .addArtifactPattern(
+                    settings.getBaseDir() + "/test/repositories/checksums/[module]/[artifact]-[revision].[ext]");
+
+        resolver.setChecksums("sha256, sha1");
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("test", "allright", "1.0");
+        Artifact artifact = new DefaultArtifact(mrid, new Date(), "allright", "jar", "jar");
+        String expected = FileUtil.readEntirely(
+            new File("test/repositories/checksums/allright/allright-1.0.jar.sha256")).trim();
+
+        DownloadReport dr = resolver.download(new Artifact[] {artifact}, getDownloadOptions());
+        ArtifactDownloadReport adr = dr.getArtifactReport(artifact);
+        assertEquals(DownloadStatus.SUCCESSFUL, adr.getDownloadStatus());
+        assertEquals(expected, adr.getArtifactOrigin().getChecksum("sha256"));
+        // only the first available checksum is checked
+        assertNull(adr.getArtifactOrigin().getChecksum("sha1"));
+
+        // the verified checksum is kept in the cache
+        dr = resolver.download(new Artifact[] {artifact}, getDownloadOptions());
+        adr = dr.getArtifactReport(artifact);
+        assertEquals(DownloadStatus.NO, adr.getDownloadStatus());
+        assertEquals(expected, adr.getArtifactOrigin().getChecksum("sha256"));
+    }
+
     public void testCheckModified() throws Exception {
         FileSystemResolver resolver = new FileSystemResolver();
         resolver.setName("test");
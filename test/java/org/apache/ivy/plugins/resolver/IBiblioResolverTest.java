@@ -17,6 +17,7 @@
  */
 package org.apache.ivy.plugins.resolver;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -27,6 +28,7 @@ import java.util.Set;
 
 import org.apache.ivy.core.IvyContext;
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.event.EventManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
 import org.apache.ivy.core.module.descriptor.DefaultArtifact;
@@ -47,6 +49,7 @@ import org.apache.ivy.core.search.RevisionEntry;
 import org.apache.ivy.core.settings.IvySettings;
 import org.apache.ivy.core.sort.SortEngine;
 import org.apache.ivy.plugins.matcher.ExactPatternMatcher;
+import org.apache.ivy.util.FileUtil;
 import org.apache.ivy.util.MockMessageLogger;
 import org.apache.tools.ant.Project;
 import org.apache.tools.ant.taskdefs.Delete;
@@ -235,6 +238,63 @@ public class IBiblioResolverTest extends AbstractDependencyResolverTest {
         assertEquals("commons-lang", values[0]);
     }
 
+    public void testMavenMetadataCached() throws Exception {
+        File root = new File("build/test/m2");
+        File metadata = new File(root, "org/apache/test-metadata/maven-metadata.xml");
+        FileUtil.copy(new File("test/repositories/m2/org/apache/test-metadata/maven-metadata.xml"),
+            metadata, null, true);
+        try {
+            IBiblioResolver resolver = newMetadataResolver(root);
+            DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) _settings
+                    .getDefaultRepositoryCacheManager();
+            cacheManager.setListingTTL(60 * 60 * 1000);
+
+            ModuleEntry mod = new ModuleEntry(new OrganisationEntry(resolver, "org.apache"),
+                    "test-metadata");
+            assertEquals(new HashSet(Arrays.asList(new String[] {"1.0", "1.1"})),
+                getRevisions(resolver.listRevisions(mod)));
+
+            // the maven-metadata.xml is updated in the repository
+            FileUtil.copy(new ByteArrayInputStream(FileUtil.readEntirely(metadata).replaceFirst(
+                "<version>1.1</version>\\s*</versions>",
+                "<version>1.1</version><version>1.2</version></versions>").getBytes("UTF-8")),
+                metadata, null);
+            metadata.setLastModified(metadata.lastModified() + 10000);
+
+            // but its copy in the cache is still used by the next build during the ttl
+            resolver = newMetadataResolver(root);
+            mod = new ModuleEntry(new OrganisationEntry(resolver, "org.apache"), "test-metadata");
+            assertEquals(new HashSet(Arrays.asList(new String[] {"1.0", "1.1"})),
+                getRevisions(resolver.listRevisions(mod)));
+
+            // and checked by the next build when the ttl has expired
+            cacheManager.setListingTTL(0);
+            resolver = newMetadataResolver(root);
+            mod = new ModuleEntry(new OrganisationEntry(resolver, "org.apache"), "test-metadata");
+            assertEquals(new HashSet(Arrays.asList(new String[] {"1.0", "1.1", "1.2"})),
+                getRevisions(resolver.listRevisions(mod)));
+        } finally {
+            FileUtil.forceDelete(root);
+        }
+    }
+
+    private IBiblioResolver newMetadataResolver(File root) throws Exception {
+        IBiblioResolver resolver = new IBiblioResolver();
+        resolver.setRoot(root.getAbsoluteFile().toURL().toExternalForm());
+        resolver.setName("test");
+        resolver.setM2compatible(true);
+        resolver.setSettings(_settings);
+        return resolver;
+    }
+
+    private Set getRevisions(RevisionEntry[] revisions) {
+        Set revs = new HashSet();
+        for (int i = 0; i < revisions.length; i++) {
+            revs.add(revisions[i].getRevision());
+        }
+        return revs;
+    }
+
     public void testErrorReport() throws Exception {
         IBiblioResolver resolver = new IBiblioResolver();
         resolver.setRoot("http://unknown.host.comx/");
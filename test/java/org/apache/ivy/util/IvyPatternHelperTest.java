@@ -23,6 +23,9 @@ import java.util.Map;
 import junit.framework.TestCase;
 
 import org.apache.ivy.core.IvyPatternHelper;
+import org.apache.ivy.core.IvyPatternHelper.CompiledPattern;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
 
 public class IvyPatternHelperTest extends TestCase {
     public void testSubstitute() {
@@ -69,6 +72,56 @@ public class IvyPatternHelperTest extends TestCase {
             pattern, "apache", "Test", "1.0", "test", "jar", "jar"));
     }
 
+    public void testCompiledPattern() {
+        String pattern = "[orgPath]/[module](/[branch])/[artifact]-[revision](-[classifier])"
+                + "([unknown]).[ext] ([conf])";
+        CompiledPattern compiled = IvyPatternHelper.compile(pattern);
+        assertSame(compiled, IvyPatternHelper.compile(pattern));
+
+        Map extraAttributes = new HashMap();
+        extraAttributes.put("m:classifier", "sources");
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org.apache", "Test", "1.0");
+        DefaultArtifact artifact = new DefaultArtifact(mrid, null, "test", "source", "jar",
+                extraAttributes);
+        assertEquals("org/apache/Test/test-1.0-sources.jar default", 
+            compiled.substitute(mrid, artifact, null, null));
+        assertEquals(IvyPatternHelper.substitute(pattern, artifact), 
+            compiled.substitute(mrid, artifact, null, null));
+
+        artifact = new DefaultArtifact(mrid, null, "test", "jar", "jar");
+        assertEquals("org/apache/Test/test-1.0.jar compile", 
+            compiled.substitute(mrid, artifact, "compile", null));
+        assertEquals("org/apache/Test/ivy-1.0.xml default", compiled.substitute(mrid));
+
+        Map tokens = new HashMap();
+        tokens.put("organisation", "org.apache");
+        tokens.put("module", "Test");
+        assertEquals("org/apache/Test/[artifact]-[revision].[ext] ", 
+            compiled.substituteTokens(tokens));
+
+        try {
+            IvyPatternHelper.compile("[module]/(optional/[revision]");
+            fail("invalid pattern should raise an exception");
+        } catch (IllegalArgumentException ex) {
+            // ok
+        }
+    }
+
+    public void testCompiledPatternsEviction() {
+        String pattern = "[organisation]/[module]/[artifact]-[revision].[ext]";
+        ModuleRevisionId mrid = ModuleRevisionId.newInstance("org", "mod", "1.0");
+        for (int i = 0; i < 5000; i++) {
+            IvyPatternHelper.compile("org/mod" + i + "/[artifact]-[revision].[ext]");
+            if (i % 100 == 0) {
+                assertEquals("org/mod/ivy-1.0.xml", 
+                    IvyPatternHelper.compile(pattern).substitute(mrid));
+            }
+        }
+        // new patterns are still cached after the cache has been cleared
+        String oneOff = "org/other/[artifact]-[revision].[ext]";
+        assertSame(IvyPatternHelper.compile(oneOff), IvyPatternHelper.compile(oneOff));
+    }
+
     public void testTokenRoot() {
         String pattern = "lib/[type]/[artifact].[ext]";
         assertEquals("lib/", IvyPatternHelper.getTokenRoot(pattern));
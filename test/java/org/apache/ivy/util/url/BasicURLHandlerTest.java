@@ -18,9 +18,20 @@
 package org.apache.ivy.util.url;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
 
+import org.apache.ivy.util.CopyProgressEvent;
+import org.apache.ivy.util.CopyProgressListener;
 import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.url.URLHandler.URLInfo;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 import junit.framework.TestCase;
 
@@ -65,6 +76,95 @@ public class BasicURLHandlerTest extends TestCase {
         assertDownloadOK(new URL("http://carsten.codimi.de/gzip.yaws/nh80.pdf?deflate=on"), new File(testDir, "nh80-deflate.pdf"));
     }
     
+    public void testKeepAlive() throws Exception {
+        final Set/*<InetSocketAddress>*/ clients = new HashSet();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = "content".getBytes("UTF-8");
+                int status = exchange.getRequestURI().getPath().endsWith("missing") ? 404 : 200;
+                if ("HEAD".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else {
+                    // the jdk http server closes the connection after a HEAD request
+                    synchronized (clients) {
+                        clients.add(exchange.getRemoteAddress());
+                    }
+                    exchange.sendResponseHeaders(status, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort() + "/";
+            handler.setMaxConnectionsPerHost(1);
+            assertTrue(handler.isReachable(new URL(base + "file.txt")));
+            assertFalse(handler.isReachable(new URL(base + "missing")));
+            assertEquals('c', handler.openStream(new URL(base + "file.txt")).read());
+            try {
+                handler.openStream(new URL(base + "missing"));
+                fail("expected an IOException");
+            } catch (IOException e) {
+                // expected
+            }
+            File dest = new File(testDir, "file.txt");
+            handler.download(new URL(base + "file.txt"), dest, null);
+            assertEquals(7, dest.length());
+
+            // all the GET requests have been sent through a single connection
+            assertEquals(1, clients.size());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testETag() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            URL url = new URL("http://localhost:" + server.getAddress().getPort() + "/file.txt");
+            URLInfo info = handler.getURLInfo(url);
+            assertTrue(info.isReachable());
+            assertEquals("\"v1\"", info.getETag());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    public void testDownloadLocalFile() throws Exception {
+        File src = new File("build.xml");
+        File dest = new File(testDir, "build.xml");
+        final long[] progress = new long[3];
+        handler.download(src.toURL(), dest, new CopyProgressListener() {
+            public void start(CopyProgressEvent evt) {
+                progress[0]++;
+            }
+
+            public void progress(CopyProgressEvent evt) {
+                progress[1] += evt.getReadBytes();
+                progress[2] = evt.getTotalReadBytes();
+            }
+
+            public void end(CopyProgressEvent evt) {
+                progress[0]++;
+            }
+        });
+        assertEquals(src.length(), dest.length());
+        assertEquals(src.lastModified(), dest.lastModified());
+        assertEquals(2, progress[0]);
+        assertEquals(src.length(), progress[1]);
+        assertEquals(src.length(), progress[2]);
+    }
+
     private void assertDownloadOK(URL url, File file) throws Exception {
         handler.download(url, file, null);
         assertTrue(file.exists());        